@@ -2,6 +2,7 @@ package controller;
 
 import java.awt.Desktop;
 import java.awt.HeadlessException;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
 import java.io.File;
@@ -30,14 +31,16 @@ import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
-import model.Collider;
+import model.ChunkStore;
+import model.ColliderMask;
+import model.Layer;
 import model.Map;
 import model.MapConfig;
 import model.MapState;
 import model.Project;
-import model.Tile;
 import model.Tileset;
 import model.TilesetConfig;
+import model.World;
 import test.Config;
 import view.MainWindow;
 import view.NewFileDialog;
@@ -166,174 +169,300 @@ public class FileManager {
 	public Project loadFileDOM(String absolutePath) {
 
 		try {
+			return loadProject(absolutePath);
+		} catch (Exception e) { // error loading saved file
+			System.err.println("Could not load save file: "+absolutePath+". Throw message: "+e.getMessage());
+			// shows info message to user
+			JOptionPane.showMessageDialog(MainWindow.getInstance(), "Tileset(s) could not be loaded. Are you sure \nthey are in the same folder as the project being loaded?");
+			e.printStackTrace();
+			return null;
+		}
 
-			// the file containing the information to be loaded
-			File fXmlFile = new File(absolutePath);
-			DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-			DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-			Document doc = dBuilder.parse(fXmlFile);
+	}
 
-			// folder of the save file (to get tileset images)
-			String projFolder = absolutePath.substring(0, absolutePath.lastIndexOf("\\")+1);
+	/**
+	 * Loads a project from a file of 2D Map Builder extension (.m2d)
+	 * without using the state of the program or showing dialogs,
+	 * so several projects can be loaded by different threads at once
+	 * 
+	 * @author Pedro Sampaio
+	 * @since 1.8
+	 * @param absolutePath 	the path for the file containing the information to load is stored
+	 * @return the project with the loaded information from save file
+	 * @throws Exception	if the save file or the tilesets of the project could not be read
+	 */
+	public static Project loadProject(String absolutePath) throws Exception {
+		return loadProject(absolutePath, MapConfig.getInstance().getChunkStore(), MapConfig.getInstance().isPaletteChunks());
+	}
 
-			//optional, but recommended
-			// reduction of redundancies
-			doc.getDocumentElement().normalize();
+	/**
+	 * Loads a project from a file of 2D Map Builder extension (.m2d)
+	 * keeping the tiles of its map in the given storage, without
+	 * reading the configuration of the program, so projects can be
+	 * loaded by threads of batch jobs while the program runs
+	 * 
+	 * @author Pedro Sampaio
+	 * @since 1.8
+	 * @param absolutePath 	the path for the file containing the information to load is stored
+	 * @param chunkStore	store of the tiles of the layers off the heap (null keeps tiles on heap)
+	 * @param paletteChunks	if tiles of the layers kept on the heap are kept in palettes of their chunks
+	 * @return the project with the loaded information from save file
+	 * @throws Exception	if the save file or the tilesets of the project could not be read
+	 */
+	public static Project loadProject(String absolutePath, ChunkStore chunkStore, boolean paletteChunks) throws Exception {
 
-			// debugs info read
-			if(Config.debug) {
-				System.out.println("\n----------------------------");
-				System.out.println("Loading file: "+absolutePath);	
-				System.out.println("----------------------------");
-				System.out.println("Root element :" + doc.getDocumentElement().getNodeName());
-			}
+		// the file containing the information to be loaded
+		File fXmlFile = new File(absolutePath).getAbsoluteFile();
+		DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
+		DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
+		Document doc = dBuilder.parse(fXmlFile);
 
-			/** 
-			 * Retrieving basic information about the project's map
-			 */
+		// folder of the save file (to get tileset images)
+		String projFolder = fXmlFile.getParent() + File.separator;
 
-			// width of the map
-			int mapWidth = Integer.parseInt(doc.getElementsByTagName("mapwidth").item(0).getTextContent());
-			// height of the map
-			int mapHeight = Integer.parseInt(doc.getElementsByTagName("mapheight").item(0).getTextContent());
-			// width of the map
-			int tileSize = Integer.parseInt(doc.getElementsByTagName("tilesize").item(0).getTextContent());
+		//optional, but recommended
+		// reduction of redundancies
+		doc.getDocumentElement().normalize();
 
-			// debugs basic map info read
-			if(Config.debug) {
-				System.out.println("\nBasic Map Info:");	
-				System.out.println("Map Width: "+mapWidth);	
-				System.out.println("Map Height: "+mapHeight);	
-				System.out.println("Tile Size: "+tileSize);	
-			}
+		// debugs info read
+		if(Config.debug) {
+			System.out.println("\n----------------------------");
+			System.out.println("Loading file: "+absolutePath);	
+			System.out.println("----------------------------");
+			System.out.println("Root element :" + doc.getDocumentElement().getNodeName());
+		}
 
-			/**
-			 * Retrieving tilesets information
-			 */
-			NodeList tsList = doc.getElementsByTagName("tileset"); // list of tileset nodes
-			ArrayList<Tileset> tilesets = new ArrayList<Tileset>(); // the list of tilesets to be contained in the project
+		/** 
+		 * Retrieving basic information about the project's map
+		 */
+
+		// width of the map
+		int mapWidth = Integer.parseInt(doc.getElementsByTagName("mapwidth").item(0).getTextContent());
+		// height of the map
+		int mapHeight = Integer.parseInt(doc.getElementsByTagName("mapheight").item(0).getTextContent());
+		// unbounded maps save only the area of their occupied chunks, starting at the origin
+		boolean unbounded = doc.getElementsByTagName("unbounded").getLength() > 0 
+				&& Boolean.parseBoolean(doc.getElementsByTagName("unbounded").item(0).getTextContent());
+		int originI = 0, originJ = 0;
+		if(unbounded) {
+			originJ = Integer.parseInt(doc.getElementsByTagName("originx").item(0).getTextContent());
+			originI = Integer.parseInt(doc.getElementsByTagName("originy").item(0).getTextContent());
+		}
+		// width of the map
+		int tileSize = Integer.parseInt(doc.getElementsByTagName("tilesize").item(0).getTextContent());
 
-			if(Config.debug) {
-				System.out.println("\nTileset Info:");	
-			}
+		// debugs basic map info read
+		if(Config.debug) {
+			System.out.println("\nBasic Map Info:");	
+			System.out.println("Map Width: "+mapWidth);	
+			System.out.println("Map Height: "+mapHeight);	
+			if(unbounded)
+				System.out.println("Unbounded Map Origin: "+originJ+","+originI);	
+			System.out.println("Tile Size: "+tileSize);	
+		}
 
-			// iterates through list of tilesets nodes to gather information
-			for (int i = 0; i < tsList.getLength(); i++) {
+		/**
+		 * Retrieving tilesets information
+		 */
+		NodeList tsList = doc.getElementsByTagName("tileset"); // list of tileset nodes
+		ArrayList<Tileset> tilesets = new ArrayList<Tileset>(); // the list of tilesets to be contained in the project
 
-				Node tsNode = tsList.item(i); // the current tileset node
+		if(Config.debug) {
+			System.out.println("\nTileset Info:");	
+		}
 
-				// gets information only if node is of element type
-				if (tsNode.getNodeType() == Node.ELEMENT_NODE) {
+		// iterates through list of tilesets nodes to gather information
+		for (int i = 0; i < tsList.getLength(); i++) {
 
-					// the current element of tileset list
-					Element tsElem = (Element) tsNode;
+			Node tsNode = tsList.item(i); // the current tileset node
 
-					// information gathered
-					String tsName = tsElem.getElementsByTagName("name").item(0).getTextContent();
-					String tsSource = tsElem.getElementsByTagName("source").item(0).getTextContent();
-					int tsFirstID = Integer.parseInt(tsElem.getElementsByTagName("firstid").item(0).getTextContent());
-					int tsTileCount = Integer.parseInt(tsElem.getElementsByTagName("tilecount").item(0).getTextContent());
-					int tsTileSize = Integer.parseInt(tsElem.getElementsByTagName("tilesize").item(0).getTextContent());
+			// gets information only if node is of element type
+			if (tsNode.getNodeType() == Node.ELEMENT_NODE) {
 
-					// creates tileset and adds to the list of tilesets
-					tilesets.add(TilesetConfig.getInstance().createTileset(tsName, tsTileSize, projFolder+tsSource, tsFirstID, tsTileCount));
+				// the current element of tileset list
+				Element tsElem = (Element) tsNode;
 
-					// debugs tileset info read
-					if(Config.debug) {
-						System.out.println("Name : " + tsName);
-						System.out.println("Source : " + tsSource);
-						System.out.println("First ID : " + tsFirstID);
-						System.out.println("Tilecount : " + tsTileCount);
-						System.out.println("Tilesize : " + tsTileSize+"\n");
-					}
+				// information gathered
+				String tsName = tsElem.getElementsByTagName("name").item(0).getTextContent();
+				String tsSource = tsElem.getElementsByTagName("source").item(0).getTextContent();
+				int tsFirstID = Integer.parseInt(tsElem.getElementsByTagName("firstid").item(0).getTextContent());
+				int tsTileCount = Integer.parseInt(tsElem.getElementsByTagName("tilecount").item(0).getTextContent());
+				int tsTileSize = Integer.parseInt(tsElem.getElementsByTagName("tilesize").item(0).getTextContent());
 
+				// creates tileset and adds to the list of tilesets
+				tilesets.add(TilesetConfig.getInstance().createTileset(tsName, tsTileSize, projFolder+tsSource, tsFirstID, tsTileCount));
+
+				// debugs tileset info read
+				if(Config.debug) {
+					System.out.println("Name : " + tsName);
+					System.out.println("Source : " + tsSource);
+					System.out.println("First ID : " + tsFirstID);
+					System.out.println("Tilecount : " + tsTileCount);
+					System.out.println("Tilesize : " + tsTileSize+"\n");
 				}
+
 			}
+		}
+
+		// gets save info for project
+		String[] saveInfo = new String[2];
+		saveInfo[0] = projFolder;
+		saveInfo[1] = fXmlFile.getName();
+		String fileName = fXmlFile.getName().replaceFirst("\\.m2d$", "");
+
+		/**
+		 * Worlds keep their tiles in region files, that are 
+		 * streamed into an empty map with the layers of the world
+		 */
+		if(doc.getElementsByTagName("world").getLength() > 0) {
+			Element worldElem = (Element) doc.getElementsByTagName("world").item(0);
+			World world = new World(Integer.parseInt(worldElem.getElementsByTagName("columns").item(0).getTextContent()),
+									Integer.parseInt(worldElem.getElementsByTagName("rows").item(0).getTextContent()),
+									Integer.parseInt(worldElem.getElementsByTagName("regionwidth").item(0).getTextContent()),
+									Integer.parseInt(worldElem.getElementsByTagName("regionheight").item(0).getTextContent()));
+			world.setLocation(projFolder, fileName);
+			Map worldMap = new Map(mapWidth, mapHeight, chunkStore, paletteChunks);
+			for(int l = 1; l < doc.getElementsByTagName("layer").getLength(); l++)
+				worldMap.getLayers().add(worldMap.createLayer(l, 1));
+			
+			if(Config.debug)
+				System.out.println("\nWorld of " + world.getColumns() + "x" + world.getRows() + " regions of " 
+									+ world.getRegionWidth() + "x" + world.getRegionHeight() + " tiles");
+			
+			Project project = new Project(worldMap, tilesets, tileSize, mapWidth, mapHeight);
+			project.setWorld(world);
+			project.setSaveInfo(saveInfo);
+			return project;
+		}
 
-			/**
-			 * Retrieving layers and tiles information
-			 */
-			NodeList lList = doc.getElementsByTagName("layer"); // list of layer nodes
-			String[] layers = new String[lList.getLength()];
+		/**
+		 * Retrieving layers and tiles information
+		 */
+		String[] layers = readLayers(doc);
+		
+		/**
+	     * Loads colliders from map collider mask file
+	     */
+        ColliderMask colliders = unbounded ? new ColliderMask() : new ColliderMask(mapWidth, mapHeight); 
+        readColliders(new File(projFolder + fileName + ".col"), colliders, originI, originJ, mapWidth, mapHeight);
+
+		// creates a map with the information gathered on layers, tilesets, and colliders
+		Map loadedMap = MapConfig.createMap(layers, tilesets, colliders, originI, originJ, chunkStore, paletteChunks);
+
+		// createMap was not able to create the map with the informations provided 
+		if(loadedMap == null) {
+			System.err.println("\nError: could not create map with save file information");
+		}
 
-			if(Config.debug) {
-				System.out.println("\nLayers Info:");	
-			}
+		// creates project with obtained information from save file
+		// (unbounded maps have no dimensions)
+		Project project = new Project(loadedMap, tilesets, tileSize, unbounded ? 0 : mapWidth, unbounded ? 0 : mapHeight);
+		// sets project save info
+		project.setSaveInfo(saveInfo);
+
+		// returns the project created with loaded information
+		return project;
+	}
+
+	/**
+	 * Loads the map of a region of a world, with the tilesets of
+	 * the world (tileset images are not read), without using the
+	 * state of the program, so regions can be read in background
+	 * 
+	 * @author Pedro Sampaio
+	 * @since 1.8
+	 * @param absolutePath 	the path of the region file
+	 * @param tilesets		the tilesets of the world
+	 * @param chunkStore	store of the tiles of the layers off the heap (null keeps tiles on heap)
+	 * @param paletteChunks	if tiles of the layers kept on the heap are kept in palettes of their chunks
+	 * @return the map of the region (null if map could not be created with the file information)
+	 * @throws Exception	if the region file could not be read
+	 */
+	public static Map loadRegion(String absolutePath, ArrayList<Tileset> tilesets, 
+									ChunkStore chunkStore, boolean paletteChunks) throws Exception {
+		File fXmlFile = new File(absolutePath).getAbsoluteFile();
+		Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(fXmlFile);
+		doc.getDocumentElement().normalize();
+		
+		int mapWidth = Integer.parseInt(doc.getElementsByTagName("mapwidth").item(0).getTextContent());
+		int mapHeight = Integer.parseInt(doc.getElementsByTagName("mapheight").item(0).getTextContent());
+		
+		ColliderMask colliders = new ColliderMask(mapWidth, mapHeight);
+		readColliders(new File(fXmlFile.getPath().replaceFirst("\\.m2d$", ".col")), colliders, 0, 0, mapWidth, mapHeight);
+		return MapConfig.createMap(readLayers(doc), tilesets, colliders, chunkStore, paletteChunks);
+	}
 
-			// iterates through list of layer nodes to gather information
-			for (int i = 0; i < lList.getLength(); i++) {
+	/**
+	 * Reads the tiles information of the layers of a save file
+	 * 
+	 * @param doc	the document of the save file
+	 * @return	a string with the grid of tile ids of each layer
+	 */
+	private static String[] readLayers(Document doc) {
+		NodeList lList = doc.getElementsByTagName("layer"); // list of layer nodes
+		String[] layers = new String[lList.getLength()];
 
-				Node lNode = lList.item(i); // the current layer node
+		if(Config.debug) {
+			System.out.println("\nLayers Info:");	
+		}
 
-				// adds to the layers string array (removing initial break line char that is an extra unecessary info)
-				layers[i] =  lNode.getTextContent().substring(1, lNode.getTextContent().length());
+		// iterates through list of layer nodes to gather information
+		for (int i = 0; i < lList.getLength(); i++) {
 
-				// debugs tileset info read
-				if(Config.debug) {
-					System.out.println("Layer"+(i+1)+":\n" + lNode.getTextContent());
-				}
+			Node lNode = lList.item(i); // the current layer node
 
-			}
-			
-			/**
-		     * Loads colliders from map collider mask file
-		     */
-	        // the file containing the information to be loaded
-			String fileName = absolutePath.substring(absolutePath.lastIndexOf("\\")+1).split("\\.")[0];
-			File initialFile = new File(projFolder + fileName + ".col");
-	        InputStream colFile = new FileInputStream(initialFile);
-	        
-	        // buffered reader to read collider file
-	        BufferedReader colReader = new BufferedReader(new InputStreamReader(colFile));
-	        // iterates through lines and columns to get collider mask
-	        String line;
-	        Collider[][] colliders = new Collider[mapHeight][mapWidth]; 
-	        
-	        int i = 0;
-	        try {
-	            while ((line = colReader.readLine()) != null) {
-	                String[] cols = line.split(",");
-	                for (int j = 0; j < cols.length; j++) {
-	                    if(cols[j].equals("1"))  // creates collider if 1 is the info
-	                        colliders[i][j] = new Collider(1, i, j, false);
-	                    else if(cols[j].equals("2"))
-	                    	colliders[i][j] = new Collider(2, i, j, true);
-	                }
-	                i++;
-	            }
-	        } catch (IOException e) {
-	            System.err.println("Could not read file: " + projFolder + fileName + ".col");
-	            e.printStackTrace();
-	        }
-
-
-			// creates a map with the information gathered on layers, tilesets, and colliders
-			Map loadedMap = MapConfig.getInstance().createMap(layers, tilesets, colliders);
-
-			// createMap was not able to create the map with the informations provided 
-			if(loadedMap == null) {
-				System.err.println("\nError: could not create map with save file information");
-			}
+			// adds to the layers string array (removing initial break line char that is an extra unecessary info)
+			layers[i] =  lNode.getTextContent().substring(1, lNode.getTextContent().length());
 
-			// creates project with obtained information from save file
-			Project project = new Project(loadedMap, tilesets, tileSize, mapWidth, mapHeight);
-			// gets save info for project
-			String[] saveInfo = new String[2];
-			saveInfo[0] = projFolder;
-			saveInfo[1] = absolutePath.substring(absolutePath.lastIndexOf("\\")+1);
-			// sets project save info
-			project.setSaveInfo(saveInfo);
+			// debugs tileset info read
+			if(Config.debug) {
+				System.out.println("Layer"+(i+1)+":\n" + lNode.getTextContent());
+			}
 
-			// returns the project created with loaded information
-			return project;
-		} catch (Exception e) { // error loading saved file
-			System.err.println("Could not load save file: "+absolutePath+". Throw message: "+e.getMessage());
-			// shows info message to user
-			JOptionPane.showMessageDialog(MainWindow.getInstance(), "Tileset(s) could not be loaded. Are you sure \nthey are in the same folder as the project being loaded?");
-			e.printStackTrace();
-			return null;
 		}
+		return layers;
+	}
 
+	/**
+	 * Reads the colliders of a collider mask file (.col)
+	 * 
+	 * @param file		the collider mask file
+	 * @param colliders	the mask that receives the colliders
+	 * @param originI	the i-index (line) in mask of the first line of the file
+	 * @param originJ	the j-index (column) in mask of the first column of the file
+	 * @param mapWidth	number of columns of the file
+	 * @param mapHeight	number of lines of the file
+	 * @throws IOException	if the file could not be opened
+	 */
+	private static void readColliders(File file, ColliderMask colliders, int originI, int originJ, 
+										int mapWidth, int mapHeight) throws IOException {
+        InputStream colFile = new FileInputStream(file);
+        
+        // iterates through lines and columns to get collider mask
+        String line;
+        int i = 0;
+        // buffered reader to read collider file (closed after reading)
+        try (BufferedReader colReader = new BufferedReader(new InputStreamReader(colFile))) {
+            while ((line = colReader.readLine()) != null && i < mapHeight) {
+                String[] cols = line.split(",");
+                for (int j = 0; j < cols.length && j < mapWidth; j++) {
+                    if(cols[j].equals("1"))  // creates collider if 1 is the info
+                        colliders.set(originI + i, originJ + j, ColliderMask.PHYSICAL);
+                    else if(cols[j].equals("2"))
+                    	colliders.set(originI + i, originJ + j, ColliderMask.TRIGGER);
+                }
+                i++;
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read file: " + file.getPath());
+            e.printStackTrace();
+        }
+        
+        // debugs colliders read
+        if(Config.debug) {
+        	System.out.println("Colliders: " + colliders.count(ColliderMask.PHYSICAL) + " physical, " 
+        						+ colliders.count(ColliderMask.TRIGGER) + " trigger");
+        }
 	}
 
 
@@ -391,7 +520,26 @@ public class FileManager {
 	 * @param path 		the path where the save will be created
 	 * @return	boolean that represents if a file was saved or not
 	 */
-	public boolean saveFileDOM(Project project, String path, String filename) {
+	public static boolean saveFileDOM(Project project, String path, String filename) {
+		return saveFileDOM(project, path, filename, true);
+	}
+
+	/**
+	 * Saves the project in a file of 2D Map Builder extension (.m2d),
+	 * saving the tileset images with it or not (regions of a world
+	 * share the tileset images saved with the world). Projects of
+	 * worlds save their modified regions in region files and only
+	 * the description of the world in the project file
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param project		the project to be saved contained all necessary information 
+	 * @param path 			the path where the save will be created
+	 * @param filename 		the filename of the save to be created
+	 * @param saveImages	if the tileset images are saved in the path
+	 * @return	boolean that represents if a file was saved or not
+	 */
+	public static boolean saveFileDOM(Project project, String path, String filename, boolean saveImages) {
 
 		DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
 		DocumentBuilder dBuilder;
@@ -407,18 +555,41 @@ public class FileManager {
 
 			Element elem; // elements to add to document
 
+			// area of the map to be saved: the whole map or, for
+			// unbounded maps, the area of the occupied chunks
+			Map map = project.getMap();
+			Rectangle area = new Rectangle(0, 0, project.getMapSizeX(), project.getMapSizeY());
+			if(map.isUnbounded()) {
+				area = map.getOccupiedBounds();
+				if(area == null)
+					area = new Rectangle(0, 0, 0, 0);
+			}
+
 			// create map data elements and place them under root
 
 			// map width in tiles
 			elem = doc.createElement("mapwidth");
-			elem.appendChild(doc.createTextNode(Integer.toString(project.getMapSizeX())));
+			elem.appendChild(doc.createTextNode(Integer.toString(area.width)));
 			rootElement.appendChild(elem);
 
 			// map height in tiles
 			elem = doc.createElement("mapheight");
-			elem.appendChild(doc.createTextNode(Integer.toString(project.getMapSizeY())));
+			elem.appendChild(doc.createTextNode(Integer.toString(area.height)));
 			rootElement.appendChild(elem);
 
+			// origin of the saved area of unbounded maps
+			if(map.isUnbounded()) {
+				elem = doc.createElement("unbounded");
+				elem.appendChild(doc.createTextNode("true"));
+				rootElement.appendChild(elem);
+				elem = doc.createElement("originx");
+				elem.appendChild(doc.createTextNode(Integer.toString(area.x)));
+				rootElement.appendChild(elem);
+				elem = doc.createElement("originy");
+				elem.appendChild(doc.createTextNode(Integer.toString(area.y)));
+				rootElement.appendChild(elem);
+			}
+
 			// map tile size in pixels
 			elem = doc.createElement("tilesize");
 			elem.appendChild(doc.createTextNode(Integer.toString(project.getTileSize())));
@@ -431,11 +602,13 @@ public class FileManager {
 				Tileset ts = project.getTilesets().get(i); // the iteration tileset	
 				elem.appendChild(getInsetNode(doc, "name", ts.getName()));						// name of the tile	
 				// gets extension from absolute path 
-				String imgExtension = ts.getImagePath().split("\\.")[1];
+				String imgName = new File(ts.getImagePath()).getName();
+				String imgExtension = imgName.substring(imgName.lastIndexOf('.')+1);
 				if(Config.debug)
 					System.out.println("Saving file of extension: ."+imgExtension + " in folder: "+path);
 				// saves tileset source image in the save destiny directory
-				saveImage(ts.getImage(), ts.getName(), imgExtension, path);
+				if(saveImages)
+					saveImage(ts.getImage(), ts.getName(), imgExtension, path);
 				// appends the rest of tileset information
 				elem.appendChild(getInsetNode(doc, "source", ts.getName()+"."+imgExtension));			// image source of tile (to be copied to save folder)
 				elem.appendChild(getInsetNode(doc, "firstid", Integer.toString(ts.getFirstID())));		// first id that is present in this tileset (global id considering all tilesets)
@@ -444,61 +617,80 @@ public class FileManager {
 				rootElement.appendChild(elem);
 			}
 
+			// worlds describe their regions (tiles and colliders are saved in region files)
+			World world = project.getWorld();
+			if(world != null) {
+				elem = doc.createElement("world");
+				elem.appendChild(getInsetNode(doc, "columns", Integer.toString(world.getColumns())));			// number of regions on x-axis
+				elem.appendChild(getInsetNode(doc, "rows", Integer.toString(world.getRows())));					// number of regions on y-axis
+				elem.appendChild(getInsetNode(doc, "regionwidth", Integer.toString(world.getRegionWidth())));	// number of columns of each region
+				elem.appendChild(getInsetNode(doc, "regionheight", Integer.toString(world.getRegionHeight())));	// number of lines of each region
+				rootElement.appendChild(elem);
+			}
+
 			// create elements for layers of the map 
-			for(int l = 0; l < project.getMap().getLayers().size(); l++) {
+			for(int l = 0; l < map.getLayers().size(); l++) {
 				//  beggining of a layer element in document 
 				elem = doc.createElement("layer");
+				
+				// layers of worlds are empty (only their number is kept)
+				if(world != null) {
+					rootElement.appendChild(elem);
+					continue;
+				}
 
-				// matrix of tiles for current layer
-				Tile[][] tiles = project.getMap().getLayers().get(l).getTiles();
+				// current layer containing the tile ids
+				Layer layer = map.getLayers().get(l);
+				// layer data to be written in the save file
+				StringBuilder layerData = new StringBuilder();
 
-				// iterates through matrix to fill tile data to the save file
-				for(int i = 0; i < tiles.length; i++) {
-					elem.appendChild(doc.createTextNode("\n")); // break lines
-					for(int j = 0; j < tiles[i].length; j++) {
-						// if null, write 0 representing that there are no tiles in this position
-						if(tiles[i][j] == null)
-							elem.appendChild(doc.createTextNode("0")); // null data
-						else // write tile data
-							elem.appendChild(doc.createTextNode(Integer.toString(tiles[i][j].getId()))); // tile data
+				// iterates through layer to fill tile data to the save file
+				// (0 represents that there are no tiles in the position)
+				for(int i = area.y; i < area.y + area.height; i++) {
+					layerData.append('\n'); // break lines
+					// empty lines are written without looking up tiles
+					boolean emptyRow = layer.isRowEmpty(i);
+					for(int j = area.x; j < area.x + area.width; j++) {
+						layerData.append(emptyRow ? 0 : layer.getTileID(i, j)); // tile data
 
 						// if its not last data append "," (string splitter)
-						if(!((i == tiles.length - 1) &&  (j == tiles[i].length - 1)))
-							elem.appendChild(doc.createTextNode(","));	
+						if(!((i == area.y + area.height - 1) &&  (j == area.x + area.width - 1)))
+							layerData.append(',');	
 					}
 				}
 
+				elem.appendChild(doc.createTextNode(layerData.toString()));
 				elem.appendChild(doc.createTextNode("\n")); // break last lines
 				// end of a layer element in document
 				rootElement.appendChild(elem);
 			}
 			
-			// saves collider mask in other file .col
-			Collider[][] colliders = project.getMap().getColliders();
-			// collider save data
-			String colSaveData = "";
+			String fileNameWOExt = filename.replace(".m2d", "");
 			
-			// iterates through matrix to fill collider data to the save file
-			for(int i = 0; i < colliders.length; i++) {
-				for(int j = 0; j < colliders[i].length; j++) {
-					// if null, write 0 representing that there are no collider in this position
-					if(colliders[i][j] == null)
-						colSaveData += "0"; // null data
-					else // write collider data
-						colSaveData += Integer.toString(colliders[i][j].getId()); // tile data
-
-					// if its not last data append "," (string splitter)
-					if(!((i == colliders.length - 1) &&  (j == colliders[i].length - 1)))
-						colSaveData += ",";	
+			// saves collider mask in other file .col
+			if(world == null) {
+				ColliderMask colliders = map.getColliders();
+				// collider save data
+				StringBuilder colSaveData = new StringBuilder();
+
+				// iterates through mask to fill collider data to the save file
+				// (0 represents that there are no collider in the position)
+				for(int i = area.y; i < area.y + area.height; i++) {
+					for(int j = area.x; j < area.x + area.width; j++) {
+						colSaveData.append(colliders.get(i, j));
+
+						// if its not last data append "," (string splitter)
+						if(!((i == area.y + area.height - 1) &&  (j == area.x + area.width - 1)))
+							colSaveData.append(',');	
+					}
+					colSaveData.append('\n'); // break lines
 				}
-				colSaveData += "\n"; // break lines
+
+				// save collider data in file .col
+				PrintWriter colFile = new PrintWriter(path + "/" + fileNameWOExt + ".col");
+				colFile.print(colSaveData.toString());
+				colFile.close();
 			}
-			
-			// save collider data in file .col
-			String fileNameWOExt = filename.replace(".m2d", "");
-			PrintWriter colFile = new PrintWriter(path + "/" + fileNameWOExt + ".col");
-			colFile.print(colSaveData);
-			colFile.close();
 
 			//for output to file, console
 			TransformerFactory transformerFactory = TransformerFactory.newInstance();
@@ -520,6 +712,9 @@ public class FileManager {
 				transformer.transform(source, console);
 			transformer.transform(source, file);
 
+			// saves the modified regions of worlds in their files
+			if(world != null)
+				return world.save(map, path, fileNameWOExt);
 
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -629,13 +824,14 @@ public class FileManager {
 		// updates project map
 		project.setMap(map);
 		// updates project map dimensions
-		project.setMapSizeX(MapConfig.mapSizeX);
-		project.setMapSizeY(MapConfig.mapSizeY);
+		// (unbounded maps have no dimensions)
+		project.setMapSizeX(map.isUnbounded() ? 0 : map.getWidth());
+		project.setMapSizeY(map.isUnbounded() ? 0 : map.getHeight());
 		// updates save info
 		project.setSaveInfo(saveInfo);
 		// saves the file with all project info on desired location
 		// while copying the tilesets source images to the destiny
-		FileManager.getInstance().saveFileDOM(project, saveInfo[0], saveInfo[1]);
+		FileManager.saveFileDOM(project, saveInfo[0], saveInfo[1]);
 		// updates status of project to saved
 		MapConfig.getInstance().getProject().setSaved(true);
 		// dispatch project saved for observers
@@ -667,8 +863,16 @@ public class FileManager {
 		// create tileset with obtained info
 		Tileset tileset = TilesetConfig.getInstance().createTileset(nFileDialog.getTilesetName(),
 							nFileDialog.getTileSize(), nFileDialog.getAbsolutePath());
-		// creates project with obtained information
-		MainWindow.getInstance().createProject(new Project(tileset, nFileDialog.getTileSize(), 
+		// creates project with obtained information (worlds span all their regions)
+		if(nFileDialog.isWorld()) {
+			Project project = new Project(tileset, nFileDialog.getTileSize(), nFileDialog.getRegionsX() * nFileDialog.getMapSizeX(), 
+											nFileDialog.getRegionsY() * nFileDialog.getMapSizeY());
+			project.setWorld(new World(nFileDialog.getRegionsX(), nFileDialog.getRegionsY(), 
+										nFileDialog.getMapSizeX(), nFileDialog.getMapSizeY()));
+			MainWindow.getInstance().createProject(project);
+		}
+		else
+			MainWindow.getInstance().createProject(new Project(tileset, nFileDialog.getTileSize(), 
 												nFileDialog.getMapSizeX(), nFileDialog.getMapSizeY()));
 	}
 	
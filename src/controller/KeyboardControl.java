@@ -237,23 +237,23 @@ public class KeyboardControl implements KeyListener {
 		
 		// mConfig movements on x axis (horizontal)
 		if(isRightKeyPressed) { 	
-			mConfig.setMoveX((int) (mConfig.getSpeed() * MapConfig.zoom));		// right movement, positive speed on x axis 
+			mConfig.setMoveX((int) (mConfig.getSpeed() * mConfig.getZoom()));		// right movement, positive speed on x axis 
 			mConfig.setMoveY(0);												// blocks Y movemen
 		}
 		else if(isLeftKeyPressed) {		
-			mConfig.setMoveX((int) (-mConfig.getSpeed() * MapConfig.zoom));	// left movement, negative speed on x axis
+			mConfig.setMoveX((int) (-mConfig.getSpeed() * mConfig.getZoom()));	// left movement, negative speed on x axis
 			mConfig.setMoveY(0);											// blocks Y movemen
 		}
 		else
 			mConfig.setMoveX(0);					// no moevement on x-axis
 		// mConfig movements on y axis (vertical)
 		if(isUpKeyPressed) {
-			mConfig.setMoveY((int) (-mConfig.getSpeed() * MapConfig.zoom));	// up movement, negative speed on y axis
+			mConfig.setMoveY((int) (-mConfig.getSpeed() * mConfig.getZoom()));	// up movement, negative speed on y axis
 			mConfig.setMoveX(0);											// blocks X movemen
 
 		}
 		else if(isDownKeyPressed) {
-			mConfig.setMoveY((int) (mConfig.getSpeed() * MapConfig.zoom));		// dpwn movement, positive speed on y axis
+			mConfig.setMoveY((int) (mConfig.getSpeed() * mConfig.getZoom()));		// dpwn movement, positive speed on y axis
 			mConfig.setMoveX(0);												// blocks X movement
 			
 		}
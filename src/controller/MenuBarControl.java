@@ -125,7 +125,7 @@ public class MenuBarControl implements ActionListener{
 
 		// only erase tiles of selection if a layer is currently selected
 		if(selectedLayer >= 0) {
-			Tool.eraseSelection(map.getLayers().get(selectedLayer).getSelectedTiles(), mapStates, selectedLayer);
+			Tool.eraseSelection(map.getLayers().get(selectedLayer).getSelection(), mapStates, selectedLayer);
 		} else {
 			if(Config.debug)
 				System.err.println("MenuBar: Cannot delete selected tiles: No layer selected");
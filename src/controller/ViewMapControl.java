@@ -10,7 +10,6 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
-import java.util.ArrayList;
 import java.util.Observable;
 import java.util.Observer;
 
@@ -18,11 +17,12 @@ import javax.swing.JScrollPane;
 import javax.swing.JViewport;
 
 import model.Clipboard;
+import model.Layer;
 import model.Map;
 import model.MapConfig;
 import model.MapState;
 import model.Preferences;
-import model.Tile;
+import model.Selection;
 import model.Tileset;
 import model.TilesetConfig;
 import model.Tool;
@@ -45,7 +45,6 @@ public class ViewMapControl implements Observer {
 	int dragButton 		= MouseEvent.BUTTON2;		// middle mouse button controls drag movements of the map
 	int selectButton	= MouseEvent.BUTTON1;		// left mouse button for select interactions with the map
 	int pressedButton;								// the last pressed button
-	public static boolean saveState;				// bool that represents if mouse button was relased and state should be saved
 	
 	/**
 	 * Current tool selected for map interaction (obtained via Tool class observation)
@@ -65,7 +64,7 @@ public class ViewMapControl implements Observer {
 	@SuppressWarnings("unused")
 	private Map map;				// current map data
 	private int defaultUnitV;		// default increment on vertical scroll of jsrollpane
-	private ArrayList<Tile> selectedMapTiles;	// selected map tiles at a given moment
+	private Selection selectedMapTiles;		// selected map tiles at a given moment
 	private MapState mapStates;					// a reference to the states of the map
 	private int layerIdx;					// current selected layer index
 	private static MouseAdapter mouseAdapter;	// mouse adapter with mouse callbacks
@@ -91,7 +90,6 @@ public class ViewMapControl implements Observer {
 	public ViewMapControl(JScrollPane scrollPane, Tileset tileset, MapState mapStates) {
 		this.map = mapStates.getCurrentMap();
 		this.defaultUnitV = scrollPane.getVerticalScrollBar().getUnitIncrement();
-		saveState = false;
 		this.mapStates = mapStates;
 
 		// initially a paste from clipboard is not the selected tiles
@@ -112,7 +110,7 @@ public class ViewMapControl implements Observer {
 		// initializes selected map tiles with no tiles selected
 		// using the first layer as initial layer
 		layerIdx = 0;
-		selectedMapTiles = (mapStates.getCurrentMap().getLayers().get(layerIdx).getSelectedTiles());
+		selectedMapTiles = (mapStates.getCurrentMap().getLayers().get(layerIdx).getSelection());
 		
 		// sets mouse cursors
 		defaultCursor = scrollPane.getCursor();
@@ -151,8 +149,7 @@ public class ViewMapControl implements Observer {
             	// updates origin
         		origin = new Point(e.getPoint());
         		// origin tile click  
-            	tOrigin = new Point((origin.x + scrollPane.getViewport().getViewPosition().x) / MapConfig.getTileZoomed(),
-            						(origin.y + scrollPane.getViewport().getViewPosition().y) / MapConfig.getTileZoomed());
+            	tOrigin = Tool.getTilePosition(relativeClick, mapStates.getCurrentMap());
             	
         		// updates shift origin if shift is not pressed
         		if(!KeyboardControl.isShiftPressed())
@@ -164,6 +161,11 @@ public class ViewMapControl implements Observer {
                 	scrollPane.setCursor(grabCursor);
             	}
             	else if (e.getButton() == selectButton) {
+            		// strokes of tools that modify the map are recorded as a single state
+            		if(currentTool == Tool.SelectTools.BRUSH || currentTool == Tool.SelectTools.ERASER 
+            				|| currentTool == Tool.SelectTools.COLLIDER)
+            			mapStates.beginEdit();
+            		
             		// switch actions depending on what tool is currently selected
             		switch (currentTool) {
             			case BRUSH:
@@ -173,24 +175,25 @@ public class ViewMapControl implements Observer {
             				else { // use a paste from clipboard to brush (user has pressed ctrl+v or used paste button)
             					if(Config.debug) {
             						System.out.println("ViewMapControl: A paste of size " + 
-            											Clipboard.getInstance().getCopiedTiles().size() + " is in course");
+            											Clipboard.getInstance().getTileCount() + " is in course");
             					}
             					
-            					// use brushtiles overload that paints with clipboard content
-            					Tool.brushTiles(relativeClick, mapStates,
-            									Clipboard.getInstance().getCopiedTiles(), false);
+            					// use paste method that paints with clipboard content
+            					Tool.pasteTiles(relativeClick, mapStates, false);
             				}
             				break;
             			case ERASER:
             				Tool.eraseTile(relativeClick, mapStates, false);		// user wants to erase tile
             				break;
             			case SELECTION:
+            				// selection must cover the current map
+            				selectedMapTiles = getLayerSelection();
                 			// pass control to select method to add tile to selected tiles
                 			Tool.SelectTile(relativeClick, tileset, selectedMapTiles, shiftOrigin, true);
                 			if(Config.debug) {
                 				System.out.println("Map: There are " + selectedMapTiles.size() + " selected tiles in map");
                 			}
-                			mapStates.getCurrentMap().getLayers().get(mapStates.getCurrentMap().getSelectedLayer()).setSelectedTiles(selectedMapTiles);
+                			mapStates.getCurrentMap().getLayers().get(mapStates.getCurrentMap().getSelectedLayer()).setSelection(selectedMapTiles);
                         	// notify observers of map that a change has occurred
                         	mapStates.dispatchChanges();
             				break;
@@ -212,9 +215,9 @@ public class ViewMapControl implements Observer {
             public void mouseReleased(MouseEvent e) {
         		
             	scrollPane.setCursor(defaultCursor);
-            	//save state should happen
+            	// stroke ends, recording its state
             	if(pressedButton == selectButton)
-            		saveState = true;
+            		mapStates.commitEdit();
             }
             
             @Override
@@ -249,8 +252,7 @@ public class ViewMapControl implements Observer {
                 	//origin tile
                 	
                 	// gets tile coords relative to the mouse scroll-relative position
-                	Point tDestiny	= new Point(relativeClick.x / MapConfig.getTileZoomed(), 
-                							    relativeClick.y /  MapConfig.getTileZoomed());
+                	Point tDestiny	= Tool.getTilePosition(relativeClick, mapStates.getCurrentMap());
                 	
                 	// bool that stores if drag ocurrs in the same tile as last addition
                 	boolean inSameTile = (tOrigin.x == tDestiny.x && tOrigin.y == tDestiny.y) ? true : false;
@@ -267,12 +269,11 @@ public class ViewMapControl implements Observer {
                 				else { // use a paste from clipboard to brush (user has pressed ctrl+v or used paste button)
                 					if(Config.debug) {
                 						System.out.println("ViewMapControl: A paste of size " + 
-                											Clipboard.getInstance().getCopiedTiles().size() + " is in course");
+                											Clipboard.getInstance().getTileCount() + " is in course");
                 					}
 
-                					// use brushtiles overload that paints with clipboard content
-                					Tool.brushTiles(relativeClick, mapStates,
-                									Clipboard.getInstance().getCopiedTiles(), false);
+                					// use paste method that paints with clipboard content
+                					Tool.pasteTiles(relativeClick, mapStates, false);
                 				}
             					tOrigin = tDestiny;
             				}
@@ -297,6 +298,8 @@ public class ViewMapControl implements Observer {
                         		return;
                         	
                         	destiny = new Point(e.getX(),  e.getY());
+                        	// selection must cover the current map
+                        	selectedMapTiles = getLayerSelection();
                         	
                         	// if origin and destiny are from the same tile, dont bother doing rect select
                         	if (inSameTile) {
@@ -309,7 +312,7 @@ public class ViewMapControl implements Observer {
                     				System.out.println("Map: There are " + selectedMapTiles.size() + " selected tiles in map");
                     			}
                     			
-                    			mapStates.getCurrentMap().getLayers().get(mapStates.getCurrentMap().getSelectedLayer()).setSelectedTiles(selectedMapTiles);
+                    			mapStates.getCurrentMap().getLayers().get(mapStates.getCurrentMap().getSelectedLayer()).setSelection(selectedMapTiles);
                             	// notify observers of map that a change has occurred
                             	mapStates.dispatchChanges();
                     			
@@ -325,13 +328,13 @@ public class ViewMapControl implements Observer {
                             									  destiny.y + viewPort.getViewPosition().y);
 
                             	// creates the rectangular selection passing the relatives origin and destiny of mouse drag
-                            	Tool.RectSelect(relativeOrigin, relativeDestiny, tileset, selectedMapTiles, 
-                            			MapConfig.getTileZoomed(), MapConfig.mapSizeX, MapConfig.mapSizeY);
+                            	Tool.RectSelect(relativeOrigin, relativeDestiny, selectedMapTiles, 
+                            			MapConfig.getInstance().getTileZoomed(), selectedMapTiles.getWidth(), selectedMapTiles.getHeight());
                             	
                     			if(Config.debug) {
                     				System.out.println("Map: There are " + selectedMapTiles.size() + " selected tiles in map");
                     			}
-                    			mapStates.getCurrentMap().getLayers().get(mapStates.getCurrentMap().getSelectedLayer()).setSelectedTiles(selectedMapTiles);
+                    			mapStates.getCurrentMap().getLayers().get(mapStates.getCurrentMap().getSelectedLayer()).setSelection(selectedMapTiles);
                             	// notify observers of map that a change has occurred
                             	mapStates.dispatchChanges();
                         	}
@@ -391,13 +394,12 @@ public class ViewMapControl implements Observer {
         				else { // use a paste from clipboard to brush (user has pressed ctrl+v or used paste button)
         					if(Config.debug) {
         						System.out.println("ViewMapControl: A paste of size " + 
-        											Clipboard.getInstance().getCopiedTiles().size() + " is in course");
+        											Clipboard.getInstance().getTileCount() + " is in course");
         					}
         					
-        					// use brushtiles overload that paints with clipboard content
-        					Tool.brushTiles(new Point(MapConfig.getMousePosition().x + scrollPane.getViewport().getViewPosition().x,
-	        								MapConfig.getMousePosition().y + scrollPane.getViewport().getViewPosition().y), mapStates,
-        									Clipboard.getInstance().getCopiedTiles(), true);
+        					// use paste method that paints with clipboard content
+        					Tool.pasteTiles(new Point(MapConfig.getMousePosition().x + scrollPane.getViewport().getViewPosition().x,
+	        								MapConfig.getMousePosition().y + scrollPane.getViewport().getViewPosition().y), mapStates, true);
         				}
 	    				break;
 	    			case ERASER:
@@ -428,27 +430,29 @@ public class ViewMapControl implements Observer {
                 	// disables vertical scroll moving to zoom
                 	scrollPane.getVerticalScrollBar().setUnitIncrement(0);
                 	
-                	float preZoom = MapConfig.zoom;
-                	
                 	MapConfig mConfig = MapConfig.getInstance();
+                	float preZoom = mConfig.getZoom();
+                	float zoom = preZoom;
+                	
                 	// update zoom depending on user input
                 	if(e.getWheelRotation() > 0)
-                		MapConfig.zoom *= MapConfig.getInstance().getZoomOutSpeed();
+                		zoom *= mConfig.getZoomOutSpeed();
                 	else
-                		MapConfig.zoom *= MapConfig.getInstance().getZoomInSpeed();
+                		zoom *= mConfig.getZoomInSpeed();
 
                 	// clamp zoom between min a max zoom
-                	MapConfig.zoom = Math.max(mConfig.getMinZoom(), Math.min(MapConfig.zoom, mConfig.getMaxZoom()));
+                	zoom = Math.max(mConfig.getMinZoom(), Math.min(zoom, mConfig.getMaxZoom()));
+                	mConfig.setZoom(zoom);
                 	
                 	if(Config.debug)
-                		System.out.println("ViewMapControl: CurrentZoom: " + MapConfig.zoom);
+                		System.out.println("ViewMapControl: CurrentZoom: " + zoom);
                 	
                 	// zooms with mouse position as anchor 
                 	// translates only if zoom occurs
-                	if(preZoom != MapConfig.zoom) {
+                	if(preZoom != zoom) {
 	                	Point pos = scrollPane.getViewport().getViewPosition();
 	                	Point point = MapConfig.getMousePosition();
-	                	double zoomFactor = MapConfig.zoom / preZoom;
+	                	double zoomFactor = zoom / preZoom;
 
 	                    int newX = (int)(point.x*(zoomFactor - 1f) + zoomFactor*pos.x);
 	                    int newY = (int)(point.y*(zoomFactor - 1f) + zoomFactor*pos.y);
@@ -471,6 +475,28 @@ public class ViewMapControl implements Observer {
         scrollPane.getViewport().addMouseMotionListener(mouseAdapter);
 	}
 	
+	/**
+	 * Gets the selection of tiles of the selected layer, replacing
+	 * it with an empty selection of the whole map if it does not
+	 * cover the map anymore (map resized or canvas of an unbounded
+	 * map moved by the chunks painted since the selection was made)
+	 * 
+	 * @author	Pedro Sampaio
+	 * @since	1.8
+	 * @return	the selection of tiles of the selected layer
+	 */
+	private Selection getLayerSelection() {
+		Map currentMap = mapStates.getCurrentMap();
+		Layer layer = currentMap.getLayers().get(currentMap.getSelectedLayer());
+		Selection selection = layer.getSelection();
+		if(selection.getOriginI() != currentMap.getOriginI() || selection.getOriginJ() != currentMap.getOriginJ()
+				|| selection.getWidth() != currentMap.getWidth() || selection.getHeight() != currentMap.getHeight()) {
+			selection = new Selection(currentMap.getOriginI(), currentMap.getOriginJ(), currentMap.getWidth(), currentMap.getHeight());
+			layer.setSelection(selection);
+		}
+		return selection;
+	}
+	
 	/**
 	 * Observer methods
 	 * update when changes occur in observable objects
@@ -491,12 +517,14 @@ public class ViewMapControl implements Observer {
 		else if (obs instanceof MapConfig) {
 			// updates current selection tiles based on selected layer
 			// if a layer is selected and its different from previous one
+			// (or if the map was resized and the selection has the old size)
 			int newLayerIdx = mapStates.getCurrentMap().getSelectedLayer();
-			if(newLayerIdx >= 0 && newLayerIdx != layerIdx) {
+			if(newLayerIdx >= 0 && (newLayerIdx != layerIdx || selectedMapTiles.getWidth() != mapStates.getCurrentMap().getWidth()
+									|| selectedMapTiles.getHeight() != mapStates.getCurrentMap().getHeight())) {
 				// updates layer idx
 				layerIdx = newLayerIdx;
 				// change current reference of selected tiles to new layer's reference
-				selectedMapTiles = mapStates.getCurrentMap().getLayers().get(newLayerIdx).getSelectedTiles();
+				selectedMapTiles = mapStates.getCurrentMap().getLayers().get(newLayerIdx).getSelection();
 			}
 		}
 		// change in clipboard means a paste is desired
@@ -8,14 +8,13 @@ import java.awt.Toolkit;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
-import java.util.ArrayList;
 
 import javax.swing.JScrollPane;
 import javax.swing.JViewport;
 
 import model.Clipboard;
 import model.Preferences;
-import model.Tile;
+import model.Selection;
 import model.Tileset;
 import model.Tool;
 import model.Tool.SelectTools;
@@ -50,7 +49,7 @@ public class ViewTilesetControl implements MouseListener, MouseMotionListener {
 	/**
 	 * Tile infos
 	 */
-	private ArrayList<Tile> selectedTiles;		// current selected tiles 
+	private Selection selection;				// current selected tiles 
 	private Tileset	tileset;					// current tileset being used
 	private JScrollPane scrollPane;				// reference to the scrollpane
 	
@@ -69,11 +68,11 @@ public class ViewTilesetControl implements MouseListener, MouseMotionListener {
 		// stores scroll pane
 		this.scrollPane = scrollPane;
 		
-		// initializes selectedTiles with no tiles selected
-		selectedTiles = new ArrayList<Tile>();
+		// initializes selection with no tiles selected
+		selection = new Selection(tileset.getTileSizeX(), tileset.getTileSizeY());
 		
-		// sets tileset selectedTiles reference to be observed by viewers
-		tileset.setSelectedTiles(selectedTiles);
+		// sets tileset selection reference to be observed by viewers
+		tileset.setSelection(selection);
 		
 		// sets mouse cursors
 		defaultCursor = scrollPane.getCursor();
@@ -168,7 +167,7 @@ public class ViewTilesetControl implements MouseListener, MouseMotionListener {
         		break;
     		case selectButton:
     			// pass control to select method to add tile to selected tiles
-    			Tool.SelectTile(relativeClick, tileset, selectedTiles, shiftOrigin, false);
+    			Tool.SelectTile(relativeClick, tileset, selection, shiftOrigin, false);
             	// makes sures that brush will be enabled for painting
             	Tool.getInstance().setCurrentTool(SelectTools.BRUSH, true);
     			break;
@@ -220,7 +219,7 @@ public class ViewTilesetControl implements MouseListener, MouseMotionListener {
         		//selects destiny tile for cases that are returning from different tiles selection
         		Point relativeDestiny = new Point(destiny.x + scrollPane.getViewport().getViewPosition().x,
         										  destiny.y + scrollPane.getViewport().getViewPosition().y);
-        		Tool.SelectTile(relativeDestiny, tileset, selectedTiles, shiftOrigin, false);
+        		Tool.SelectTile(relativeDestiny, tileset, selection, shiftOrigin, false);
             	// makes sures that brush will be enabled for painting
             	Tool.getInstance().setCurrentTool(SelectTools.BRUSH, true);
         		return;
@@ -235,7 +234,7 @@ public class ViewTilesetControl implements MouseListener, MouseMotionListener {
             									  destiny.y + viewPort.getViewPosition().y);
 
             	// creates the rectangular selection passing the relatives origin and destiny of mouse drag
-            	Tool.RectSelect(relativeOrigin, relativeDestiny, tileset, selectedTiles, 
+            	Tool.RectSelect(relativeOrigin, relativeDestiny, selection, 
             					tileset.getTileSize(), tileset.getTileSizeX(), tileset.getTileSizeY());
             	// makes sures that brush will be enabled for painting
             	Tool.getInstance().setCurrentTool(SelectTools.BRUSH, true);
@@ -248,10 +247,10 @@ public class ViewTilesetControl implements MouseListener, MouseMotionListener {
     }    
 	
 	/**
-	 * @return the current selected tiles
+	 * @return the current selection of tiles
 	 */
-	public ArrayList<Tile> getSelectedTiles() {
-		return selectedTiles;
+	public Selection getSelection() {
+		return selection;
 	}
 	
 	@Override
@@ -0,0 +1,244 @@
+package model;
+
+import java.util.zip.DataFormatException;
+
+/**
+ * Class that represents a square block of tiles of a layer.
+ * Layers allocate chunks only for the painted regions of the map,
+ * so an empty region of the map costs no memory.
+ * Chunks are shared between copies of a layer (map states) and
+ * can only be modified by the layer that owns them, other layers
+ * must copy the chunk before modifying it (copy-on-write).
+ * Chunks of old map states may be compressed in background
+ * and are inflated again when accessed. Chunks of layers that
+ * keep their tiles off the heap are MappedChunks, and chunks of
+ * layers that keep their tiles in palettes are PaletteChunks
+ *
+ * @author	Pedro Sampaio
+ * @since	1.8
+ *
+ */
+public class Chunk {
+
+	public static final int SHIFT = 5;				// log2 of the chunk size
+	public static final int SIZE = 1 << SHIFT;		// number of tiles in each axis of a chunk
+	public static final int MASK = SIZE - 1;		// mask to obtain the index of a tile inside its chunk
+
+	private volatile int[] tileIDs;	// global ids of the tiles of the chunk, line by line (0 for no tile, null if compressed)
+	private byte[] packed;			// compressed global ids of the tiles (null if not compressed)
+	private int tileCount;		// number of tiles in the chunk
+	private long hash;			// content hash of the tiles of the chunk (0 if empty)
+	private Object owner;		// token of the layer that is allowed to modify the chunk
+
+	/**
+	 * Constructor for an empty chunk
+	 *
+	 * @param owner	token of the layer that is allowed to modify the chunk
+	 */
+	public Chunk(Object owner) {
+		tileIDs = new int[SIZE * SIZE];
+		tileCount = 0;
+		this.owner = owner;
+	}
+
+	/**
+	 * Constructor for copies
+	 *
+	 * @param tileIDs	the global ids of the tiles of the chunk (null for chunks with tiles off the heap)
+	 * @param tileCount	the number of tiles in the chunk
+	 * @param hash		the content hash of the tiles of the chunk
+	 * @param owner		token of the layer that is allowed to modify the chunk
+	 */
+	protected Chunk(int[] tileIDs, int tileCount, long hash, Object owner) {
+		this.tileIDs = tileIDs;
+		this.tileCount = tileCount;
+		this.hash = hash;
+		this.owner = owner;
+	}
+
+	/**
+	 * @param ci	the i-index (line) of the tile in the chunk
+	 * @param cj	the j-index (column) of the tile in the chunk
+	 * @return	the global id of the tile (0 if there is no tile)
+	 */
+	public int getTileID(int ci, int cj) {
+		int[] ids = tileIDs;
+		if(ids == null)
+			ids = getIDs();
+		return ids[(ci << SHIFT) | cj];
+	}
+
+	/**
+	 * @param ci	the i-index (line) of the tile in the chunk
+	 * @param cj	the j-index (column) of the tile in the chunk
+	 * @param id	the global id of the tile (0 removes the tile)
+	 */
+	public void setTileID(int ci, int cj, int id) {
+		int[] ids = tileIDs;
+		if(ids == null)
+			ids = getIDs();
+		int k = (ci << SHIFT) | cj;
+		countTile(k, ids[k], id);
+		ids[k] = id;
+	}
+
+	/**
+	 * Copies a run of tiles of a line of the chunk to an array
+	 *
+	 * @param ci		the i-index (line) of the run in the chunk
+	 * @param cj		the j-index (column) of the first tile of the run in the chunk
+	 * @param dst		the array that receives the global ids of the tiles
+	 * @param dstPos	the position of the first tile in the array
+	 * @param length	the number of tiles of the run
+	 */
+	public void getTileIDs(int ci, int cj, int[] dst, int dstPos, int length) {
+		int[] ids = tileIDs;
+		if(ids == null)
+			ids = getIDs();
+		System.arraycopy(ids, (ci << SHIFT) | cj, dst, dstPos, length);
+	}
+
+	/**
+	 * Sets a run of tiles of a line of the chunk from an array
+	 * (all ids of the run must be tiles, 0 is not allowed)
+	 *
+	 * @param ci		the i-index (line) of the run in the chunk
+	 * @param cj		the j-index (column) of the first tile of the run in the chunk
+	 * @param src		the array with the global ids of the tiles
+	 * @param srcPos	the position of the first tile in the array
+	 * @param length	the number of tiles of the run
+	 * @return	the number of tiles added to empty positions
+	 */
+	public int setTileIDs(int ci, int cj, int[] src, int srcPos, int length) {
+		int[] ids = tileIDs;
+		if(ids == null)
+			ids = getIDs();
+		int k = (ci << SHIFT) | cj;
+		int count = tileCount;
+		for(int n = 0; n < length; n++)
+			countTile(k + n, ids[k + n], src[srcPos + n]);
+		System.arraycopy(src, srcPos, ids, k, length);
+		return tileCount - count;
+	}
+
+	/**
+	 * Removes the tiles of a run of a line of the chunk
+	 *
+	 * @param ci		the i-index (line) of the run in the chunk
+	 * @param cj		the j-index (column) of the first tile of the run in the chunk
+	 * @param length	the number of positions of the run
+	 * @return	the number of tiles removed
+	 */
+	public int clearTiles(int ci, int cj, int length) {
+		int[] ids = tileIDs;
+		if(ids == null)
+			ids = getIDs();
+		int k = (ci << SHIFT) | cj;
+		int count = tileCount;
+		for(int n = k; n < k + length; n++) {
+			if(ids[n] != 0) {
+				countTile(n, ids[n], 0);
+				ids[n] = 0;
+			}
+		}
+		return count - tileCount;
+	}
+
+	/**
+	 * Updates the number of tiles and the content hash
+	 * of the chunk for a tile modified
+	 *
+	 * @param k		the index of the tile in the chunk (line by line)
+	 * @param oldID	the global id of the tile before modification
+	 * @param id	the global id of the tile after modification
+	 */
+	protected void countTile(int k, int oldID, int id) {
+		if(oldID == 0 && id != 0)
+			tileCount++;
+		else if(oldID != 0 && id == 0)
+			tileCount--;
+		hash += ContentHash.part(k, id) - ContentHash.part(k, oldID);
+	}
+
+	/**
+	 * @return the content hash of the tiles of the chunk (0 if empty)
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	/**
+	 * @return the number of tiles in the chunk
+	 */
+	public int getTileCount() {
+		return tileCount;
+	}
+
+	/**
+	 * @return if the chunk has no tiles
+	 */
+	public boolean isEmpty() {
+		return tileCount == 0;
+	}
+
+	/**
+	 * @return the token of the layer that is allowed to modify the chunk
+	 */
+	public Object getOwner() {
+		return owner;
+	}
+
+	/**
+	 * @param owner	token of the layer that will own the copy
+	 * @return a copy of the chunk
+	 */
+	public Chunk createCopy(Object owner) {
+		return new Chunk(getIDs().clone(), tileCount, hash, owner);
+	}
+
+	/**
+	 * Compresses the tiles of the chunk (only for chunks
+	 * that are not modified anymore, as in old map states)
+	 *
+	 * @return	true if the chunk was compressed, false if it was already compressed
+	 */
+	public synchronized boolean compress() {
+		if(tileIDs == null)
+			return false;
+		packed = Compression.deflate(tileIDs);
+		tileIDs = null;
+		return true;
+	}
+
+	/**
+	 * Inflates the tiles of the chunk if it is compressed
+	 */
+	public void inflate() {
+		getIDs();
+	}
+
+	/**
+	 * @return	the global ids of the tiles of the chunk (inflated if compressed)
+	 */
+	private synchronized int[] getIDs() {
+		if(tileIDs == null) {
+			try {
+				tileIDs = Compression.inflate(packed, SIZE * SIZE);
+			} catch (DataFormatException e) {
+				// tiles are compressed in memory, corrupt data is an error of the program
+				throw new IllegalStateException("Chunk: Could not inflate compressed tiles", e);
+			}
+			packed = null;
+		}
+		return tileIDs;
+	}
+
+	/**
+	 * @return the approximated number of bytes used by the chunk
+	 */
+	public synchronized long getBytes() {
+		if(tileIDs == null)
+			return 32 + 16 + packed.length;
+		return 32 + 16 + tileIDs.length * 4L;
+	}
+}
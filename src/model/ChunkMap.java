@@ -0,0 +1,220 @@
+package model;
+
+/**
+ * Hash map from chunk coordinates to chunks, using open addressing
+ * on primitive long keys to avoid boxing in the tile access paths.
+ * Only allocated chunks are stored, so the memory and the iteration
+ * cost are proportional to the painted area of a layer
+ *
+ * @author	Pedro Sampaio
+ * @since	1.8
+ *
+ * @param <T>	the type of the chunks stored
+ */
+public class ChunkMap<T> {
+
+	private long[] keys;		// keys of the slots (valid only for used slots)
+	private Object[] values;	// values of the slots (null for free slots)
+	private int size;			// number of chunks stored
+
+	/**
+	 * Default constructor
+	 */
+	public ChunkMap() {
+		keys = new long[16];
+		values = new Object[16];
+		size = 0;
+	}
+
+	/**
+	 * Packs chunk coordinates into a key
+	 *
+	 * @param chunkI	the i-index (line) of the chunk
+	 * @param chunkJ	the j-index (column) of the chunk
+	 * @return	the key that represents the chunk coordinates
+	 */
+	public static long key(int chunkI, int chunkJ) {
+		return ((long) chunkI << 32) | (chunkJ & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * @param key	the key of the chunk
+	 * @return	the i-index (line) of the chunk
+	 */
+	public static int keyI(long key) {
+		return (int) (key >> 32);
+	}
+
+	/**
+	 * @param key	the key of the chunk
+	 * @return	the j-index (column) of the chunk
+	 */
+	public static int keyJ(long key) {
+		return (int) key;
+	}
+
+	/**
+	 * @param key	the key to find the home slot
+	 * @return	the first slot to probe for the key
+	 */
+	private int slot(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h >>> 40) & (keys.length - 1);
+	}
+
+	/**
+	 * @param key	the key of the chunk
+	 * @return	the chunk stored with the key or null if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(long key) {
+		int mask = keys.length - 1;
+		for(int s = slot(key); values[s] != null; s = (s + 1) & mask) {
+			if(keys[s] == key)
+				return (T) values[s];
+		}
+		return null;
+	}
+
+	/**
+	 * Stores a chunk with the given key, replacing the previous one
+	 *
+	 * @param key	the key of the chunk
+	 * @param value	the chunk to store (cannot be null)
+	 */
+	public void put(long key, T value) {
+		assert(value != null);
+		int mask = keys.length - 1;
+		int s = slot(key);
+		for(; values[s] != null; s = (s + 1) & mask) {
+			if(keys[s] == key) {
+				values[s] = value;
+				return;
+			}
+		}
+		keys[s] = key;
+		values[s] = value;
+		size++;
+		// keeps load factor under 1/2
+		if(size * 2 > keys.length)
+			rehash(keys.length * 2);
+	}
+
+	/**
+	 * Removes the chunk stored with the given key
+	 *
+	 * @param key	the key of the chunk
+	 * @return	the removed chunk or null if there was none
+	 */
+	@SuppressWarnings("unchecked")
+	public T remove(long key) {
+		int mask = keys.length - 1;
+		int s = slot(key);
+		for(; values[s] != null; s = (s + 1) & mask) {
+			if(keys[s] == key)
+				break;
+		}
+		if(values[s] == null)
+			return null;
+
+		T removed = (T) values[s];
+		values[s] = null;
+		size--;
+
+		// shifts back following entries of the cluster to keep probing valid
+		int free = s;
+		for(s = (s + 1) & mask; values[s] != null; s = (s + 1) & mask) {
+			int home = slot(keys[s]);
+			// moves entry if its home slot is not between the free slot and its current slot
+			if(((s - home) & mask) >= ((s - free) & mask)) {
+				keys[free] = keys[s];
+				values[free] = values[s];
+				values[s] = null;
+				free = s;
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Resizes the slots arrays reinserting all chunks
+	 *
+	 * @param capacity	the new capacity (power of two)
+	 */
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new long[capacity];
+		values = new Object[capacity];
+		int mask = capacity - 1;
+		for(int k = 0; k < oldKeys.length; k++) {
+			if(oldValues[k] != null) {
+				int s = slot(oldKeys[k]);
+				while(values[s] != null)
+					s = (s + 1) & mask;
+				keys[s] = oldKeys[k];
+				values[s] = oldValues[k];
+			}
+		}
+	}
+
+	/**
+	 * @return the number of chunks stored
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of slots (for iteration with keyAt and valueAt)
+	 */
+	public int capacity() {
+		return keys.length;
+	}
+
+	/**
+	 * @param slot	the slot index
+	 * @return	the key stored in the slot (only valid if valueAt(slot) is not null)
+	 */
+	public long keyAt(int slot) {
+		return keys[slot];
+	}
+
+	/**
+	 * @param slot	the slot index
+	 * @return	the chunk stored in the slot or null if slot is free
+	 */
+	@SuppressWarnings("unchecked")
+	public T valueAt(int slot) {
+		return (T) values[slot];
+	}
+
+	/**
+	 * Replaces the chunk of a used slot
+	 *
+	 * @param slot	the slot index (must be in use)
+	 * @param value	the new chunk for the slot (cannot be null)
+	 */
+	public void setValueAt(int slot, T value) {
+		assert(values[slot] != null && value != null);
+		values[slot] = value;
+	}
+
+	/**
+	 * @return the approximated number of bytes used by the map (chunks are not counted)
+	 */
+	public long getBytes() {
+		return 64 + keys.length * 12L;
+	}
+
+	/**
+	 * @return a shallow copy of this map (chunks are not copied)
+	 */
+	public ChunkMap<T> createCopy() {
+		ChunkMap<T> copy = new ChunkMap<T>();
+		copy.keys = keys.clone();
+		copy.values = values.clone();
+		copy.size = size;
+		return copy;
+	}
+}
@@ -0,0 +1,184 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import test.Config;
+
+/**
+ * Class that keeps the tiles of chunks off the heap, in slots
+ * of a memory-mapped file (one slot for each chunk). The file
+ * is mapped in segments that are added as the slots are needed,
+ * and slots of chunks that were collected by the garbage
+ * collector (chunks of discarded map states) are reused.
+ * Layers create their chunks in the store configured in
+ * MapConfig when they are created (none keeps tiles on heap)
+ *
+ * @author	Pedro Sampaio
+ * @since	1.8
+ *
+ */
+public class ChunkStore {
+
+	private static final int SLOT_INTS = Chunk.SIZE * Chunk.SIZE;		// number of ids in a slot
+	private static final int SLOT_BYTES = SLOT_INTS * 4;				// number of bytes of a slot
+	private static final int SEGMENT_SLOTS = 4096;						// number of slots of each mapped segment of the file
+	private static final int[] EMPTY = new int[SLOT_INTS];				// ids of an empty slot
+
+	/**
+	 * Reference to a chunk of the store that is enqueued
+	 * when the chunk is collected, to release its slot
+	 */
+	private static class SlotReference extends PhantomReference<MappedChunk> {
+		private int slot;	// the slot of the chunk
+
+		SlotReference(MappedChunk chunk, int slot, ReferenceQueue<MappedChunk> queue) {
+			super(chunk, queue);
+			this.slot = slot;
+		}
+	}
+
+	private RandomAccessFile file;							// the file of the slots
+	private FileChannel channel;							// the channel used to map the file
+	private ArrayList<MappedByteBuffer> segments;			// the mapped segments of the file
+	private int slotCount;									// number of slots in the mapped segments
+	private int[] freeSlots;								// slots released that can be reused
+	private int freeCount;									// number of slots released
+	private ReferenceQueue<MappedChunk> collected;			// references of chunks collected
+	private HashSet<SlotReference> references;				// references of chunks alive (keeps references reachable)
+
+	/**
+	 * Constructor that creates the file of the store
+	 * (the file is deleted when the program exits)
+	 *
+	 * @param path			the path of the file of the store
+	 * @throws IOException	if the file could not be created
+	 */
+	public ChunkStore(File path) throws IOException {
+		file = new RandomAccessFile(path, "rw");
+		file.setLength(0);
+		path.deleteOnExit();
+		channel = file.getChannel();
+		segments = new ArrayList<MappedByteBuffer>();
+		freeSlots = new int[64];
+		collected = new ReferenceQueue<MappedChunk>();
+		references = new HashSet<SlotReference>();
+	}
+
+	/**
+	 * Creates an empty chunk in the store
+	 *
+	 * @param owner	token of the layer that is allowed to modify the chunk
+	 * @return	the chunk created (in the heap if the file could not be mapped)
+	 */
+	public Chunk createChunk(Object owner) {
+		return createChunk(EMPTY, 0, 0, owner);
+	}
+
+	/**
+	 * Creates a chunk in the store with the received tiles
+	 *
+	 * @param tileIDs	the global ids of the tiles of the chunk, line by line
+	 * @param tileCount	the number of tiles in the chunk
+	 * @param hash		the content hash of the tiles of the chunk
+	 * @param owner		token of the layer that is allowed to modify the chunk
+	 * @return	the chunk created (in the heap if the file could not be mapped)
+	 */
+	public synchronized Chunk createChunk(int[] tileIDs, int tileCount, long hash, Object owner) {
+		releaseCollected();
+
+		int slot;
+		if(freeCount > 0)
+			slot = freeSlots[--freeCount];
+		else {
+			if(slotCount == segments.size() * SEGMENT_SLOTS && !addSegment())
+				return new Chunk(tileIDs == EMPTY ? new int[SLOT_INTS] : tileIDs, tileCount, hash, owner);
+			slot = slotCount++;
+		}
+
+		// view of the slot in its segment
+		ByteBuffer bytes = segments.get(slot / SEGMENT_SLOTS).duplicate();
+		bytes.position((slot % SEGMENT_SLOTS) * SLOT_BYTES);
+		bytes.limit(bytes.position() + SLOT_BYTES);
+		IntBuffer tiles = bytes.slice().order(ByteOrder.nativeOrder()).asIntBuffer();
+		tiles.put(tileIDs);
+		tiles.clear();
+
+		MappedChunk chunk = new MappedChunk(tiles, tileCount, hash, this, owner);
+		references.add(new SlotReference(chunk, slot, collected));
+		return chunk;
+	}
+
+	/**
+	 * Maps a new segment of slots at the end of the file
+	 *
+	 * @return	true if the segment was mapped, false otherwise
+	 */
+	private boolean addSegment() {
+		try {
+			long position = (long) segments.size() * SEGMENT_SLOTS * SLOT_BYTES;
+			segments.add(channel.map(FileChannel.MapMode.READ_WRITE, position, (long) SEGMENT_SLOTS * SLOT_BYTES));
+			if(Config.debug)
+				System.out.println("ChunkStore: mapped segment " + segments.size() + " (" + getFileBytes() / (1024*1024) + " MB)");
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.err.println("ChunkStore: Could not map file, keeping tiles on heap");
+			return false;
+		}
+	}
+
+	/**
+	 * Releases the slots of the chunks collected
+	 */
+	private void releaseCollected() {
+		Reference<? extends MappedChunk> reference;
+		while((reference = collected.poll()) != null) {
+			references.remove(reference);
+			if(freeCount == freeSlots.length)
+				freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+			freeSlots[freeCount++] = ((SlotReference) reference).slot;
+		}
+	}
+
+	/**
+	 * @return the number of slots used by chunks not collected yet
+	 */
+	public synchronized int getUsedSlots() {
+		releaseCollected();
+		return slotCount - freeCount;
+	}
+
+	/**
+	 * @return the number of bytes of the mapped segments of the file
+	 */
+	public synchronized long getFileBytes() {
+		return (long) segments.size() * SEGMENT_SLOTS * SLOT_BYTES;
+	}
+
+	/**
+	 * Closes the file of the store (chunks of the
+	 * store must not be accessed after closing)
+	 */
+	public synchronized void close() {
+		try {
+			channel.close();
+			file.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.err.println("ChunkStore: Could not close file");
+		}
+	}
+}
@@ -1,11 +1,12 @@
 package model;
 
-import java.util.ArrayList;
 import java.util.Observable;
 
 /**
  * Class that represents the clipboard:
- * the user's current copied tiles
+ * the user's current copied tiles, kept as a rectangular
+ * block of global ids (line by line) with a mask of the
+ * positions of the block that contain a copied tile
  * @author Pedro Sampaio
  * @since  1.0b
  *
@@ -18,7 +19,13 @@ public class Clipboard extends Observable{
  * Singleton
  */
 	
-	private ArrayList<Tile> copiedTiles;		// 	the list containing current tiles copied by user
+	private int[] tileIDs;						// 	global ids of the block of tiles copied by user, line by line (0 for no tile)
+	private long[] mask;						//	bits of the positions of the block that contain a copied tile
+	private int width;							//	number of tiles of the block on x-axis (columns)
+	private int height;							//	number of tiles of the block on y-axis (lines)
+	private int tileCount;						//	number of copied tiles in the block
+	private int anchorI;						//	the i-index (line) of the first copied tile in the block (reference for pasting)
+	private int anchorJ;						//	the j-index (column) of the first copied tile in the block (reference for pasting)
 	private boolean paste;						//	boolean to represent if paste is wanted
 	
 	// mantains only one instance of map config (singleton pattern)
@@ -26,7 +33,7 @@ public class Clipboard extends Observable{
 	
 	protected Clipboard() {
 	    // defeats instantiation.
-		copiedTiles = new ArrayList<Tile>();	// initializes copied tiles tiles list
+		setBlock(new int[0], 0, 0);				// initializes an empty block of copied tiles
 		paste = false;
 	}
 	
@@ -42,17 +49,128 @@ public class Clipboard extends Observable{
 	}
 
 	/**
-	 * @return the copiedTiles list containing current tiles copied by user
+	 * Sets the block of copied tiles, building its mask
+	 * of copied positions (positions with a tile)
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param tileIDs	global ids of the block of tiles, line by line (0 for no tile)
+	 * @param width		number of tiles of the block on x-axis (columns)
+	 * @param height	number of tiles of the block on y-axis (lines)
+	 */
+	public void setBlock(int[] tileIDs, int width, int height) {
+		this.tileIDs = tileIDs;
+		this.width = width;
+		this.height = height;
+		mask = new long[(width * height + 63) >>> 6];
+		tileCount = 0;
+		anchorI = anchorJ = -1;
+		for(int b = 0; b < width * height; b++) {
+			if(tileIDs[b] != 0) {
+				mask[b >>> 6] |= 1L << b;
+				if(tileCount++ == 0) {
+					anchorI = b / width;
+					anchorJ = b % width;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the global ids of the block of copied tiles, line by line (0 for no tile)
+	 */
+	public int[] getTileIDs() {
+		return tileIDs;
+	}
+
+	/**
+	 * @param i	the i-index (line) of the position in the block
+	 * @param j	the j-index (column) of the position in the block
+	 * @return	the global id of the copied tile in the position (0 if there is none)
+	 */
+	public int getTileID(int i, int j) {
+		return tileIDs[i * width + j];
+	}
+
+	/**
+	 * Finds the next position of the block with a copied tile
+	 * (positions are numbered line by line, as the ids of the block)
+	 * 
+	 * @param from	the position to start the search from (inclusive)
+	 * @return	the next position with a copied tile (-1 if there is none)
+	 */
+	public int nextCopied(int from) {
+		int w = from >>> 6;
+		if(from < 0 || w >= mask.length)
+			return -1;
+		long word = mask[w] & (-1L << from);
+		while(word == 0) {
+			if(++w == mask.length)
+				return -1;
+			word = mask[w];
+		}
+		return (w << 6) + Long.numberOfTrailingZeros(word);
+	}
+
+	/**
+	 * Finds the next position of the block without a copied tile
+	 * 
+	 * @param from	the position to start the search from (inclusive)
+	 * @return	the next position without a copied tile (the size of the block if there is none)
+	 */
+	public int nextEmpty(int from) {
+		int w = from >>> 6;
+		if(w >= mask.length)
+			return width * height;
+		long word = ~mask[w] & (-1L << from);
+		while(word == 0) {
+			if(++w == mask.length)
+				return width * height;
+			word = ~mask[w];
+		}
+		return Math.min((w << 6) + Long.numberOfTrailingZeros(word), width * height);
+	}
+
+	/**
+	 * @return the number of tiles of the block on x-axis (columns)
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the number of tiles of the block on y-axis (lines)
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return the number of copied tiles in the block
+	 */
+	public int getTileCount() {
+		return tileCount;
+	}
+
+	/**
+	 * @return if there are no copied tiles
+	 */
+	public boolean isEmpty() {
+		return tileCount == 0;
+	}
+
+	/**
+	 * @return the i-index (line) of the first copied tile in the block (-1 if empty)
 	 */
-	public ArrayList<Tile> getCopiedTiles() {
-		return copiedTiles;
+	public int getAnchorI() {
+		return anchorI;
 	}
 
 	/**
-	 * @param copiedTiles the copiedTiles to set
+	 * @return the j-index (column) of the first copied tile in the block (-1 if empty)
 	 */
-	public void setCopiedTiles(ArrayList<Tile> copiedTiles) {
-		this.copiedTiles = copiedTiles;
+	public int getAnchorJ() {
+		return anchorJ;
 	}
 
 	/**
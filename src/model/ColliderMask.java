@@ -0,0 +1,423 @@
+package model;
+
+import java.awt.Rectangle;
+
+/**
+ * Class that stores the physical and trigger colliders
+ * of the map in chunks of the same size of the layer
+ * chunks, with one bit per tile for each kind of collider:
+ * each line of a chunk is a word with the physical bits in
+ * its low half and the trigger bits in its high half.
+ * Only chunks with colliders are allocated, so masks of
+ * unbounded maps accept colliders in any position.
+ * Copies of the mask share the chunks, and each mask copies
+ * only the chunk it modifies when that chunk is shared
+ *
+ * @author	Pedro Sampaio
+ * @since	1.8
+ *
+ */
+public class ColliderMask {
+
+	public static final int NONE = 0;			// id for tiles without collider
+	public static final int PHYSICAL = 1;		// id for physical colliders
+	public static final int TRIGGER = 2;		// id for trigger colliders
+
+	private static final int TRIGGER_SHIFT = 32;	// first bit of the trigger colliders in the word of a line (chunks are at most 32 tiles wide)
+
+	private ChunkMap<long[]> chunks;	// words of the lines of each chunk with colliders
+	private int width;			// number of tiles in mask on x-axis (columns)
+	private int height;			// number of tiles in mask on y-axis (lines)
+	private boolean unbounded;	// if colliders can be set in any position (mask of an unbounded map)
+	private boolean shared;		// if the chunks map is shared with copies of the mask (copied on first write)
+	private ChunkMap<long[]> owned;	// chunks this mask can modify without copying (allocated or copied by it)
+	private long hash;			// content hash of the colliders (sum of the hashes of lines in their positions)
+	private int version;		// number of modifications of the colliders (to detect changes)
+
+	/**
+	 * Constructor for an empty mask
+	 *
+	 * @param width		number of tiles in mask on x-axis (columns)
+	 * @param height	number of tiles in mask on y-axis (lines)
+	 */
+	public ColliderMask(int width, int height) {
+		this.width = width;
+		this.height = height;
+		chunks = new ChunkMap<long[]>();
+		owned = new ChunkMap<long[]>();
+	}
+
+	/**
+	 * Constructor for an empty mask without bounds
+	 * (mask of an unbounded map)
+	 */
+	public ColliderMask() {
+		this(0, 0);
+		unbounded = true;
+	}
+
+	/**
+	 * @return the number of tiles in mask on x-axis (columns)
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the number of tiles in mask on y-axis (lines)
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return if colliders can be set in any position (mask of an unbounded map)
+	 */
+	public boolean isUnbounded() {
+		return unbounded;
+	}
+
+	/**
+	 * @param i	the i-index (line) of the tile
+	 * @param j	the j-index (column) of the tile
+	 * @return	if the tile is inside the bounds of the mask
+	 */
+	public boolean contains(int i, int j) {
+		return unbounded || (i >= 0 && j >= 0 && i < height && j < width);
+	}
+
+	/**
+	 * @param i	the i-index (line) of the tile
+	 * @param j	the j-index (column) of the tile
+	 * @return	the id of the collider of the tile (NONE, PHYSICAL or TRIGGER)
+	 */
+	public int get(int i, int j) {
+		long[] lines = chunks.get(ChunkMap.key(i >> Chunk.SHIFT, j >> Chunk.SHIFT));
+		if(lines == null)
+			return NONE;
+		long line = lines[i & Chunk.MASK];
+		int cj = j & Chunk.MASK;
+		if((line & (1L << cj)) != 0)
+			return PHYSICAL;
+		if((line & (1L << (cj + TRIGGER_SHIFT))) != 0)
+			return TRIGGER;
+		return NONE;
+	}
+
+	/**
+	 * @param i		the i-index (line) of the tile
+	 * @param j		the j-index (column) of the tile
+	 * @param id	the id of the collider (NONE removes the collider)
+	 */
+	public void set(int i, int j, int id) {
+		fillRect(i, j, 1, 1, id);
+	}
+
+	/**
+	 * Sets the collider of all tiles of a rectangle
+	 * of the mask, clamped to the mask bounds
+	 *
+	 * @param i			the i-index (line) of the top-left tile of the rectangle
+	 * @param j			the j-index (column) of the top-left tile of the rectangle
+	 * @param lines		the number of lines of the rectangle
+	 * @param columns	the number of columns of the rectangle
+	 * @param id		the id of the collider (NONE removes the colliders)
+	 */
+	public void fillRect(int i, int j, int lines, int columns, int id) {
+		int firstI = i, lastI = i + lines;
+		int firstJ = j, lastJ = j + columns;
+		if(!unbounded) {
+			firstI = Math.max(firstI, 0); lastI = Math.min(lastI, height);
+			firstJ = Math.max(firstJ, 0); lastJ = Math.min(lastJ, width);
+		}
+		for(int line = firstI; line < lastI; line++) {
+			// the part of the line inside each chunk is set at once
+			for(int column = firstJ; column < lastJ; ) {
+				int cj = column & Chunk.MASK;
+				int run = Math.min(lastJ - column, Chunk.SIZE - cj);
+				long bits = ((1L << run) - 1) << cj;
+				setLine(ChunkMap.key(line >> Chunk.SHIFT, column >> Chunk.SHIFT), line & Chunk.MASK, bits, id);
+				column += run;
+			}
+		}
+	}
+
+	/**
+	 * Removes the colliders of all tiles of a rectangle
+	 * of the mask, clamped to the mask bounds
+	 *
+	 * @param i			the i-index (line) of the top-left tile of the rectangle
+	 * @param j			the j-index (column) of the top-left tile of the rectangle
+	 * @param lines		the number of lines of the rectangle
+	 * @param columns	the number of columns of the rectangle
+	 */
+	public void clearRect(int i, int j, int lines, int columns) {
+		fillRect(i, j, lines, columns, NONE);
+	}
+
+	/**
+	 * Sets the collider of tiles of a line of a chunk, allocating
+	 * the chunk if needed and freeing it when it becomes empty,
+	 * updating the content hash of the mask
+	 *
+	 * @param key	the key of the chunk
+	 * @param ci	the line in the chunk
+	 * @param bits	the bits of the columns of the tiles in the line
+	 * @param id	the id of the collider (NONE removes the colliders)
+	 */
+	private void setLine(long key, int ci, long bits, int id) {
+		long[] lines = chunks.get(key);
+		long old = lines == null ? 0 : lines[ci];
+		long line = old & ~(bits | (bits << TRIGGER_SHIFT));
+		if(id == PHYSICAL)
+			line |= bits;
+		else if(id == TRIGGER)
+			line |= bits << TRIGGER_SHIFT;
+		// nothing changes
+		if(line == old)
+			return;
+
+		lines = writableLines(key);
+		long position = (key << Chunk.SHIFT) | ci;
+		hash += ContentHash.part(position, line) - ContentHash.part(position, old);
+		lines[ci] = line;
+		version++;
+
+		// frees chunk without colliders
+		if(line == 0) {
+			for(int k = 0; k < lines.length; k++)
+				if(lines[k] != 0)
+					return;
+			chunks.remove(key);
+			owned.remove(key);
+		}
+	}
+
+	/**
+	 * Gets the lines of a chunk ready to be modified, allocating
+	 * them if the chunk does not exist and copying them if they
+	 * are shared with copies of the mask (only this chunk is copied)
+	 *
+	 * @param key	the key of the chunk
+	 * @return	the lines of the chunk owned by this mask
+	 */
+	private long[] writableLines(long key) {
+		long[] lines = chunks.get(key);
+		if(lines == null)
+			lines = new long[Chunk.SIZE];
+		else if(owned.get(key) != lines)
+			lines = lines.clone();
+		else
+			return lines;
+		writableChunks().put(key, lines);
+		owned.put(key, lines);
+		return lines;
+	}
+
+	/**
+	 * @return the map of chunks of the mask ready to be modified, copying
+	 * it if it is shared with copies of the mask (chunks are still shared)
+	 */
+	private ChunkMap<long[]> writableChunks() {
+		if(shared) {
+			chunks = chunks.createCopy();
+			shared = false;
+		}
+		return chunks;
+	}
+
+	/**
+	 * Replaces the colliders of an area of the mask with the colliders
+	 * of an area of other mask, copying the words of the lines of
+	 * each chunk at once. The areas must be aligned to chunks
+	 * (positions and dimensions multiples of Chunk.SIZE)
+	 *
+	 * @param from		the mask to take the colliders from (null clears the area)
+	 * @param fromI		the i-index (line) of the first line of the area in the other mask
+	 * @param fromJ		the j-index (column) of the first column of the area in the other mask
+	 * @param toI		the i-index (line) of the first line of the area in this mask
+	 * @param toJ		the j-index (column) of the first column of the area in this mask
+	 * @param lines		the number of lines of the area
+	 * @param columns	the number of columns of the area
+	 */
+	public void copyChunks(ColliderMask from, int fromI, int fromJ, int toI, int toJ, int lines, int columns) {
+		for(int ci = 0; ci < lines >> Chunk.SHIFT; ci++) {
+			for(int cj = 0; cj < columns >> Chunk.SHIFT; cj++) {
+				long[] fromLines = null;
+				if(from != null)
+					fromLines = from.chunks.get(ChunkMap.key((fromI >> Chunk.SHIFT) + ci, (fromJ >> Chunk.SHIFT) + cj));
+				long key = ChunkMap.key((toI >> Chunk.SHIFT) + ci, (toJ >> Chunk.SHIFT) + cj);
+				long[] toLines = chunks.get(key);
+				if(fromLines == null && toLines == null)
+					continue;
+				for(int k = 0; k < Chunk.SIZE; k++) {
+					long position = (key << Chunk.SHIFT) | k;
+					hash += ContentHash.part(position, fromLines == null ? 0 : fromLines[k]) 
+							- ContentHash.part(position, toLines == null ? 0 : toLines[k]);
+				}
+				// words are shared by both masks, that copy them on write
+				if(fromLines == null)
+					writableChunks().remove(key);
+				else {
+					writableChunks().put(key, fromLines);
+					from.owned.remove(ChunkMap.key((fromI >> Chunk.SHIFT) + ci, (fromJ >> Chunk.SHIFT) + cj));
+				}
+				owned.remove(key);
+				version++;
+			}
+		}
+	}
+
+	/**
+	 * Calculates the content hash of the colliders of an area of the
+	 * mask aligned to chunks, with the lines in their positions
+	 * relative to the area (equal for areas with the same colliders)
+	 *
+	 * @param originI	the i-index (line) of the first line of the area
+	 * @param originJ	the j-index (column) of the first column of the area
+	 * @param lines		the number of lines of the area
+	 * @param columns	the number of columns of the area
+	 * @return	the content hash of the colliders of the area (0 if empty)
+	 */
+	public long getContentHash(int originI, int originJ, int lines, int columns) {
+		long areaHash = 0;
+		for(int ci = 0; ci < lines >> Chunk.SHIFT; ci++) {
+			for(int cj = 0; cj < columns >> Chunk.SHIFT; cj++) {
+				long[] chunkLines = chunks.get(ChunkMap.key((originI >> Chunk.SHIFT) + ci, (originJ >> Chunk.SHIFT) + cj));
+				if(chunkLines == null)
+					continue;
+				long position = ChunkMap.key(ci, cj) << Chunk.SHIFT;
+				for(int k = 0; k < Chunk.SIZE; k++)
+					areaHash += ContentHash.part(position | k, chunkLines[k]);
+			}
+		}
+		return areaHash;
+	}
+
+	/**
+	 * @param id	the id of the colliders to count (PHYSICAL or TRIGGER)
+	 * @return	the number of tiles with the collider
+	 */
+	public int count(int id) {
+		int shift = id == PHYSICAL ? 0 : TRIGGER_SHIFT;
+		int count = 0;
+		for(int s = 0; s < chunks.capacity(); s++) {
+			long[] lines = chunks.valueAt(s);
+			if(lines == null)
+				continue;
+			for(int k = 0; k < lines.length; k++)
+				count += Long.bitCount((lines[k] >>> shift) & 0xFFFFFFFFL);
+		}
+		return count;
+	}
+
+	/**
+	 * @return the content hash of the colliders
+	 * (equal for masks with the same colliders, 0 if empty)
+	 */
+	public long getContentHash() {
+		return hash;
+	}
+
+	/**
+	 * @return the number of modifications of the colliders
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return a copy of the mask that shares the chunks
+	 * with this mask until one of them is modified
+	 */
+	public ColliderMask createCopy() {
+		ColliderMask copy = new ColliderMask(0, 0);
+		copy.width = width;
+		copy.height = height;
+		copy.unbounded = unbounded;
+		copy.chunks = chunks;
+		copy.shared = true;
+		copy.hash = hash;
+		copy.version = version;
+		shared = true;
+		// this mask no longer owns its chunks, since they are shared now
+		owned = new ChunkMap<long[]>();
+		return copy;
+	}
+
+	/**
+	 * Creates a mask with other dimensions keeping
+	 * the colliders that are inside the new bounds
+	 *
+	 * @param width		number of tiles of the new mask on x-axis (columns)
+	 * @param height	number of tiles of the new mask on y-axis (lines)
+	 * @return	the resized mask
+	 */
+	public ColliderMask createResized(int width, int height) {
+		ColliderMask resized = new ColliderMask(width, height);
+		for(int s = 0; s < chunks.capacity(); s++) {
+			long[] lines = chunks.valueAt(s);
+			if(lines == null)
+				continue;
+			int firstI = ChunkMap.keyI(chunks.keyAt(s)) << Chunk.SHIFT;
+			int firstJ = ChunkMap.keyJ(chunks.keyAt(s)) << Chunk.SHIFT;
+			for(int ci = 0; ci < Chunk.SIZE; ci++) {
+				for(int cj = 0; cj < Chunk.SIZE; cj++) {
+					int id = get(firstI + ci, firstJ + cj);
+					if(id != NONE)
+						resized.set(firstI + ci, firstJ + cj, id);
+				}
+			}
+		}
+		return resized;
+	}
+
+	/**
+	 * @param other	the other mask
+	 * @return	if this mask shares its chunks with the other mask
+	 */
+	public boolean sharesData(ColliderMask other) {
+		return other != null && other.chunks == chunks;
+	}
+
+	/**
+	 * @return the chunks with colliders (word of each line of a chunk
+	 * with the physical bits in its low half and the trigger bits in its high half)
+	 */
+	public ChunkMap<long[]> getChunks() {
+		return chunks;
+	}
+
+	/**
+	 * @return	the bounding box of the chunks with colliders in tile units
+	 * 			(x for columns, y for lines) or null if there are no colliders
+	 */
+	public Rectangle getChunkBounds() {
+		Rectangle bounds = null;
+		for(int s = 0; s < chunks.capacity(); s++) {
+			if(chunks.valueAt(s) == null)
+				continue;
+			Rectangle chunk = new Rectangle(ChunkMap.keyJ(chunks.keyAt(s)) << Chunk.SHIFT,
+											ChunkMap.keyI(chunks.keyAt(s)) << Chunk.SHIFT, Chunk.SIZE, Chunk.SIZE);
+			bounds = bounds == null ? chunk : bounds.union(chunk);
+		}
+		return bounds;
+	}
+
+	/**
+	 * @param previous	the previous state of the mask (null to measure all the mask)
+	 * @return	the approximated number of bytes used by the mask that are not shared with its previous state
+	 */
+	public long getBytes(ColliderMask previous) {
+		if(sharesData(previous))
+			return 48;
+		long bytes = 48 + chunks.getBytes();
+		// chunks shared with the previous state are not counted
+		for(int s = 0; s < chunks.capacity(); s++) {
+			long[] lines = chunks.valueAt(s);
+			if(lines != null && (previous == null || previous.chunks.get(chunks.keyAt(s)) != lines))
+				bytes += 16 + Chunk.SIZE * 8L;
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,81 @@
+package model;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Helper class that compresses arrays of ints (global
+ * tile ids and edit commands) with deflate, used to
+ * reduce the memory of old states of the map history
+ *
+ * @author	Pedro Sampaio
+ * @since	1.8
+ *
+ */
+public class Compression {
+
+	/**
+	 * Compresses an array of ints
+	 *
+	 * @param values	the values to compress
+	 * @return	the compressed bytes
+	 */
+	public static byte[] deflate(int[] values) {
+		byte[] raw = new byte[values.length * 4];
+		for(int k = 0; k < values.length; k++) {
+			raw[k*4] = (byte) (values[k] >>> 24);
+			raw[k*4+1] = (byte) (values[k] >>> 16);
+			raw[k*4+2] = (byte) (values[k] >>> 8);
+			raw[k*4+3] = (byte) values[k];
+		}
+
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		deflater.setInput(raw);
+		deflater.finish();
+		byte[] buffer = new byte[raw.length / 4 + 64];
+		int size = 0;
+		while(!deflater.finished()) {
+			if(size == buffer.length)
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			size += deflater.deflate(buffer, size, buffer.length - size);
+		}
+		deflater.end();
+		return Arrays.copyOf(buffer, size);
+	}
+
+	/**
+	 * Decompresses an array of ints
+	 *
+	 * @param data		the compressed bytes
+	 * @param length	the number of ints compressed
+	 * @return	the decompressed values
+	 * @throws DataFormatException	if the compressed bytes are corrupt or
+	 * 								do not hold the given number of ints
+	 */
+	public static int[] inflate(byte[] data, int length) throws DataFormatException {
+		byte[] raw = new byte[length * 4];
+		Inflater inflater = new Inflater();
+		inflater.setInput(data);
+		try {
+			int size = 0;
+			while(size < raw.length && !inflater.finished()) {
+				int n = inflater.inflate(raw, size, raw.length - size);
+				// truncated data (no more input) or data needing a dictionary
+				if(n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+					break;
+				size += n;
+			}
+			if(size < raw.length)
+				throw new DataFormatException("compressed data has " + size / 4 + " of " + length + " values");
+		} finally {
+			inflater.end();
+		}
+
+		int[] values = new int[length];
+		for(int k = 0; k < length; k++)
+			values[k] = ((raw[k*4] & 0xFF) << 24) | ((raw[k*4+1] & 0xFF) << 16) | ((raw[k*4+2] & 0xFF) << 8) | (raw[k*4+3] & 0xFF);
+		return values;
+	}
+}
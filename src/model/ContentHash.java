@@ -0,0 +1,39 @@
+package model;
+
+/**
+ * Helper class for the content hashes of the map. Hashes are
+ * sums of the hashes of their parts (tiles of a chunk, chunks
+ * of a layer, words of a collider mask), each part mixed with
+ * its position, so a modification updates the hash in constant
+ * time by removing the hash of the old part and adding the hash
+ * of the new part. An empty part always hashes to 0
+ *
+ * @author	Pedro Sampaio
+ * @since	1.8
+ *
+ */
+public class ContentHash {
+
+	/**
+	 * Mixes the bits of a value (finalizer of splitmix64)
+	 *
+	 * @param value	the value to mix
+	 * @return	the mixed value
+	 */
+	public static long mix(long value) {
+		value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+		value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+		return value ^ (value >>> 31);
+	}
+
+	/**
+	 * @param position	the position of the part
+	 * @param value		the value of the part (0 for empty)
+	 * @return	the hash of the part in the position (0 if the part is empty)
+	 */
+	public static long part(long position, long value) {
+		if(value == 0)
+			return 0;
+		return mix(mix(position) + value);
+	}
+}
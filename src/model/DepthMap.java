@@ -0,0 +1,372 @@
+package model;
+
+import java.util.ArrayList;
+
+/**
+ * Class that keeps, for each position of the map, a mask
+ * of the layers that have a tile in the position (bit l
+ * set if layer l is occupied), so the free layer of the
+ * auto-layering and the top occupied layer of the eraser
+ * are found in constant time. Masks are allocated in
+ * chunks of the same size of the layer chunks, that count
+ * their positions with tiles and are freed when it is zero.
+ * The depth map writes tiles through to the layers and
+ * remembers the version of each layer, so direct changes
+ * to the layers are detected and the masks rebuilt
+ *
+ * @author	Pedro Sampaio
+ * @since	1.8
+ *
+ */
+public class DepthMap {
+
+	public static final int MAX_LAYERS = 64;	// maximum number of layers tracked (bits of a mask)
+
+	private ChunkMap<MaskChunk> masks;	// masks of occupied layers of each position, in chunks
+	private ArrayList<Layer> layers;	// the layers of the map tracked by the masks
+	private Layer[] synced;				// the layers when masks were last synchronized
+	private int[] versions;				// the versions of the layers when masks were last synchronized
+
+	/**
+	 * Class that keeps the masks of the positions of a chunk
+	 * and the number of positions with tiles in some layer
+	 */
+	private static class MaskChunk {
+		private long[] cells;		// masks of occupied layers of each position of the chunk (line by line)
+		private int occupied;		// number of positions with tiles in some layer (chunk is freed when 0)
+	}
+
+	/**
+	 * Constructor that builds the masks from the tiles of the layers
+	 *
+	 * @param layers	the layers of the map
+	 */
+	public DepthMap(ArrayList<Layer> layers) {
+		rebuild(layers);
+	}
+
+	/**
+	 * Builds the masks from the tiles of the layers,
+	 * visiting only the allocated chunks of each layer
+	 *
+	 * @param layers	the layers of the map
+	 */
+	public void rebuild(ArrayList<Layer> layers) {
+		masks = new ChunkMap<MaskChunk>();
+		for(int l = 0; l < layers.size() && l < MAX_LAYERS; l++) {
+			ChunkMap<Chunk> chunks = layers.get(l).getChunks();
+			for(int s = 0; s < chunks.capacity(); s++) {
+				Chunk chunk = chunks.valueAt(s);
+				if(chunk == null)
+					continue;
+				// chunks without tiles have no masks
+				if(chunk.isEmpty())
+					continue;
+				MaskChunk mask = getMaskChunk(chunks.keyAt(s), true);
+				for(int ci = 0; ci < Chunk.SIZE; ci++)
+					for(int cj = 0; cj < Chunk.SIZE; cj++)
+						if(chunk.getTileID(ci, cj) != 0)
+							occupy(mask, (ci << Chunk.SHIFT) | cj, 1L << l);
+			}
+		}
+		bind(layers);
+	}
+
+	/**
+	 * Binds the masks to a list of layers with the
+	 * same tiles of the layers the masks were built from
+	 * (a copy of the map)
+	 *
+	 * @param layers	the layers of the map
+	 */
+	public void bind(ArrayList<Layer> layers) {
+		this.layers = layers;
+		synced = new Layer[layers.size()];
+		versions = new int[layers.size()];
+		for(int l = 0; l < layers.size(); l++) {
+			synced[l] = layers.get(l);
+			versions[l] = layers.get(l).getVersion();
+		}
+	}
+
+	/**
+	 * @param layers	the layers of the map
+	 * @return	if the masks represent the current tiles of the layers
+	 */
+	public boolean isSyncedWith(ArrayList<Layer> layers) {
+		if(layers != this.layers || layers.size() != synced.length)
+			return false;
+		for(int l = 0; l < synced.length; l++) {
+			if(layers.get(l) != synced[l] || synced[l].getVersion() != versions[l])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @param key		the key of the chunk
+	 * @param create	if the chunk must be created when it does not exist
+	 * @return	the masks of the chunk (null if it does not exist and was not created)
+	 */
+	private MaskChunk getMaskChunk(long key, boolean create) {
+		MaskChunk mask = masks.get(key);
+		if(mask == null && create) {
+			mask = new MaskChunk();
+			mask.cells = new long[Chunk.SIZE * Chunk.SIZE];
+			masks.put(key, mask);
+		}
+		return mask;
+	}
+
+	/**
+	 * Sets the bit of a layer in the mask of a position,
+	 * counting the position if it had no tiles
+	 *
+	 * @param mask	the masks of the chunk of the position
+	 * @param cell	the index of the position in the chunk (line by line)
+	 * @param bit	the bit of the layer
+	 */
+	private static void occupy(MaskChunk mask, int cell, long bit) {
+		if(mask.cells[cell] == 0)
+			mask.occupied++;
+		mask.cells[cell] |= bit;
+	}
+
+	/**
+	 * Clears bits of layers in the mask of a position,
+	 * discounting the position if it has no tiles left
+	 *
+	 * @param mask	the masks of the chunk of the position
+	 * @param cell	the index of the position in the chunk (line by line)
+	 * @param keep	the bits of the layers kept
+	 */
+	private static void vacate(MaskChunk mask, int cell, long keep) {
+		long old = mask.cells[cell];
+		if(old != 0 && (mask.cells[cell] = old & keep) == 0)
+			mask.occupied--;
+	}
+
+	/**
+	 * @return the number of chunks with masks allocated
+	 */
+	public int getChunkCount() {
+		return masks.size();
+	}
+
+	/**
+	 * @param i	the i-index (line) of the position
+	 * @param j	the j-index (column) of the position
+	 * @return	the mask of layers with tiles in the position
+	 */
+	public long getMask(int i, int j) {
+		MaskChunk mask = masks.get(ChunkMap.key(i >> Chunk.SHIFT, j >> Chunk.SHIFT));
+		return mask == null ? 0 : mask.cells[((i & Chunk.MASK) << Chunk.SHIFT) | (j & Chunk.MASK)];
+	}
+
+	/**
+	 * @param i	the i-index (line) of the position
+	 * @param j	the j-index (column) of the position
+	 * @return	the lowest layer without tile in the position
+	 * 			(equal to the number of layers if all are occupied)
+	 */
+	public int getFreeLayer(int i, int j) {
+		return Math.min(Long.numberOfTrailingZeros(~getMask(i, j)), layers.size());
+	}
+
+	/**
+	 * @param i	the i-index (line) of the position
+	 * @param j	the j-index (column) of the position
+	 * @return	the highest layer with a tile in the position (-1 if there is none)
+	 */
+	public int getTopLayer(int i, int j) {
+		return 63 - Long.numberOfLeadingZeros(getMask(i, j));
+	}
+
+	/**
+	 * Sets the tile of a position of a layer, updating the masks
+	 *
+	 * @param l		the index of the layer
+	 * @param i		the i-index (line) of the position
+	 * @param j		the j-index (column) of the position
+	 * @param id	the global id of the tile (0 removes the tile)
+	 */
+	public void setTileID(int l, int i, int j, int id) {
+		Layer layer = layers.get(l);
+		layer.setTileID(i, j, id);
+		versions[l] = layer.getVersion();
+		if(l >= MAX_LAYERS)
+			return;
+
+		long key = ChunkMap.key(i >> Chunk.SHIFT, j >> Chunk.SHIFT);
+		MaskChunk mask = getMaskChunk(key, id != 0);
+		if(mask == null)
+			return;
+		int cell = ((i & Chunk.MASK) << Chunk.SHIFT) | (j & Chunk.MASK);
+		if(id != 0)
+			occupy(mask, cell, 1L << l);
+		else {
+			vacate(mask, cell, ~(1L << l));
+			if(mask.occupied == 0)
+				masks.remove(key);
+		}
+	}
+
+	/**
+	 * Sets a run of tiles of a line of a layer, updating the masks
+	 * (all ids of the run must be tiles, 0 is not allowed)
+	 *
+	 * @param l			the index of the layer
+	 * @param i			the i-index (line) of the run
+	 * @param j			the j-index (column) of the first tile of the run
+	 * @param src		the array with the global ids of the tiles
+	 * @param srcPos	the position of the first tile in the array
+	 * @param length	the number of tiles of the run
+	 */
+	public void setTileIDs(int l, int i, int j, int[] src, int srcPos, int length) {
+		Layer layer = layers.get(l);
+		layer.setTileIDs(i, j, src, srcPos, length);
+		versions[l] = layer.getVersion();
+		if(l >= MAX_LAYERS)
+			return;
+
+		long bit = 1L << l;
+		int end = j + length;
+		while(j < end) {
+			int cj = j & Chunk.MASK;
+			int run = Math.min(end - j, Chunk.SIZE - cj);
+			MaskChunk mask = getMaskChunk(ChunkMap.key(i >> Chunk.SHIFT, j >> Chunk.SHIFT), true);
+			int cell = ((i & Chunk.MASK) << Chunk.SHIFT) | cj;
+			for(int n = 0; n < run; n++)
+				occupy(mask, cell + n, bit);
+			j += run;
+		}
+	}
+
+	/**
+	 * Removes the tiles of a run of a line of a layer, updating the masks
+	 *
+	 * @param l			the index of the layer
+	 * @param i			the i-index (line) of the run
+	 * @param j			the j-index (column) of the first position of the run
+	 * @param length	the number of positions of the run
+	 * @return	the number of tiles removed
+	 */
+	public int clearTiles(int l, int i, int j, int length) {
+		Layer layer = layers.get(l);
+		int removed = layer.clearTiles(i, j, length);
+		versions[l] = layer.getVersion();
+		if(removed > 0 && l < MAX_LAYERS)
+			clearMasks(l, i, j, 1, length);
+		return removed;
+	}
+
+	/**
+	 * Removes the tiles of a rectangular area of a layer, updating the masks
+	 *
+	 * @param l			the index of the layer
+	 * @param i			the i-index (line) of the first line of the area
+	 * @param j			the j-index (column) of the first column of the area
+	 * @param lines		the number of lines of the area
+	 * @param columns	the number of columns of the area
+	 * @return	the number of tiles removed
+	 */
+	public int clearArea(int l, int i, int j, int lines, int columns) {
+		Layer layer = layers.get(l);
+		int removed = layer.clearArea(i, j, lines, columns);
+		versions[l] = layer.getVersion();
+		if(removed > 0 && l < MAX_LAYERS)
+			clearMasks(l, i, j, lines, columns);
+		return removed;
+	}
+
+	/**
+	 * Clears the bit of a layer in the masks of an area,
+	 * skipping chunks of the area without masks
+	 *
+	 * @param l			the index of the layer
+	 * @param i			the i-index (line) of the first line of the area
+	 * @param j			the j-index (column) of the first column of the area
+	 * @param lines		the number of lines of the area
+	 * @param columns	the number of columns of the area
+	 */
+	private void clearMasks(int l, int i, int j, int lines, int columns) {
+		long keep = ~(1L << l);
+		int endI = i + lines, endJ = j + columns;
+		for(int chunkI = i >> Chunk.SHIFT; chunkI <= (endI - 1) >> Chunk.SHIFT; chunkI++) {
+			int firstI = Math.max(i, chunkI << Chunk.SHIFT);
+			int lastI = Math.min(endI, (chunkI + 1) << Chunk.SHIFT);
+			for(int chunkJ = j >> Chunk.SHIFT; chunkJ <= (endJ - 1) >> Chunk.SHIFT; chunkJ++) {
+				MaskChunk mask = getMaskChunk(ChunkMap.key(chunkI, chunkJ), false);
+				if(mask == null)
+					continue;
+				int firstJ = Math.max(j, chunkJ << Chunk.SHIFT) & Chunk.MASK;
+				int lastJ = firstJ + Math.min(endJ, (chunkJ + 1) << Chunk.SHIFT) - Math.max(j, chunkJ << Chunk.SHIFT);
+				for(int ti = firstI; ti < lastI; ti++) {
+					int line = (ti & Chunk.MASK) << Chunk.SHIFT;
+					for(int c = line + firstJ; c < line + lastJ; c++)
+						vacate(mask, c, keep);
+				}
+				if(mask.occupied == 0)
+					masks.remove(ChunkMap.key(chunkI, chunkJ));
+			}
+		}
+	}
+
+	/**
+	 * Adds a layer on top of the layers of the map
+	 *
+	 * @param layer	the layer to add
+	 */
+	public void addLayer(Layer layer) {
+		layers.add(layer);
+		// layer may already have tiles
+		if(!layer.isEmpty() && layers.size() <= MAX_LAYERS) {
+			rebuild(layers);
+			return;
+		}
+		bind(layers);
+	}
+
+	/**
+	 * Removes a layer of the map, moving down
+	 * the layers above it in the masks
+	 *
+	 * @param l	the index of the layer to remove
+	 */
+	public void removeLayer(int l) {
+		layers.remove(l);
+		// an untracked layer moves into the tracked layers
+		if(layers.size() >= MAX_LAYERS) {
+			rebuild(layers);
+			return;
+		}
+		long below = (1L << l) - 1;
+		ArrayList<Long> emptied = new ArrayList<Long>();
+		for(int s = 0; s < masks.capacity(); s++) {
+			MaskChunk mask = masks.valueAt(s);
+			if(mask == null)
+				continue;
+			long[] cells = mask.cells;
+			// the top layer has no layers above it to move down
+			// (a shift by 64 bits would not shift the mask)
+			if(l == MAX_LAYERS - 1) {
+				for(int c = 0; c < cells.length; c++)
+					vacate(mask, c, below);
+			}
+			else {
+				for(int c = 0; c < cells.length; c++) {
+					long old = cells[c];
+					cells[c] = (old & below) | ((old >>> (l + 1)) << l);
+					if(old != 0 && cells[c] == 0)
+						mask.occupied--;
+				}
+			}
+			if(mask.occupied == 0)
+				emptied.add(masks.keyAt(s));
+		}
+		// chunks are freed after visiting the slots (removal moves entries)
+		for(int k = 0; k < emptied.size(); k++)
+			masks.remove(emptied.get(k));
+		bind(layers);
+	}
+}
@@ -0,0 +1,86 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Temporary file that keeps the compressed edits of states
+ * of the map history that are far from the current state,
+ * so only a window of recent states is kept on the heap and
+ * undo depth is limited by disk instead of memory. Records
+ * are appended and never modified, being read back when
+ * undo or redo reaches their states. The file is deleted
+ * when the program exits
+ *
+ * @author	Pedro Sampaio
+ * @since	1.8
+ *
+ */
+public class HistoryFile {
+
+	private File path;				// the path of the temporary file
+	private RandomAccessFile file;	// the file of the records
+	private long length;			// number of bytes written
+
+	/**
+	 * Constructor that creates an empty temporary file
+	 *
+	 * @throws IOException	if the file could not be created
+	 */
+	public HistoryFile() throws IOException {
+		path = File.createTempFile("2dmapbuilder", ".history");
+		path.deleteOnExit();
+		file = new RandomAccessFile(path, "rw");
+	}
+
+	/**
+	 * Appends a record to the file
+	 *
+	 * @param data	the bytes of the record
+	 * @return	the position of the record in the file
+	 * @throws IOException	if the record could not be written
+	 */
+	public synchronized long write(byte[] data) throws IOException {
+		long position = length;
+		file.seek(position);
+		file.write(data);
+		length += data.length;
+		return position;
+	}
+
+	/**
+	 * Reads a record from the file
+	 *
+	 * @param position	the position of the record in the file
+	 * @param size		the number of bytes of the record
+	 * @return	the bytes of the record
+	 * @throws IOException	if the record could not be read
+	 */
+	public synchronized byte[] read(long position, int size) throws IOException {
+		byte[] data = new byte[size];
+		file.seek(position);
+		file.readFully(data);
+		return data;
+	}
+
+	/**
+	 * Discards all records (records must not be read again)
+	 */
+	public synchronized void clear() {
+		try {
+			file.setLength(0);
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.err.println("HistoryFile: Could not truncate file " + path);
+		}
+		length = 0;
+	}
+
+	/**
+	 * @return the number of bytes written in the file
+	 */
+	public synchronized long getLength() {
+		return length;
+	}
+}
@@ -1,6 +1,7 @@
 package model;
 
-import java.util.ArrayList;
+import java.awt.Rectangle;
+import java.util.Arrays;
 
 /**
  * Class that represents a layer in the context of tile-based maps,
@@ -14,10 +15,26 @@ import java.util.ArrayList;
  */
 public class Layer {
 	
-	private Tile[][] tiles;					//  matrix that contains all the tiles that composes the layer (including non created tiles)
+	private ChunkMap<Chunk> chunks;			//  allocated chunks of tiles that composes the layer (regions without tiles have no chunks)
+	private boolean chunksShared;			//	if the chunks map is shared with copies of the layer (copied on first write)
+	private Object owner;					//	token that identifies the chunks this layer can modify without copying
+	private Object origin;					//	token shared by the layer and all its copies (identifies the layer across map states)
+	private int tileCount;					//	number of tiles in layer
+	private int[] rowCounts;				//	number of tiles in each line of layer (shared with copies of the layer until modified)
+	private int rowBase;					//	line of the first tiles count of lines (lines of unbounded layers may be negative)
+	private boolean rowCountsShared;		//	if the tiles count of lines is shared with copies of the layer (copied on first write)
+	private int minI, minJ, maxI, maxJ;		//	bounding box of the tiles of layer (valid only if layer is not empty)
+	private boolean boundsDirty;			//	if bounding box must be recalculated (a tile on its border was removed)
+	private ChunkStore store;				//	store that keeps the tiles of chunks off the heap (null keeps tiles on heap)
+	private boolean palette;				//	if chunks created on the heap keep their tiles in a palette (PaletteChunk)
+	private long hash;						//	content hash of the tiles of layer (sum of the hashes of chunks in their positions)
+	private int version;					//	number of modifications of the tiles of layer (to detect changes)
+	private int width;						//	number of tiles in layer on x-axis (columns)
+	private int height;						//	number of tiles in layer on y-axis (lines)
+	private boolean unbounded;				//	if tiles can be set in any position of the layer (layer of an unbounded map)
 	private float zIndex;					//	the z-index (depth) of the layer: bigger indexes on top of smaller indexes
 	private float opacity;					//	the current opacity of the layer (for visualization tweaks in the viewport)
-	private ArrayList<Tile>	selectedTiles;	// 	current selected tiles of the layer
+	private Selection selection;			// 	current selected tiles of the layer
 	
 	/**
 	 * Constructors
@@ -29,36 +46,79 @@ public class Layer {
 	public Layer () {
 		this.zIndex = 0;
 		this.opacity = 0;
-		tiles = null;
-		selectedTiles = new ArrayList<Tile>();
+		chunks = new ChunkMap<Chunk>();
+		rowCounts = new int[0];
+		owner = new Object();
+		origin = new Object();
+		selection = new Selection(0, 0);
 	}
 	
 	/**
 	 * Constructor with layer parameters
 	 * 
+	 * @param width			the number of tiles in layer on x-axis (columns)
+	 * @param height		the number of tiles in layer on y-axis (lines)
 	 * @param zIndex		the z-index (depth) of the layer: bigger indexes on top of smaller indexes
 	 * @param opacity		the current opacity of the layer (for visualization tweaks in the viewport)
 	 */
-	public Layer (float zIndex, float opacity) {
-		this.zIndex = zIndex;
-		this.opacity = opacity;
-		// initializes tiles with current map size configurated
-		tiles = new Tile[MapConfig.mapSizeY][MapConfig.mapSizeX];
-		selectedTiles = new ArrayList<Tile>();
+	public Layer(int width, int height, float zIndex, float opacity) {
+		this(width, height, zIndex, opacity, null, false);
 	}
-	
+
 	/**
-	 * Constructor with layer parameters
+	 * Constructor with layer parameters and the storage of its tiles
 	 * 
-	 * @param tiles			the tiles data for the layer
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param width			the number of tiles in layer on x-axis (columns)
+	 * @param height		the number of tiles in layer on y-axis (lines)
 	 * @param zIndex		the z-index (depth) of the layer: bigger indexes on top of smaller indexes
 	 * @param opacity		the current opacity of the layer (for visualization tweaks in the viewport)
+	 * @param store			the store that keeps the tiles of chunks off the heap (null keeps tiles on heap)
+	 * @param palette		if chunks created on the heap keep their tiles in a palette
 	 */
-	public Layer(Tile[][] tiles, float zIndex, float opacity) {
-		this.tiles = tiles;
+	public Layer(int width, int height, float zIndex, float opacity, ChunkStore store, boolean palette) {
+		this.width = width;
+		this.height = height;
 		this.zIndex = zIndex;
 		this.opacity = opacity;
-		selectedTiles = new ArrayList<Tile>();
+		// chunks are only allocated when tiles are set
+		chunks = new ChunkMap<Chunk>();
+		this.store = store;
+		this.palette = palette;
+		rowCounts = new int[height];
+		owner = new Object();
+		origin = new Object();
+		selection = new Selection(width, height);
+	}
+
+	/**
+	 * Constructor for a layer without bounds (layer of an unbounded map):
+	 * tiles can be set in any position, including negative ones, and
+	 * chunks are allocated as the positions are painted
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param zIndex		the z-index (depth) of the layer: bigger indexes on top of smaller indexes
+	 * @param opacity		the current opacity of the layer (for visualization tweaks in the viewport)
+	 */
+	public Layer(float zIndex, float opacity) {
+		this(zIndex, opacity, null, false);
+	}
+
+	/**
+	 * Constructor for a layer without bounds with the storage of its tiles
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param zIndex		the z-index (depth) of the layer: bigger indexes on top of smaller indexes
+	 * @param opacity		the current opacity of the layer (for visualization tweaks in the viewport)
+	 * @param store			the store that keeps the tiles of chunks off the heap (null keeps tiles on heap)
+	 * @param palette		if chunks created on the heap keep their tiles in a palette
+	 */
+	public Layer(float zIndex, float opacity, ChunkStore store, boolean palette) {
+		this(0, 0, zIndex, opacity, store, palette);
+		unbounded = true;
 	}
 	
 	/**
@@ -92,87 +152,782 @@ public class Layer {
 	}
 
 	/**
-	 * @return the matrix that contains all the tiles that composes the layer
+	 * @return the number of tiles in layer on x-axis (columns)
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the number of tiles in layer on y-axis (lines)
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return if tiles can be set in any position of the layer (layer of an unbounded map)
 	 */
-	public Tile[][] getTiles() {
-		return tiles;
+	public boolean isUnbounded() {
+		return unbounded;
 	}
 
 	/**
-	 * @param tiles the tiles to set
+	 * @param i		the i-index (line) of the position
+	 * @param j		the j-index (column) of the position
+	 * @return	if the position is inside the bounds of the layer
 	 */
-	public void setTiles(Tile[][] tiles) {
-		this.tiles = tiles;
+	public boolean contains(int i, int j) {
+		return unbounded || (i >= 0 && j >= 0 && i < height && j < width);
 	}
 
 	/**
 	 * @author Pedro Sampaio
-	 * @since	0.7b
-	 * creates a copy of the tiles structure
-	 * @return	the copy of the tiles structure
+	 * @since  1.8
+	 * @param i		the i-index (line) of the tile in layer
+	 * @param j		the j-index (column) of the tile in layer
+	 * @return	the global id of the tile in the position (0 if there is no tile)
 	 */
-	public Tile[][] createCopy() {
-		final Tile[][] result = new Tile[MapConfig.mapSizeY][MapConfig.mapSizeX];
-	    for (int i = 0; i < MapConfig.mapSizeY; i++) {
-	    	for (int j = 0; j < MapConfig.mapSizeX; j++) {
-	    		if(tiles[i][j] != null)
-	    			result[i][j] = new Tile(tiles[i][j].getIndexI(), tiles[i][j].getIndexJ(), tiles[i][j].getTileset(), 
-	    									tiles[i][j].getId(),tiles[i][j].getDrawI(), tiles[i][j].getDrawJ(), tiles[i][j].isComplete());
-	    	}
-	    }
-	    return result;
+	public int getTileID(int i, int j) {
+		Chunk chunk = chunks.get(ChunkMap.key(i >> Chunk.SHIFT, j >> Chunk.SHIFT));
+		if(chunk == null)
+			return 0;
+		return chunk.getTileID(i & Chunk.MASK, j & Chunk.MASK);
 	}
 
 	/**
-	 * @return if the layer is empty (no tiles in it)
+	 * Sets the tile of a position of the layer, allocating
+	 * the chunk of the position if needed and freeing it
+	 * when it becomes empty. Chunks shared with other copies
+	 * of the layer are copied before being modified
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param i		the i-index (line) of the tile in layer
+	 * @param j		the j-index (column) of the tile in layer
+	 * @param id	the global id of the tile (0 removes the tile)
 	 */
-	public boolean isEmpty() {
+	public void setTileID(int i, int j, int id) {
+		long key = ChunkMap.key(i >> Chunk.SHIFT, j >> Chunk.SHIFT);
+		Chunk chunk = chunks.get(key);
+		int oldID = chunk == null ? 0 : chunk.getTileID(i & Chunk.MASK, j & Chunk.MASK);
+		// nothing changes
+		if(oldID == id)
+			return;
+		chunk = writableChunk(key, chunk);
+		long oldHash = chunk.getHash();
+		chunk.setTileID(i & Chunk.MASK, j & Chunk.MASK, id);
+		hash += ContentHash.part(key, chunk.getHash()) - ContentHash.part(key, oldHash);
+		version++;
+		// frees chunk without tiles
+		if(chunk.isEmpty())
+			writableChunks().remove(key);
+		
+		// updates occupancy of layer
+		if(oldID == 0)
+			addOccupancy(i, j);
+		else if(id == 0)
+			removeOccupancy(i, j);
+	}
+
+	/**
+	 * Copies a run of tiles of a line of the layer to an array
+	 * (positions without tiles are copied as 0)
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param i			the i-index (line) of the run in layer
+	 * @param j			the j-index (column) of the first tile of the run in layer
+	 * @param dst		the array that receives the global ids of the tiles
+	 * @param dstPos	the position of the first tile in the array
+	 * @param length	the number of tiles of the run
+	 */
+	public void getTileIDs(int i, int j, int[] dst, int dstPos, int length) {
+		while(length > 0) {
+			int cj = j & Chunk.MASK;
+			int run = Math.min(length, Chunk.SIZE - cj);
+			Chunk chunk = chunks.get(ChunkMap.key(i >> Chunk.SHIFT, j >> Chunk.SHIFT));
+			if(chunk == null)
+				Arrays.fill(dst, dstPos, dstPos + run, 0);
+			else
+				chunk.getTileIDs(i & Chunk.MASK, cj, dst, dstPos, run);
+			j += run; dstPos += run; length -= run;
+		}
+	}
+
+	/**
+	 * Sets a run of tiles of a line of the layer from an array,
+	 * copying the part of the run of each chunk at once
+	 * (all ids of the run must be tiles, 0 is not allowed:
+	 * tiles are removed with setTileID)
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param i			the i-index (line) of the run in layer
+	 * @param j			the j-index (column) of the first tile of the run in layer
+	 * @param src		the array with the global ids of the tiles
+	 * @param srcPos	the position of the first tile in the array
+	 * @param length	the number of tiles of the run
+	 */
+	public void setTileIDs(int i, int j, int[] src, int srcPos, int length) {
+		if(length <= 0)
+			return;
+		int firstJ = j, lastJ = j + length - 1;
+		int added = 0;
+		while(length > 0) {
+			int cj = j & Chunk.MASK;
+			int run = Math.min(length, Chunk.SIZE - cj);
+			long key = ChunkMap.key(i >> Chunk.SHIFT, j >> Chunk.SHIFT);
+			Chunk chunk = writableChunk(key, chunks.get(key));
+			long oldHash = chunk.getHash();
+			added += chunk.setTileIDs(i & Chunk.MASK, cj, src, srcPos, run);
+			hash += ContentHash.part(key, chunk.getHash()) - ContentHash.part(key, oldHash);
+			j += run; srcPos += run; length -= run;
+		}
+		version++;
 		
-		for(int i = 0; i < tiles.length; i++) {
-			for(int j = 0; j < tiles[i].length; j++) {
-				if(tiles[i][j] != null)
-					return false;
+		// updates occupancy of layer (run is filled with tiles now)
+		if(added == 0)
+			return;
+		writableRowCounts(i)[i - rowBase] += added;
+		if(tileCount == 0) {
+			minI = maxI = i;
+			minJ = firstJ; maxJ = lastJ;
+		}
+		else {
+			minI = Math.min(minI, i); maxI = Math.max(maxI, i);
+			minJ = Math.min(minJ, firstJ); maxJ = Math.max(maxJ, lastJ);
+		}
+		tileCount += added;
+	}
+
+	/**
+	 * Removes the tiles of a run of a line of the layer, clearing
+	 * the part of the run of each chunk at once and skipping
+	 * chunks that are not allocated
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param i			the i-index (line) of the run in layer
+	 * @param j			the j-index (column) of the first position of the run in layer
+	 * @param length	the number of positions of the run
+	 * @return	the number of tiles removed
+	 */
+	public int clearTiles(int i, int j, int length) {
+		int removed = 0;
+		while(length > 0) {
+			int cj = j & Chunk.MASK;
+			int run = Math.min(length, Chunk.SIZE - cj);
+			removed += clearRun(ChunkMap.key(i >> Chunk.SHIFT, j >> Chunk.SHIFT), i & Chunk.MASK, cj, run);
+			j += run; length -= run;
+		}
+		if(removed > 0)
+			removeRowOccupancy(i, removed);
+		return removed;
+	}
+
+	/**
+	 * Removes the tiles of a rectangular area of the layer, freeing
+	 * at once the chunks that are entirely inside the area and
+	 * clearing the other chunks overlapped by the area line by line
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param i			the i-index (line) of the first line of the area
+	 * @param j			the j-index (column) of the first column of the area
+	 * @param lines		the number of lines of the area
+	 * @param columns	the number of columns of the area
+	 * @return	the number of tiles removed
+	 */
+	public int clearArea(int i, int j, int lines, int columns) {
+		if(lines <= 0 || columns <= 0)
+			return 0;
+		int count = tileCount;
+		int endI = i + lines, endJ = j + columns;
+		for(int chunkI = i >> Chunk.SHIFT; chunkI <= (endI - 1) >> Chunk.SHIFT; chunkI++) {
+			int firstI = Math.max(i, chunkI << Chunk.SHIFT);
+			int lastI = Math.min(endI, (chunkI + 1) << Chunk.SHIFT);
+			for(int chunkJ = j >> Chunk.SHIFT; chunkJ <= (endJ - 1) >> Chunk.SHIFT; chunkJ++) {
+				long key = ChunkMap.key(chunkI, chunkJ);
+				if(chunks.get(key) == null)
+					continue;
+				int firstJ = Math.max(j, chunkJ << Chunk.SHIFT);
+				int lastJ = Math.min(endJ, (chunkJ + 1) << Chunk.SHIFT);
+				// chunk entirely inside the area is freed without visiting its tiles
+				if(lastI - firstI == Chunk.SIZE && lastJ - firstJ == Chunk.SIZE) {
+					putChunk(key, null);
+					continue;
+				}
+				for(int ti = firstI; ti < lastI; ti++) {
+					int removed = clearRun(key, ti & Chunk.MASK, firstJ & Chunk.MASK, lastJ - firstJ);
+					if(removed > 0)
+						removeRowOccupancy(ti, removed);
+				}
+			}
+		}
+		return count - tileCount;
+	}
+
+	/**
+	 * Removes the tiles of a run of a line of a chunk of the layer,
+	 * freeing the chunk when it becomes empty (occupancy of the
+	 * line is updated by the caller)
+	 * 
+	 * @param key		the key of the chunk
+	 * @param ci		the i-index (line) of the run in the chunk
+	 * @param cj		the j-index (column) of the first position of the run in the chunk
+	 * @param length	the number of positions of the run
+	 * @return	the number of tiles removed
+	 */
+	private int clearRun(long key, int ci, int cj, int length) {
+		Chunk chunk = chunks.get(key);
+		if(chunk == null)
+			return 0;
+		// run without tiles does not copy shared chunks
+		int[] line = new int[length];
+		chunk.getTileIDs(ci, cj, line, 0, length);
+		int n = 0;
+		while(n < length && line[n] == 0)
+			n++;
+		if(n == length)
+			return 0;
+		chunk = writableChunk(key, chunk);
+		long oldHash = chunk.getHash();
+		int removed = chunk.clearTiles(ci, cj, length);
+		hash += ContentHash.part(key, chunk.getHash()) - ContentHash.part(key, oldHash);
+		version++;
+		// frees chunk without tiles
+		if(chunk.isEmpty())
+			writableChunks().remove(key);
+		return removed;
+	}
+
+	/**
+	 * Replaces the chunks of an area of the layer with the chunks of
+	 * an area of other layer, sharing them with the other layer (both
+	 * layers copy shared chunks on write), so whole regions of tiles
+	 * are placed without copying tile data. The areas must be aligned
+	 * to chunks (positions and dimensions multiples of Chunk.SIZE)
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param from		the layer to take the chunks from (null clears the area)
+	 * @param fromI		the i-index (line) of the first line of the area in the other layer
+	 * @param fromJ		the j-index (column) of the first column of the area in the other layer
+	 * @param toI		the i-index (line) of the first line of the area in this layer
+	 * @param toJ		the j-index (column) of the first column of the area in this layer
+	 * @param lines		the number of lines of the area
+	 * @param columns	the number of columns of the area
+	 */
+	public void copyChunks(Layer from, int fromI, int fromJ, int toI, int toJ, int lines, int columns) {
+		int chunkLines = lines >> Chunk.SHIFT, chunkColumns = columns >> Chunk.SHIFT;
+		for(int ci = 0; ci < chunkLines; ci++) {
+			for(int cj = 0; cj < chunkColumns; cj++) {
+				Chunk chunk = null;
+				if(from != null)
+					chunk = from.chunks.get(ChunkMap.key((fromI >> Chunk.SHIFT) + ci, (fromJ >> Chunk.SHIFT) + cj));
+				putChunk(ChunkMap.key((toI >> Chunk.SHIFT) + ci, (toJ >> Chunk.SHIFT) + cj), chunk);
 			}
 		}
-		return true;
 	}
 
 	/**
-	 * @return the selectedTiles
+	 * Replaces a chunk of the layer, updating occupancy and content hash
+	 * 
+	 * @param key	the key of the chunk
+	 * @param chunk	the new chunk (null or empty removes the chunk)
 	 */
-	public ArrayList<Tile> getSelectedTiles() {
-		return selectedTiles;
+	private void putChunk(long key, Chunk chunk) {
+		Chunk old = chunks.get(key);
+		if(chunk != null && chunk.isEmpty())
+			chunk = null;
+		if(old == chunk)
+			return;
+		int firstI = ChunkMap.keyI(key) << Chunk.SHIFT;
+		if(old != null) {
+			countChunk(old, firstI, -1);
+			hash -= ContentHash.part(key, old.getHash());
+			writableChunks().remove(key);
+		}
+		if(chunk != null) {
+			countChunk(chunk, firstI, 1);
+			hash += ContentHash.part(key, chunk.getHash());
+			writableChunks().put(key, chunk);
+		}
+		version++;
+		boundsDirty = true;
 	}
 
 	/**
-	 * @param selectedTiles the selectedTiles to set
+	 * Adds the tiles of a chunk to the occupancy of layer (or removes them)
+	 * 
+	 * @param chunk		the chunk
+	 * @param firstI	the i-index (line) of the first line of the chunk in layer
+	 * @param sign		1 to add the tiles of the chunk, -1 to remove them
 	 */
-	public void setSelectedTiles(ArrayList<Tile> selectedTiles) {
-		this.selectedTiles = selectedTiles;
+	private void countChunk(Chunk chunk, int firstI, int sign) {
+		int[] line = new int[Chunk.SIZE];
+		for(int ci = 0; ci < Chunk.SIZE; ci++) {
+			chunk.getTileIDs(ci, 0, line, 0, Chunk.SIZE);
+			int count = 0;
+			for(int cj = 0; cj < Chunk.SIZE; cj++)
+				if(line[cj] != 0)
+					count++;
+			if(count == 0)
+				continue;
+			writableRowCounts(firstI + ci)[firstI + ci - rowBase] += sign * count;
+			tileCount += sign * count;
+		}
 	}
 
 	/**
-	 * Resize map the layer with current map size
+	 * Gets a chunk of the layer ready to be modified, allocating
+	 * it if it does not exist and copying it if it is shared
 	 * 
+	 * @param key	the key of the chunk
+	 * @param chunk	the current chunk of the key (null if not allocated)
+	 * @return	the chunk owned by this layer
+	 */
+	private Chunk writableChunk(long key, Chunk chunk) {
+		if(chunk == null) {
+			if(store != null)
+				chunk = store.createChunk(owner);
+			else
+				chunk = palette ? new PaletteChunk(owner) : new Chunk(owner);
+			writableChunks().put(key, chunk);
+		}
+		else if(chunk.getOwner() != owner) {
+			// chunk is shared with other copies: copy it before modifying
+			chunk = chunk.createCopy(owner);
+			writableChunks().put(key, chunk);
+		}
+		return chunk;
+	}
+
+	/**
+	 * Updates occupancy of layer for a tile added
+	 * 
+	 * @param i		the i-index (line) of the tile added
+	 * @param j		the j-index (column) of the tile added
+	 */
+	private void addOccupancy(int i, int j) {
+		writableRowCounts(i)[i - rowBase]++;
+		if(tileCount == 0) {
+			minI = maxI = i;
+			minJ = maxJ = j;
+		}
+		else {
+			minI = Math.min(minI, i); maxI = Math.max(maxI, i);
+			minJ = Math.min(minJ, j); maxJ = Math.max(maxJ, j);
+		}
+		tileCount++;
+	}
+
+	/**
+	 * Updates occupancy of layer for a tile removed
+	 * 
+	 * @param i		the i-index (line) of the tile removed
+	 * @param j		the j-index (column) of the tile removed
+	 */
+	private void removeOccupancy(int i, int j) {
+		writableRowCounts(i)[i - rowBase]--;
+		tileCount--;
+		// bounding box may shrink if tile was on its border
+		if(i == minI || i == maxI || j == minJ || j == maxJ)
+			boundsDirty = true;
+	}
+
+	/**
+	 * Updates occupancy of layer for tiles removed from a line
+	 * 
+	 * @param i			the i-index (line) of the tiles removed
+	 * @param removed	the number of tiles removed from the line
+	 */
+	private void removeRowOccupancy(int i, int removed) {
+		writableRowCounts(i)[i - rowBase] -= removed;
+		tileCount -= removed;
+		// columns of the tiles are not tracked: bounding box is recomputed
+		boundsDirty = true;
+	}
+
+	/**
+	 * Gets the tiles count of lines ready to be modified, copied
+	 * if it is shared with other copies of the layer and grown
+	 * to hold the given line (lines of unbounded layers are only
+	 * counted once they are painted, doubling the counts on growth)
+	 * 
+	 * @param i	the i-index (line) that will be modified
+	 * @return the tiles count of lines ready to be modified
+	 * (tiles count of line i at index i - rowBase)
+	 */
+	private int[] writableRowCounts(int i) {
+		if(i < rowBase || i >= rowBase + rowCounts.length) {
+			int end = rowBase + rowCounts.length;
+			int length = Math.max(Math.max(rowCounts.length * 2, Chunk.SIZE), 
+									rowCounts.length == 0 ? 1 : Math.max(end - i, i + 1 - rowBase));
+			int first;
+			if(rowCounts.length == 0)
+				first = i & ~Chunk.MASK;
+			else if(i < rowBase)
+				first = end - length;
+			else
+				first = rowBase;
+			int[] grown = new int[length];
+			if(rowCounts.length > 0)
+				System.arraycopy(rowCounts, 0, grown, rowBase - first, rowCounts.length);
+			rowCounts = grown;
+			rowBase = first;
+			rowCountsShared = false;
+		}
+		else if(rowCountsShared) {
+			rowCounts = rowCounts.clone();
+			rowCountsShared = false;
+		}
+		return rowCounts;
+	}
+
+	/**
+	 * @return the number of modifications of the tiles of layer
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
 	 * @author Pedro Sampaio
-	 * @since  1.1
+	 * @since  1.8
+	 * @return the content hash of the tiles of layer
+	 * (equal for layers with the same tiles, 0 if empty)
+	 */
+	public long getContentHash() {
+		return hash;
+	}
+
+	/**
+	 * Calculates the content hash of the tiles of an area of the
+	 * layer aligned to chunks, with the chunks in their positions
+	 * relative to the area (equal for areas with the same tiles)
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param originI	the i-index (line) of the first line of the area
+	 * @param originJ	the j-index (column) of the first column of the area
+	 * @param lines		the number of lines of the area
+	 * @param columns	the number of columns of the area
+	 * @return	the content hash of the tiles of the area (0 if empty)
+	 */
+	public long getContentHash(int originI, int originJ, int lines, int columns) {
+		long areaHash = 0;
+		for(int ci = 0; ci < lines >> Chunk.SHIFT; ci++) {
+			for(int cj = 0; cj < columns >> Chunk.SHIFT; cj++) {
+				Chunk chunk = chunks.get(ChunkMap.key((originI >> Chunk.SHIFT) + ci, (originJ >> Chunk.SHIFT) + cj));
+				if(chunk != null)
+					areaHash += ContentHash.part(ChunkMap.key(ci, cj), chunk.getHash());
+			}
+		}
+		return areaHash;
+	}
+
+	/**
+	 * @return the number of tiles in layer
+	 */
+	public int getTileCount() {
+		return tileCount;
+	}
+
+	/**
+	 * @param i	the i-index (line) of layer
+	 * @return	if the line has no tiles
+	 */
+	public boolean isRowEmpty(int i) {
+		return i < rowBase || i >= rowBase + rowCounts.length || rowCounts[i - rowBase] == 0;
+	}
+
+	/**
+	 * Gets the bounding box of the tiles of layer,
+	 * recalculating it if tiles on its border were removed
 	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @return	the bounding box of tiles in tile units (x for columns, y for lines)
+	 * 			or null if the layer is empty
 	 */
-	public void resizeMap() {
-		//save current info
-		Tile[][] savedTiles = tiles;
+	public Rectangle getBounds() {
+		if(tileCount == 0)
+			return null;
+		if(boundsDirty)
+			calculateBounds();
+		return new Rectangle(minJ, minI, maxJ - minJ + 1, maxI - minI + 1);
+	}
+
+	/**
+	 * Gets the bounding box of the chunks of layer,
+	 * the bounding box of its tiles aligned to chunks
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @return	the bounding box of chunks in tile units (x for columns, y for lines)
+	 * 			or null if the layer is empty
+	 */
+	public Rectangle getChunkBounds() {
+		Rectangle bounds = getBounds();
+		if(bounds == null)
+			return null;
+		int firstI = bounds.y & ~Chunk.MASK;
+		int firstJ = bounds.x & ~Chunk.MASK;
+		int endI = ((bounds.y + bounds.height - 1) | Chunk.MASK) + 1;
+		int endJ = ((bounds.x + bounds.width - 1) | Chunk.MASK) + 1;
+		return new Rectangle(firstJ, firstI, endJ - firstJ, endI - firstI);
+	}
+
+	/**
+	 * Calculates the bounding box of the tiles of layer,
+	 * lines from the tiles count of lines and columns
+	 * from the chunks that can contain the border columns
+	 */
+	private void calculateBounds() {
+		boundsDirty = false;
+		int first = 0;
+		while(rowCounts[first] == 0)
+			first++;
+		int last = rowCounts.length - 1;
+		while(rowCounts[last] == 0)
+			last--;
+		minI = rowBase + first;
+		maxI = rowBase + last;
 		
-		// resize tiles matrix array
-		tiles = new Tile[MapConfig.mapSizeY][MapConfig.mapSizeX];
+		minJ = Integer.MAX_VALUE;
+		maxJ = Integer.MIN_VALUE;
+		for(int s = 0; s < chunks.capacity(); s++) {
+			Chunk chunk = chunks.valueAt(s);
+			if(chunk == null)
+				continue;
+			int firstJ = ChunkMap.keyJ(chunks.keyAt(s)) << Chunk.SHIFT;
+			// chunk cannot change bounds
+			if(firstJ >= minJ && firstJ + Chunk.MASK <= maxJ)
+				continue;
+			for(int ci = 0; ci < Chunk.SIZE; ci++) {
+				for(int cj = 0; cj < Chunk.SIZE; cj++) {
+					if(chunk.getTileID(ci, cj) != 0) {
+						minJ = Math.min(minJ, firstJ + cj);
+						maxJ = Math.max(maxJ, firstJ + cj);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the chunks map of the layer ready to be modified
+	 * (copied if it is shared with other copies of the layer)
+	 */
+	private ChunkMap<Chunk> writableChunks() {
+		if(chunksShared) {
+			chunks = chunks.createCopy();
+			chunksShared = false;
+		}
+		return chunks;
+	}
+
+	/**
+	 * @return the allocated chunks of the layer
+	 */
+	public ChunkMap<Chunk> getChunks() {
+		return chunks;
+	}
+
+	/**
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param i		the i-index (line) of the tile in layer
+	 * @param j		the j-index (column) of the tile in layer
+	 * @param tileTable	the table of tiles of the tilesets of the map
+	 * @return	the shared descriptor of the tile in the position (null if there is no tile)
+	 */
+	public Tile getTile(int i, int j, TileTable tileTable) {
+		int id = getTileID(i, j);
+		if(id == 0)
+			return null;
+		return tileTable.getTile(id);
+	}
+
+	/**
+	 * @return the store that keeps the tiles of chunks off the heap (null if tiles are on heap)
+	 */
+	public ChunkStore getChunkStore() {
+		return store;
+	}
+
+	/**
+	 * @return if chunks created on the heap keep their tiles in a palette
+	 */
+	public boolean isPaletteChunks() {
+		return palette;
+	}
+
+	/**
+	 * @author Pedro Sampaio
+	 * @since	0.7b
+	 * creates a copy of the layer that shares the tiles
+	 * data with this layer until one of them is modified
+	 * @return	the copy of the layer
+	 */
+	public Layer createCopy() {
+		Layer copy = unbounded ? new Layer(zIndex, opacity, store, palette) : new Layer(width, height, zIndex, opacity, store, palette);
+		copy.origin = origin;
+		// occupancy is shared as well
+		copy.tileCount = tileCount;
+		copy.hash = hash;
+		copy.rowCounts = rowCounts;
+		copy.rowBase = rowBase;
+		copy.rowCountsShared = true;
+		rowCountsShared = true;
+		copy.minI = minI; copy.minJ = minJ; copy.maxI = maxI; copy.maxJ = maxJ;
+		copy.boundsDirty = boundsDirty;
+		// copy shares all chunks with this layer, and both layers copy
+		// shared chunks on write, so a copy costs no tile data
+		copy.chunks = chunks;
+		copy.chunksShared = true;
+		chunksShared = true;
+		// this layer no longer owns its chunks, since they are shared now
+		owner = new Object();
+		return copy;
+	}
+
+	/**
+	 * Measures the memory used by the layer that is not
+	 * shared with a previous state of the layer
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param previous	the previous state of the layer (null to measure all the layer)
+	 * @return	the approximated number of bytes used only by this state of the layer
+	 */
+	public long getBytes(Layer previous) {
+		long bytes = 128;
+		if(previous == null || previous.rowCounts != rowCounts)
+			bytes += 16 + rowCounts.length * 4L;
+		ChunkMap<Chunk> previousChunks = previous == null ? null : previous.chunks;
+		if(previousChunks == chunks)
+			return bytes;
+		bytes += chunks.getBytes();
+		for(int s = 0; s < chunks.capacity(); s++) {
+			Chunk chunk = chunks.valueAt(s);
+			if(chunk != null && (previousChunks == null || previousChunks.get(chunks.keyAt(s)) != chunk))
+				bytes += chunk.getBytes();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Inflates all compressed chunks of the layer
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 */
+	public void inflate() {
+		for(int s = 0; s < chunks.capacity(); s++) {
+			Chunk chunk = chunks.valueAt(s);
+			if(chunk != null)
+				chunk.inflate();
+		}
+	}
+
+	/**
+	 * @return the token shared by the layer and all its copies
+	 */
+	public Object getOrigin() {
+		return origin;
+	}
+
+	/**
+	 * @return if the layer is empty (no tiles in it)
+	 */
+	public boolean isEmpty() {
+		return tileCount == 0;
+	}
+
+	/**
+	 * @return the selection of tiles of the layer
+	 */
+	public Selection getSelection() {
+		return selection;
+	}
+
+	/**
+	 * @param selection the selection to set
+	 */
+	public void setSelection(Selection selection) {
+		this.selection = selection;
+	}
+
+	/**
+	 * Resize map the layer with the new map size
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.1
+	 * @param width		the new number of tiles in layer on x-axis (columns)
+	 * @param height	the new number of tiles in layer on y-axis (lines)
+	 */
+	public void resizeMap(int width, int height) {
+		// resize layer
+		this.width = width;
+		this.height = height;
 		// resets selected tiles
-		selectedTiles = new ArrayList<Tile>();
+		selection = new Selection(width, height);
+		version++;
+		
+		// keeps as much info as possible, removing tiles out of new bounds
+		ChunkMap<Chunk> savedChunks = chunks;
+		chunks = new ChunkMap<Chunk>();
+		chunksShared = false;
+		for(int s = 0; s < savedChunks.capacity(); s++) {
+			Chunk chunk = savedChunks.valueAt(s);
+			if(chunk == null)
+				continue;
+			long key = savedChunks.keyAt(s);
+			int firstI = ChunkMap.keyI(key) << Chunk.SHIFT;
+			int firstJ = ChunkMap.keyJ(key) << Chunk.SHIFT;
+			
+			// chunk completely out of bounds is discarded
+			if(firstI >= height || firstJ >= width)
+				continue;
+			
+			// clears tiles of chunk that are out of bounds (copying it if shared)
+			if((firstI + Chunk.SIZE > height || firstJ + Chunk.SIZE > width) && chunk.getOwner() != owner)
+				chunk = chunk.createCopy(owner);
+			for(int ci = 0; ci < Chunk.SIZE; ci++) {
+				for(int cj = 0; cj < Chunk.SIZE; cj++) {
+					if(firstI + ci >= height || firstJ + cj >= width)
+						chunk.setTileID(ci, cj, 0);
+				}
+			}
+			if(!chunk.isEmpty())
+				chunks.put(key, chunk);
+		}
 		
-		// tries to retrieve as much info as possible
-		for(int i = 0; i < tiles.length && i < savedTiles.length; i++) {
-			for(int j = 0; j < tiles[i].length && j < savedTiles[i].length; j++) {
-				tiles[i][j] = savedTiles[i][j];
+		// recalculates occupancy and content hash from the tiles kept
+		tileCount = 0;
+		hash = 0;
+		rowCounts = new int[height];
+		rowBase = 0;
+		rowCountsShared = false;
+		for(int s = 0; s < chunks.capacity(); s++) {
+			Chunk chunk = chunks.valueAt(s);
+			if(chunk == null)
+				continue;
+			hash += ContentHash.part(chunks.keyAt(s), chunk.getHash());
+			int firstI = ChunkMap.keyI(chunks.keyAt(s)) << Chunk.SHIFT;
+			for(int ci = 0; ci < Chunk.SIZE; ci++) {
+				for(int cj = 0; cj < Chunk.SIZE; cj++) {
+					if(chunk.getTileID(ci, cj) != 0) {
+						rowCounts[firstI + ci]++;
+						tileCount++;
+					}
+				}
 			}
 		}
+		boundsDirty = true;
 	}
 	
 }
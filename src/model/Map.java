@@ -1,13 +1,20 @@
 package model;
 
+import java.awt.Rectangle;
 import java.util.ArrayList;
+import java.util.HashMap;
 
 /**
  * Class that represents the map being created in the program.
  * The map is a collection of tiles arranged in a certain way
  * that composes the 2D world in a tile-based game.
  * Considering that we have different layers for map creation,
- * the map is the collection of all layers with all of its tiles
+ * the map is the collection of all layers with all of its tiles.
+ * Unbounded maps have no fixed dimensions: tiles and colliders
+ * can be set in any position, including negative ones, chunks
+ * are created as positions are painted and the canvas of the
+ * map is computed from the occupied chunks, so growing the map
+ * never copies the tiles it already has
  * 
  * @author	Pedro Sampaio
  * @since	0.3
@@ -15,40 +22,126 @@ import java.util.ArrayList;
  */
 public class Map {
 
+	public static final int MARGIN = 2 * Chunk.SIZE;	// empty tiles around the occupied chunks in the canvas of unbounded maps (room to paint new chunks)
+
 	private ArrayList<Layer> layers;	// main data of the program: List that contains all the layers that composes the map
 	private int selectedLayer;			// current selected layer
-	private Collider[][] colliders;		// the colliders of map
+	private ColliderMask colliders;		// the colliders of map (shared with copies of the map until modified)
+	private DepthMap depthMap;			// the occupied layers of each position (moved to copies of the map, that are the ones edited)
+	private int width;					// number of tiles in map on x-axis (columns)
+	private int height;					// number of tiles in map on y-axis (lines)
+	private boolean unbounded;			// if the map has no fixed dimensions (canvas computed from occupied chunks)
+	private ChunkStore chunkStore;		// store of the tiles of the layers of the map off the heap (null keeps tiles on heap)
+	private boolean paletteChunks;		// if tiles of the layers of the map kept on the heap are kept in palettes of their chunks
+	private Rectangle canvas;			// canvas of an unbounded map in tile units (x for columns, y for lines)
+	private Layer[] canvasLayers;		// the layers when the canvas was last calculated
+	private int[] canvasVersions;		// the versions of the layers when the canvas was last calculated
+	private ColliderMask canvasColliders;	// the colliders when the canvas was last calculated
+	private int canvasCollidersVersion;		// the version of the colliders when the canvas was last calculated
 
 	/**
-	 * @return the colliders
+	 * @return the colliders (use setCollider to modify colliders)
 	 */
-	public Collider[][] getColliders() {
+	public ColliderMask getColliders() {
 		return colliders;
 	}
 
 	/**
 	 * @param colliders the colliders to set
 	 */
-	public void setColliders(Collider[][] colliders) {
+	public void setColliders(ColliderMask colliders) {
 		this.colliders = colliders;
 	}
 
+	/**
+	 * @param i	the i-index (line) of the collider in map
+	 * @param j	the j-index (column) of the collider in map
+	 * @return	the id of the collider in the position (ColliderMask.NONE if there is none)
+	 */
+	public int getCollider(int i, int j) {
+		return colliders.get(i, j);
+	}
+
+	/**
+	 * Sets the collider of a position of the map
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param i		the i-index (line) of the collider in map
+	 * @param j		the j-index (column) of the collider in map
+	 * @param id	the id of the collider (ColliderMask.NONE removes the collider)
+	 */
+	public void setCollider(int i, int j, int id) {
+		colliders.set(i, j, id);
+	}
+
 	/**
 	 * Constructor for this class
 	 * Creates the first layer of the map
 	 * 
 	 * @author 	Pedro Sampaio
 	 * @since	0.5
+	 * @param width		number of tiles in map on x-axis (columns)
+	 * @param height	number of tiles in map on y-axis (lines)
 	 */
-	public Map() {
+	public Map(int width, int height) {
+		this(width, height, null, false);
+	}
+
+	/**
+	 * Constructor for a map with the storage of the tiles of its layers
+	 * Creates the first layer of the map
+	 * 
+	 * @author 	Pedro Sampaio
+	 * @since	1.8
+	 * @param width			number of tiles in map on x-axis (columns)
+	 * @param height		number of tiles in map on y-axis (lines)
+	 * @param chunkStore	store of the tiles of the layers off the heap (null keeps tiles on heap)
+	 * @param paletteChunks	if tiles of the layers kept on the heap are kept in palettes of their chunks
+	 */
+	public Map(int width, int height, ChunkStore chunkStore, boolean paletteChunks) {
+		this.width = width;
+		this.height = height;
+		this.chunkStore = chunkStore;
+		this.paletteChunks = paletteChunks;
 		// initializes layers
 		layers = new ArrayList<Layer>();
 		// creates and adds first layer (idx 0) to list of layers (map) with full opacity (1f)
-		layers.add(new Layer(0, 1f));
+		layers.add(createLayer(0, 1f));
 		// initially first layer is selected
 		selectedLayer = 0;
 		// initialize colliders
-		colliders = new Collider[MapConfig.mapSizeY][MapConfig.mapSizeX];
+		colliders = new ColliderMask(width, height);
+	}
+
+	/**
+	 * Constructor for an unbounded map (infinite canvas)
+	 * Creates the first layer of the map
+	 * 
+	 * @author 	Pedro Sampaio
+	 * @since	1.8
+	 */
+	public Map() {
+		this(null, false);
+	}
+
+	/**
+	 * Constructor for an unbounded map with the storage of the tiles of its layers
+	 * Creates the first layer of the map
+	 * 
+	 * @author 	Pedro Sampaio
+	 * @since	1.8
+	 * @param chunkStore	store of the tiles of the layers off the heap (null keeps tiles on heap)
+	 * @param paletteChunks	if tiles of the layers kept on the heap are kept in palettes of their chunks
+	 */
+	public Map(ChunkStore chunkStore, boolean paletteChunks) {
+		unbounded = true;
+		this.chunkStore = chunkStore;
+		this.paletteChunks = paletteChunks;
+		colliders = new ColliderMask();
+		layers = new ArrayList<Layer>();
+		layers.add(createLayer(0, 1f));
+		selectedLayer = 0;
 	}
 	
 	/**
@@ -58,13 +151,162 @@ public class Map {
 	 * @author Pedro Sampaio
 	 * @param layers 	receives the list of layers that contain all info of the tiles in layers for the map
 	 * @param selectedLayer the current selected layer
-	 * @param colliders		the map colliders
+	 * @param colliders		the map colliders (with the dimensions of the map)
 	 * @since 0.5
 	 */
-	public Map(ArrayList<Layer> layers, int selectedLayer, Collider[][] colliders) {
+	public Map(ArrayList<Layer> layers, int selectedLayer, ColliderMask colliders) {
 		this.layers = layers;
 		this.selectedLayer = selectedLayer;
 		this.colliders = colliders;
+		this.width = colliders.getWidth();
+		this.height = colliders.getHeight();
+		this.unbounded = colliders.isUnbounded();
+		// new layers keep their tiles as the received layers do
+		if(!layers.isEmpty()) {
+			this.chunkStore = layers.get(0).getChunkStore();
+			this.paletteChunks = layers.get(0).isPaletteChunks();
+		}
+	}
+
+	/**
+	 * Creates an empty layer with the dimensions of the map
+	 * (the layer is not added to the map)
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param zIndex	the z-index (depth) of the layer: bigger indexes on top of smaller indexes
+	 * @param opacity	the opacity of the layer
+	 * @return	the layer created
+	 */
+	public Layer createLayer(float zIndex, float opacity) {
+		if(unbounded)
+			return new Layer(zIndex, opacity, chunkStore, paletteChunks);
+		return new Layer(width, height, zIndex, opacity, chunkStore, paletteChunks);
+	}
+
+	/**
+	 * @return the store of the tiles of the layers of the map off the heap (null if tiles are on heap)
+	 */
+	public ChunkStore getChunkStore() {
+		return chunkStore;
+	}
+
+	/**
+	 * @return if tiles of the layers of the map kept on the heap are kept in palettes of their chunks
+	 */
+	public boolean isPaletteChunks() {
+		return paletteChunks;
+	}
+
+	/**
+	 * @return if the map has no fixed dimensions (canvas computed from occupied chunks)
+	 */
+	public boolean isUnbounded() {
+		return unbounded;
+	}
+
+	/**
+	 * @param i		the i-index (line) of the position
+	 * @param j		the j-index (column) of the position
+	 * @return	if tiles and colliders can be set in the position
+	 */
+	public boolean contains(int i, int j) {
+		return unbounded || (i >= 0 && j >= 0 && i < height && j < width);
+	}
+
+	/**
+	 * @return the number of tiles in map on x-axis (columns),
+	 * the number of columns of the canvas for unbounded maps
+	 */
+	public int getWidth() {
+		return unbounded ? getCanvas().width : width;
+	}
+
+	/**
+	 * @return the number of tiles in map on y-axis (lines),
+	 * the number of lines of the canvas for unbounded maps
+	 */
+	public int getHeight() {
+		return unbounded ? getCanvas().height : height;
+	}
+
+	/**
+	 * @return the i-index (line) of the first line of the map
+	 * (first line of the canvas for unbounded maps, 0 otherwise)
+	 */
+	public int getOriginI() {
+		return unbounded ? getCanvas().y : 0;
+	}
+
+	/**
+	 * @return the j-index (column) of the first column of the map
+	 * (first column of the canvas for unbounded maps, 0 otherwise)
+	 */
+	public int getOriginJ() {
+		return unbounded ? getCanvas().x : 0;
+	}
+
+	/**
+	 * Gets the bounding box of the occupied chunks of the map,
+	 * the chunks of all layers with tiles and with colliders
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @return	the bounding box of occupied chunks in tile units (x for columns, y for lines)
+	 * 			or null if there are no tiles and colliders in the map
+	 */
+	public Rectangle getOccupiedBounds() {
+		Rectangle bounds = colliders.getChunkBounds();
+		for(int l = 0; l < layers.size(); l++) {
+			Rectangle layerBounds = layers.get(l).getChunkBounds();
+			if(layerBounds != null)
+				bounds = bounds == null ? layerBounds : bounds.union(layerBounds);
+		}
+		return bounds;
+	}
+
+	/**
+	 * Gets the canvas of an unbounded map, its occupied chunks
+	 * and a margin around them where new chunks can be painted,
+	 * recalculating it if layers or colliders were modified
+	 * 
+	 * @return	the canvas of the map in tile units (x for columns, y for lines)
+	 */
+	private Rectangle getCanvas() {
+		if(canvas != null && isCanvasSynced())
+			return canvas;
+		Rectangle occupied = getOccupiedBounds();
+		if(occupied == null)
+			occupied = new Rectangle(0, 0, 0, 0);
+		canvas = new Rectangle(occupied.x - MARGIN, occupied.y - MARGIN, occupied.width + 2 * MARGIN, occupied.height + 2 * MARGIN);
+		syncCanvas();
+		return canvas;
+	}
+
+	/**
+	 * @return if the canvas was calculated with the current layers and colliders
+	 */
+	private boolean isCanvasSynced() {
+		if(canvasColliders != colliders || canvasCollidersVersion != colliders.getVersion() 
+				|| canvasLayers.length != layers.size())
+			return false;
+		for(int l = 0; l < canvasLayers.length; l++) {
+			if(layers.get(l) != canvasLayers[l] || canvasLayers[l].getVersion() != canvasVersions[l])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Remembers the layers and colliders the canvas was calculated with
+	 */
+	private void syncCanvas() {
+		canvasLayers = layers.toArray(new Layer[layers.size()]);
+		canvasVersions = new int[canvasLayers.length];
+		for(int l = 0; l < canvasLayers.length; l++)
+			canvasVersions[l] = canvasLayers[l].getVersion();
+		canvasColliders = colliders;
+		canvasCollidersVersion = colliders.getVersion();
 	}
 
 	/**
@@ -75,7 +317,11 @@ public class Map {
 	}
 
 	/**
-	 * Creates a complete copy of the map
+	 * Creates a complete copy of the map.
+	 * Tiles and colliders data are shared between
+	 * the copy and this map and only copied when
+	 * modified, so the cost of a copy is proportional
+	 * to the number of layers of the map
 	 * @author  Pedro Sampaio
 	 * @since	0.7b
 	 * @return	the copy of the map
@@ -83,19 +329,169 @@ public class Map {
 	public Map createCopy() {
 		ArrayList<Layer> copyLayers = new ArrayList<Layer>();
 		for(int i = 0; i < layers.size(); i++) {
-			copyLayers.add(new Layer(layers.get(i).createCopy(), layers.get(i).getzIndex(), layers.get(i).getOpacity()));
+			copyLayers.add(layers.get(i).createCopy());
 		}
+		Map copy = new Map(copyLayers, selectedLayer, colliders.createCopy());
+		copy.chunkStore = chunkStore;
+		copy.paletteChunks = paletteChunks;
 		
-		// makes a hard copy of colliders mask
-		Collider[][] colCopy = new Collider[MapConfig.mapSizeY][MapConfig.mapSizeX];
-		for(int i = 0; i < colliders.length; i++) {
-			for(int j = 0; j < colliders[i].length; j++) {
-				if(colliders[i][j] != null)
-					colCopy[i][j] = colliders[i][j];
-			}
+		// copy has the same tiles and colliders, so it has the same canvas
+		if(canvas != null && isCanvasSynced()) {
+			copy.canvas = canvas;
+			copy.syncCanvas();
 		}
 		
-		return new Map(copyLayers, selectedLayer, colCopy);
+		// copy has the same tiles, so the depth map is moved to it
+		if(depthMap != null && depthMap.isSyncedWith(layers)) {
+			depthMap.bind(copyLayers);
+			copy.depthMap = depthMap;
+		}
+		depthMap = null;
+		return copy;
+	}
+
+	/**
+	 * Gets the occupied layers of each position of the map,
+	 * rebuilding them if layers were modified without the
+	 * depth map. Tiles must be set and layers added or removed
+	 * through the depth map to keep it up to date
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @return	the depth map of the map
+	 */
+	public DepthMap getDepthMap() {
+		if(depthMap == null)
+			depthMap = new DepthMap(layers);
+		else if(!depthMap.isSyncedWith(layers))
+			depthMap.rebuild(layers);
+		return depthMap;
+	}
+
+	/**
+	 * Calculates the content hash of the map from the hashes
+	 * of its layers (in order) and colliders, that are kept
+	 * up to date on each modification, so maps with the same
+	 * tiles and colliders have the same hash. The cost is
+	 * proportional to the number of layers of the map
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @return	the content hash of the map
+	 */
+	public long getContentHash() {
+		long hash = ContentHash.mix(layers.size());
+		for(int l = 0; l < layers.size(); l++) {
+			Layer layer = layers.get(l);
+			hash = ContentHash.mix(hash + layer.getContentHash());
+			hash = ContentHash.mix(hash + (((long) layer.getWidth() << 32) | layer.getHeight()));
+		}
+		return ContentHash.mix(hash + colliders.getContentHash());
+	}
+
+	/**
+	 * Calculates the content hash of an area of the map aligned
+	 * to chunks, with its tiles and colliders in their positions
+	 * relative to the area, so a region of a world has the same
+	 * hash in the map of the world and in its own map
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param originI	the i-index (line) of the first line of the area
+	 * @param originJ	the j-index (column) of the first column of the area
+	 * @param lines		the number of lines of the area
+	 * @param columns	the number of columns of the area
+	 * @return	the content hash of the area (0 if empty)
+	 */
+	public long getContentHash(int originI, int originJ, int lines, int columns) {
+		long hash = ContentHash.part(-1, colliders.getContentHash(originI, originJ, lines, columns));
+		for(int l = 0; l < layers.size(); l++)
+			hash += ContentHash.part(l, layers.get(l).getContentHash(originI, originJ, lines, columns));
+		return hash;
+	}
+
+	/**
+	 * Replaces the tiles and colliders of an area of the map with the
+	 * ones of an area of other map, layer by layer (layers without a
+	 * layer of same index in the other map are cleared in the area).
+	 * Chunks of tiles are shared with the other map, so regions are
+	 * placed without copying tile data. The areas must be aligned to
+	 * chunks (positions and dimensions multiples of Chunk.SIZE)
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param from		the map to take the area from (null clears the area)
+	 * @param fromI		the i-index (line) of the first line of the area in the other map
+	 * @param fromJ		the j-index (column) of the first column of the area in the other map
+	 * @param toI		the i-index (line) of the first line of the area in this map
+	 * @param toJ		the j-index (column) of the first column of the area in this map
+	 * @param lines		the number of lines of the area
+	 * @param columns	the number of columns of the area
+	 */
+	public void copyRegion(Map from, int fromI, int fromJ, int toI, int toJ, int lines, int columns) {
+		for(int l = 0; l < layers.size(); l++) {
+			Layer fromLayer = from != null && l < from.layers.size() ? from.layers.get(l) : null;
+			layers.get(l).copyChunks(fromLayer, fromI, fromJ, toI, toJ, lines, columns);
+		}
+		colliders.copyChunks(from == null ? null : from.colliders, fromI, fromJ, toI, toJ, lines, columns);
+	}
+
+	/**
+	 * Creates a map with the tiles and colliders of an area of this
+	 * map (aligned to chunks) and the same layers, sharing its chunks
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param originI	the i-index (line) of the first line of the area
+	 * @param originJ	the j-index (column) of the first column of the area
+	 * @param lines		the number of lines of the area
+	 * @param columns	the number of columns of the area
+	 * @return	the map of the area
+	 */
+	public Map createRegion(int originI, int originJ, int lines, int columns) {
+		Map region = new Map(columns, lines, chunkStore, paletteChunks);
+		region.layers.clear();
+		for(int l = 0; l < layers.size(); l++)
+			region.layers.add(region.createLayer(layers.get(l).getzIndex(), layers.get(l).getOpacity()));
+		region.copyRegion(this, originI, originJ, 0, 0, lines, columns);
+		return region;
+	}
+
+	/**
+	 * Measures the memory used by the map that is not
+	 * shared with a previous state of the map
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param previous	the previous state of the map (null to measure all the map)
+	 * @return	the approximated number of bytes used only by this state of the map
+	 */
+	public long getBytes(Map previous) {
+		long bytes = 64 + layers.size() * 8L;
+		
+		// layers are compared with their previous state (same origin)
+		HashMap<Object, Layer> previousLayers = new HashMap<Object, Layer>();
+		if(previous != null) {
+			for(int l = 0; l < previous.layers.size(); l++)
+				previousLayers.put(previous.layers.get(l).getOrigin(), previous.layers.get(l));
+		}
+		for(int l = 0; l < layers.size(); l++)
+			bytes += layers.get(l).getBytes(previousLayers.get(layers.get(l).getOrigin()));
+		
+		// colliders shared with previous state are not counted
+		bytes += colliders.getBytes(previous == null ? null : previous.colliders);
+		return bytes;
+	}
+	
+	/**
+	 * Inflates all compressed tiles data of the map
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 */
+	public void inflate() {
+		for(int l = 0; l < layers.size(); l++)
+			layers.get(l).inflate();
 	}
 
 	/**
@@ -113,16 +509,25 @@ public class Map {
 	}
 	
 	/**
-	 * Resize map in all layers with current map size
+	 * Resize map in all layers with the new map size
 	 * 
 	 * @author Pedro Sampaio
 	 * @since  1.1
-	 * 
+	 * @param width		the new number of tiles in map on x-axis (columns)
+	 * @param height	the new number of tiles in map on y-axis (lines)
 	 */
-	public void resizeMap() {
+	public void resizeMap(int width, int height) {
+		// unbounded maps grow as they are painted
+		if(unbounded)
+			return;
+		this.width = width;
+		this.height = height;
 		for(int i = 0; i < layers.size(); i++) {
-			layers.get(i).resizeMap();
+			layers.get(i).resizeMap(width, height);
 		}
+		
+		// resizes colliders keeping the ones inside new bounds
+		colliders = colliders.createResized(width, height);
 	}
 
 }
@@ -15,6 +15,11 @@ import test.Config;
  * tileset since the size of the tile is set in this class
  * As of version 0.5b, contains map camera configurations
  * and mouse position point on map
+ * As of version 1.8, the dimensions of the map are kept by
+ * each map, and the tile size and zoom are view state of the
+ * program, kept by the instance and confined to the event
+ * dispatch thread, so maps can be created, modified and saved
+ * by other threads without depending on this configuration
  * 
  * @author 	Pedro Sampaio
  * @since	0.1
@@ -22,22 +27,22 @@ import test.Config;
  */
 public class MapConfig extends Observable{
 
-	public static int tileSize;			// the size of the map's tile
-	public static int mapSizeX;			// number of tiles in map on x-axis (columns)
-	public static int mapSizeY;			// number of tiles in map on y-axis (lines)
+	private int tileSize;				// the size of the map's tile in the viewport
 	public static float preAlpha;		// level of transparency for pre-visualization of selected tiles in map
-	public static float zoom;			// map visualization zoom
+	private float zoom;					// map visualization zoom
 	private float zoomSpeed = 0.1f;		// map's zoom speed (percentage)
 	private int moveY = 0;				// map's current speed on x axis
 	private int moveX = 0;				// map's current speed on y axis
 	private int speed = 5;				// map's camera speed
-	private static float minZoom;	// minimum zoom (maintain min view relative to the tilesize)
-	private static float maxZoom;	// maximum zoom (maintain max view relative to the tilesize)
-	private int maxLayers = 4;			// maximum number of layers
+	private float minZoom;				// minimum zoom (maintain min view relative to the tilesize)
+	private float maxZoom;				// maximum zoom (maintain max view relative to the tilesize)
+	private int maxLayers = 16;			// maximum number of layers (up to DepthMap.MAX_LAYERS)
 	private static Point mousePosition;					// the current mouse position on map;
 	private static boolean isMouseOnViewport;	// true if mouse is on viewport, false otherwise
 	private boolean isMapLoaded;			// represents if there is a map project loaded in programa
 	private Project project;				// current project loaded
+	private ChunkStore chunkStore;			// store of the tiles of layers created off the heap (null keeps tiles on heap)
+	private boolean paletteChunks;			// if tiles of layers created on the heap are kept in palettes of their chunks
 	
 	// mantains only one instance of map config (singleton pattern)
 	private static MapConfig instance = null;
@@ -50,7 +55,7 @@ public class MapConfig extends Observable{
 	 * @return returns map config instance
 	 * creates the instance if does not exist yet
 	 */
-	public static MapConfig getInstance() {
+	public static synchronized MapConfig getInstance() {
 		if(instance == null)
 			instance = new MapConfig();
 		
@@ -63,7 +68,7 @@ public class MapConfig extends Observable{
 	 * @author	Pedro Sampaio
 	 * @since	0.1
 	 */
-	public static void setDefault() {	
+	public void setDefault() {	
 		minZoom = 2;	// minimum zoom (maintain min view relative to the tilesize)
 		maxZoom = 5;// maximum zoom (maintain max view relative to the tilesize)
 		zoom = minZoom;
@@ -75,16 +80,13 @@ public class MapConfig extends Observable{
 	/**
 	 * Updates default configuration with
 	 * new configuration that is specific to a map
+	 * (the dimensions of the map are kept by the map)
 	 * @author Pedro Sampaio
 	 * @since 1.2b
 	 * @param tilesize		the size of a tile in the map
-	 * @param mapSizeXAxis  the number of tiles in the X-axis of map
-	 * @param mapSizeYAxis  the number of tiles in the Y-axis of map
 	 */
-	public static void updateConfig(int tilesize, int mapSizeXAxis, int mapSizeYAxis) {
+	public void updateConfig(int tilesize) {
 		tileSize = tilesize;
-		mapSizeX = mapSizeXAxis;
-		mapSizeY = mapSizeYAxis;
 		minZoom = 2;	// minimum zoom (maintain min view relative to the tilesize)
 		maxZoom = 5;// maximum zoom (maintain max view relative to the tilesize)
 		if(tileSize < 32) // for better performance
@@ -100,8 +102,29 @@ public class MapConfig extends Observable{
 	 * @return	the size of the tile multiplied by current map zoom
 	 * @since	0.5
 	 */
-	public static int getTileZoomed() {
-		return (int) Math.floor(tileSize * MapConfig.zoom);
+	public int getTileZoomed() {
+		return (int) Math.floor(tileSize * zoom);
+	}
+
+	/**
+	 * @return the size of the map's tile in the viewport
+	 */
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	/**
+	 * @return the map visualization zoom
+	 */
+	public float getZoom() {
+		return zoom;
+	}
+
+	/**
+	 * @param zoom the map visualization zoom to set
+	 */
+	public void setZoom(float zoom) {
+		this.zoom = zoom;
 	}
 	
 	/**
@@ -112,16 +135,43 @@ public class MapConfig extends Observable{
 	 * to infer from what tileset the tile information is from.
 	 * Collider mask contains information about tile physical
 	 * and trigger collider that exists in the loaded map.
-	 * Sets selected layer as 0 (first layer)
+	 * Sets selected layer as 0 (first layer).
+	 * Does not depend on the state of the program, so
+	 * maps can be created by several threads at once
 	 * 
 	 * @author Pedro Sampaio
 	 * @since 1.5
 	 * @param layers	the layers of the map to be created containing all tile informations for all layers
 	 * @param tilesets	the tilesets of the map containing the remaining data necessary for the map creation
 	 * @param colliders the collider mask from the loaded map
+	 * @param chunkStore	store of the tiles of the layers off the heap (null keeps tiles on heap)
+	 * @param paletteChunks	if tiles of the layers kept on the heap are kept in palettes of their chunks
+	 * @return	the created map with the received information, or null if map creation could not be done correctly
+	 */
+	public static Map createMap(String[] layers, ArrayList<Tileset> tilesets, ColliderMask colliders,
+								ChunkStore chunkStore, boolean paletteChunks) {
+		return createMap(layers, tilesets, colliders, 0, 0, chunkStore, paletteChunks);
+	}
+
+	/**
+	 * Creates a map with the received layers, tilesets and colliders
+	 * information, placing the first tile of the layers information
+	 * in the given position of the map. Maps with unbounded colliders
+	 * are unbounded maps, that only save the area of their occupied chunks
+	 * 
+	 * @author Pedro Sampaio
+	 * @since 1.8
+	 * @param layers	the layers of the map to be created containing all tile informations for all layers
+	 * @param tilesets	the tilesets of the map containing the remaining data necessary for the map creation
+	 * @param colliders the collider mask from the loaded map
+	 * @param originI	the i-index (line) in map of the first line of the layers information
+	 * @param originJ	the j-index (column) in map of the first column of the layers information
+	 * @param chunkStore	store of the tiles of the layers off the heap (null keeps tiles on heap)
+	 * @param paletteChunks	if tiles of the layers kept on the heap are kept in palettes of their chunks
 	 * @return	the created map with the received information, or null if map creation could not be done correctly
 	 */
-	public Map createMap(String[] layers, ArrayList<Tileset> tilesets, Collider[][] colliders) {
+	public static Map createMap(String[] layers, ArrayList<Tileset> tilesets, ColliderMask colliders, int originI, int originJ,
+								ChunkStore chunkStore, boolean paletteChunks) {
 		
 		// debugs broken string
 		if(Config.debug) {
@@ -130,64 +180,49 @@ public class MapConfig extends Observable{
 		
 		// the list of layers for the created map;
 		ArrayList<Layer> mapLayers = new ArrayList<Layer>();
-		// the matrix of tiles for each layer
-		Tile[][] tiles;
+		// the descriptors of the tiles of the received tilesets to validate the tile ids
+		TileTable tileTable = new TileTable(tilesets);
+		// the layer being created
+		Layer layer;
 		int i = 0; int j = 0;
 		String[] lines = null;
 		String[] tIDs = null;
 		// for each layer string received, breaks the string to get the information needed
 		for(int l = 0; l < layers.length; l++) {
+			// layers of unbounded maps without tiles have no grid
+			if(colliders.isUnbounded() && layers[l].trim().isEmpty()) {
+				mapLayers.add(new Layer(l, 1, chunkStore, paletteChunks));
+				continue;
+			}
+			
 			// separate the lines from the whole grid string
 			lines = layers[l].split("[\r\n]+");
 			
-			// for matrix initialization, lets see how many columns there is
+			// for array initialization, lets see how many columns there is
 			tIDs = lines[0].split(",");
+			int width = tIDs.length;
 			
-			// initialize tiles matrix for this layer
-			tiles = new Tile[lines.length][tIDs.length];
+			// initialize layer with the dimensions of the grid (or without bounds for unbounded maps)
+			if(colliders.isUnbounded())
+				layer = new Layer(l, 1, chunkStore, paletteChunks);
+			else
+				layer = new Layer(width, lines.length, l, 1, chunkStore, paletteChunks);
 			
 			// iterates for each line existing in the layer grid
 			for(i = 0; i < lines.length; i++) {
 				// gets the tile IDs from the current line i
 				tIDs = lines[i].split(",");
-				// for each tID found, creates a new tile
-				for(j = 0; j < tIDs.length; j++) {
+				// for each tID found, stores the tile id
+				for(j = 0; j < tIDs.length && j < width; j++) {
 					// informations of the tile
 					int tileID = Integer.parseInt(tIDs[j]); // the global id of the tile
 					
-					// if tile id is 0 we dont need to create
-					// a tile, since it does not exist
+					// if tile id is 0 there is no tile in position
 					if(tileID == 0)
 						continue;
 					
-					int tMatrixI = i;	// the i-index of the tile in the map grid
-					int tMatrixJ = j; 	// the j-index of the tile in the map grid
-					// information we still need to find
-					Tileset tileTS = null;	// the tileset for the tile
-					int tIndexI = 0;		// the i-index of the tile in the tileset
-					int tIndexJ = 0;		// the j-index of the tile in the tileset
-
-					// lets search through the tilesets to find the remaining info needed
-					for(int k = 0; k < tilesets.size(); k++) {		
-						int tileSizeX = tilesets.get(k).getTileSizeX();	// the number of tiles of the tileset in x-axis
-						int tileCount = tilesets.get(k).getTileCount(); // the number of tiles in the tileset
-						int firstID = tilesets.get(k).getFirstID();  // the firstID of the tileset
-						
-						// tile belongs to the current tileset if tileID
-						// is within tilesets ID limits [firstID, firstID+tileCount[
-						if(tileID >= firstID && tileID < (firstID + tileCount)) {
-							tileTS = tilesets.get(k); // stores tile tileset
-							// calculates the index I of tile in tileset
-							tIndexI = (tileID - firstID) / tileSizeX;
-							tIndexJ = (tileID - firstID) % tileSizeX;
-							// done finding needed info
-							break;
-						}
-
-					}
-					
 					// could not find a tile tileset, abort map creation 
-					if(tileTS == null) {
+					if(tileTable.getTile(tileID) == null) {
 						// debugs the problematic tile
 						if(Config.debug) {
 							System.out.println("\nCould not find tileset of tileID: "+tileID);
@@ -195,8 +230,8 @@ public class MapConfig extends Observable{
 						return null;
 					}
 					
-					// now that we have all information, lets create the tile and add to the matrix of tiles
-					tiles[tMatrixI][tMatrixJ] = new Tile(tIndexI, tIndexJ, tileTS, tileID, tMatrixI, tMatrixJ);
+					// stores the tile id in the layer data
+					layer.setTileID(originI + i, originJ + j, tileID);
 					
 					// debugs broken string
 					if(Config.debug) {
@@ -209,9 +244,9 @@ public class MapConfig extends Observable{
 				}
 			}		
 			
-			// creates layer that will contain the tiles for the current
-			// layer and adds to the list of map layers
-			mapLayers.add(new Layer(tiles, l, 1));
+			// adds the layer that contains the tiles for the current
+			// layer to the list of map layers
+			mapLayers.add(layer);
 
 			// debugs broken string
 			if(Config.debug) {
@@ -231,8 +266,9 @@ public class MapConfig extends Observable{
 	 */
 	public static Point getMouseTilePosition(Point scrollPanePos) {
 		if(isMouseOnViewport) {
-			return new Point((int)(Math.floor((mousePosition.y + scrollPanePos.y) / getTileZoomed())),
-								(int)(Math.floor((mousePosition.x + scrollPanePos.x) / getTileZoomed())));
+			int tileZoomed = getInstance().getTileZoomed();
+			return new Point((int)(Math.floor((mousePosition.y + scrollPanePos.y) / tileZoomed)),
+								(int)(Math.floor((mousePosition.x + scrollPanePos.x) / tileZoomed)));
 		}
 		else
 			return null;
@@ -331,7 +367,7 @@ public class MapConfig extends Observable{
 	 * @param maxLayers the maxLayers to set
 	 */
 	public void setMaxLayers(int maxLayers) {
-		this.maxLayers = maxLayers;
+		this.maxLayers = Math.min(maxLayers, DepthMap.MAX_LAYERS);
 	}
 
 	/**
@@ -404,4 +440,32 @@ public class MapConfig extends Observable{
 		this.project = project;
 	}
 
+	/**
+	 * @return the store of the tiles of layers created off the heap (null if tiles are kept on heap)
+	 */
+	public ChunkStore getChunkStore() {
+		return chunkStore;
+	}
+
+	/**
+	 * @param chunkStore the store of the tiles of layers created off the heap (null keeps tiles on heap)
+	 */
+	public void setChunkStore(ChunkStore chunkStore) {
+		this.chunkStore = chunkStore;
+	}
+
+	/**
+	 * @return if tiles of layers created on the heap are kept in palettes of their chunks
+	 */
+	public boolean isPaletteChunks() {
+		return paletteChunks;
+	}
+
+	/**
+	 * @param paletteChunks if tiles of layers created on the heap are kept in palettes of their chunks
+	 */
+	public void setPaletteChunks(boolean paletteChunks) {
+		this.paletteChunks = paletteChunks;
+	}
+
 }
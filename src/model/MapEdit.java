@@ -0,0 +1,472 @@
+package model;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.zip.DataFormatException;
+
+/**
+ * Class that contains the reversible commands that transform
+ * a map into another: tiles changed in each cell of each layer
+ * (with old and new global ids), colliders changed, layers
+ * created and layers removed. Commands are recorded by comparing
+ * two states of the map, skipping chunks and collider masks that
+ * are shared between them, so recording costs are proportional
+ * to the area changed. Commands of old edits may be compressed
+ * in background, or spilled compressed to the history file, and
+ * are inflated again when replayed (tiles of created and removed
+ * layers are kept on the heap)
+ *
+ * @author	Pedro Sampaio
+ * @since	1.8
+ *
+ */
+public class MapEdit {
+
+	private static final int CELL_INTS = 5;		// ints per tile command: layer, i, j, old id, new id
+	private static final int COLLIDER_INTS = 4;	// ints per collider command: i, j, old id, new id
+
+	private int[] cells;						// tile commands packed in sequence (null if compressed)
+	private int cellCount;						// number of tile commands
+	private int[] colliders;					// collider commands packed in sequence (null if compressed)
+	private int colliderCount;					// number of collider commands
+	private byte[] packedCommands;				// compressed tile and collider commands (null if not compressed)
+	private HistoryFile spillFile;				// file with the compressed commands (null if never spilled)
+	private long spillPosition;					// position of the compressed commands in the spill file
+	private int spillSize;						// number of bytes of the compressed commands in the spill file
+	private ArrayList<Object> layerOrigins;		// origins of the layers referenced by the tile commands
+	private ArrayList<Layer> removedLayers;		// layers removed by the edit (as they were when removed)
+	private ArrayList<Integer> removedIndexes;	// indexes of the removed layers in the map before the edit (ascending)
+	private ArrayList<Layer> createdLayers;		// layers created by the edit (as they were when created)
+	private ArrayList<Integer> createdIndexes;	// indexes of the created layers in the map after the edit (ascending)
+	private int oldSelectedLayer;				// selected layer before the edit
+	private int newSelectedLayer;				// selected layer after the edit
+	private Rectangle bounds;					// chunks changed by the edit in tile units (x for columns, y for lines; null if none)
+
+	/**
+	 * Constructor that records the commands that
+	 * transform a map into another
+	 *
+	 * @param from	the map before the edit
+	 * @param to	the map after the edit
+	 */
+	public MapEdit(Map from, Map to) {
+		cells = new int[CELL_INTS * 16];
+		colliders = new int[COLLIDER_INTS * 4];
+		layerOrigins = new ArrayList<Object>();
+		removedLayers = new ArrayList<Layer>();
+		removedIndexes = new ArrayList<Integer>();
+		createdLayers = new ArrayList<Layer>();
+		createdIndexes = new ArrayList<Integer>();
+		oldSelectedLayer = from.getSelectedLayer();
+		newSelectedLayer = to.getSelectedLayer();
+
+		recordLayers(from.getLayers(), to.getLayers());
+		recordColliders(from.getColliders(), to.getColliders());
+
+		// keeps only the used part of command arrays
+		cells = Arrays.copyOf(cells, cellCount * CELL_INTS);
+		colliders = Arrays.copyOf(colliders, colliderCount * COLLIDER_INTS);
+	}
+
+	/**
+	 * Records layers created, layers removed and tiles
+	 * changed in layers that exist in both lists
+	 *
+	 * @param from	the layers before the edit
+	 * @param to	the layers after the edit
+	 */
+	private void recordLayers(ArrayList<Layer> from, ArrayList<Layer> to) {
+		HashMap<Object, Layer> fromLayers = new HashMap<Object, Layer>();
+		HashMap<Object, Layer> toLayers = new HashMap<Object, Layer>();
+		for(int l = 0; l < from.size(); l++)
+			fromLayers.put(from.get(l).getOrigin(), from.get(l));
+		for(int l = 0; l < to.size(); l++)
+			toLayers.put(to.get(l).getOrigin(), to.get(l));
+
+		for(int l = 0; l < from.size(); l++) {
+			if(!toLayers.containsKey(from.get(l).getOrigin())) {
+				removedLayers.add(from.get(l).createCopy());
+				removedIndexes.add(l);
+				addBounds(from.get(l).getChunkBounds());
+			}
+		}
+
+		for(int l = 0; l < to.size(); l++) {
+			Layer previous = fromLayers.get(to.get(l).getOrigin());
+			if(previous == null) {
+				createdLayers.add(to.get(l).createCopy());
+				createdIndexes.add(l);
+				addBounds(to.get(l).getChunkBounds());
+			}
+			else
+				recordTiles(previous, to.get(l));
+		}
+	}
+
+	/**
+	 * Records tiles changed between two versions of a layer,
+	 * comparing only chunks that are not shared by them
+	 *
+	 * @param from	the layer before the edit
+	 * @param to	the layer after the edit
+	 */
+	private void recordTiles(Layer from, Layer to) {
+		ChunkMap<Chunk> fromChunks = from.getChunks();
+		ChunkMap<Chunk> toChunks = to.getChunks();
+		if(fromChunks == toChunks)
+			return;
+		int layerRef = layerOrigins.size();
+		int count = cellCount;
+
+		// chunks that exist after the edit
+		for(int s = 0; s < toChunks.capacity(); s++) {
+			Chunk chunk = toChunks.valueAt(s);
+			if(chunk == null)
+				continue;
+			long key = toChunks.keyAt(s);
+			Chunk previous = fromChunks.get(key);
+			if(previous != chunk)
+				recordChunk(layerRef, key, previous, chunk);
+		}
+		// chunks that were freed by the edit
+		for(int s = 0; s < fromChunks.capacity(); s++) {
+			Chunk previous = fromChunks.valueAt(s);
+			if(previous != null && toChunks.get(fromChunks.keyAt(s)) == null)
+				recordChunk(layerRef, fromChunks.keyAt(s), previous, null);
+		}
+
+		// references layer only if some tile changed
+		if(cellCount > count)
+			layerOrigins.add(to.getOrigin());
+	}
+
+	/**
+	 * Records tiles changed between two versions of a chunk
+	 *
+	 * @param layerRef	the reference of the layer of the chunk
+	 * @param key		the key of the chunk
+	 * @param from		the chunk before the edit (null if there was no chunk)
+	 * @param to		the chunk after the edit (null if chunk was freed)
+	 */
+	private void recordChunk(int layerRef, long key, Chunk from, Chunk to) {
+		int firstI = ChunkMap.keyI(key) << Chunk.SHIFT;
+		int firstJ = ChunkMap.keyJ(key) << Chunk.SHIFT;
+		int count = cellCount;
+		for(int ci = 0; ci < Chunk.SIZE; ci++) {
+			for(int cj = 0; cj < Chunk.SIZE; cj++) {
+				int oldID = from == null ? 0 : from.getTileID(ci, cj);
+				int newID = to == null ? 0 : to.getTileID(ci, cj);
+				if(oldID == newID)
+					continue;
+				if((cellCount + 1) * CELL_INTS > cells.length)
+					cells = Arrays.copyOf(cells, cells.length * 2);
+				int k = cellCount * CELL_INTS;
+				cells[k] = layerRef;
+				cells[k+1] = firstI + ci;
+				cells[k+2] = firstJ + cj;
+				cells[k+3] = oldID;
+				cells[k+4] = newID;
+				cellCount++;
+			}
+		}
+		if(cellCount > count)
+			addBounds(new Rectangle(firstJ, firstI, Chunk.SIZE, Chunk.SIZE));
+	}
+
+	/**
+	 * Records colliders changed, comparing only
+	 * the chunks of the masks that are not shared by them
+	 *
+	 * @param from	the colliders before the edit
+	 * @param to	the colliders after the edit
+	 */
+	private void recordColliders(ColliderMask from, ColliderMask to) {
+		// masks with different dimensions are not compared (resized map)
+		if(from.sharesData(to) || from.getWidth() != to.getWidth() || from.getHeight() != to.getHeight())
+			return;
+		ChunkMap<long[]> fromChunks = from.getChunks();
+		ChunkMap<long[]> toChunks = to.getChunks();
+
+		// chunks that exist after the edit
+		for(int s = 0; s < toChunks.capacity(); s++) {
+			long[] lines = toChunks.valueAt(s);
+			if(lines == null)
+				continue;
+			long[] previous = fromChunks.get(toChunks.keyAt(s));
+			if(previous != lines)
+				recordColliderLines(from, to, toChunks.keyAt(s), previous, lines);
+		}
+		// chunks freed by the edit
+		for(int s = 0; s < fromChunks.capacity(); s++) {
+			long[] lines = fromChunks.valueAt(s);
+			if(lines != null && toChunks.get(fromChunks.keyAt(s)) == null)
+				recordColliderLines(from, to, fromChunks.keyAt(s), lines, null);
+		}
+	}
+
+	/**
+	 * Records colliders changed in the lines of a chunk
+	 *
+	 * @param from		the colliders before the edit
+	 * @param to		the colliders after the edit
+	 * @param key		the key of the chunk
+	 * @param fromLines	the lines of the chunk before the edit (null if there was no chunk)
+	 * @param toLines	the lines of the chunk after the edit (null if there is no chunk)
+	 */
+	private void recordColliderLines(ColliderMask from, ColliderMask to, long key, long[] fromLines, long[] toLines) {
+		int firstI = ChunkMap.keyI(key) << Chunk.SHIFT;
+		int firstJ = ChunkMap.keyJ(key) << Chunk.SHIFT;
+		int count = colliderCount;
+		for(int ci = 0; ci < Chunk.SIZE; ci++) {
+			long changed = (fromLines == null ? 0 : fromLines[ci]) ^ (toLines == null ? 0 : toLines[ci]);
+			// columns with physical or trigger colliders changed
+			changed = (changed | (changed >>> 32)) & 0xFFFFFFFFL;
+			while(changed != 0) {
+				int i = firstI + ci;
+				int j = firstJ + Long.numberOfTrailingZeros(changed);
+				changed &= changed - 1;
+				if((colliderCount + 1) * COLLIDER_INTS > colliders.length)
+					colliders = Arrays.copyOf(colliders, colliders.length * 2);
+				int c = colliderCount * COLLIDER_INTS;
+				colliders[c] = i;
+				colliders[c+1] = j;
+				colliders[c+2] = from.get(i, j);
+				colliders[c+3] = to.get(i, j);
+				colliderCount++;
+			}
+		}
+		if(colliderCount > count)
+			addBounds(new Rectangle(firstJ, firstI, Chunk.SIZE, Chunk.SIZE));
+	}
+
+	/**
+	 * Adds an area to the bounding box of the chunks changed by the edit
+	 *
+	 * @param area	the area changed in tile units (null if none)
+	 */
+	private void addBounds(Rectangle area) {
+		if(area == null)
+			return;
+		bounds = bounds == null ? area : bounds.union(area);
+	}
+
+	/**
+	 * Applies the edit to a map that is in the state before the edit
+	 *
+	 * @param map	the map to apply the edit
+	 */
+	public synchronized void redo(Map map) {
+		inflate();
+		ArrayList<Layer> layers = map.getLayers();
+		for(int l = removedIndexes.size() - 1; l >= 0; l--)
+			layers.remove((int) removedIndexes.get(l));
+		for(int l = 0; l < createdIndexes.size(); l++)
+			layers.add(createdIndexes.get(l), createdLayers.get(l).createCopy());
+
+		Layer layer = null;
+		int layerRef = -1;
+		for(int c = 0; c < cellCount; c++) {
+			int k = c * CELL_INTS;
+			if(cells[k] != layerRef) {
+				layerRef = cells[k];
+				layer = findLayer(layers, layerOrigins.get(layerRef));
+			}
+			setTileID(layer, cells[k+1], cells[k+2], cells[k+4]);
+		}
+		for(int c = 0; c < colliderCount; c++) {
+			int k = c * COLLIDER_INTS;
+			setCollider(map, colliders[k], colliders[k+1], colliders[k+3]);
+		}
+		map.setSelectedLayer(newSelectedLayer);
+	}
+
+	/**
+	 * Reverts the edit in a map that is in the state after the edit
+	 *
+	 * @param map	the map to revert the edit
+	 */
+	public synchronized void undo(Map map) {
+		inflate();
+		ArrayList<Layer> layers = map.getLayers();
+		for(int c = colliderCount - 1; c >= 0; c--) {
+			int k = c * COLLIDER_INTS;
+			setCollider(map, colliders[k], colliders[k+1], colliders[k+2]);
+		}
+		Layer layer = null;
+		int layerRef = -1;
+		for(int c = cellCount - 1; c >= 0; c--) {
+			int k = c * CELL_INTS;
+			if(cells[k] != layerRef) {
+				layerRef = cells[k];
+				layer = findLayer(layers, layerOrigins.get(layerRef));
+			}
+			setTileID(layer, cells[k+1], cells[k+2], cells[k+3]);
+		}
+
+		for(int l = createdIndexes.size() - 1; l >= 0; l--)
+			layers.remove((int) createdIndexes.get(l));
+		for(int l = 0; l < removedIndexes.size(); l++)
+			layers.add(removedIndexes.get(l), removedLayers.get(l).createCopy());
+		map.setSelectedLayer(oldSelectedLayer);
+	}
+
+	/**
+	 * Compresses the tile and collider commands of the edit
+	 *
+	 * @return	true if the edit was compressed, false if it was already compressed
+	 */
+	public synchronized boolean compress() {
+		if(cells == null)
+			return false;
+		int[] commands = Arrays.copyOf(cells, cells.length + colliders.length);
+		System.arraycopy(colliders, 0, commands, cells.length, colliders.length);
+		packedCommands = Compression.deflate(commands);
+		cells = null;
+		colliders = null;
+		return true;
+	}
+
+	/**
+	 * Moves the compressed tile and collider commands of the edit to a
+	 * history file, freeing them from the heap. Commands are written
+	 * once: edits spilled again after being replayed are only freed
+	 *
+	 * @param file	the history file to keep the commands
+	 * @return	true if the commands were freed, false if they were not on the heap or could not be written
+	 */
+	public synchronized boolean spill(HistoryFile file) {
+		if(cells == null && packedCommands == null)
+			return false;
+		if(spillFile != file) {
+			compress();
+			try {
+				spillPosition = file.write(packedCommands);
+				spillSize = packedCommands.length;
+				spillFile = file;
+			} catch (IOException e) {
+				e.printStackTrace();
+				System.err.println("MapEdit: Could not write edit to history file, keeping it on the heap");
+				return false;
+			}
+		}
+		cells = null;
+		colliders = null;
+		packedCommands = null;
+		return true;
+	}
+
+	/**
+	 * Inflates the tile and collider commands of the edit if 
+	 * compressed, reading them from the history file if spilled
+	 */
+	public synchronized void inflate() {
+		if(cells != null)
+			return;
+		int[] commands;
+		try {
+			byte[] packed = packedCommands;
+			if(packed == null)
+				packed = spillFile.read(spillPosition, spillSize);
+			commands = Compression.inflate(packed, cellCount * CELL_INTS + colliderCount * COLLIDER_INTS);
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.err.println("MapEdit: Could not read edit from history file, it will be replayed empty");
+			clearCommands();
+			return;
+		} catch (DataFormatException e) {
+			e.printStackTrace();
+			System.err.println("MapEdit: Compressed edit is corrupt, it will be replayed empty");
+			clearCommands();
+			return;
+		}
+		cells = Arrays.copyOf(commands, cellCount * CELL_INTS);
+		colliders = Arrays.copyOfRange(commands, cellCount * CELL_INTS, commands.length);
+		packedCommands = null;
+	}
+
+	/**
+	 * Empties the commands of the edit that could not be inflated
+	 */
+	private void clearCommands() {
+		cells = new int[0];
+		colliders = new int[0];
+		cellCount = colliderCount = 0;
+		packedCommands = null;
+	}
+
+	/**
+	 * @param layers	the layers of the map
+	 * @param origin	the origin of the layer to find
+	 * @return	the layer with the given origin or null if there is none
+	 */
+	private static Layer findLayer(ArrayList<Layer> layers, Object origin) {
+		for(int l = 0; l < layers.size(); l++) {
+			if(layers.get(l).getOrigin() == origin)
+				return layers.get(l);
+		}
+		return null;
+	}
+
+	/**
+	 * Sets a tile of a layer ignoring positions out of
+	 * layer bounds (the map may have been resized)
+	 *
+	 * @param layer	the layer to set the tile
+	 * @param i		the i-index (line) of the tile in layer
+	 * @param j		the j-index (column) of the tile in layer
+	 * @param id	the global id of the tile (0 removes the tile)
+	 */
+	private static void setTileID(Layer layer, int i, int j, int id) {
+		if(layer != null && layer.contains(i, j))
+			layer.setTileID(i, j, id);
+	}
+
+	/**
+	 * Sets a collider of a map ignoring positions out
+	 * of map bounds (the map may have been resized)
+	 *
+	 * @param map	the map to set the collider
+	 * @param i		the i-index (line) of the collider in map
+	 * @param j		the j-index (column) of the collider in map
+	 * @param id	the id of the collider (ColliderMask.NONE removes the collider)
+	 */
+	private static void setCollider(Map map, int i, int j, int id) {
+		if(map.getColliders().contains(i, j))
+			map.setCollider(i, j, id);
+	}
+
+	/**
+	 * Checks if the edit may change tiles or colliders of an area
+	 * (commands are not read: the chunks changed are compared)
+	 *
+	 * @param originI	the i-index (line) of the first line of the area
+	 * @param originJ	the j-index (column) of the first column of the area
+	 * @param lines		the number of lines of the area
+	 * @param columns	the number of columns of the area
+	 * @return	true if a chunk changed by the edit overlaps the area, false otherwise
+	 */
+	public boolean changes(int originI, int originJ, int lines, int columns) {
+		return bounds != null && bounds.intersects(originJ, originI, columns, lines);
+	}
+
+	/**
+	 * @return if the edit has no commands
+	 */
+	public boolean isEmpty() {
+		return cellCount == 0 && colliderCount == 0 && removedLayers.isEmpty() && createdLayers.isEmpty()
+				&& oldSelectedLayer == newSelectedLayer;
+	}
+
+	/**
+	 * @return the approximated number of bytes used by the commands on the heap
+	 * (tiles of created and removed layers are not counted)
+	 */
+	public synchronized long getBytes() {
+		long commands = cells != null ? cells.length * 4L + colliders.length * 4L 
+						: packedCommands != null ? packedCommands.length : 0;
+		return 64 + commands + 16L * (layerOrigins.size() + removedLayers.size() + createdLayers.size());
+	}
+}
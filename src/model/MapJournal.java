@@ -0,0 +1,266 @@
+package model;
+
+import java.util.ArrayList;
+
+/**
+ * Undo history that keeps a single live map and the list
+ * of edits (reversible commands) applied to it, instead of
+ * a complete map for each state. Undo and redo replay the
+ * commands of the edits on a copy of the live map
+ *
+ * @author	Pedro Sampaio
+ * @since	1.8
+ *
+ */
+public class MapJournal {
+
+	private int maxEdits;							// maximum number of edits to keep
+	private ArrayList<ArrayList<MapEdit>> edits;	// the edits of the history (each one may contain many updates)
+	private int seek;								// number of edits applied to the live map
+	private Map currentMap;							// the live map
+	private Map keptMap;							// a map kept to be returned when history is back to its position
+	private int keptSeek;							// the position of the kept map in history (-1 if none)
+
+	/**
+	 * Constructor that initializes an empty history
+	 *
+	 * @param maxEdits	maximum number of edits to keep
+	 */
+	public MapJournal(int maxEdits) {
+		this.maxEdits = maxEdits;
+		edits = new ArrayList<ArrayList<MapEdit>>();
+		seek = 0;
+		currentMap = null;
+		keptSeek = -1;
+	}
+
+	/**
+	 * Records a new edit that transforms the live map
+	 * into the received map, discarding edits that
+	 * could be redone
+	 *
+	 * @param map	the new live map
+	 */
+	public void add(Map map) {
+		// first map does not need an edit
+		if(currentMap == null) {
+			currentMap = map;
+			return;
+		}
+
+		// removes edits that could be redone
+		while(edits.size() > seek)
+			edits.remove(edits.size() - 1);
+		if(keptSeek > seek)
+			keptSeek = -1;
+
+		ArrayList<MapEdit> edit = new ArrayList<MapEdit>();
+		edit.add(new MapEdit(currentMap, map));
+		edits.add(edit);
+		seek++;
+		currentMap = map;
+
+		// if limit is reached, removes oldest edit
+		if(edits.size() > maxEdits)
+			removeOldest();
+	}
+
+	/**
+	 * Replaces the live map with the received map, adding the
+	 * changes into the last applied edit and recording again the
+	 * next edit from the received map, so redoing leads to the
+	 * same next state (at the oldest position the received map
+	 * just replaces the base map of the journal)
+	 *
+	 * @param map	the new live map
+	 */
+	public void update(Map map) {
+		// first map does not need an edit
+		if(currentMap == null) {
+			add(map);
+			return;
+		}
+
+		// next edit is recorded again from the received map
+		if(seek < edits.size()) {
+			Map next;
+			if(keptSeek == seek + 1)
+				next = keptMap;
+			else {
+				next = currentMap.createCopy();
+				ArrayList<MapEdit> edit = edits.get(seek);
+				for(int u = 0; u < edit.size(); u++)
+					edit.get(u).redo(next);
+			}
+			ArrayList<MapEdit> edit = new ArrayList<MapEdit>();
+			edit.add(new MapEdit(map, next));
+			edits.set(seek, edit);
+		}
+
+		if(seek > 0) {
+			MapEdit update = new MapEdit(currentMap, map);
+			if(!update.isEmpty())
+				edits.get(seek - 1).add(update);
+		}
+		// kept map no longer represents its position
+		if(keptSeek == seek)
+			keptSeek = -1;
+		currentMap = map;
+	}
+
+	/**
+	 * Reverts the last applied edit
+	 */
+	public void undo() {
+		if(seek == 0)
+			return;
+		seek--;
+		if(seek == keptSeek) {
+			currentMap = keptMap;
+			return;
+		}
+		Map map = currentMap.createCopy();
+		ArrayList<MapEdit> edit = edits.get(seek);
+		for(int u = edit.size() - 1; u >= 0; u--)
+			edit.get(u).undo(map);
+		currentMap = map;
+	}
+
+	/**
+	 * Applies the next edit that was reverted
+	 */
+	public void redo() {
+		if(seek == edits.size())
+			return;
+		ArrayList<MapEdit> edit = edits.get(seek);
+		seek++;
+		if(seek == keptSeek) {
+			currentMap = keptMap;
+			return;
+		}
+		Map map = currentMap.createCopy();
+		for(int u = 0; u < edit.size(); u++)
+			edit.get(u).redo(map);
+		currentMap = map;
+	}
+
+	/**
+	 * Keeps the received map to be returned again when history
+	 * gets back to the current position, if it is the live map
+	 * (so map references that identify a state remain valid)
+	 *
+	 * @param map	the map to keep
+	 */
+	public void keep(Map map) {
+		if(map == currentMap) {
+			keptMap = map;
+			keptSeek = seek;
+		}
+	}
+
+	/**
+	 * Removes the oldest edit, if it is applied to the live map
+	 *
+	 * @return	true if an edit was removed, false otherwise
+	 */
+	public boolean removeOldest() {
+		if(seek == 0)
+			return false;
+		edits.remove(0);
+		seek--;
+		if(keptSeek >= 0)
+			keptSeek--;
+		return true;
+	}
+
+	/**
+	 * @param maxEdits	maximum number of edits to keep
+	 */
+	public void setMaxEdits(int maxEdits) {
+		this.maxEdits = maxEdits;
+	}
+
+	/**
+	 * @param recent	number of edits next to the live map position that are not old
+	 * @return	the edits that are far from the live map position in history
+	 */
+	public ArrayList<MapEdit> getOldEdits(int recent) {
+		ArrayList<MapEdit> old = new ArrayList<MapEdit>();
+		for(int e = 0; e < edits.size(); e++) {
+			if(e < seek - recent || e >= seek + recent)
+				old.addAll(edits.get(e));
+		}
+		return old;
+	}
+
+	/**
+	 * @param originI	the i-index (line) of the first line of the area
+	 * @param originJ	the j-index (column) of the first column of the area
+	 * @param lines		the number of lines of the area
+	 * @param columns	the number of columns of the area
+	 * @return	if some edit of history may change tiles or colliders of the area
+	 */
+	public boolean changes(int originI, int originJ, int lines, int columns) {
+		for(int e = 0; e < edits.size(); e++)
+			for(int u = 0; u < edits.get(e).size(); u++)
+				if(edits.get(e).get(u).changes(originI, originJ, lines, columns))
+					return true;
+		return false;
+	}
+
+	/**
+	 * Removes all edits, keeping the live map
+	 */
+	public void clear() {
+		edits.clear();
+		seek = 0;
+		keptSeek = -1;
+	}
+
+	/**
+	 * @return the live map (null if no map was added)
+	 */
+	public Map getCurrentMap() {
+		return currentMap;
+	}
+
+	/**
+	 * @return the map kept to be returned when history gets back to its position (null if none)
+	 */
+	public Map getKeptMap() {
+		return keptSeek >= 0 ? keptMap : null;
+	}
+
+	/**
+	 * @return the number of edits in history
+	 */
+	public int size() {
+		return edits.size();
+	}
+
+	/**
+	 * @return if is possible undoing an edit
+	 */
+	public boolean isUndoPossible() {
+		return seek > 0;
+	}
+
+	/**
+	 * @return if is possible redoing an edit
+	 */
+	public boolean isRedoPossible() {
+		return seek < edits.size();
+	}
+
+	/**
+	 * @return the approximated number of bytes used by the edits
+	 * (the live map is not counted)
+	 */
+	public long getBytes() {
+		long bytes = 0;
+		for(int e = 0; e < edits.size(); e++)
+			for(int u = 0; u < edits.get(e).size(); u++)
+				bytes += edits.get(e).get(u).getBytes();
+		return bytes;
+	}
+}
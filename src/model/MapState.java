@@ -1,12 +1,26 @@
 package model;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Observable;
+import java.util.Set;
+
+import test.Config;
 
 /**
  * Class that contains a limited number of map states
  * to be able to navigate between then with undo and redo
- * operations
+ * operations. States are copies of the map that share
+ * all unmodified tiles and colliders data with each other.
+ * History can be limited by number of states or by memory,
+ * compressing old states in background in the latter, or
+ * spilled to a temporary file, keeping only the states next
+ * to the current one on the heap. Edits that span many events,
+ * like strokes of tools, are made in transactions that modify
+ * a single working copy of the map in place and are recorded
+ * as a single state when committed
  * 
  * @author	Pedro Sampaio
  * @since	0.5
@@ -14,10 +28,27 @@ import java.util.Observable;
  */
 public class MapState extends Observable {
 	
+	public enum Engine {SNAPSHOT, JOURNAL}	// engines of history: list of map states or journal of edits
+	
 	private int maxStates;				// maximum number of states to save in total
 	private ArrayList<Map> mapStates;	// the saved list of map states
 	private int	seek;					// the current seek position (current state is affected by the seek)
 	private boolean isSeekShifted;		// bool that represents if seek is shifted (not in the last pos of list)
+	private MapJournal journal;			// the journal of edits (only for journal engine, null otherwise)
+	private long memoryBudget;			// maximum bytes of history (0 to limit history by number of states)
+	private volatile boolean compressing;	// if old states are being compressed in background
+	private Thread compressor;				// the thread of the last compression of old states (null if none)
+	private volatile ArrayList<Map> compressedStates;	// states compressed in background since last measure (null if none)
+	private Set<Map> compressedMaps;					// states already compressed in background (skipped by new compressions)
+	private IdentityHashMap<Map, Long> stateBytes;		// measured bytes of each state that are not shared with previous state
+	private IdentityHashMap<Map, Map> statePrevious;	// previous state of each state when it was measured
+	private HistoryFile spill;				// file that keeps the states far from the current one (null to keep all states on the heap)
+	private int heapStates;					// number of states kept on the heap on each side of the current one (when spilling)
+	private ArrayList<MapEdit> stateEdits;	// edit between each state and the next one, in the spill file (null if not recorded)
+	private Map working;					// the map modified in place by the edit in course (null if there is none)
+	private boolean applied;				// if the working map was modified by the edit in course
+	
+	private static final int RECENT_STATES = 3;	// number of states next to current one (and newest ones) kept uncompressed
 	
 	/**
 	 * Constructor initializes the list of states
@@ -27,16 +58,38 @@ public class MapState extends Observable {
 	 * @param	maxStates	maximum number of states to save in total
 	 */
 	public MapState(int maxStates) {
+		this(maxStates, Engine.SNAPSHOT);
+	}
+	
+	/**
+	 * Constructor initializes the history with the
+	 * chosen engine and stores the limit and initialize
+	 * remaining properties.
+	 * 
+	 * @author	Pedro Sampaio
+	 * @since	1.8
+	 * @param	maxStates	maximum number of states to save in total
+	 * @param	engine		the engine of history: SNAPSHOT keeps a map for each state 
+	 * 						and JOURNAL keeps a single map and the edits between states
+	 */
+	public MapState(int maxStates, Engine engine) {
 		super();
 		this.maxStates = maxStates;
 		
 		// initializes list of map states
 		mapStates = new ArrayList<Map>();
+		stateEdits = new ArrayList<MapEdit>();
 
 		// initially seek is in the last pos of array
 		// shift occurs when undo/redo is used
 		seek = mapStates.size() - 1;
 		isSeekShifted = false;
+		
+		compressedMaps = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<Map, Boolean>()));
+		
+		// journal keeps the edits between the states
+		if(engine == Engine.JOURNAL)
+			journal = new MapJournal(maxStates - 1);
 	}
 	
 	/**
@@ -46,19 +99,36 @@ public class MapState extends Observable {
 	 * @param map	the new data for the current map state
 	 */
 	public void UpdateState(Map map) {
+		
+		// edit in course is recorded before
+		commitEdit();
 
 		// creates map states if there are 
 		// none to go back to
-		if(mapStates.size() == 1) {	
+		if(getStateCount() == 1) {	
 			AddState(map);
 			return;
 		}
 			
 		// updates current mapstate
-		mapStates.set(seek, map);
+		if(journal != null)
+			journal.update(map);
+		else {
+			// spilled neighbours are rebuilt from the current state before it changes
+			if(seek > 0)
+				loadState(seek - 1);
+			if(seek < mapStates.size() - 1)
+				loadState(seek + 1);
+			mapStates.set(seek, map);
+			// edits from and to the current state are recorded again when spilled
+			if(seek > 0)
+				stateEdits.set(seek - 1, null);
+			if(seek < stateEdits.size())
+				stateEdits.set(seek, null);
+		}
 		
-		// checks if state is equal of saved one
-		if(getCurrentMap().equals(MapConfig.getInstance().getProject().getMap()))
+		// checks if state has the same content of saved one
+		if(MapConfig.getInstance().getProject().isSavedMap(getCurrentMap()))
 			MapConfig.getInstance().getProject().setSaved(true);		// updates that it is equal as current saved
 		else
 			MapConfig.getInstance().getProject().setSaved(false);		// updates that it is different as current saved (unsaved)
@@ -79,31 +149,54 @@ public class MapState extends Observable {
 	 * @param	map		New state to be added
 	 */
 	public void AddState(Map map) {
-		// if limit is reached, removes oldest state from list
-		if(mapStates.size() >= maxStates) {
-			mapStates.remove(0);	// oldest state is removed
-		}
+		// edit in course is recorded before
+		commitEdit();
 		
-		// if seek is shifted, removes all states newer 
-		// than shift position losing redo option
-		if(isSeekShifted) {
+		// journal removes oldest and newer states by itself
+		if(journal != null)
+			journal.add(map);
+		else {
+			// if seek is shifted, removes all states newer 
+			// than shift position losing redo option
+			// (before removing oldest state, that would shift the seek)
+			if(isSeekShifted) {
+				
+				// removes newer states than seek pos
+				for(int i = mapStates.size() - 1; i > seek; i--) {
+					mapStates.remove(i);
+					stateEdits.remove(i - 1);
+				}
+				
+				// after removal, seek is in last pos of list and no longer shifted
+				isSeekShifted = false;	
+			}
 			
-			// removes newer states than seek pos
-			for(int i = mapStates.size() - 1; i > seek; i--)
-				mapStates.remove(i);
+			// if limit is reached, removes oldest state from list
+			if(memoryBudget == 0 && spill == null && mapStates.size() >= maxStates) {
+				mapStates.remove(0);	// oldest state is removed
+				stateEdits.remove(0);
+			}
 			
-			// after removal, seek is in last pos of list and no longer shifted
-			isSeekShifted = false;	
+			// now we are ready to add the new state
+			mapStates.add(map);
+			if(mapStates.size() > 1)
+				stateEdits.add(null);
+			
+			// updates seek position
+			seek = mapStates.size() - 1;
 		}
 		
-		// now we are ready to add the new state
-		mapStates.add(map);
-		
-		// updates seek position
-		seek = mapStates.size() - 1;
+		// keeps history inside memory budget
+		if(memoryBudget > 0) {
+			limitHistory();
+			compressOldStates();
+		}
+		else if(spill != null)
+			compressOldStates();
+		spillStates();
 		
-		// checks if state is equal of saved one
-		if(getCurrentMap().equals(MapConfig.getInstance().getProject().getMap()))
+		// checks if state has the same content of saved one
+		if(MapConfig.getInstance().getProject().isSavedMap(getCurrentMap()))
 			MapConfig.getInstance().getProject().setSaved(true);		// updates that it is equal as current saved
 		else
 			MapConfig.getInstance().getProject().setSaved(false);		// updates that it is different as current saved (unsaved)
@@ -122,12 +215,27 @@ public class MapState extends Observable {
 	 * @since	1.2b
 	 */
 	public void RemoveOldStates() {
+		
+		// edit in course is kept as current state
+		commitEdit();
 
+		// journal keeps only the current map
+		if(journal != null) {
+			journal.clear();
+			if(spill != null)
+				spill.clear();
+			dispatchChanges();
+			return;
+		}
+		
 		// saves current map
 		Map currentMap = getCurrentMap();
 		
 		// clear map states list
 		mapStates.clear();
+		stateEdits.clear();
+		if(spill != null)
+			spill.clear();
 		
 		// updates seek
 		seek = 0;
@@ -151,6 +259,21 @@ public class MapState extends Observable {
 	 */
 	public void UndoState() {
 		
+		// edit in course is recorded before being undone
+		commitEdit();
+		
+		// journal reverts the last edit
+		if(journal != null) {
+			if(journal.isUndoPossible()) {
+				keepSavedMap();
+				journal.undo();
+				if(memoryBudget > 0 || spill != null)
+					compressOldStates();
+				dispatchChanges();
+			}
+			return;
+		}
+		
 		// moves seek one state in the past
 		// if it isnt on oldest state yet
 		if(seek > 0) {
@@ -160,6 +283,17 @@ public class MapState extends Observable {
 			if(!isSeekShifted)
 				isSeekShifted = true;
 			
+			// state reached may have been spilled
+			loadState(seek);
+			spillStates();
+			
+			// state reached may have been compressed
+			if(memoryBudget > 0) {
+				compressedMaps.remove(getCurrentMap());
+				getCurrentMap().inflate();
+				compressOldStates();
+			}
+			
 			// notify observers
 			dispatchChanges();
 		}
@@ -177,6 +311,21 @@ public class MapState extends Observable {
 	 */
 	public void RedoState() {
 		
+		// edit in course is recorded (and discards redo states)
+		commitEdit();
+		
+		// journal applies the next edit
+		if(journal != null) {
+			if(journal.isRedoPossible()) {
+				keepSavedMap();
+				journal.redo();
+				if(memoryBudget > 0 || spill != null)
+					compressOldStates();
+				dispatchChanges();
+			}
+			return;
+		}
+		
 		// moves seek one state in the future
 		// if it isnt on newest state yet
 		if(seek < (mapStates.size() - 1)) {
@@ -186,6 +335,17 @@ public class MapState extends Observable {
 			if(!isSeekShifted)
 				isSeekShifted = true;
 			
+			// state reached may have been spilled
+			loadState(seek);
+			spillStates();
+			
+			// state reached may have been compressed
+			if(memoryBudget > 0) {
+				compressedMaps.remove(getCurrentMap());
+				getCurrentMap().inflate();
+				compressOldStates();
+			}
+			
 			
 			// notify observers
 			dispatchChanges();
@@ -199,6 +359,10 @@ public class MapState extends Observable {
 	 * @return if is possible undoing a state (there are older states stored)
 	 */
 	public boolean isUndoPossible() {
+		if(working != null && applied)
+			return true;
+		if(journal != null)
+			return journal.isUndoPossible();
 		return (seek > 0);
 	}
 	
@@ -208,6 +372,10 @@ public class MapState extends Observable {
 	 * @return if is possible redoing a state (there are newer states stored)
 	 */
 	public boolean isRedoPossible() {
+		if(working != null && applied)
+			return false;
+		if(journal != null)
+			return journal.isRedoPossible();
 		return (seek < (mapStates.size() - 1));
 	}
 
@@ -217,6 +385,12 @@ public class MapState extends Observable {
 	 * @return the map in the current state that is the actual map to work with
 	 */
 	public Map getCurrentMap() {
+		// the working map is current while an edit is in course
+		if(working != null)
+			return working;
+		if(journal != null)
+			return journal.getCurrentMap();
+		
 		// makes sure that bounds are respected
 		if(seek >= mapStates.size())
 			seek = mapStates.size()-1;
@@ -226,6 +400,594 @@ public class MapState extends Observable {
 		return mapStates.get(seek);
 	}
 	
+	/**
+	 * Begins an edit of the map that spans many events, like a stroke
+	 * of a tool, returning the working map to be modified in place.
+	 * The working map is a single copy of the current map, that is
+	 * the current map until the edit is committed as a single state
+	 * (beginning an edit while another is in course continues it)
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @return	the working map of the edit in course
+	 */
+	public Map beginEdit() {
+		if(working == null) {
+			working = getCurrentMap().createCopy();
+			applied = false;
+		}
+		return working;
+	}
+	
+	/**
+	 * Notifies that the working map was modified by the edit in course,
+	 * updating the saved state of the project and the observers
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 */
+	public void applyEdit() {
+		if(working == null)
+			return;
+		applied = true;
+		
+		// checks if working map has the same content of saved one
+		Project project = MapConfig.getInstance().getProject();
+		project.setSaved(project.isSavedMap(working));
+		
+		// notify map config observers for saved changes
+		MapConfig.getInstance().dispatchChanges(false);
+		
+		// notify observers
+		dispatchChanges();
+	}
+	
+	/**
+	 * Ends the edit in course, adding the working map as a new
+	 * state if it was modified (discarding it otherwise)
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 */
+	public void commitEdit() {
+		if(working == null)
+			return;
+		Map map = working;
+		working = null;
+		if(applied)
+			AddState(map);
+	}
+	
+	/**
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @return if an edit is in course (begun and not committed yet)
+	 */
+	public boolean isEditing() {
+		return working != null;
+	}
+	
+	/**
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @return the number of states in history (including the current one)
+	 */
+	public int getStateCount() {
+		if(journal != null)
+			return journal.getCurrentMap() == null ? 0 : journal.size() + 1;
+		return mapStates.size();
+	}
+	
+	/**
+	 * Limits the history by memory instead of number of states.
+	 * States older than the most recent ones are compressed in 
+	 * background and inflated again when reached by undo or redo
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param megabytes	maximum memory of history in megabytes (0 to limit history by number of states)
+	 */
+	public void setMemoryBudget(int megabytes) {
+		memoryBudget = megabytes * 1024L * 1024L;
+		if(journal != null)
+			journal.setMaxEdits(memoryBudget > 0 || spill != null ? Integer.MAX_VALUE : maxStates - 1);
+		if(memoryBudget > 0 && getStateCount() > 0) {
+			limitHistory();
+			compressOldStates();
+		}
+	}
+	
+	/**
+	 * Keeps only the states next to the current one on the heap, spilling
+	 * the others to a temporary file as compressed edits between states
+	 * (the edits of the journal), that are read back when undo or redo
+	 * reaches them. Undo depth is then limited by disk instead of the 
+	 * maximum number of states, and states are not removed by the memory budget
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param heapStates	number of states kept on the heap on each side 
+	 * 						of the current one (0 to keep all states on the heap)
+	 */
+	public void setHeapStates(int heapStates) {
+		if(heapStates > 0 && spill == null) {
+			try {
+				spill = new HistoryFile();
+			} catch (IOException e) {
+				e.printStackTrace();
+				System.err.println("MapState: Could not create history file, keeping states on heap");
+				return;
+			}
+		}
+		
+		// states are read back before history stops spilling
+		if(heapStates == 0 && spill != null) {
+			waitCompression();
+			for(int i = seek - 1; i >= 0; i--)
+				loadState(i);
+			for(int i = seek + 1; i < mapStates.size(); i++)
+				loadState(i);
+			if(journal != null) {
+				ArrayList<MapEdit> edits = journal.getOldEdits(0);
+				for(int e = 0; e < edits.size(); e++)
+					edits.get(e).inflate();
+			}
+			spill = null;
+		}
+		
+		this.heapStates = heapStates;
+		if(journal != null)
+			journal.setMaxEdits(memoryBudget > 0 || spill != null ? Integer.MAX_VALUE : maxStates - 1);
+		if(getStateCount() > 0) {
+			spillStates();
+			if(spill != null)
+				compressOldStates();
+		}
+	}
+	
+	/**
+	 * Spills to the history file the states that are far from the
+	 * current one: older states are rebuilt from the next state and
+	 * newer states from the previous one, so the states on the heap
+	 * are always the ones around the current state
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 */
+	private void spillStates() {
+		// journal spills its old edits in background
+		if(spill == null || journal != null)
+			return;
+		int first = Math.max(0, seek - heapStates);
+		int last = Math.min(mapStates.size() - 1, seek + heapStates);
+		for(int i = 0; i < first; i++)
+			if(mapStates.get(i) != null)
+				spillState(i, i);
+		for(int i = mapStates.size() - 1; i > last; i--)
+			if(mapStates.get(i) != null)
+				spillState(i, i - 1);
+	}
+	
+	/**
+	 * Removes a state from the heap, writing the edit between it
+	 * and the neighbour state it is rebuilt from in the history 
+	 * file (edits already written are not recorded again)
+	 * 
+	 * @param i		the index of the state
+	 * @param e		the index of the edit between the state and its neighbour
+	 */
+	private void spillState(int i, int e) {
+		if(stateEdits.get(e) == null) {
+			MapEdit edit = new MapEdit(mapStates.get(e), mapStates.get(e + 1));
+			if(!edit.spill(spill))
+				return;
+			stateEdits.set(e, edit);
+		}
+		mapStates.set(i, null);
+	}
+	
+	/**
+	 * Rebuilds a spilled state from a neighbour state on the heap,
+	 * reading the edit between them from the history file
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param i		the index of the state
+	 */
+	private void loadState(int i) {
+		if(mapStates.get(i) != null)
+			return;
+		Map map;
+		MapEdit edit;
+		if(i + 1 < mapStates.size() && mapStates.get(i + 1) != null) {
+			edit = stateEdits.get(i);
+			map = mapStates.get(i + 1).createCopy();
+			edit.undo(map);
+		}
+		else {
+			edit = stateEdits.get(i - 1);
+			map = mapStates.get(i - 1).createCopy();
+			edit.redo(map);
+		}
+		// commands are already in the file
+		edit.spill(spill);
+		mapStates.set(i, map);
+	}
+	
+	/**
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @return the approximated number of bytes used by the history, 
+	 * including the current map (data shared by states is counted once)
+	 */
+	public long getHistoryBytes() {
+		if(getStateCount() == 0)
+			return 0;
+		if(journal != null)
+			return journal.getCurrentMap().getBytes(null) + journal.getBytes();
+		
+		long bytes = 0;
+		for(int i = 0; i < mapStates.size(); i++)
+			bytes += measureState(i);
+		for(int e = 0; e < stateEdits.size(); e++)
+			if(stateEdits.get(e) != null)
+				bytes += stateEdits.get(e).getBytes();
+		return bytes;
+	}
+	
+	/**
+	 * Measures the bytes of a state that are not shared with 
+	 * its previous state, reusing previous measures if the
+	 * state and its previous state did not change
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param i	the index of the state
+	 * @return	the approximated number of bytes used only by the state
+	 */
+	private long measureState(int i) {
+		if(stateBytes == null) {
+			stateBytes = new IdentityHashMap<Map, Long>();
+			statePrevious = new IdentityHashMap<Map, Map>();
+		}
+		
+		// states compressed in background must be measured again
+		ArrayList<Map> compressed = compressedStates;
+		if(compressed != null) {
+			compressedStates = null;
+			for(int m = 0; m < compressed.size(); m++)
+				stateBytes.remove(compressed.get(m));
+		}
+		
+		Map map = mapStates.get(i);
+		Map previous = i == 0 ? null : mapStates.get(i-1);
+		// spilled states are not on the heap
+		if(map == null)
+			return 0;
+		Long bytes = stateBytes.get(map);
+		if(bytes == null || statePrevious.get(map) != previous) {
+			bytes = map.getBytes(previous);
+			stateBytes.put(map, bytes);
+			statePrevious.put(map, previous);
+		}
+		return bytes;
+	}
+	
+	/**
+	 * Removes oldest states until history is inside 
+	 * the memory budget, never removing current state
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 */
+	private void limitHistory() {
+		// states are spilled instead of removed
+		if(spill != null)
+			return;
+		if(journal != null) {
+			long mapBytes = journal.getCurrentMap().getBytes(null);
+			while(mapBytes + journal.getBytes() > memoryBudget && journal.removeOldest());
+		}
+		else {
+			long bytes = getHistoryBytes();
+			// removes oldest states (next state becomes the owner of shared data)
+			while(bytes > memoryBudget && seek > 0) {
+				bytes -= measureState(0) + measureState(1);
+				mapStates.remove(0);
+				stateEdits.remove(0);
+				seek--;
+				bytes += measureState(0);
+			}
+			
+			// forgets measures of removed states
+			IdentityHashMap<Map, Long> measured = new IdentityHashMap<Map, Long>();
+			for(int i = 0; i < mapStates.size(); i++)
+				measured.put(mapStates.get(i), measureState(i));
+			stateBytes = measured;
+			statePrevious.keySet().retainAll(measured.keySet());
+			compressedMaps.retainAll(measured.keySet());
+		}
+		
+		if(Config.debug)
+			System.out.println("MapState: " + getStateCount() + " states using " + getHistoryBytes() / 1024 + " KB");
+	}
+	
+	/**
+	 * Compresses in background the states that are not 
+	 * next to the current state nor among the newest states
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 */
+	private void compressOldStates() {
+		// one compression at a time
+		if(compressing)
+			return;
+		
+		final ArrayList<MapEdit> oldEdits = journal != null ? journal.getOldEdits(spill != null ? heapStates : RECENT_STATES) : null;
+		final HistoryFile spillFile = spill;
+		final ArrayList<Map> states = new ArrayList<Map>(mapStates);
+		final ArrayList<Integer> recentIndexes = new ArrayList<Integer>();
+		final ArrayList<Integer> oldIndexes = new ArrayList<Integer>();
+		if(journal == null) {
+			for(int i = 0; i < states.size(); i++) {
+				if(states.get(i) == null)
+					continue;
+				if(Math.abs(i - seek) < RECENT_STATES || i >= states.size() - RECENT_STATES)
+					recentIndexes.add(i);
+				else if(!compressedMaps.contains(states.get(i)))
+					oldIndexes.add(i);
+			}
+		}
+		if((oldEdits == null || oldEdits.isEmpty()) && oldIndexes.isEmpty())
+			return;
+		
+		compressing = true;
+		compressor = new Thread(new Runnable() {
+			public void run() {
+				int compressed = 0;
+				if(oldEdits != null) {
+					// old edits are spilled to the history file if there is one
+					for(int e = 0; e < oldEdits.size(); e++)
+						if(spillFile != null ? oldEdits.get(e).spill(spillFile) : oldEdits.get(e).compress())
+							compressed++;
+				}
+				else
+					compressed = compressChunks(states, recentIndexes, oldIndexes);
+				
+				if(Config.debug)
+					System.out.println("MapState: " + (spillFile != null && oldEdits != null ? "spilled " : "compressed ") + compressed 
+										+ (oldEdits != null ? " edits" : " chunks") + " of old states");
+				compressing = false;
+			}
+		});
+		compressor.setDaemon(true);
+		compressor.start();
+	}
+	
+	/**
+	 * Compresses the chunks of old states that are not shared
+	 * with recent states (runs in the compression thread)
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param states		the states of history
+	 * @param recentIndexes	the indexes of the states kept uncompressed
+	 * @param oldIndexes	the indexes of the states to compress
+	 * @return	the number of chunks compressed
+	 */
+	private int compressChunks(ArrayList<Map> states, ArrayList<Integer> recentIndexes, ArrayList<Integer> oldIndexes) {
+		// chunks shared with recent states are kept uncompressed
+		Set<Chunk> recentChunks = Collections.newSetFromMap(new IdentityHashMap<Chunk, Boolean>());
+		for(int r = 0; r < recentIndexes.size(); r++) {
+			ArrayList<Layer> layers = states.get(recentIndexes.get(r)).getLayers();
+			for(int l = 0; l < layers.size(); l++) {
+				ChunkMap<Chunk> chunks = layers.get(l).getChunks();
+				for(int s = 0; s < chunks.capacity(); s++) {
+					if(chunks.valueAt(s) != null)
+						recentChunks.add(chunks.valueAt(s));
+				}
+			}
+		}
+		
+		int compressed = 0;
+		Set<Map> measureAgain = Collections.newSetFromMap(new IdentityHashMap<Map, Boolean>());
+		for(int o = 0; o < oldIndexes.size(); o++) {
+			int i = oldIndexes.get(o);
+			ArrayList<Layer> layers = states.get(i).getLayers();
+			for(int l = 0; l < layers.size(); l++) {
+				ChunkMap<Chunk> chunks = layers.get(l).getChunks();
+				for(int s = 0; s < chunks.capacity(); s++) {
+					Chunk chunk = chunks.valueAt(s);
+					if(chunk == null || recentChunks.contains(chunk) || !chunk.compress())
+						continue;
+					compressed++;
+					// bytes of chunk are counted by the first state that contains it
+					int first = i;
+					while(first > 0 && getChunk(states.get(first-1), layers.get(l).getOrigin(), chunks.keyAt(s)) == chunk)
+						first--;
+					measureAgain.add(states.get(first));
+				}
+			}
+			compressedMaps.add(states.get(i));
+		}
+		
+		// hands measures to be redone to the program thread
+		ArrayList<Map> pending = compressedStates;
+		if(pending != null)
+			measureAgain.addAll(pending);
+		compressedStates = new ArrayList<Map>(measureAgain);
+		return compressed;
+	}
+	
+	/**
+	 * @param map		the map that contains the chunk
+	 * @param origin	the origin of the layer of the chunk
+	 * @param key		the key of the chunk
+	 * @return	the chunk of the layer with the given origin (null if there is no such layer or chunk)
+	 */
+	private static Chunk getChunk(Map map, Object origin, long key) {
+		if(map == null)
+			return null;
+		ArrayList<Layer> layers = map.getLayers();
+		for(int l = 0; l < layers.size(); l++) {
+			if(layers.get(l).getOrigin() == origin)
+				return layers.get(l).getChunks().get(key);
+		}
+		return null;
+	}
+	
+	/**
+	 * Places the tiles and colliders of a region of a world in all
+	 * states of the map, without recording it as an edit, so the
+	 * regions streamed in are not undone. States share the chunks
+	 * of the region, that are copied on write (the region must not
+	 * have history: it was empty in all states or streamed out
+	 * without history)
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param region	the map of the region
+	 * @param originI	the i-index (line) of the first line of the region in map
+	 * @param originJ	the j-index (column) of the first column of the region in map
+	 */
+	public void putRegion(Map region, int originI, int originJ) {
+		ArrayList<Map> maps = getStreamedMaps();
+		for(int m = 0; m < maps.size(); m++)
+			maps.get(m).copyRegion(region, 0, 0, originI, originJ, region.getHeight(), region.getWidth());
+		streamed();
+	}
+	
+	/**
+	 * Clears the tiles and colliders of a region of a world in all
+	 * states of the map, without recording it as an edit, freeing
+	 * the chunks of regions streamed out. Regions must not have
+	 * history (see hasHistory): all states have the same content
+	 * in the region, so states spilled to the history file are
+	 * rebuilt with the content of the region of the states on heap
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param originI	the i-index (line) of the first line of the region in map
+	 * @param originJ	the j-index (column) of the first column of the region in map
+	 * @param lines		the number of lines of the region
+	 * @param columns	the number of columns of the region
+	 */
+	public void removeRegion(int originI, int originJ, int lines, int columns) {
+		ArrayList<Map> maps = getStreamedMaps();
+		for(int m = 0; m < maps.size(); m++)
+			maps.get(m).copyRegion(null, 0, 0, originI, originJ, lines, columns);
+		streamed();
+	}
+	
+	/**
+	 * Checks if states of history differ from the current map in an area,
+	 * so a region of a world is only streamed out if undoing and redoing
+	 * do not depend on its content. States on the heap are compared by
+	 * content hash and spilled states and journal by the chunks changed
+	 * by their edits
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param originI	the i-index (line) of the first line of the area
+	 * @param originJ	the j-index (column) of the first column of the area
+	 * @param lines		the number of lines of the area
+	 * @param columns	the number of columns of the area
+	 * @return	true if some state of history may differ from the current map in the area
+	 */
+	public boolean hasHistory(int originI, int originJ, int lines, int columns) {
+		long hash = getCurrentMap().getContentHash(originI, originJ, lines, columns);
+		if(journal != null)
+			return journal.getCurrentMap().getContentHash(originI, originJ, lines, columns) != hash
+					|| journal.changes(originI, originJ, lines, columns);
+		for(int i = 0; i < mapStates.size(); i++) {
+			if(mapStates.get(i) != null && mapStates.get(i).getContentHash(originI, originJ, lines, columns) != hash)
+				return true;
+		}
+		// edits from and to spilled states
+		for(int e = 0; e < stateEdits.size(); e++) {
+			if((mapStates.get(e) == null || mapStates.get(e + 1) == null) && stateEdits.get(e) != null
+				&& stateEdits.get(e).changes(originI, originJ, lines, columns))
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Gets the maps that must receive the regions streamed: all states
+	 * (or the live and kept maps of the journal) and the saved map of
+	 * the project, waiting for the compression of old states to finish
+	 * 
+	 * @return	the distinct maps to receive the regions
+	 */
+	private ArrayList<Map> getStreamedMaps() {
+		waitCompression();
+		
+		Set<Map> distinct = Collections.newSetFromMap(new IdentityHashMap<Map, Boolean>());
+		if(journal != null) {
+			distinct.add(journal.getCurrentMap());
+			if(journal.getKeptMap() != null)
+				distinct.add(journal.getKeptMap());
+		}
+		else {
+			for(int i = 0; i < mapStates.size(); i++)
+				if(mapStates.get(i) != null)
+					distinct.add(mapStates.get(i));
+		}
+		if(working != null)
+			distinct.add(working);
+		Project project = MapConfig.getInstance().getProject();
+		if(project != null)
+			distinct.add(project.getMap());
+		return new ArrayList<Map>(distinct);
+	}
+	
+	/**
+	 * Waits for the compression of old states running in background
+	 */
+	private void waitCompression() {
+		if(compressor != null) {
+			try {
+				compressor.join();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+				System.err.println("MapState: Interrupted while waiting for compression of old states");
+			}
+		}
+	}
+	
+	/**
+	 * Updates the saved state of the project and the measures 
+	 * of states after a region is streamed in or out
+	 */
+	private void streamed() {
+		// regions streamed are in the saved map as well
+		Project project = MapConfig.getInstance().getProject();
+		if(project != null) {
+			project.setMap(project.getMap());
+			project.setSaved(project.isSavedMap(getCurrentMap()));
+		}
+		stateBytes = null;
+		statePrevious = null;
+		// edits between states on the heap no longer match them
+		for(int e = 0; e < stateEdits.size(); e++)
+			if(mapStates.get(e) != null && mapStates.get(e + 1) != null)
+				stateEdits.set(e, null);
+		dispatchChanges();
+	}
+	
+	/**
+	 * Keeps the saved map in journal so it is 
+	 * identified again when history gets back to it
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 */
+	private void keepSavedMap() {
+		Project project = MapConfig.getInstance().getProject();
+		if(project != null)
+			journal.keep(project.getMap());
+	}
 
 	/**
 	 * dispatch changes in the map state for observers
@@ -0,0 +1,110 @@
+package model;
+
+import java.nio.IntBuffer;
+
+/**
+ * Chunk that keeps the global ids of its tiles off the heap,
+ * in a slot of the memory-mapped file of a chunk store, so
+ * regions of the map that are not visited stay in the page
+ * cache of the system instead of the Java heap.
+ * As any chunk, it is modified in place only by the layer
+ * that owns it, and copied to a new slot by other layers
+ * (map states keep the slots of their old chunks)
+ *
+ * @author	Pedro Sampaio
+ * @since	1.8
+ *
+ */
+public class MappedChunk extends Chunk {
+
+	private IntBuffer tiles;	// view of the slot of the chunk in the mapped file
+	private ChunkStore store;	// the store that owns the slot of the chunk
+
+	/**
+	 * Constructor for a chunk in a slot of a store
+	 *
+	 * @param tiles		view of the slot of the chunk in the mapped file (with the tiles already written)
+	 * @param tileCount	the number of tiles in the chunk
+	 * @param hash		the content hash of the tiles of the chunk
+	 * @param store		the store that owns the slot of the chunk
+	 * @param owner		token of the layer that is allowed to modify the chunk
+	 */
+	MappedChunk(IntBuffer tiles, int tileCount, long hash, ChunkStore store, Object owner) {
+		super(null, tileCount, hash, owner);
+		this.tiles = tiles;
+		this.store = store;
+	}
+
+	@Override
+	public int getTileID(int ci, int cj) {
+		return tiles.get((ci << SHIFT) | cj);
+	}
+
+	@Override
+	public void setTileID(int ci, int cj, int id) {
+		int k = (ci << SHIFT) | cj;
+		countTile(k, tiles.get(k), id);
+		tiles.put(k, id);
+	}
+
+	@Override
+	public void getTileIDs(int ci, int cj, int[] dst, int dstPos, int length) {
+		IntBuffer run = tiles.duplicate();
+		run.position((ci << SHIFT) | cj);
+		run.get(dst, dstPos, length);
+	}
+
+	@Override
+	public int setTileIDs(int ci, int cj, int[] src, int srcPos, int length) {
+		int k = (ci << SHIFT) | cj;
+		int count = getTileCount();
+		for(int n = 0; n < length; n++)
+			countTile(k + n, tiles.get(k + n), src[srcPos + n]);
+		IntBuffer run = tiles.duplicate();
+		run.position(k);
+		run.put(src, srcPos, length);
+		return getTileCount() - count;
+	}
+
+	@Override
+	public int clearTiles(int ci, int cj, int length) {
+		int k = (ci << SHIFT) | cj;
+		int count = getTileCount();
+		for(int n = k; n < k + length; n++) {
+			int id = tiles.get(n);
+			if(id != 0) {
+				countTile(n, id, 0);
+				tiles.put(n, 0);
+			}
+		}
+		return count - getTileCount();
+	}
+
+	@Override
+	public Chunk createCopy(Object owner) {
+		int[] ids = new int[SIZE * SIZE];
+		tiles.duplicate().get(ids);
+		return store.createChunk(ids, getTileCount(), getHash(), owner);
+	}
+
+	/**
+	 * Tiles off the heap are not compressed
+	 */
+	@Override
+	public boolean compress() {
+		return false;
+	}
+
+	@Override
+	public void inflate() {
+		// tiles off the heap are never compressed
+	}
+
+	/**
+	 * @return the approximated number of bytes used by the chunk in the heap
+	 */
+	@Override
+	public long getBytes() {
+		return 32 + 48;
+	}
+}
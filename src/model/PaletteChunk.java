@@ -0,0 +1,340 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Chunk that keeps the distinct global ids of its tiles in a
+ * palette and, for each tile, the index of its id in the palette
+ * packed with 1, 2, 4, 8 or 16 bits, the fewest bits that hold
+ * the entries of the palette. Regions painted with a handful
+ * of tiles cost 1 to 4 bits per tile instead of an int.
+ * A new id is added to the palette when it is set, widening the
+ * indices when the palette is full; entries that are no longer
+ * used are dropped only when the palette is repacked, so the
+ * palette does not change while the same tiles are painted over
+ *
+ * @author	Pedro Sampaio
+ * @since	1.8
+ *
+ */
+public class PaletteChunk extends Chunk {
+
+	private static final int CELLS = SIZE * SIZE;	// number of tiles of a chunk
+
+	private int bits;			// bits of the index of each tile (1, 2, 4, 8 or 16)
+	private long[] indices;		// indices in the palette of the ids of the tiles, line by line
+	private int[] palette;		// distinct global ids of the tiles (entry 0 is always 0, no tile)
+	private int[] uses;			// number of tiles with each entry of the palette
+	private int paletteSize;	// number of entries of the palette
+	private int lastEntry;		// last entry found in the palette (runs of tiles repeat ids)
+
+	/**
+	 * Constructor for an empty chunk
+	 *
+	 * @param owner	token of the layer that is allowed to modify the chunk
+	 */
+	public PaletteChunk(Object owner) {
+		super(null, 0, 0, owner);
+		bits = 1;
+		indices = new long[CELLS * bits / 64];
+		palette = new int[2];
+		uses = new int[2];
+		uses[0] = CELLS;
+		paletteSize = 1;
+	}
+
+	/**
+	 * Constructor for copies
+	 *
+	 * @param chunk	the chunk to copy
+	 * @param owner	token of the layer that is allowed to modify the copy
+	 */
+	private PaletteChunk(PaletteChunk chunk, Object owner) {
+		super(null, chunk.getTileCount(), chunk.getHash(), owner);
+		bits = chunk.bits;
+		indices = chunk.indices.clone();
+		palette = Arrays.copyOf(chunk.palette, chunk.paletteSize);
+		uses = Arrays.copyOf(chunk.uses, chunk.paletteSize);
+		paletteSize = chunk.paletteSize;
+	}
+
+	/**
+	 * @param k	the index of the tile in the chunk (line by line)
+	 * @return	the entry of the palette of the tile
+	 */
+	private int entryAt(int k) {
+		int bit = k * bits;
+		return (int) (indices[bit >>> 6] >>> (bit & 63)) & ((1 << bits) - 1);
+	}
+
+	/**
+	 * @param k		the index of the tile in the chunk (line by line)
+	 * @param entry	the entry of the palette of the tile
+	 */
+	private void setEntryAt(int k, int entry) {
+		int bit = k * bits;
+		long mask = ((1L << bits) - 1) << (bit & 63);
+		indices[bit >>> 6] = (indices[bit >>> 6] & ~mask) | ((long) entry << (bit & 63));
+	}
+
+	/**
+	 * Finds the entry of an id in the palette, adding
+	 * it to the palette if the id is not in it yet
+	 *
+	 * @param id	the global id of the tile
+	 * @return	the entry of the id in the palette
+	 */
+	private int entryOf(int id) {
+		if(palette[lastEntry] == id)
+			return lastEntry;
+		for(int e = 0; e < paletteSize; e++) {
+			if(palette[e] == id)
+				return lastEntry = e;
+		}
+
+		// palette full: drops unused entries, widening indices if needed
+		if(paletteSize == 1 << bits)
+			repack(1);
+		if(paletteSize == palette.length) {
+			palette = Arrays.copyOf(palette, Math.min(paletteSize * 2, 1 << bits));
+			uses = Arrays.copyOf(uses, palette.length);
+		}
+		palette[paletteSize] = id;
+		uses[paletteSize] = 0;
+		return lastEntry = paletteSize++;
+	}
+
+	/**
+	 * Rebuilds the palette with only the entries used by tiles
+	 * (and the entry of empty tiles), packing the indices with
+	 * the fewest bits that hold them and a number of new entries
+	 *
+	 * @param room	the number of new entries the palette must have room for
+	 */
+	private void repack(int room) {
+		int[] remap = new int[paletteSize];
+		int live = 1;
+		for(int e = 1; e < paletteSize; e++)
+			remap[e] = uses[e] > 0 ? live++ : -1;
+
+		int newBits = 1;
+		while((1 << newBits) < live + room)
+			newBits <<= 1;
+
+		int[] newPalette = new int[Math.max(live + room, 2)];
+		int[] newUses = new int[newPalette.length];
+		for(int e = 0; e < paletteSize; e++) {
+			if(remap[e] >= 0) {
+				newPalette[remap[e]] = palette[e];
+				newUses[remap[e]] = uses[e];
+			}
+		}
+
+		long[] newIndices = new long[CELLS * newBits / 64];
+		for(int k = 0; k < CELLS; k++) {
+			int bit = k * newBits;
+			newIndices[bit >>> 6] |= (long) remap[entryAt(k)] << (bit & 63);
+		}
+
+		bits = newBits;
+		indices = newIndices;
+		palette = newPalette;
+		uses = newUses;
+		paletteSize = live;
+		lastEntry = 0;
+	}
+
+	@Override
+	public int getTileID(int ci, int cj) {
+		return palette[entryAt((ci << SHIFT) | cj)];
+	}
+
+	@Override
+	public void setTileID(int ci, int cj, int id) {
+		int k = (ci << SHIFT) | cj;
+		int oldID = palette[entryAt(k)];
+		if(oldID == id)
+			return;
+		// entry is found before reading the old one (palette may be repacked)
+		int entry = entryOf(id);
+		uses[entryAt(k)]--;
+		uses[entry]++;
+		setEntryAt(k, entry);
+		countTile(k, oldID, id);
+	}
+
+	@Override
+	public void getTileIDs(int ci, int cj, int[] dst, int dstPos, int length) {
+		int k = (ci << SHIFT) | cj;
+		for(int n = 0; n < length; n++)
+			dst[dstPos + n] = palette[entryAt(k + n)];
+	}
+
+	/**
+	 * Sets a run of tiles making room in the palette for the new ids
+	 * of the run at once, so the indices are packed with the same bits
+	 * during the whole run and each index is read and written once
+	 */
+	@Override
+	public int setTileIDs(int ci, int cj, int[] src, int srcPos, int length) {
+		int count = getTileCount();
+		reserve(src, srcPos, length);
+		int k = (ci << SHIFT) | cj;
+		long valueMask = (1L << bits) - 1;
+		for(int n = 0; n < length; n++, k++) {
+			int bit = k * bits;
+			int word = bit >>> 6, shift = bit & 63;
+			int old = (int) ((indices[word] >>> shift) & valueMask);
+			int oldID = palette[old];
+			int id = src[srcPos + n];
+			if(oldID == id)
+				continue;
+			// palette has room for the ids of the run (it is not repacked)
+			long[] packed = indices;
+			int entry = entryOf(id);
+			if(indices != packed) {
+				// indices were repacked anyway: entries and position of the index are taken again
+				valueMask = (1L << bits) - 1;
+				bit = k * bits;
+				word = bit >>> 6;
+				shift = bit & 63;
+				old = (int) ((indices[word] >>> shift) & valueMask);
+			}
+			uses[old]--;
+			uses[entry]++;
+			indices[word] = (indices[word] & ~(valueMask << shift)) | ((long) entry << shift);
+			countTile(k, oldID, id);
+		}
+		return getTileCount() - count;
+	}
+
+	/**
+	 * Makes room in the palette for the ids of a run that are
+	 * not in it yet or have no tiles, repacking it once if needed
+	 *
+	 * @param src		the array with the global ids of the tiles
+	 * @param srcPos	the position of the first tile in the array
+	 * @param length	the number of tiles of the run
+	 */
+	private void reserve(int[] src, int srcPos, int length) {
+		int missing = 0;
+		for(int n = 0; n < length; n++) {
+			int id = src[srcPos + n];
+			// runs repeat ids: ids equal to the previous one were already counted
+			if(n > 0 && src[srcPos + n - 1] == id)
+				continue;
+			// unused entries are dropped if the palette is repacked
+			int entry = indexOf(id);
+			if((entry >= 0 && uses[entry] > 0) || indexOf(src, srcPos, n, id))
+				continue;
+			missing++;
+		}
+		if(missing == 0)
+			return;
+		if(paletteSize + missing > 1 << bits)
+			repack(missing);
+		if(paletteSize + missing > palette.length) {
+			palette = Arrays.copyOf(palette, Math.min(Math.max(paletteSize * 2, paletteSize + missing), 1 << bits));
+			uses = Arrays.copyOf(uses, palette.length);
+		}
+	}
+
+	/**
+	 * @param id	the global id of a tile
+	 * @return	the entry of the id in the palette (-1 if it is not in the palette)
+	 */
+	private int indexOf(int id) {
+		for(int e = 0; e < paletteSize; e++) {
+			if(palette[e] == id)
+				return e;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param src		the array with the global ids of the tiles
+	 * @param srcPos	the position of the first tile in the array
+	 * @param length	the number of tiles to search
+	 * @param id		the global id to find
+	 * @return	if the id is in the first tiles of the run
+	 */
+	private static boolean indexOf(int[] src, int srcPos, int length, int id) {
+		for(int n = 0; n < length; n++) {
+			if(src[srcPos + n] == id)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Removes a run of tiles reading each index once and
+	 * skipping the words of indices without tiles
+	 */
+	@Override
+	public int clearTiles(int ci, int cj, int length) {
+		int count = getTileCount();
+		int k = (ci << SHIFT) | cj;
+		int end = k + length;
+		long valueMask = (1L << bits) - 1;
+		while(k < end) {
+			int bit = k * bits;
+			int word = bit >>> 6, shift = bit & 63;
+			// tiles of the run in the word of indices
+			int inWord = Math.min(end - k, (64 - shift) / bits);
+			long runMask = inWord * bits == 64 ? -1L : ((1L << (inWord * bits)) - 1) << shift;
+			if((indices[word] & runMask) != 0) {
+				for(int n = 0; n < inWord; n++) {
+					int entry = (int) ((indices[word] >>> (shift + n * bits)) & valueMask);
+					if(entry != 0) {
+						uses[entry]--;
+						uses[0]++;
+						countTile(k + n, palette[entry], 0);
+					}
+				}
+				indices[word] &= ~runMask;
+			}
+			k += inWord;
+		}
+		return count - getTileCount();
+	}
+
+	@Override
+	public Chunk createCopy(Object owner) {
+		return new PaletteChunk(this, owner);
+	}
+
+	/**
+	 * Palette chunks are already packed
+	 */
+	@Override
+	public boolean compress() {
+		return false;
+	}
+
+	@Override
+	public void inflate() {
+		// indices are always read packed
+	}
+
+	/**
+	 * @return the number of bits of the index of each tile
+	 */
+	public int getBits() {
+		return bits;
+	}
+
+	/**
+	 * @return the number of entries of the palette
+	 */
+	public int getPaletteSize() {
+		return paletteSize;
+	}
+
+	/**
+	 * @return the approximated number of bytes used by the chunk
+	 */
+	@Override
+	public long getBytes() {
+		return 32 + 40 + 16 + indices.length * 8L + 2 * (16 + palette.length * 4L);
+	}
+}
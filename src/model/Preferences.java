@@ -21,6 +21,7 @@ public class Preferences extends Observable{
 	public static Color selectionColor;					// tileset viewport's selection color
 	public static Color mapSelectionColor;				// map's viewport selection color
 	public static boolean viewportShowGrid;				// option to show or hide grid lines in viewport
+	public static boolean viewportShowColliders;		// option to show or hide colliders in viewport
 	
 	// mantains only one instance of preferences (singleton pattern)
 	private static Preferences instance = null;
@@ -53,6 +54,7 @@ public class Preferences extends Observable{
 		selectionColor = Color.BLUE;
 		mapSelectionColor = new Color(0.25f, 0.66f, 1f);
 		viewportShowGrid = true;
+		viewportShowColliders = true;
 	}
 	
 	public void dispatchChanges() {
@@ -16,10 +16,12 @@ public class Project {
 	private Map map;						// the map with all layers and tiles information
 	private ArrayList<Tileset> tilesets; 	// the list of tilesets contained in the project
 	private int tileSize;					// the size of the map's tile
-	private int mapSizeX;					// number of tiles in map on x-axis (columns)
-	private int mapSizeY;					// number of tiles in map on y-axis (lines)
+	private int mapSizeX;					// number of tiles in map on x-axis (columns, 0 for unbounded maps)
+	private int mapSizeY;					// number of tiles in map on y-axis (lines, 0 for unbounded maps)
+	private World world;					// the world of regions streamed in the map (null for projects of a single map)
 	
 	private boolean saved;					// if the project is up to date with the saved file
+	private long savedHash;					// content hash of the map when it was saved or loaded
 	private String[] saveInfo;				// save info from last save to quick save feature
 	
 	/**
@@ -33,7 +35,7 @@ public class Project {
 	 * @param mapSizeY	number of tiles in map on y-axis (lines)
 	 */
 	public Project(Map map, ArrayList<Tileset> tilesets, int tileSize, int mapSizeX, int mapSizeY) {
-		this.map = map;
+		setMap(map);
 		this.tilesets = tilesets;
 		this.tileSize = tileSize;
 		this.mapSizeX = mapSizeX;
@@ -70,8 +72,15 @@ public class Project {
 	 * @return the map with all layers and tiles information
 	 */
 	public Map getMap() {
-		if(map == null)
-			map = new Map();
+		if(map == null) {
+			// projects without dimensions have unbounded maps
+			// (new maps keep their tiles as configured in the program)
+			MapConfig config = MapConfig.getInstance();
+			if(mapSizeX > 0 && mapSizeY > 0)
+				setMap(new Map(mapSizeX, mapSizeY, config.getChunkStore(), config.isPaletteChunks()));
+			else
+				setMap(new Map(config.getChunkStore(), config.isPaletteChunks()));
+		}
 		return map;
 	}
 
@@ -80,6 +89,23 @@ public class Project {
 	 */
 	public void setMap(Map map) {
 		this.map = map;
+		// content of map is kept at this moment (map may be modified later)
+		if(map != null)
+			savedHash = map.getContentHash();
+	}
+
+	/**
+	 * Checks if a map has the same content of the map of
+	 * the project when it was set (saved or loaded),
+	 * comparing their content hashes
+	 * 
+	 * @author Pedro Sampaio
+	 * @since  1.8
+	 * @param map	the map to check
+	 * @return	true if the map has the content of the map of the project, false otherwise
+	 */
+	public boolean isSavedMap(Map map) {
+		return map.getContentHash() == savedHash;
 	}
 
 	/**
@@ -138,6 +164,20 @@ public class Project {
 		this.mapSizeY = mapSizeY;
 	}
 
+	/**
+	 * @return the world of regions streamed in the map (null for projects of a single map)
+	 */
+	public World getWorld() {
+		return world;
+	}
+
+	/**
+	 * @param world the world of regions streamed in the map (null for projects of a single map)
+	 */
+	public void setWorld(World world) {
+		this.world = world;
+	}
+
 	/**
 	 * @return if the project is up to date with the saved file
 	 */
@@ -0,0 +1,376 @@
+package model;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ * Class that represents a selection of tiles of a map layer
+ * or of a tileset, as a bitset with one bit for each position
+ * (bit i * width + j for the position in line i and column j
+ * relative to the origin of the selection).
+ * Membership and toggling are done in constant time, rectangles
+ * are filled word by word and the selected positions are
+ * iterated skipping empty words. Bits are only allocated
+ * when the first position is selected. Selections of unbounded
+ * maps start at the origin of the canvas of the map, so bit
+ * b is the position in line originI + b / width and column
+ * originJ + b % width (the origin of other selections is 0).
+ * The anchor of the selection is the first position selected,
+ * used to position the selection when brushing it on the map
+ *
+ * @author	Pedro Sampaio
+ * @since	1.8
+ *
+ */
+public class Selection {
+
+	private int originI;		// line of the first position of the selection
+	private int originJ;		// column of the first position of the selection
+	private int width;			// number of positions on x-axis (columns)
+	private int height;			// number of positions on y-axis (lines)
+	private long[] bits;		// bits of the selected positions (null if nothing was selected yet)
+	private int count;			// number of selected positions
+	private int anchorI;		// the i-index (line) of the anchor of the selection
+	private int anchorJ;		// the j-index (column) of the anchor of the selection
+
+	/**
+	 * Constructor for an empty selection
+	 *
+	 * @param width		number of positions on x-axis (columns)
+	 * @param height	number of positions on y-axis (lines)
+	 */
+	public Selection(int width, int height) {
+		this(0, 0, width, height);
+	}
+
+	/**
+	 * Constructor for an empty selection of positions
+	 * starting at a given origin
+	 *
+	 * @param originI	line of the first position of the selection
+	 * @param originJ	column of the first position of the selection
+	 * @param width		number of positions on x-axis (columns)
+	 * @param height	number of positions on y-axis (lines)
+	 */
+	public Selection(int originI, int originJ, int width, int height) {
+		this.originI = originI;
+		this.originJ = originJ;
+		this.width = width;
+		this.height = height;
+		anchorI = anchorJ = -1;
+	}
+
+	/**
+	 * @return the bits of the selection (allocated if needed)
+	 */
+	private long[] writableBits() {
+		if(bits == null)
+			bits = new long[(int) (((long) width * height + 63) >>> 6)];
+		return bits;
+	}
+
+	/**
+	 * @param i	the i-index (line) of the position
+	 * @param j	the j-index (column) of the position
+	 * @return	if the position is inside the bounds of the selection
+	 */
+	private boolean inBounds(int i, int j) {
+		return i >= originI && j >= originJ && i < originI + height && j < originJ + width;
+	}
+
+	/**
+	 * @param i	the i-index (line) of the position
+	 * @param j	the j-index (column) of the position
+	 * @return	the bit of the position (must be inside the bounds of the selection)
+	 */
+	private int bitOf(int i, int j) {
+		return (i - originI) * width + (j - originJ);
+	}
+
+	/**
+	 * @param i	the i-index (line) of the position
+	 * @param j	the j-index (column) of the position
+	 * @return	if the position is selected
+	 */
+	public boolean contains(int i, int j) {
+		if(bits == null || !inBounds(i, j))
+			return false;
+		int bit = bitOf(i, j);
+		return (bits[bit >>> 6] & (1L << bit)) != 0;
+	}
+
+	/**
+	 * Selects a position (positions out of bounds are ignored)
+	 *
+	 * @param i	the i-index (line) of the position
+	 * @param j	the j-index (column) of the position
+	 */
+	public void add(int i, int j) {
+		if(!inBounds(i, j) || contains(i, j))
+			return;
+		int bit = bitOf(i, j);
+		writableBits()[bit >>> 6] |= 1L << bit;
+		if(count++ == 0)
+			setAnchor(i, j);
+	}
+
+	/**
+	 * Deselects a position
+	 *
+	 * @param i	the i-index (line) of the position
+	 * @param j	the j-index (column) of the position
+	 */
+	public void remove(int i, int j) {
+		if(!contains(i, j))
+			return;
+		int bit = bitOf(i, j);
+		bits[bit >>> 6] &= ~(1L << bit);
+		count--;
+		// anchor moves to the first position still selected
+		if(i == anchorI && j == anchorJ) {
+			int first = next(0);
+			if(first < 0)
+				anchorI = anchorJ = -1;
+			else
+				setAnchor(getLine(first), getColumn(first));
+		}
+	}
+
+	/**
+	 * Selects a position if it is not selected,
+	 * deselects it otherwise
+	 *
+	 * @param i	the i-index (line) of the position
+	 * @param j	the j-index (column) of the position
+	 */
+	public void toggle(int i, int j) {
+		if(contains(i, j))
+			remove(i, j);
+		else
+			add(i, j);
+	}
+
+	/**
+	 * Replaces the selection with all positions of a rectangle
+	 * (clamped to the bounds of the selection), filling the
+	 * bits of each line of the rectangle word by word
+	 *
+	 * @param minI	the first line of the rectangle
+	 * @param minJ	the first column of the rectangle
+	 * @param maxI	the last line of the rectangle (inclusive)
+	 * @param maxJ	the last column of the rectangle (inclusive)
+	 */
+	public void selectRect(int minI, int minJ, int maxI, int maxJ) {
+		clear();
+		minI = Math.max(minI, originI); minJ = Math.max(minJ, originJ);
+		maxI = Math.min(maxI, originI + height - 1); maxJ = Math.min(maxJ, originJ + width - 1);
+		if(minI > maxI || minJ > maxJ)
+			return;
+		long[] bits = writableBits();
+		for(int i = minI; i <= maxI; i++) {
+			int from = bitOf(i, minJ);
+			int to = bitOf(i, maxJ) + 1;
+			int fromWord = from >>> 6;
+			int toWord = (to - 1) >>> 6;
+			long firstMask = -1L << from;
+			long lastMask = -1L >>> -to;
+			if(fromWord == toWord)
+				bits[fromWord] |= firstMask & lastMask;
+			else {
+				bits[fromWord] |= firstMask;
+				for(int w = fromWord + 1; w < toWord; w++)
+					bits[w] = -1L;
+				bits[toWord] |= lastMask;
+			}
+		}
+		count = (maxI - minI + 1) * (maxJ - minJ + 1);
+		setAnchor(minI, minJ);
+	}
+
+	/**
+	 * Deselects all positions
+	 */
+	public void clear() {
+		if(bits != null && count > 0)
+			Arrays.fill(bits, 0);
+		count = 0;
+		anchorI = anchorJ = -1;
+	}
+
+	/**
+	 * Finds the next selected position, skipping empty words
+	 * (iterate with {@code for(int b = next(0); b >= 0; b = next(b + 1))},
+	 * the position of a bit b is line getLine(b) and column getColumn(b))
+	 *
+	 * @param from	the bit to start the search from (inclusive)
+	 * @return	the bit of the next selected position (-1 if there is none)
+	 */
+	public int next(int from) {
+		if(bits == null || count == 0 || from < 0)
+			return -1;
+		int w = from >>> 6;
+		if(w >= bits.length)
+			return -1;
+		long word = bits[w] & (-1L << from);
+		while(word == 0) {
+			if(++w == bits.length)
+				return -1;
+			word = bits[w];
+		}
+		return (w << 6) + Long.numberOfTrailingZeros(word);
+	}
+
+	/**
+	 * Finds the next position that is not selected, skipping
+	 * full words (the end of a run of selected positions
+	 * started at a bit b is {@code nextClear(b)})
+	 *
+	 * @param from	the bit to start the search from (inclusive)
+	 * @return	the bit of the next position not selected
+	 * 			(width * height if all following positions are selected)
+	 */
+	public int nextClear(int from) {
+		int end = width * height;
+		if(bits == null || from >= end)
+			return Math.min(Math.max(from, 0), end);
+		from = Math.max(from, 0);
+		int w = from >>> 6;
+		long word = ~bits[w] & (-1L << from);
+		while(word == 0) {
+			if(++w == bits.length)
+				return end;
+			word = ~bits[w];
+		}
+		return Math.min((w << 6) + Long.numberOfTrailingZeros(word), end);
+	}
+
+	/**
+	 * Finds the previous selected position, skipping empty words
+	 *
+	 * @param from	the bit to start the search from (inclusive)
+	 * @return	the bit of the previous selected position (-1 if there is none)
+	 */
+	public int previous(int from) {
+		if(bits == null || count == 0 || from < 0)
+			return -1;
+		int w = from >>> 6;
+		long word;
+		if(w >= bits.length) {
+			w = bits.length - 1;
+			word = bits[w];
+		}
+		else
+			word = bits[w] & (-1L >>> (63 - (from & 63)));
+		while(word == 0) {
+			if(--w < 0)
+				return -1;
+			word = bits[w];
+		}
+		return (w << 6) + 63 - Long.numberOfLeadingZeros(word);
+	}
+
+	/**
+	 * Gets the bounding box of the selected positions, visiting
+	 * only the first and last selected position of each line
+	 *
+	 * @return	the bounding box of the selection (x for columns, y for lines)
+	 * 			or null if the selection is empty
+	 */
+	public Rectangle getBounds() {
+		if(count == 0)
+			return null;
+		int minI = next(0) / width, maxI = minI;
+		int minJ = width, maxJ = -1;
+		// first and last selected positions of each line with selected positions
+		for(int b = next(0); b >= 0; b = next((maxI + 1) * width)) {
+			maxI = b / width;
+			minJ = Math.min(minJ, b - maxI * width);
+			maxJ = Math.max(maxJ, previous((maxI + 1) * width - 1) - maxI * width);
+		}
+		return new Rectangle(originJ + minJ, originI + minI, maxJ - minJ + 1, maxI - minI + 1);
+	}
+
+	/**
+	 * @param b	the bit of a position
+	 * @return	the i-index (line) of the position
+	 */
+	public int getLine(int b) {
+		return originI + b / width;
+	}
+
+	/**
+	 * @param b	the bit of a position
+	 * @return	the j-index (column) of the position
+	 */
+	public int getColumn(int b) {
+		return originJ + b % width;
+	}
+
+	/**
+	 * @return if there are no selected positions
+	 */
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	/**
+	 * @return the number of selected positions
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * @return the line of the first position of the selection
+	 */
+	public int getOriginI() {
+		return originI;
+	}
+
+	/**
+	 * @return the column of the first position of the selection
+	 */
+	public int getOriginJ() {
+		return originJ;
+	}
+
+	/**
+	 * @return the number of positions on x-axis (columns)
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the number of positions on y-axis (lines)
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return the i-index (line) of the anchor of the selection (-1 if empty)
+	 */
+	public int getAnchorI() {
+		return anchorI;
+	}
+
+	/**
+	 * @return the j-index (column) of the anchor of the selection (-1 if empty)
+	 */
+	public int getAnchorJ() {
+		return anchorJ;
+	}
+
+	/**
+	 * Sets the anchor of the selection, the position used
+	 * as reference to brush the selection on the map
+	 *
+	 * @param i	the i-index (line) of the anchor
+	 * @param j	the j-index (column) of the anchor
+	 */
+	public void setAnchor(int i, int j) {
+		anchorI = i;
+		anchorJ = j;
+	}
+}
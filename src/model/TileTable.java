@@ -0,0 +1,225 @@
+package model;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * Class that maps the global id of a tile to its descriptor:
+ * the tileset that contains the tile, its indexes in the tileset
+ * and the source rectangle of the tile in the tileset image.
+ * Descriptors are shared by all layers of the map, so layers
+ * only need to store the global ids of their tiles
+ *
+ * @author	Pedro Sampaio
+ * @since	1.8
+ *
+ */
+public class TileTable {
+
+	private static final int MAX_SPARSE_RATIO = 4;	// maximum ratio between the size of dense table and the number of tiles
+
+	private Tile[] tiles;				// tile descriptors indexed by global id (null if no tileset contains the id)
+	private Rectangle[] sourceRects;	// source rectangles of tiles in their tileset images indexed by global id
+	private int[] firstIDs;				// first ids of tilesets sorted in ascending order (for sparse id ranges)
+	private Tile[][] tilesetTiles;		// tile descriptors of each tileset in the order of first ids (for sparse id ranges)
+	private Rectangle[][] tilesetRects;	// source rectangles of each tileset in the order of first ids (for sparse id ranges)
+	private int tilesetCount;			// the number of tilesets used to build the table
+
+	/**
+	 * Constructor that builds the table with the
+	 * tiles of all tilesets received, using the
+	 * first id and tile count of each tileset.
+	 * Tables are indexed directly by global id, unless
+	 * the ids are too sparse (first ids far apart), when
+	 * tilesets are found by binary search over first ids
+	 *
+	 * @param tilesets	the tilesets that will compose the table
+	 */
+	public TileTable(ArrayList<Tileset> tilesets) {
+		tilesetCount = tilesets.size();
+		// finds the size of the table (biggest global id + 1) and the number of tiles
+		long size = 1;
+		long count = 0;
+		for(int t = 0; t < tilesets.size(); t++) {
+			size = Math.max(size, (long) tilesets.get(t).getFirstID() + tilesets.get(t).getTileCount());
+			count += tilesets.get(t).getTileCount();
+		}
+
+		if(size <= MAX_SPARSE_RATIO * count + 1024)
+			buildDense(tilesets, (int) size);
+		else
+			buildSparse(tilesets);
+	}
+
+	/**
+	 * Builds the table indexed directly by global id
+	 *
+	 * @param tilesets	the tilesets that will compose the table
+	 * @param size		the size of the table (biggest global id + 1)
+	 */
+	private void buildDense(ArrayList<Tileset> tilesets, int size) {
+		tiles = new Tile[size];
+		sourceRects = new Rectangle[size];
+
+		// creates descriptors for each tile of each tileset
+		for(int t = 0; t < tilesets.size(); t++) {
+			Tileset ts = tilesets.get(t);
+			for(int k = 0; k < ts.getTileCount(); k++) {
+				int id = ts.getFirstID() + k;
+				// first come, first served in case of overlapping id ranges (same as map loading search)
+				if(id <= 0 || tiles[id] != null)
+					continue;
+				tiles[id] = createTile(ts, k);
+				sourceRects[id] = calculateSourceRect(ts, tiles[id].getIndexI(), tiles[id].getIndexJ());
+			}
+		}
+	}
+
+	/**
+	 * Builds the table of each tileset sorted by first id,
+	 * to find the tileset of a global id by binary search
+	 *
+	 * @param tilesets	the tilesets that will compose the table
+	 */
+	private void buildSparse(ArrayList<Tileset> tilesets) {
+		// sorts tilesets by first id (stable: first come, first served for equal first ids)
+		ArrayList<Tileset> sorted = new ArrayList<Tileset>(tilesets);
+		Collections.sort(sorted, new Comparator<Tileset>() {
+			@Override
+			public int compare(Tileset a, Tileset b) {
+				return Integer.compare(a.getFirstID(), b.getFirstID());
+			}
+		});
+
+		firstIDs = new int[sorted.size()];
+		tilesetTiles = new Tile[sorted.size()][];
+		tilesetRects = new Rectangle[sorted.size()][];
+		for(int t = 0; t < sorted.size(); t++) {
+			Tileset ts = sorted.get(t);
+			firstIDs[t] = ts.getFirstID();
+			tilesetTiles[t] = new Tile[ts.getTileCount()];
+			tilesetRects[t] = new Rectangle[ts.getTileCount()];
+			for(int k = 0; k < ts.getTileCount(); k++) {
+				tilesetTiles[t][k] = createTile(ts, k);
+				tilesetRects[t][k] = calculateSourceRect(ts, tilesetTiles[t][k].getIndexI(), tilesetTiles[t][k].getIndexJ());
+			}
+		}
+	}
+
+	/**
+	 * Creates the shared descriptor of a tile
+	 *
+	 * @param ts	the tileset of the tile
+	 * @param k		the index of the tile in the tileset (line by line)
+	 * @return	the descriptor of the tile
+	 */
+	private static Tile createTile(Tileset ts, int k) {
+		int indexI = k / ts.getTileSizeX();
+		int indexJ = k % ts.getTileSizeX();
+		Tile tile = new Tile(indexI, indexJ, ts, ts.getFirstID() + k, 0, 0);
+		tile.setComplete(true);
+		return tile;
+	}
+
+	/**
+	 * Finds the tileset that contains a global id
+	 * by binary search over the sorted first ids
+	 *
+	 * @param id	the global id of the tile
+	 * @return	the position of the tileset in the sorted first ids or -1 if no tileset contains the id
+	 */
+	private int findTileset(int id) {
+		int low = 0, high = firstIDs.length - 1, found = -1;
+		// finds last tileset with first id not bigger than id
+		while(low <= high) {
+			int mid = (low + high) >>> 1;
+			if(firstIDs[mid] <= id) {
+				found = mid;
+				low = mid + 1;
+			}
+			else
+				high = mid - 1;
+		}
+		if(found < 0 || id - firstIDs[found] >= tilesetTiles[found].length)
+			return -1;
+		return found;
+	}
+
+	/**
+	 * Calculates the rectangle of a tile in the tileset image
+	 * clamping it to the image bounds
+	 *
+	 * @param ts		the tileset of the tile
+	 * @param indexI	the i-index (line) of the tile in tileset
+	 * @param indexJ	the j-index (column) of the tile in tileset
+	 * @return	the source rectangle of the tile in the tileset image
+	 */
+	private static Rectangle calculateSourceRect(Tileset ts, int indexI, int indexJ) {
+		int imgWidth = ts.getImage().getWidth();
+		int imgHeight = ts.getImage().getHeight();
+		int tSize = ts.getTileSize();
+
+		// clamps for image source bounds
+		int sImgX = indexJ * tSize; int sImgY = indexI * tSize;
+		int tileSizeX = Math.min(tSize, imgWidth); int tileSizeY = Math.min(tSize, imgHeight);
+		if(sImgX + tileSizeX > imgWidth) // raster limit on X
+			sImgX = imgWidth - tileSizeX;
+		if(sImgY + tileSizeY > imgHeight) // raster limit on Y
+			sImgY = imgHeight - tileSizeY;
+		if(sImgX < 0) sImgX = 0;
+		if(sImgY < 0) sImgY = 0;
+
+		return new Rectangle(sImgX, sImgY, tileSizeX, tileSizeY);
+	}
+
+	/**
+	 * @return the number of tilesets used to build the table
+	 */
+	public int getTilesetCount() {
+		return tilesetCount;
+	}
+
+	/**
+	 * @param id	the global id of the tile
+	 * @return	the shared descriptor of the tile or null if there is no tile with the given id
+	 */
+	public Tile getTile(int id) {
+		if(id <= 0)
+			return null;
+		if(tiles == null) {
+			int t = findTileset(id);
+			return t < 0 ? null : tilesetTiles[t][id - firstIDs[t]];
+		}
+		if(id >= tiles.length)
+			return null;
+		return tiles[id];
+	}
+
+	/**
+	 * @param id	the global id of the tile
+	 * @return	the tileset that contains the tile or null if there is no tile with the given id
+	 */
+	public Tileset getTileset(int id) {
+		Tile tile = getTile(id);
+		return tile == null ? null : tile.getTileset();
+	}
+
+	/**
+	 * @param id	the global id of the tile
+	 * @return	the source rectangle of the tile in its tileset image or null if there is no tile with the given id
+	 */
+	public Rectangle getSourceRect(int id) {
+		if(id <= 0)
+			return null;
+		if(sourceRects == null) {
+			int t = findTileset(id);
+			return t < 0 ? null : tilesetRects[t][id - firstIDs[t]];
+		}
+		if(id >= sourceRects.length)
+			return null;
+		return sourceRects[id];
+	}
+
+}
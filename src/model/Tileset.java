@@ -2,7 +2,6 @@ package model;
 
 import java.awt.Image;
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
 import java.util.Observable;
 
 /**
@@ -26,7 +25,7 @@ public class Tileset extends Observable {
 	private Image image;		// the source image of the tileset
 	private String imagePath;	// the image path for the tileset
 	
-	private ArrayList<Tile> selectedTiles;		// list of current selected tiles in viewport
+	private Selection selection;		// current selected tiles in viewport
 
 	
 	
@@ -44,7 +43,7 @@ public class Tileset extends Observable {
 		this.setTileSize(tileSize);
 		this.setImage(image);
 		this.setImagePath(imagePath);
-		this.setFirstID(firstID);
+		this.firstID = firstID;		// a new tileset is not in the table of loaded tiles yet
 		
 		// never let tilesize be bigger than image 
 		if(image.getHeight(null) < tileSize)
@@ -61,7 +60,7 @@ public class Tileset extends Observable {
 
 		this.tileCount = this.tileSizeX * this.tileSizeY;
 		
-		selectedTiles = new ArrayList<Tile>(); // initializes list of selected tiles
+		selection = new Selection(tileSizeX, tileSizeY); // initializes selection of tiles
 	}
 	
 	/**
@@ -80,7 +79,7 @@ public class Tileset extends Observable {
 		this.setTileSize(tileSize);
 		this.setImage(image);
 		this.setImagePath(imagePath);
-		this.setFirstID(firstID);
+		this.firstID = firstID;		// a new tileset is not in the table of loaded tiles yet
 		this.tileCount = tilecount;
 		
 		// never let tilesize be bigger than image 
@@ -96,7 +95,7 @@ public class Tileset extends Observable {
 		this.tileSizeX = (int) Math.ceil(image.getWidth(null)/(float)(tileSize));
 		this.tileSizeY = (int) Math.ceil(image.getHeight(null)/(float)(tileSize));
 		
-		selectedTiles = new ArrayList<Tile>(); // initializes list of selected tiles
+		selection = new Selection(tileSizeX, tileSizeY); // initializes selection of tiles
 	}
 	
 	/**
@@ -128,6 +127,9 @@ public class Tileset extends Observable {
 	 * @param firstID the firstID to set
 	 */
 	public void setFirstID(int firstID) {
+		// global ids of tiles changed
+		if(this.firstID != firstID)
+			TilesetConfig.getInstance().invalidateTileTable();
 		this.firstID = firstID;
 	}
 
@@ -195,17 +197,17 @@ public class Tileset extends Observable {
 	}
 
 	/**
-	 * @return the selectedTiles list, a list of current selected tiles in viewport
+	 * @return the selection of current selected tiles in viewport
 	 */
-	public ArrayList<Tile> getSelectedTiles() {
-		return selectedTiles;
+	public Selection getSelection() {
+		return selection;
 	}
 
 	/**
-	 * @param selectedTiles the selectedTiles to set
+	 * @param selection the selection to set
 	 */
-	public void setSelectedTiles(ArrayList<Tile> selectedTiles) {
-		this.selectedTiles = selectedTiles;
+	public void setSelection(Selection selection) {
+		this.selection = selection;
 	}
 	
 	/**
@@ -26,6 +26,7 @@ public class TilesetConfig extends Observable{
 
 	private int currentTilesetIdx;		// the index of the current loaded tileset on the tilesets list
 	private ArrayList<Tileset> tilesets; // the list of the loaded tilesets on the program
+	private TileTable tileTable;		// the descriptors of all tiles of the loaded tilesets indexed by global id
 
 	// mantains only one instance of map config (singleton pattern)
 	private static TilesetConfig instance = null;
@@ -39,7 +40,7 @@ public class TilesetConfig extends Observable{
 	 * @return returns map config instance
 	 * creates the instance if does not exist yet
 	 */
-	public static TilesetConfig getInstance() {
+	public static synchronized TilesetConfig getInstance() {
 		if(instance == null)
 			instance = new TilesetConfig();
 
@@ -135,6 +136,54 @@ public class TilesetConfig extends Observable{
 		return firstID;
 	}
 
+	/**
+	 * @author Pedro Sampaio
+	 * @since 1.8
+	 * @return the table of tile descriptors of the loaded tilesets
+	 * 		   (rebuilt if the loaded tilesets changed since it was built,
+	 * 		   synchronized since threads of batch jobs may rebuild it)
+	 */
+	public synchronized TileTable getTileTable() {
+		// tilesets added directly to the list also rebuild the table
+		if(tileTable == null || tileTable.getTilesetCount() != tilesets.size())
+			tileTable = new TileTable(tilesets);
+		return tileTable;
+	}
+
+	/**
+	 * Discards the table of tile descriptors, to be rebuilt
+	 * on next access (first ids of tilesets changed)
+	 * 
+	 * @author Pedro Sampaio
+	 * @since 1.8
+	 */
+	public synchronized void invalidateTileTable() {
+		tileTable = null;
+	}
+
+	/**
+	 * Adds a tileset to the end of the list of loaded tilesets
+	 * 
+	 * @author Pedro Sampaio
+	 * @since 1.8
+	 * @param tileset	the tileset to add
+	 */
+	public synchronized void addTileset(Tileset tileset) {
+		tilesets.add(tileset);
+		tileTable = null;
+	}
+
+	/**
+	 * Removes all the loaded tilesets
+	 * 
+	 * @author Pedro Sampaio
+	 * @since 1.8
+	 */
+	public synchronized void clearTilesets() {
+		tilesets.clear();
+		tileTable = null;
+	}
+
 	/**
 	 * @return the current loaded tileset on the tilesets list
 	 */
@@ -166,8 +215,9 @@ public class TilesetConfig extends Observable{
 	/**
 	 * @param tilesets the list of the loaded tilesets on the program
 	 */
-	public void setTilesets(ArrayList<Tileset> tilesets) {
+	public synchronized void setTilesets(ArrayList<Tileset> tilesets) {
 		this.tilesets = tilesets;
+		tileTable = null;
 	}
 
 	/**
@@ -1,6 +1,7 @@
 package model;
 
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.util.ArrayList;
 import java.util.Observable;
 
@@ -31,6 +32,8 @@ public class Tool extends Observable {
 
 	private Point eraseTilePoint;			// current tile below mouse (for erase tool preview)
 	
+	private Point brushTilePoint;			// current tile below mouse (for brush tool preview of tileset selection)
+	
 	private boolean trigger;			// player selected trigger for collider tool?
 
 	/**
@@ -65,6 +68,7 @@ public class Tool extends Observable {
 		// Exists only to defeat instantiation.
 		currentTool = SelectTools.BRUSH;			// starts with brush tool selected
 		eraseTilePoint = new Point(-1000,-1000);	// initializes offscreen erase tile point anchor
+		brushTilePoint = new Point(-1000,-1000);	// initializes offscreen brush tile point anchor
 		trigger = false; // initially trigger is false
 	}
 
@@ -79,6 +83,23 @@ public class Tool extends Observable {
 		return instance;
 	}
 
+	/**
+	 * Finds the position in map of the tile below a point
+	 * of the map's viewport, where the first tile drawn
+	 * is the origin of the map (the first tile of the canvas
+	 * of unbounded maps, that may be a negative position)
+	 * 
+	 * @author	Pedro Sampaio
+	 * @since	1.8
+	 * @param 	relativePoint 	the position relative to the scroll of the viewport
+	 * @param	map				the map shown in the viewport
+	 * @return	the tile coords in map (x for column, y for line)
+	 */
+	public static Point getTilePosition(Point relativePoint, Map map) {
+		int tileZoomed = MapConfig.getInstance().getTileZoomed();
+		return new Point(relativePoint.x / tileZoomed + map.getOriginJ(), relativePoint.y / tileZoomed + map.getOriginI());
+	}
+
 	/**
 	 * Adds all selected tiles in tileset 
 	 * in the 2d map in the corresponding layer.
@@ -94,238 +115,176 @@ public class Tool extends Observable {
 	 */
 	public static void brushTiles(Point relativePoint, MapState mapStates, Tileset tileset, boolean hover) {
 		// selected tiles
-		ArrayList<Tile> tsSelTiles = tileset.getSelectedTiles();    	
+		Selection selection = tileset.getSelection();
 
 		// if there are no selected tiles there is no need to brush
-		if(tileset.getSelectedTiles().isEmpty()) {
+		if(selection.isEmpty()) {
 			return;
 		}          
 
-		// get coords in tileset of first tile to be the anchor of positioning
-		Point tileAnchor = new Point(tsSelTiles.get(0).getIndexJ(),tsSelTiles.get(0).getIndexI());
+		// get coords in tileset of anchor tile of selection for positioning
+		Point tileAnchor = new Point(selection.getAnchorJ(), selection.getAnchorI());
 
 		// gets tile coords relative to the click scroll-relative position
-		Point tileClicked	= new Point(relativePoint.x / MapConfig.getTileZoomed(), 
-				relativePoint.y /  MapConfig.getTileZoomed());
+		Point tileClicked	= getTilePosition(relativePoint, mapStates.getCurrentMap());
+
+		// updates brush tile point for pre-visualizing selected tiles
+		Tool.getInstance().setBrushTilePoint(tileClicked);
 
-		// gets map in current state (creates a copy to add to state list)
-		Map currentMap = mapStates.getCurrentMap().createCopy();
+		// if brush is for hover visualization, dont add selection to data
+		if(hover)
+			return;
 
-		// current map copy must not be the same object as the original
-		assert(!currentMap.equals(mapStates.getCurrentMap()));
+		// gets the working map of the edit in course (the stroke of the
+		// tool or, out of strokes, an edit of this brush only)
+		boolean stroke = mapStates.isEditing();
+		Map currentMap = mapStates.beginEdit();
 
 		// gets layers of current map state
 		ArrayList<Layer> layers = currentMap.getLayers();
 
-		// current map copy layers must not be the same object as the original
-		assert(!layers.equals(mapStates.getCurrentMap().getLayers()));
-
-		// current map copy tiles must not be the same object as the original
-		assert(!layers.get(0).getTiles().equals(mapStates.getCurrentMap().getLayers().get(0).getTiles()));
+		// occupied layers of each position of the map
+		DepthMap depthMap = currentMap.getDepthMap();
 
+		// bool that represents if a tile was added to the map
+		boolean tileAdded = false;
 
 		// iterates through selected tiles positioning them
-		// in their respective positions anchored by the first tile in selection
-		for(int i = 0; i < tsSelTiles.size(); i++) {
-			// the position after using top left tile as anchor
+		// in their respective positions anchored by the anchor tile of selection
+		for(int b = selection.next(0); b >= 0; b = selection.next(b + 1)) {
+			// position of the tile in tileset
+			int tsI = b / selection.getWidth();
+			int tsJ = b % selection.getWidth();
+
+			// the position after using anchor tile as reference
 			Point offsetPos = new Point (
-					tileClicked.x - (tileAnchor.x - tsSelTiles.get(i).getIndexJ()),
-					tileClicked.y - (tileAnchor.y - tsSelTiles.get(i).getIndexI())
+					tileClicked.x - (tileAnchor.x - tsJ),
+					tileClicked.y - (tileAnchor.y - tsI)
 					);         		
 
-			// create tile to add in a layer of the map in the current state
-			Tile newTile = new Tile(tsSelTiles.get(i).getIndexI(), tsSelTiles.get(i).getIndexJ(), tileset);
-			// adds map draw coords to complete necessary information for pre-visualiazing selected tiles
-			newTile.setDrawI(offsetPos.y); newTile.setDrawJ(offsetPos.x); newTile.setComplete(true);
-			// updates list with all needed info
-			tsSelTiles.set(i, newTile);
-
 			// if tile is out of world bounds, do not add it to the map
-			if(offsetPos.x < 0 || offsetPos.y < 0 || offsetPos.x > 
-			(MapConfig.mapSizeX-1) || offsetPos.y > (MapConfig.mapSizeY-1))
+			if(!currentMap.contains(offsetPos.y, offsetPos.x))
 				continue;
 
-			// if brush is for hover visualization, dont add selection to data
-			if(hover)
-				continue;
+			// global id of the tile (tileset's first id plus position of tile in tileset)
+			int id = tileset.getFirstID() + (tsI * tileset.getTileSizeX()) + tsJ;
 
-			// flag that represents if a layer with a free spot was found for the tile
-			boolean foundLayer = false;
-
-			// finds layer of the tile (if its on top of another tile, creates a new layer)
-			// iterating ascending through layers until find a empty spot for the tile
-			// creating new layer if needed
-			for(int j = 0; j < layers.size(); j++) {
-				// get tiles from the iteration layer
-				Tile[][] iterTiles = layers.get(j).getTiles();
-
-				// if position is free on layer tiles, found a layer for the tile
-				if(iterTiles[offsetPos.y][offsetPos.x] == null) {
-					// adds tile to the free position
-					iterTiles[offsetPos.y][offsetPos.x] = newTile;
-					// updates found layer bool to true
-					foundLayer = true;
-
-					// breaks search for spot
-					break;
-				}
-			}
+			// finds layer of the tile (if its on top of another tile, creates a new layer):
+			// the lowest layer with an empty spot for the tile, found in the depth map
+			int freeLayer = depthMap.getFreeLayer(offsetPos.y, offsetPos.x);
 
+			// if position is free on a layer, adds tile to the free position
+			if(freeLayer < layers.size())
+				depthMap.setTileID(freeLayer, offsetPos.y, offsetPos.x, id);
 			// if layer wasnt found in existing ones, creates another one (if max layers not exceeded)
-			if(!foundLayer) {
-				if(layers.size() < MapConfig.getInstance().getMaxLayers()) {
-					// creates new layer on top of others (last pos of layers list)
-					Layer newLayer = new Layer(layers.size(), 1f);
-					// adds tile to the new layers tiles matrix
-					newLayer.getTiles()[offsetPos.y][offsetPos.x] = newTile;
-					// adds layers to the list of layers in the map
-					layers.add(newLayer);
-
-					if(Config.debug)
-						System.out.println("Map: Layer"+layers.size()+" created for tile: "+offsetPos);
-				}
-				else { // removes top layer object and puts new object
-					Layer topLayer = layers.get(layers.size()-1);
-					topLayer.getTiles()[offsetPos.y][offsetPos.x] = newTile;
-				}
+			else if(layers.size() < MapConfig.getInstance().getMaxLayers()) {
+				// creates new layer on top of others (last pos of layers list)
+				// and adds layers to the list of layers in the map
+				depthMap.addLayer(currentMap.createLayer(layers.size(), 1f));
+				// adds tile to the new layers tiles matrix
+				depthMap.setTileID(layers.size()-1, offsetPos.y, offsetPos.x, id);
+
+				if(Config.debug)
+					System.out.println("Map: Layer"+layers.size()+" created for tile: "+offsetPos);
 			}
+			else // removes top layer object and puts new object
+				depthMap.setTileID(layers.size()-1, offsetPos.y, offsetPos.x, id);
 
-
-			// adds new state to the map states if its time to save (mouse released)
-			if(ViewMapControl.saveState) {
-				mapStates.AddState(currentMap); // addstate already notify observers
-				ViewMapControl.saveState = false;
-			} // if its not time to save
-			else // updates current state (update state method notify observers already)
-				mapStates.UpdateState(currentMap);
-
+			tileAdded = true;
 		}
 
+		// all tiles of the brush are added to the edit in course
+		if(tileAdded)
+			mapStates.applyEdit(); // apply edit already notify observers
+		// brushes out of strokes are recorded as a single state
+		if(!stroke)
+			mapStates.commitEdit();
+
 	}   
 
 	/**
-	 * Adds all copied tiles from clipboard 
-	 * to the 2d map in the corresponding layer.
-	 * 
+	 * Pastes the block of copied tiles from clipboard 
+	 * to the 2d map in the selected layer, copying each run
+	 * of copied tiles of a line of the block at once
+	 * and adding all tiles in a single state of the map
 	 * 
 	 * @author	Pedro Sampaio
 	 * @param 	relativePoint 	the relative position of the mouse point
 	 * @param	mapStates		the states of the map
-	 * @param   copiedTiles		the current copied tiles present in clipboard
 	 * @param	hover			if is a click or just a mouse hover on point(for preview)
 	 * @since	1.0b
 	 * 
 	 */
-	public static void brushTiles(Point relativePoint, MapState mapStates, ArrayList<Tile> copiedTiles, boolean hover) {
+	public static void pasteTiles(Point relativePoint, MapState mapStates, boolean hover) {
 
-		// selected tiles
-		ArrayList<Tile> tsSelTiles = copiedTiles;
+		// copied tiles
+		Clipboard clipboard = Clipboard.getInstance();
 
-		// if there are no selected tiles there is no need to brush
-		if(copiedTiles.isEmpty()) {
+		// if there are no copied tiles there is no need to paste
+		if(clipboard.isEmpty()) {
 			return;
 		}          
 
-		// get coords in tileset of first tile to be the anchor of positioning
-		Point tileAnchor = new Point(tsSelTiles.get(0).getMatrixJ(),
-									tsSelTiles.get(0).getMatrixI());
-
 		// gets tile coords relative to the click scroll-relative position
-		Point tileClicked	= new Point(relativePoint.x / MapConfig.getTileZoomed(), 
-				relativePoint.y /  MapConfig.getTileZoomed());
-
-		// gets map in current state (creates a copy to add to state list)
-		Map currentMap = mapStates.getCurrentMap().createCopy();
-
-		// current map copy must not be the same object as the original
-		assert(!currentMap.equals(mapStates.getCurrentMap()));
-
-		// gets layers of current map state
-		ArrayList<Layer> layers = currentMap.getLayers();
-
-		// current map copy layers must not be the same object as the original
-		assert(!layers.equals(mapStates.getCurrentMap().getLayers()));
-
-		// current map copy tiles must not be the same object as the original
-		assert(!layers.get(0).getTiles().equals(mapStates.getCurrentMap().getLayers().get(0).getTiles()));
-
-
-		// iterates through selected tiles positioning them
-		// in their respective positions anchored by the first tile in selection
-		for(int i = 0; i < tsSelTiles.size(); i++) {
-			// the position after using top left tile as anchor
-			Point offsetPos = new Point (
-					tileClicked.x - (tileAnchor.x - tsSelTiles.get(i).getMatrixJ()),
-					tileClicked.y - (tileAnchor.y - tsSelTiles.get(i).getMatrixI())
-					);         		
+		Point tileClicked	= getTilePosition(relativePoint, mapStates.getCurrentMap());
 
-			// get tile to add in a layer of the map in the current state
-			Tile newTile = tsSelTiles.get(i);
-			// adds map draw coords to complete necessary information for pre-visualiazing selected tiles
-			newTile.setDrawI(offsetPos.y); newTile.setDrawJ(offsetPos.x); newTile.setComplete(true);
-			// updates list with all needed info
-			tsSelTiles.set(i, newTile);
+		// updates brush tile point for pre-visualizing copied tiles
+		Tool.getInstance().setBrushTilePoint(tileClicked);
 
-			// if tile is out of world bounds, do not add it to the map
-			if(offsetPos.x < 0 || offsetPos.y < 0 || offsetPos.x > 
-			(MapConfig.mapSizeX-1) || offsetPos.y > (MapConfig.mapSizeY-1))
-				continue;
+		// if paste is for hover visualization, dont add tiles to data
+		if(hover)
+			return;
 
-			// if brush is for hover visualization, dont add selection to data
-			if(hover)
-				continue;
+		// position in map of the top-left corner of the block,
+		// anchored by the first copied tile on the clicked tile
+		int top = tileClicked.y - clipboard.getAnchorI();
+		int left = tileClicked.x - clipboard.getAnchorJ();
+
+		// gets the working map of the edit in course (the stroke of the
+		// tool or, out of strokes, an edit of this paste only)
+		boolean stroke = mapStates.isEditing();
+		Map currentMap = mapStates.beginEdit();
+
+		// tiles are pasted in the selected layer (first layer if none is selected)
+		int layer = Math.max(0, currentMap.getSelectedLayer());
+
+		// occupied layers of each position of the map
+		DepthMap depthMap = currentMap.getDepthMap();
+
+		// lines and columns of the block that are inside world bounds
+		// (all of them in unbounded maps)
+		int width = clipboard.getWidth();
+		int firstI = 0, lastI = clipboard.getHeight();
+		int firstJ = 0, lastJ = width;
+		if(!currentMap.isUnbounded()) {
+			firstI = Math.max(0, -top);
+			lastI = Math.min(lastI, currentMap.getHeight() - top);
+			firstJ = Math.max(0, -left);
+			lastJ = Math.min(width, currentMap.getWidth() - left);
+		}
 
-			// flag that represents if a layer with a free spot was found for the tile
-			boolean foundLayer = false;
-
-			// finds layer of the tile (if its on top of another tile, creates a new layer)
-			// iterating ascending through layers until find a empty spot for the tile
-			// creating new layer if needed
-			for(int j = 0; j < layers.size(); j++) {
-				// get tiles from the iteration layer
-				Tile[][] iterTiles = layers.get(j).getTiles();
-
-				// if position is free on layer tiles, found a layer for the tile
-				if(iterTiles[offsetPos.y][offsetPos.x] == null) {
-					// adds tile to the free position
-					iterTiles[offsetPos.y][offsetPos.x] = newTile;
-					// updates found layer bool to true
-					foundLayer = true;
-
-					// breaks search for spot
-					break;
-				}
+		// bool that represents if a tile was added to the map
+		boolean tileAdded = false;
+
+		// copies the runs of copied tiles of each line of the block inside world bounds
+		int[] tileIDs = clipboard.getTileIDs();
+		for(int bi = firstI; bi < lastI; bi++) {
+			int lineEnd = bi * width + lastJ;
+			int b = clipboard.nextCopied(bi * width + firstJ);
+			while(b >= 0 && b < lineEnd) {
+				int runEnd = Math.min(clipboard.nextEmpty(b), lineEnd);
+				depthMap.setTileIDs(layer, top + bi, left + (b - bi * width), tileIDs, b, runEnd - b);
+				tileAdded = true;
+				b = clipboard.nextCopied(runEnd);
 			}
-
-			// if layer wasnt found in existing ones, creates another one (if max layers not exceeded)
-			if(!foundLayer) {
-				if(layers.size() < MapConfig.getInstance().getMaxLayers()) {
-					// creates new layer on top of others (last pos of layers list)
-					Layer newLayer = new Layer(layers.size(), 1f);
-					// adds tile to the new layers tiles matrix
-					newLayer.getTiles()[offsetPos.y][offsetPos.x] = newTile;
-					// adds layers to the list of layers in the map
-					layers.add(newLayer);
-
-					if(Config.debug)
-						System.out.println("Map: Layer"+layers.size()+" created for tile: "+offsetPos);
-				}
-				else { // removes top layer object and puts new object
-					Layer topLayer = layers.get(layers.size()-1);
-					topLayer.getTiles()[offsetPos.y][offsetPos.x] = newTile;
-				}
-			}
-
-
-			// adds new state to the map states if its time to save (mouse released)
-			if(ViewMapControl.saveState) {
-				mapStates.AddState(currentMap); // addstate already notify observers
-				ViewMapControl.saveState = false;
-			} // if its not time to save
-			else // updates current state (update state method notify observers already)
-				mapStates.UpdateState(currentMap);
-
 		}
+
+		// all tiles of the paste are added to the edit in course
+		if(tileAdded)
+			mapStates.applyEdit(); // apply edit already notify observers
+		// pastes out of strokes are recorded as a single state
+		if(!stroke)
+			mapStates.commitEdit();
 	}
 
 	/**
@@ -339,13 +298,12 @@ public class Tool extends Observable {
 	 * @since	0.4
 	 * @param	p1				First point (top-left vertex) of rectangle selection (must be relative to scroll)
 	 * @param	p2				Second point (bottom-right vertex) of rectangle selection (must be relative to scroll)
-	 * @param	tileset			The tileset that is currently loaded in the program
-	 * @param	selectedTiles	The list of tiles that will contain the selected of tiles
+	 * @param	selection		The selection that will contain the selected tiles
 	 * @param	tilesize		The size of a tile
 	 * @param	limitX			the limit in the X-axis for selection (bounds)
 	 * @param   limitY			the limit in the Y-axis for selection (bounds)
 	 */
-	public static void RectSelect(Point p1, Point p2, Tileset tileset, ArrayList<Tile> selectedTiles, int tilesize, int limitX, int limitY)
+	public static void RectSelect(Point p1, Point p2, Selection selection, int tilesize, int limitX, int limitY)
 	{
 		// converts points (x,y cartesian coords) to tile indexes in our data structure
 		Point tOriginIdx = new Point(p1.x / tilesize, 
@@ -365,62 +323,22 @@ public class Tool extends Observable {
 		assert(tDestinyIdx.x >= 0 && tDestinyIdx.x < limitX);
 		assert(tDestinyIdx.y >= 0 && tDestinyIdx.y < limitY);
 
-		/** 
-		 * adjusts origin and destiny depending on the direction of selection
-		 * to cover all directions correctly, changing looping order if needed
-		 **/
-
-		// aux point for swaps
-		Point tAuxIdx = null;
-		// volatile values depending on direction and change of origin and destiny
-		int i_init, i_limit, i_increment;
-		int j_init, j_limit, j_increment;
-		// bools to help changing directions
-		boolean isTopRightDir = false;
-		boolean isBottomLeftDir = false;
-
-		// swapping covers few cases but now enough (for >^ and <V direction ie)
-		if(tDestinyIdx.y < tOriginIdx.y || tDestinyIdx.x < tOriginIdx.x)
-		{
-			// swap origin and destiny
-			tAuxIdx = tDestinyIdx;
-			tDestinyIdx = tOriginIdx;
-			tOriginIdx = tAuxIdx;
-		}
+		// indexes relative to the first position of the selection
+		// (the first tile of the canvas for selections of unbounded maps)
+		tOriginIdx.translate(selection.getOriginJ(), selection.getOriginI());
+		tDestinyIdx.translate(selection.getOriginJ(), selection.getOriginI());
 
-		// normal direction loop params
-		i_init = tOriginIdx.y; i_limit = tDestinyIdx.y; i_increment = 1;
-		j_init = tOriginIdx.x; j_limit = tDestinyIdx.x; j_increment = 1;
-
-		// <v direction (inverted origin and destiny)
-		if(tDestinyIdx.y < tOriginIdx.y && tDestinyIdx.x > tOriginIdx.x)
-		{
-			// adjust parameters of loop
-			i_increment = -1; j_increment = 1;
-			// use flag to help change direction of loop
-			isBottomLeftDir = true;
-		}
-
-		// >^ direction (inverted origin and destiny)
-		if(tDestinyIdx.y > tOriginIdx.y && tDestinyIdx.x < tOriginIdx.x) {
-			// adjust increment of loop
-			i_increment = 1; j_increment = -1;
-			// use flag to help change direction of loop limit
-			isTopRightDir = true;	
-		}
-
-		// clears current selected tiles list
-		// to add the new rectangular selection
-		selectedTiles.clear();
-
-		// iterates in square shape like form to select tiles contained in rect selection
-		for(int i = i_init; isBottomLeftDir ? i >= i_limit : i <= i_limit; i = i + i_increment) {
-			for(int j = j_init; isTopRightDir ? j >= j_limit : j <= j_limit; j = j + j_increment) {
-				// adds tile to the selected tiles list
-				selectedTiles.add(new Tile(i, j, tileset));
-			}
-		}
+		// replaces current selection with the new rectangular selection,
+		// filling the selection bits of each line of the rectangle
+		selection.selectRect(Math.min(tOriginIdx.y, tDestinyIdx.y), Math.min(tOriginIdx.x, tDestinyIdx.x),
+							Math.max(tOriginIdx.y, tDestinyIdx.y), Math.max(tOriginIdx.x, tDestinyIdx.x));
 
+		// the anchor of selection (used to brush it) is the origin of the drag,
+		// or the destiny if the drag goes up or left (origin and destiny swapped)
+		if(tDestinyIdx.y < tOriginIdx.y || tDestinyIdx.x < tOriginIdx.x)
+			selection.setAnchor(tDestinyIdx.y, tDestinyIdx.x);
+		else
+			selection.setAnchor(tOriginIdx.y, tOriginIdx.x);
 	}
 
 	/**
@@ -435,12 +353,12 @@ public class Tool extends Observable {
 	 *  
 	 * @param 	relativeClick		the relative position of the click 
 	 * @param	tileset				the tileset that is currently loaded in the program
-	 * @param	selectedTiles		the list of tiles that will contain the selection of tiles
+	 * @param	selection			the selection that will contain the selected tiles
 	 * @param 	shiftOrigin 		the position origin of the shift click
 	 * @param	ofMap				if it is the map's viewport or the tileset's viewport that was clicked
 	 * @since	0.3
 	 */
-	public static void SelectTile(Point relativeClick, Tileset tileset, ArrayList<Tile> selectedTiles, Point shiftOrigin, boolean ofMap) {
+	public static void SelectTile(Point relativeClick, Tileset tileset, Selection selection, Point shiftOrigin, boolean ofMap) {
 
 		/**
 		 * Necessary infos about tile clicked
@@ -448,31 +366,27 @@ public class Tool extends Observable {
 		// finds the selected tile indices
 		Point tSelectedIdx;
 		if(ofMap)
-			tSelectedIdx = new Point(relativeClick.x / MapConfig.getTileZoomed(), 
-					relativeClick.y /  MapConfig.getTileZoomed());
+			tSelectedIdx = new Point(relativeClick.x / MapConfig.getInstance().getTileZoomed() + selection.getOriginJ(), 
+					relativeClick.y /  MapConfig.getInstance().getTileZoomed() + selection.getOriginI());
 		else
 			tSelectedIdx = new Point(relativeClick.x / tileset.getTileSize(), 
 					relativeClick.y / tileset.getTileSize());
 
-		// creates tile to add to selection
-		// no layer as of now (only when added to the map)
-		Tile tSelected = new Tile(tSelectedIdx.y, tSelectedIdx.x, tileset);
-
 		/**
 		 * Controls what to do with different keys pressed.
 		 * Gives preference to Shift when both shift and control
 		 * are pressed.
 		 */
 		if(!KeyboardControl.isCtrlPressed() && !KeyboardControl.isShiftPressed()) {		// no keys pressed
-			// clears selected tiles list with clear() (faster than removeAll)
-			selectedTiles.clear();
-			// adds to selectedTiles list
-			selectedTiles.add(tSelected);
+			// clears selection
+			selection.clear();
+			// adds to selection
+			selection.add(tSelectedIdx.y, tSelectedIdx.x);
 		}
 		else if(KeyboardControl.isShiftPressed()) {										// at least shift is pressed (control may be pressed as well)
 
 			// sets the shift anchor tile as (0,0) if no other tiles are selected
-			if (selectedTiles.isEmpty() || shiftOrigin == null) {
+			if (selection.isEmpty() || shiftOrigin == null) {
 				// if no tile anchor of shift is selected
 				// lets use (0,0) tile as anchor
 				shiftOrigin = new Point(0,0);
@@ -484,10 +398,10 @@ public class Tool extends Observable {
 			// do rectangular selections from first selected tile in
 			// the current shift interaction to the new tile clicked
 			if(ofMap)
-				Tool.RectSelect(shiftOrigin, relativeClick, tileset, selectedTiles, 
-						MapConfig.getTileZoomed(), MapConfig.mapSizeX, MapConfig.mapSizeY);
+				Tool.RectSelect(shiftOrigin, relativeClick, selection, 
+						MapConfig.getInstance().getTileZoomed(), selection.getWidth(), selection.getHeight());
 			else
-				Tool.RectSelect(shiftOrigin, relativeClick, tileset, selectedTiles, 
+				Tool.RectSelect(shiftOrigin, relativeClick, selection, 
 						tileset.getTileSize(), tileset.getTileSizeX(), tileset.getTileSizeY());
 
 		}
@@ -495,23 +409,10 @@ public class Tool extends Observable {
 			// guarantee controls logic
 			assert(!KeyboardControl.isShiftPressed() && KeyboardControl.isCtrlPressed());
 
-			// adds to selectedTiles list maintaining previous selected tiles 
+			// adds to selection maintaining previous selected tiles 
 			// but only adds if current tile isnt selected yet
 			// if it is selected, removes selection
-			boolean isSelectedAlready = false; 
-			int i;
-			for(i = 0; i < selectedTiles.size(); i++) {
-				if	(selectedTiles.get(i).getIndexI() == tSelected.getIndexI() &&
-						selectedTiles.get(i).getIndexJ() == tSelected.getIndexJ()) {
-					isSelectedAlready = true;
-					break;
-				}
-			}
-
-			if(isSelectedAlready)
-				selectedTiles.remove(i);
-			else
-				selectedTiles.add(tSelected);
+			selection.toggle(tSelectedIdx.y, tSelectedIdx.x);
 		}
 
 		/**
@@ -541,8 +442,7 @@ public class Tool extends Observable {
 			return;
 
 		// gets tile coords relative to the mouse scroll-relative position
-		Point tileInd	= new Point(relativePoint.x / MapConfig.getTileZoomed(), 
-				relativePoint.y /  MapConfig.getTileZoomed());
+		Point tileInd	= getTilePosition(relativePoint, mapStates.getCurrentMap());
 
 		// updates erase-to-be tile point for visualization
 		Tool.getInstance().setEraseTilePoint(tileInd);
@@ -552,35 +452,33 @@ public class Tool extends Observable {
 			return;
 
 		//else, we must remove tile(if exists) from data structure
+		
+		// returns if mouse click is out of bounds
+		if(!mapStates.getCurrentMap().contains(tileInd.y, tileInd.x))
+			return;
 
-		// gets map in current state (creates a copy to add to state list)
-		Map currentMap = mapStates.getCurrentMap().createCopy();
+		// gets the working map of the edit in course (the stroke of the
+		// tool or, out of strokes, an edit of this erase only)
+		boolean stroke = mapStates.isEditing();
+		Map currentMap = mapStates.beginEdit();
 
 		// gets layers of current map state
 		ArrayList<Layer> layers = currentMap.getLayers();
 
 		// bool that represents if a tile was found to delete
 		boolean tileFound = false;
-		
-		// returns if mouse click is out of bounds
-		if(tileInd.y >= MapConfig.mapSizeY || tileInd.x >= MapConfig.mapSizeX || tileInd.y < 0 || tileInd.x < 0)
-			return;
-
-		// find the biggest layer that contains a tile;
-		int i;
-		for(i = layers.size()-1; i >= 0; i--) {
-			Layer iLayer = layers.get(i);
 
-			// found tile to delete
-			if(iLayer.getTiles()[tileInd.y][tileInd.x] != null) {
-				iLayer.getTiles()[tileInd.y][tileInd.x] = null;
-				if(Config.debug) {
-					System.out.println("ViewMapControl: Deleting tile: "+tileInd);
-				}
-				tileFound = true;
+		// find the biggest layer that contains a tile (to not delete tiles in lower layers)
+		DepthMap depthMap = currentMap.getDepthMap();
+		int i = depthMap.getTopLayer(tileInd.y, tileInd.x);
 
-				break;		// break to not delete tiles in lower layers
+		// found tile to delete
+		if(i >= 0) {
+			depthMap.setTileID(i, tileInd.y, tileInd.x, 0);
+			if(Config.debug) {
+				System.out.println("ViewMapControl: Deleting tile: "+tileInd);
 			}
+			tileFound = true;
 		}
 
 		// adds new state to the map states (addstate already updates current state)
@@ -590,23 +488,20 @@ public class Tool extends Observable {
 			// (only if its not first layer)
 			if(i > 0) // if erased tile wasnt in first layer
 				if(layers.get(i).isEmpty()) { // if after erase tilecount of layer is smaller than 1 
-					layers.remove(i); // remove layer that has no tiles and isnt the first one
+					depthMap.removeLayer(i); // remove layer that has no tiles and isnt the first one
 					if(currentMap.getSelectedLayer() == i) { // if selected layer is the same deleted
 						currentMap.setSelectedLayer(i-1);	// decreases select layer by one
 					}
 				}
-			// adds new state to the map states if its time to save (mouse released)
-			if(ViewMapControl.saveState) {
-				mapStates.AddState(currentMap); // addstate already notify observers
-				ViewMapControl.saveState = false;
-			} // if its not time to save
-			else // updates current state (update state method notify observers already)
-				mapStates.UpdateState(currentMap);          		
+			// adds the erase to the edit in course
+			mapStates.applyEdit(); // apply edit already notify observers
 		}
 		else // notify observers for previews changes
 			Tool.getInstance().dispatchChanges();
-
-
+		
+		// erases out of strokes are recorded as a single state
+		if(!stroke)
+			mapStates.commitEdit();
 	} 
 	
 	/**
@@ -625,123 +520,129 @@ public class Tool extends Observable {
 			return;
 
 		// gets tile coords relative to the mouse scroll-relative position
-		Point tileInd	= new Point(relativePoint.x / MapConfig.getTileZoomed(), 
-				relativePoint.y /  MapConfig.getTileZoomed());
+		Point tileInd	= getTilePosition(relativePoint, mapStates.getCurrentMap());
 		
 		// if its hover, we are done
 		if(hover)
 			return;
 		
 		//else, we must toogle collider from data structure
-
-		// gets map in current state (creates a copy to add to state list)
-		Map currentMap = mapStates.getCurrentMap().createCopy();
 		
 		// returns if mouse click is out of bounds
-		if(tileInd.y >= MapConfig.mapSizeY || tileInd.x >= MapConfig.mapSizeX || tileInd.y < 0 || tileInd.x < 0)
+		if(!mapStates.getCurrentMap().contains(tileInd.y, tileInd.x))
 			return;
+
+		// gets the working map of the edit in course (the stroke of the
+		// tool or, out of strokes, an edit of this toggle only)
+		boolean stroke = mapStates.isEditing();
+		Map currentMap = mapStates.beginEdit();
 		
 		// check if collider exists already
-		if(currentMap.getColliders()[tileInd.y][tileInd.x] != null) {
-			currentMap.getColliders()[tileInd.y][tileInd.x] = null; // removes collider
+		if(currentMap.getCollider(tileInd.y, tileInd.x) != ColliderMask.NONE) {
+			currentMap.setCollider(tileInd.y, tileInd.x, ColliderMask.NONE); // removes collider
 		}
 		else {
 			// if its a trigger, create a trigger
 			if(trigger)
-				currentMap.getColliders()[tileInd.y][tileInd.x] = new Collider(2, tileInd.y, tileInd.x, true); // creates trigger collider
+				currentMap.setCollider(tileInd.y, tileInd.x, ColliderMask.TRIGGER); // creates trigger collider
 			else // creates a physical collider
-				currentMap.getColliders()[tileInd.y][tileInd.x] = new Collider(1, tileInd.y, tileInd.x, false); // creates physical collider
+				currentMap.setCollider(tileInd.y, tileInd.x, ColliderMask.PHYSICAL); // creates physical collider
 		}
 		
-		// adds new state to the map states if its time to save (mouse released)
-		if(ViewMapControl.saveState) {
-			mapStates.AddState(currentMap); // addstate already notify observers
-			ViewMapControl.saveState = false;
-		} // if its not time to save
-		else // updates current state (update state method notify observers already)
-			mapStates.UpdateState(currentMap);   
-
+		// adds the toggle to the edit in course
+		mapStates.applyEdit(); // apply edit already notify observers
+		// toggles out of strokes are recorded as a single state
+		if(!stroke)
+			mapStates.commitEdit();
 	}
 
 
-	/**
-	 * Method for erasing tiles
-	 * in the 2d map in a given layer.
-	 * 
-	 * @author	Pedro Sampaio
-	 * @param 	tile 			the tile information containing matrix indexes of the tile to be deleted
-	 * @param	mapStates		the states of the map
-	 * @param	layer			the layer to delete the tile
-	 * @since	1.0
-	 * 
-	 */
-	private static boolean eraseTile(Tile tile, MapState mapStates, int layer) {
-
-		// boolean that represents if a tile was found with given params
-		boolean tileFound = false;
-		Map currentMap = mapStates.getCurrentMap().createCopy();
-		ArrayList<Layer> layers = currentMap.getLayers();
-		Layer selLayer = layers.get(layer);
-
-
-		// if info at matrix with given params isn't null, a tile to delete was found
-		if(selLayer.getTiles()[tile.getIndexI()][tile.getIndexJ()] != null) {
-			selLayer.getTiles()[tile.getIndexI()][tile.getIndexJ()] = null; // delete tile
-			tileFound = true; // updates tileFound bool
-		}
-
-		// if there was a change in the map structure
-		// do the necessary updates
-		if(tileFound) {       		
-			// checks if layer has no tiles and if so, delete it
-			// (only if its not first layer)
-			if(selLayer.isEmpty() && layer > 0) { // if after erase tilecount of layer is smaller than 1 and its not first layer
-				layers.remove(layer); // remove layer that has no tiles and isnt the first one
-				if(currentMap.getSelectedLayer() == layer) { // if selected layer is the same deleted
-					currentMap.setSelectedLayer(layer-1);	// decreases select layer by one
-				}
-			}
-			// adds new state to the map states if its time to save (mouse released)
-			if(ViewMapControl.saveState) {
-				mapStates.AddState(currentMap); // addstate already notify observers
-				ViewMapControl.saveState = false;
-			} // if its not time to save
-			else // updates current state (update state method notify observers already)
-				mapStates.UpdateState(currentMap);          		
-		}
-		else // notify observers for previews changes
-			Tool.getInstance().dispatchChanges();
-
-		return tileFound;
-	}
-
 	/**
 	 * Erases a selection of tile
 	 * of current selected layer
+	 * in a single state of the map
+	 * (rectangular selections are cleared as an area
+	 * and other selections run by run of each line)
 	 * 
 	 * @author Pedro Sampaio
 	 * @since 1.0
-	 * @param selection	the array of tiles to be erased
+	 * @param selection	the selection of tiles to be erased
 	 * @param mapStates	the states map with all its states
 	 * @param selectedLayer the selected layer to erase tiles from
 	 */
-	public static void eraseSelection(ArrayList<Tile> selection, MapState mapStates, int selectedLayer)
+	public static void eraseSelection(Selection selection, MapState mapStates, int selectedLayer)
 	{
 		if(Config.debug) {
 			System.out.println("Tool: There are "+selection.size()+" possible tiles to be erased"
 					+ "	from layer"+(selectedLayer+1));
 		}
 
-		// iterates through the selection tiles to erase existent ones
-		for(int i = 0; i < selection.size(); i++) {
-			Tile tile = selection.get(i);	// tile to be erased
+		// gets the working map of an edit of the whole erase
+		boolean stroke = mapStates.isEditing();
+		Map currentMap = mapStates.beginEdit();
+		ArrayList<Layer> layers = currentMap.getLayers();
+		Layer selLayer = layers.get(selectedLayer);
+		DepthMap depthMap = currentMap.getDepthMap();
 
-			eraseTile(tile, mapStates, selectedLayer); // erases tile if found
+		// bool that represents if a tile was found to delete
+		boolean tileFound = false;
 
-			if(mapStates.getCurrentMap().getSelectedLayer() != selectedLayer) // layer was emptied and deleted, we dont want to continue here
-				break;
+		// positions out of layer are ignored (selection of a previous map size)
+		int minI = Integer.MIN_VALUE, minJ = Integer.MIN_VALUE;
+		int endI = Integer.MAX_VALUE, endJ = Integer.MAX_VALUE;
+		if(!selLayer.isUnbounded()) {
+			minI = minJ = 0;
+			endI = selLayer.getHeight(); endJ = selLayer.getWidth();
 		}
 
+		Rectangle bounds = selection.getBounds();
+		if(bounds != null && (long) bounds.width * bounds.height == selection.size()) {
+			// rectangular selection is erased as an area, freeing whole chunks at once
+			int i = Math.max(bounds.y, minI), j = Math.max(bounds.x, minJ);
+			int lines = Math.min(bounds.y + bounds.height, endI) - i;
+			int columns = Math.min(bounds.x + bounds.width, endJ) - j;
+			tileFound = depthMap.clearArea(selectedLayer, i, j, lines, columns) > 0;
+		}
+		else {
+			// erases each run of selected positions of a line at once
+			int width = selection.getWidth();
+			for(int b = selection.next(0); b >= 0; ) {
+				int lineEnd = (b / width + 1) * width;
+				int i = selection.getLine(b);
+				// skips lines of layer without tiles
+				if(i < minI || i >= endI || selLayer.isRowEmpty(i)) {
+					b = selection.next(lineEnd);
+					continue;
+				}
+				int end = Math.min(selection.nextClear(b), lineEnd);
+				int j = Math.max(selection.getColumn(b), minJ);
+				int length = Math.min(selection.getColumn(b) + end - b, endJ) - j;
+				if(length > 0 && depthMap.clearTiles(selectedLayer, i, j, length) > 0)
+					tileFound = true;
+				b = selection.next(end);
+			}
+		}
+
+		// if there was a change in the map structure
+		// do the necessary updates
+		if(tileFound) {       		
+			// checks if layer has no tiles and if so, delete it
+			// (only if its not first layer)
+			if(selLayer.isEmpty() && selectedLayer > 0) { // if after erase tilecount of layer is smaller than 1 and its not first layer
+				depthMap.removeLayer(selectedLayer); // remove layer that has no tiles and isnt the first one
+				if(currentMap.getSelectedLayer() == selectedLayer) { // if selected layer is the same deleted
+					currentMap.setSelectedLayer(selectedLayer-1);	// decreases select layer by one
+				}
+			}
+			// adds the erase to the edit in course
+			mapStates.applyEdit(); // apply edit already notify observers
+		}
+		else // notify observers for previews changes
+			Tool.getInstance().dispatchChanges();
+		
+		// all tiles of the selection are erased in a single state
+		if(!stroke)
+			mapStates.commitEdit();
 	}
 
 	/**
@@ -755,38 +656,54 @@ public class Tool extends Observable {
 	public static void copyToClipboard(MapState mapStates)
 	{
 		Map currentMap = mapStates.getCurrentMap();	// current map
+
+		// nothing to copy if no layer is selected
+		if(currentMap.getSelectedLayer() < 0) {
+			if(Config.debug)
+				System.out.println("Tool: Nothing to copy: No layer selected");
+			return;
+		}
+
 		ArrayList<Layer> layers = currentMap.getLayers(); // layers of current map
 		Layer selLayer = layers.get(currentMap.getSelectedLayer());	// selected layer
-		ArrayList<Tile> selTiles = selLayer.getSelectedTiles(); // selected tiles of selected layer
-		ArrayList<Tile> copiedTiles = new ArrayList<>();	// the copied tiles with full information of each tile
+		Selection selection = selLayer.getSelection(); // selected tiles of selected layer
+		Rectangle bounds = selection.getBounds(); // bounding box of selected tiles
 
 		// if there are selected tiles, copy to clipboard
-		if(!selTiles.isEmpty()) {
-			// build a new list of tiles with full information (obtained from map data matrix)
-			// in selection indexI and indexJ represents position of tile in map, not in tileset
-			for(int i = 0 ; i < selTiles.size(); i++) {
-				if(selLayer.getTiles()[selTiles.get(i).getIndexI()][selTiles.get(i).getIndexJ()] != null) {
-					Tile tile = selLayer.getTiles()[selTiles.get(i).getIndexI()][selTiles.get(i).getIndexJ()];
-					// adds information for paste operation anchoring 
-					tile.setMatrixI(selTiles.get(i).getIndexI());
-					tile.setMatrixJ(selTiles.get(i).getIndexJ());
-					copiedTiles.add(tile);
+		if(bounds != null) {
+			// block of tiles covering the selection (inside layer bounds)
+			int width = bounds.width;
+			int height = bounds.height;
+			if(!selLayer.isUnbounded()) {
+				width = Math.min(width, selLayer.getWidth() - bounds.x);
+				height = Math.min(height, selLayer.getHeight() - bounds.y);
+			}
+			if(width <= 0 || height <= 0) {
+				width = 0;
+				height = 0;
+			}
+			int[] block = new int[width * height];
+
+			// copies each line of the block from the layer,
+			// removing the tiles of positions that are not selected
+			for(int bi = 0; bi < height; bi++) {
+				int i = bounds.y + bi;
+				selLayer.getTileIDs(i, bounds.x, block, bi * width, width);
+				for(int bj = 0; bj < width; bj++) {
+					if(!selection.contains(i, bounds.x + bj))
+						block[bi * width + bj] = 0;
 				}
 			}
 
-			// debugs copied tiles list size
-			if(Config.debug)
-				System.out.println("Tool: Copied "+(copiedTiles.size())+" tiles from map");
+			// copy block to clipboard (empty if selection had no tiles)
+			Clipboard.getInstance().setBlock(block, width, height);
 
-			// copy selected tiles to clipboard if at least one tile in selection exists 
-			if(!copiedTiles.isEmpty()) {
-				Clipboard.getInstance().setCopiedTiles(copiedTiles);
-			}
-			else { // nothing to copy
-				if(Config.debug) 
+			// debugs copied tiles size
+			if(Config.debug) {
+				if(Clipboard.getInstance().isEmpty())
 					System.out.println("Tool: Nothing to copy on layer"+(currentMap.getSelectedLayer()+1));
-				// empties clipboard list since user copied a selection with no tiles
-				Clipboard.getInstance().setCopiedTiles(new ArrayList<>());
+				else
+					System.out.println("Tool: Copied "+Clipboard.getInstance().getTileCount()+" tiles from map");
 			}
 
 		} else { // nothing to copy
@@ -806,7 +723,7 @@ public class Tool extends Observable {
 	public static void pasteFromClipboard(MapState mapStates) {
 		// only notify clipboard observers (for paste related operations)
 		// if clipboard is not empty
-		if(!Clipboard.getInstance().getCopiedTiles().isEmpty()) {
+		if(!Clipboard.getInstance().isEmpty()) {
 			// sets that paste is wanted
 			Clipboard.getInstance().setPaste(true);
 			// dispatch changes meaning that a paste action has happened
@@ -861,6 +778,20 @@ public class Tool extends Observable {
 		this.eraseTilePoint = eraseTilePoint;
 	}
 
+	/**
+	 * @return the brushTilePoint
+	 */
+	public Point getBrushTilePoint() {
+		return brushTilePoint;
+	}
+
+	/**
+	 * @param brushTilePoint the brushTilePoint to set
+	 */
+	public void setBrushTilePoint(Point brushTilePoint) {
+		this.brushTilePoint = brushTilePoint;
+	}
+
 	/**
 	 * 
 	 * @param currentTool current tool to set
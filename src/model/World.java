@@ -0,0 +1,531 @@
+package model;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.SwingUtilities;
+
+import controller.FileManager;
+import test.Config;
+
+/**
+ * Class that represents a world of regions: a grid of maps, each one
+ * saved in its own .m2d file (named after the world with the row and
+ * column of the region), edited as a single map in which each region
+ * is an area aligned to chunks. Only the regions near the visible
+ * area are kept in the map: regions are read in background as they
+ * get close to the view and, when the loaded regions exceed the memory
+ * budget, the least recently used regions out of view are removed
+ * from all states of the map. Modified regions are removed only after
+ * they are saved, and regions with undo history stay in the map
+ *
+ * @author	Pedro Sampaio
+ * @since	1.8
+ *
+ */
+public class World {
+
+	private String folder;			// folder of the world file and of the region files (null if world was not saved yet)
+	private String name;			// name of the world (prefix of the region files)
+	private int columns;			// number of regions on x-axis
+	private int rows;				// number of regions on y-axis
+	private int regionWidth;		// number of tiles of each region on x-axis (multiple of Chunk.SIZE)
+	private int regionHeight;		// number of tiles of each region on y-axis (multiple of Chunk.SIZE)
+	private long memoryBudget;		// maximum bytes of the loaded regions (regions near the view are never evicted)
+	private long loadedBytes;		// approximated bytes of the loaded regions
+	private LinkedHashMap<Long, Region> regions;	// loaded regions in order of use (least recently used first)
+	private HashMap<Long, Future<Map>> pending;		// regions being read in background
+	private HashSet<Long> near;		// regions near the view in the last streaming (not evicted)
+	private MapState mapStates;		// the states of the map the regions are streamed to
+	private ExecutorService io;		// thread that reads and writes the region files in order of request
+
+	/**
+	 * Class that keeps the information of a loaded region
+	 */
+	private static class Region {
+		private long savedHash;		// content hash of the region when it was read or saved
+		private long bytes;			// approximated bytes of the region when it was read
+		private boolean broken;		// if the region file could not be read (region is never saved, keeping the file)
+		private Future<Boolean> write;	// write of the region in course to evict it (null if none)
+		private long writtenHash;	// content hash of the region in the last write to evict it
+		private boolean failed;		// if the last write to evict the region failed
+	}
+
+	/**
+	 * Constructor for a world without regions loaded
+	 *
+	 * @param columns		number of regions on x-axis
+	 * @param rows			number of regions on y-axis
+	 * @param regionWidth	number of tiles of each region on x-axis (multiple of Chunk.SIZE)
+	 * @param regionHeight	number of tiles of each region on y-axis (multiple of Chunk.SIZE)
+	 */
+	public World(int columns, int rows, int regionWidth, int regionHeight) {
+		this.columns = columns;
+		this.rows = rows;
+		this.regionWidth = regionWidth;
+		this.regionHeight = regionHeight;
+		regions = new LinkedHashMap<Long, Region>(16, 0.75f, true);
+		pending = new HashMap<Long, Future<Map>>();
+		near = new HashSet<Long>();
+		memoryBudget = Long.MAX_VALUE;
+		io = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "World regions");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Streams the regions around the visible area of the map: regions
+	 * in view are placed in the map before it is drawn, the ones next
+	 * to them are read in background, and the least recently used
+	 * regions out of view are evicted while the budget is exceeded
+	 *
+	 * @param mapStates	the states of the map the regions are streamed to
+	 * @param view		the visible area of the map in tile units (x for columns, y for lines)
+	 */
+	public void stream(MapState mapStates, Rectangle view) {
+		this.mapStates = mapStates;
+		int firstRow = Math.max(0, view.y / regionHeight);
+		int lastRow = Math.min(rows - 1, (view.y + view.height - 1) / regionHeight);
+		int firstColumn = Math.max(0, view.x / regionWidth);
+		int lastColumn = Math.min(columns - 1, (view.x + view.width - 1) / regionWidth);
+
+		// regions in view and one region around them are requested
+		HashSet<Long> requested = new HashSet<Long>();
+		ArrayList<Tileset> tilesets = new ArrayList<Tileset>(TilesetConfig.getInstance().getTilesets());
+		for(int row = Math.max(0, firstRow - 1); row <= Math.min(rows - 1, lastRow + 1); row++) {
+			for(int column = Math.max(0, firstColumn - 1); column <= Math.min(columns - 1, lastColumn + 1); column++) {
+				long key = getKey(row, column);
+				requested.add(key);
+				// loaded regions are marked as recently used
+				if(regions.get(key) == null && !pending.containsKey(key))
+					pending.put(key, read(row, column, tilesets));
+			}
+		}
+		near = requested;
+
+		// regions in view wait to be read
+		for(int row = firstRow; row <= lastRow; row++) {
+			for(int column = firstColumn; column <= lastColumn; column++) {
+				if(pending.containsKey(getKey(row, column)))
+					place(getKey(row, column));
+			}
+		}
+
+		placeReadRegions();
+	}
+
+	/**
+	 * Places the regions already read in background
+	 * and evicts regions if the budget is exceeded
+	 */
+	private void placeReadRegions() {
+		for(Long key : new ArrayList<Long>(pending.keySet())) {
+			if(pending.get(key).isDone())
+				place(key);
+		}
+		evict();
+	}
+
+	/**
+	 * Reads a region file in background, placing it
+	 * in the map when the program thread is free
+	 *
+	 * @param row		the row of the region
+	 * @param column	the column of the region
+	 * @param tilesets	the tilesets of the world
+	 * @return	the future map of the region (null if region has no file)
+	 */
+	private Future<Map> read(int row, int column, final ArrayList<Tileset> tilesets) {
+		final File file = folder == null ? null : getRegionFile(folder, name, row, column);
+		// regions keep their tiles as the map they are placed in
+		final ChunkStore chunkStore = mapStates.getCurrentMap().getChunkStore();
+		final boolean paletteChunks = mapStates.getCurrentMap().isPaletteChunks();
+		FutureTask<Map> task = new FutureTask<Map>(new Callable<Map>() {
+			@Override
+			public Map call() throws Exception {
+				if(file == null || !file.exists())
+					return null;
+				return FileManager.loadRegion(file.getPath(), tilesets, chunkStore, paletteChunks);
+			}
+		}) {
+			@Override
+			protected void done() {
+				SwingUtilities.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						// regions are only placed while the world is the current project
+						Project project = MapConfig.getInstance().getProject();
+						if(mapStates != null && project != null && project.getWorld() == World.this)
+							placeReadRegions();
+					}
+				});
+			}
+		};
+		io.execute(task);
+		return task;
+	}
+
+	/**
+	 * Places a region in all states of the map,
+	 * waiting for it to be read if needed
+	 *
+	 * @param key	the key of the region
+	 */
+	private void place(long key) {
+		Future<Map> future = pending.remove(key);
+		int row = getRow(key), column = getColumn(key);
+		Region loaded = new Region();
+		Map region = null;
+		try {
+			region = future.get();
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.err.println("World: Could not read region " + row + "," + column + ", it will not be saved");
+			loaded.broken = true;
+		}
+
+		// regions with other dimensions or more layers than the map are not saved
+		if(region != null && (region.getWidth() != regionWidth || region.getHeight() != regionHeight)) {
+			System.err.println("World: Region " + row + "," + column + " does not have the dimensions of the regions of the world");
+			region = null;
+			loaded.broken = true;
+		}
+		if(region != null && region.getLayers().size() > mapStates.getCurrentMap().getLayers().size()) {
+			System.err.println("World: Region " + row + "," + column + " has more layers than the world, it will not be saved");
+			loaded.broken = true;
+		}
+
+		if(region != null) {
+			mapStates.putRegion(region, row * regionHeight, column * regionWidth);
+			loaded.savedHash = region.getContentHash(0, 0, regionHeight, regionWidth);
+			loaded.bytes = region.getBytes(null);
+		}
+		else
+			mapStates.removeRegion(row * regionHeight, column * regionWidth, regionHeight, regionWidth);
+		regions.put(key, loaded);
+		loadedBytes += loaded.bytes;
+
+		if(Config.debug)
+			System.out.println("World: Region " + row + "," + column + " loaded, " + regions.size() + " regions using " + loadedBytes / 1024 + " KB");
+	}
+
+	/**
+	 * Removes the least recently used regions out of view from all
+	 * states of the map while the budget is exceeded. Regions with
+	 * undo history are kept, and modified regions are kept until
+	 * they are saved in background (modified regions of worlds that
+	 * were not saved yet and of broken files are always kept)
+	 */
+	private void evict() {
+		for(java.util.Map.Entry<Long, Region> entry : new ArrayList<java.util.Map.Entry<Long, Region>>(regions.entrySet())) {
+			if(loadedBytes <= memoryBudget)
+				break;
+			long key = entry.getKey();
+			if(near.contains(key))
+				continue;
+			Region region = entry.getValue();
+			int originI = getRow(key) * regionHeight, originJ = getColumn(key) * regionWidth;
+			long hash = mapStates.getCurrentMap().getContentHash(originI, originJ, regionHeight, regionWidth);
+			if(hash != region.savedHash && (region.broken || folder == null))
+				continue;
+			// states would lose the region edits when it is placed again
+			if(mapStates.hasHistory(originI, originJ, regionHeight, regionWidth))
+				continue;
+			if(hash != region.savedHash && !isWritten(key, region, hash))
+				continue;
+			regions.remove(key);
+			loadedBytes -= region.bytes;
+			mapStates.removeRegion(originI, originJ, regionHeight, regionWidth);
+
+			if(Config.debug)
+				System.out.println("World: Region " + getRow(key) + "," + getColumn(key) + " evicted, " + regions.size() + " regions using " + loadedBytes / 1024 + " KB");
+		}
+	}
+
+	/**
+	 * Checks if a modified region was saved with its current content,
+	 * writing it in background if it was not (regions are evicted
+	 * again when the write finishes)
+	 *
+	 * @param key		the key of the region
+	 * @param region	the loaded region
+	 * @param hash		the content hash of the region in the current map
+	 * @return	true if the region file was written with the current content, false otherwise
+	 */
+	private boolean isWritten(long key, Region region, long hash) {
+		if(region.write != null) {
+			if(!region.write.isDone())
+				return false;
+			try {
+				region.failed = !region.write.get();
+			} catch (Exception e) {
+				e.printStackTrace();
+				region.failed = true;
+			}
+			region.write = null;
+			if(!region.failed)
+				region.savedHash = region.writtenHash;
+		}
+		if(hash == region.savedHash)
+			return true;
+		// a failed write is tried again only if the region changed
+		if(region.failed && hash == region.writtenHash)
+			return false;
+		int originI = getRow(key) * regionHeight, originJ = getColumn(key) * regionWidth;
+		region.write = write(folder, name, getRow(key), getColumn(key), 
+								mapStates.getCurrentMap().createRegion(originI, originJ, regionHeight, regionWidth));
+		region.writtenHash = hash;
+		region.failed = false;
+		return false;
+	}
+
+	/**
+	 * Writes a region file in background
+	 *
+	 * @param folder	the folder of the region file
+	 * @param name		the name of the world
+	 * @param row		the row of the region
+	 * @param column	the column of the region
+	 * @param region	the map of the region
+	 * @return	the future result of the write (true if region was saved)
+	 */
+	private Future<Boolean> write(final String folder, final String name, final int row, final int column, final Map region) {
+		final Project project = new Project(region, new ArrayList<Tileset>(TilesetConfig.getInstance().getTilesets()),
+											MapConfig.getInstance().getProject().getTileSize(), regionWidth, regionHeight);
+		FutureTask<Boolean> task = new FutureTask<Boolean>(new Callable<Boolean>() {
+			@Override
+			public Boolean call() throws Exception {
+				boolean saved = FileManager.saveFileDOM(project, folder, getRegionFile(folder, name, row, column).getName(), false);
+				if(!saved)
+					System.err.println("World: Could not save region " + row + "," + column + " in " + folder);
+				return saved;
+			}
+		}) {
+			@Override
+			protected void done() {
+				SwingUtilities.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						// regions written to be evicted are evicted now
+						Project project = MapConfig.getInstance().getProject();
+						if(mapStates != null && project != null && project.getWorld() == World.this)
+							evict();
+					}
+				});
+			}
+		};
+		io.execute(task);
+		return task;
+	}
+
+	/**
+	 * Saves the modified regions of the world in a location. When the
+	 * location changes, files of the regions that are not loaded are
+	 * copied to the new location and all loaded regions are saved
+	 *
+	 * @param map		the current map of the world
+	 * @param folder	the folder of the world file
+	 * @param name		the name of the world (file name without extension)
+	 * @return	true if all regions were saved, false otherwise
+	 */
+	public boolean save(Map map, String folder, String name) {
+		boolean moved = this.folder == null || !new File(folder).getAbsoluteFile().equals(new File(this.folder).getAbsoluteFile())
+						|| !name.equals(this.name);
+		boolean saved = true;
+		ArrayList<Future<Boolean>> writes = new ArrayList<Future<Boolean>>();
+
+		// regions written in background are finished before being copied
+		if(moved && this.folder != null) {
+			try {
+				io.submit(new Runnable() {
+					@Override
+					public void run() {
+						// waits for previous reads and writes
+					}
+				}).get();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			// (regions are not looked up in the map, that would change their use order)
+			HashSet<Long> saving = new HashSet<Long>();
+			for(java.util.Map.Entry<Long, Region> entry : regions.entrySet()) {
+				if(!entry.getValue().broken)
+					saving.add(entry.getKey());
+			}
+			for(int row = 0; row < rows; row++) {
+				for(int column = 0; column < columns; column++) {
+					if(saving.contains(getKey(row, column)))
+						continue;
+					saved &= copyRegionFile(getRegionFile(this.folder, this.name, row, column), getRegionFile(folder, name, row, column));
+				}
+			}
+		}
+		this.folder = folder;
+		this.name = name;
+
+		// modified regions are saved (regions that were always empty have no file)
+		for(java.util.Map.Entry<Long, Region> entry : regions.entrySet()) {
+			Region region = entry.getValue();
+			long key = entry.getKey();
+			if(region.broken)
+				continue;
+			int originI = getRow(key) * regionHeight, originJ = getColumn(key) * regionWidth;
+			long hash = map.getContentHash(originI, originJ, regionHeight, regionWidth);
+			if((hash == region.savedHash && !moved) || (hash == 0 && region.savedHash == 0))
+				continue;
+			writes.add(write(folder, name, getRow(key), getColumn(key), map.createRegion(originI, originJ, regionHeight, regionWidth)));
+			region.savedHash = hash;
+		}
+		for(int w = 0; w < writes.size(); w++) {
+			try {
+				saved &= writes.get(w).get();
+			} catch (Exception e) {
+				e.printStackTrace();
+				saved = false;
+			}
+		}
+		return saved;
+	}
+
+	/**
+	 * Copies the files of a region (map and colliders) to other location
+	 *
+	 * @param from	the map file of the region
+	 * @param to	the map file of the region in the new location
+	 * @return	true if the files were copied or do not exist, false otherwise
+	 */
+	private static boolean copyRegionFile(File from, File to) {
+		if(!from.exists())
+			return true;
+		File fromColliders = new File(from.getPath().replaceFirst("\\.m2d$", ".col"));
+		File toColliders = new File(to.getPath().replaceFirst("\\.m2d$", ".col"));
+		try {
+			Files.copy(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			if(fromColliders.exists())
+				Files.copy(fromColliders.toPath(), toColliders.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			return true;
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.err.println("World: Could not copy region file " + from + " to " + to);
+			return false;
+		}
+	}
+
+	/**
+	 * @param folder	the folder of the world
+	 * @param name		the name of the world
+	 * @param row		the row of the region
+	 * @param column	the column of the region
+	 * @return	the map file of the region
+	 */
+	public static File getRegionFile(String folder, String name, int row, int column) {
+		return new File(folder, name + "_" + row + "_" + column + ".m2d");
+	}
+
+	/**
+	 * @param row		the row of the region
+	 * @param column	the column of the region
+	 * @return	the key of the region
+	 */
+	private long getKey(int row, int column) {
+		return (long) row * columns + column;
+	}
+
+	/**
+	 * @param key	the key of a region
+	 * @return	the row of the region
+	 */
+	private int getRow(long key) {
+		return (int) (key / columns);
+	}
+
+	/**
+	 * @param key	the key of a region
+	 * @return	the column of the region
+	 */
+	private int getColumn(long key) {
+		return (int) (key % columns);
+	}
+
+	/**
+	 * Sets the location of the world file
+	 *
+	 * @param folder	the folder of the world file and of the region files
+	 * @param name		the name of the world (file name without extension)
+	 */
+	public void setLocation(String folder, String name) {
+		this.folder = folder;
+		this.name = name;
+	}
+
+	/**
+	 * Limits the memory of the loaded regions. Regions near the
+	 * view are kept even if they exceed the budget
+	 *
+	 * @param megabytes	maximum memory of the loaded regions in megabytes (0 for no limit)
+	 */
+	public void setMemoryBudget(int megabytes) {
+		memoryBudget = megabytes > 0 ? megabytes * 1024L * 1024L : Long.MAX_VALUE;
+		if(mapStates != null)
+			evict();
+	}
+
+	/**
+	 * @return the approximated number of bytes of the loaded regions
+	 */
+	public long getLoadedBytes() {
+		return loadedBytes;
+	}
+
+	/**
+	 * @return the number of loaded regions
+	 */
+	public int getLoadedCount() {
+		return regions.size();
+	}
+
+	/**
+	 * @return the number of regions on x-axis
+	 */
+	public int getColumns() {
+		return columns;
+	}
+
+	/**
+	 * @return the number of regions on y-axis
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return the number of tiles of each region on x-axis
+	 */
+	public int getRegionWidth() {
+		return regionWidth;
+	}
+
+	/**
+	 * @return the number of tiles of each region on y-axis
+	 */
+	public int getRegionHeight() {
+		return regionHeight;
+	}
+}
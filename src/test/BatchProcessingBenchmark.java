@@ -0,0 +1,217 @@
+package test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import controller.FileManager;
+import model.ColliderMask;
+import model.Layer;
+import model.Map;
+import model.Project;
+import model.Tileset;
+
+/**
+ * Benchmark that loads, transforms and saves a batch of
+ * .m2d projects of different dimensions, first on a single
+ * thread and then on a pool of threads, checking that each
+ * project processed in parallel has the same content as
+ * when processed alone (maps do not share dimensions,
+ * tilesets, storage of tiles or other state), and comparing
+ * the throughput of both runs. Projects have tilesets with
+ * different first ids, and each project keeps its tiles in
+ * palettes of chunks in one run and in plain chunks in the other.
+ * The transform grows the map and paints a border of tiles
+ * and colliders around it. An untimed run warms up the JVM and
+ * gives the expected content, then single thread and pool runs
+ * alternate and the best and median times of each are compared
+ *
+ * Usage: BatchProcessingBenchmark [projects] [mapSize] [threads] [rounds]
+ *
+ * @author 	Pedro Sampaio
+ * @since	1.8
+ *
+ */
+public class BatchProcessingBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int projects = args.length > 0 ? Integer.parseInt(args[0]) : 32;		// number of projects of the batch
+		int mapSize = args.length > 1 ? Integer.parseInt(args[1]) : 256;		// number of tiles on each axis of the maps
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 3;		// number of timed single thread and pool runs
+
+		File dir = Files.createTempDirectory("m2d-batch").toFile();
+		System.out.println("Batch of " + projects + " projects of ~" + mapSize + "x" + mapSize + " tiles in " + dir);
+		String[] paths = createProjects(dir, projects, mapSize);
+
+		// untimed single thread run warms up and gives the expected content of each project
+		long[] expected = new long[projects];
+		for(int p = 0; p < projects; p++)
+			expected[p] = process(paths[p], new File(dir, "serial" + p), p % 2 == 0);
+
+		// single thread and pool runs alternate so both run on the same warmed up code
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		long[] serialTimes = new long[rounds];
+		long[] parallelTimes = new long[rounds];
+		int mismatches = 0;
+		for(int r = 0; r < rounds; r++) {
+			// each kind of run goes first in half of the rounds
+			if(r % 2 == 1) {
+				long start = System.nanoTime();
+				mismatches += runParallel(pool, paths, dir, expected);
+				parallelTimes[r] = System.nanoTime() - start;
+			}
+			long start = System.nanoTime();
+			for(int p = 0; p < projects; p++) {
+				if(process(paths[p], new File(dir, "serial" + p), p % 2 == 0) != expected[p]) {
+					System.err.println("BatchProcessingBenchmark: Project " + p + " differs between single thread runs");
+					mismatches++;
+				}
+			}
+			serialTimes[r] = System.nanoTime() - start;
+			if(r % 2 == 0) {
+				start = System.nanoTime();
+				mismatches += runParallel(pool, paths, dir, expected);
+				parallelTimes[r] = System.nanoTime() - start;
+			}
+		}
+		pool.shutdown();
+		Arrays.sort(serialTimes);
+		Arrays.sort(parallelTimes);
+
+		System.out.println(rounds + " rounds after warm-up (best / median):");
+		System.out.println("1 thread:  " + serialTimes[0] / 1000000 + " / " + serialTimes[rounds / 2] / 1000000 + " ms (" 
+							+ projects * 1e9f / serialTimes[0] + " projects/s)");
+		System.out.println(threads + " threads: " + parallelTimes[0] / 1000000 + " / " + parallelTimes[rounds / 2] / 1000000 + " ms ("
+							+ projects * 1e9f / parallelTimes[0] + " projects/s), speedup " + (float) serialTimes[0] / parallelTimes[0] 
+							+ " (median " + (float) serialTimes[rounds / 2] / parallelTimes[rounds / 2] + ")");
+		System.out.println(mismatches == 0 ? "All projects match" : mismatches + " projects do not match");
+		if(mismatches > 0)
+			System.exit(1);
+	}
+
+	/**
+	 * Processes the projects of the batch on a pool of threads, each
+	 * project keeping its tiles as the other of the single thread run
+	 *
+	 * @param pool		the pool of threads
+	 * @param paths		the paths of the projects
+	 * @param dir		the folder of the projects
+	 * @param expected	the content hash of each project processed alone
+	 * @return	the number of projects that do not have the expected content
+	 * @throws Exception	if a project could not be processed
+	 */
+	static int runParallel(ExecutorService pool, String[] paths, File dir, long[] expected) throws Exception {
+		ArrayList<Future<Long>> results = new ArrayList<Future<Long>>();
+		for(int p = 0; p < paths.length; p++) {
+			final String path = paths[p];
+			final File out = new File(dir, "parallel" + p);
+			final boolean paletteChunks = p % 2 != 0;
+			results.add(pool.submit(new Callable<Long>() {
+				@Override
+				public Long call() throws Exception {
+					return process(path, out, paletteChunks);
+				}
+			}));
+		}
+		int mismatches = 0;
+		for(int p = 0; p < paths.length; p++) {
+			if(results.get(p).get() != expected[p]) {
+				System.err.println("BatchProcessingBenchmark: Project " + p + " differs from the single thread run");
+				mismatches++;
+			}
+		}
+		return mismatches;
+	}
+
+	/**
+	 * Creates the projects of the batch, each one with its own
+	 * dimensions, tileset and randomly painted tiles and colliders
+	 *
+	 * @param dir		the folder of the projects
+	 * @param projects	the number of projects to create
+	 * @param mapSize	the number of tiles on each axis of the maps
+	 * @return	the paths of the projects created
+	 */
+	static String[] createProjects(File dir, int projects, int mapSize) {
+		// tileset of 8x8 tiles of 32 pixels
+		BufferedImage image = new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = image.createGraphics();
+		for(int t = 0; t < 64; t++) {
+			g.setColor(new Color(t * 4, 255 - t * 4, t * 2));
+			g.fillRect((t % 8) * 32, (t / 8) * 32, 32, 32);
+		}
+		g.dispose();
+
+		String[] paths = new String[projects];
+		for(int p = 0; p < projects; p++) {
+			// tileset with a first id of its own
+			Tileset tileset = new Tileset("batch", 32, image, "batch.png", 1 + (p % 4) * 64);
+			ArrayList<Tileset> tilesets = new ArrayList<Tileset>();
+			tilesets.add(tileset);
+			Random random = new Random(p);
+			int width = mapSize + (p % 8) * 8;
+			int height = mapSize - (p % 4) * 8;
+			Map map = new Map(width, height);
+			Layer layer = map.getLayers().get(0);
+			for(int i = 0; i < height; i++)
+				for(int j = 0; j < width; j++)
+					if(random.nextInt(4) != 0)
+						layer.setTileID(i, j, tileset.getFirstID() + random.nextInt(tileset.getTileCount()));
+			for(int c = 0; c < width; c++)
+				map.setCollider(random.nextInt(height), random.nextInt(width), ColliderMask.PHYSICAL);
+
+			FileManager.saveFileDOM(new Project(map, tilesets, 32, width, height), dir.getPath(), "map" + p + ".m2d");
+			paths[p] = new File(dir, "map" + p + ".m2d").getPath();
+		}
+		return paths;
+	}
+
+	/**
+	 * Loads a project, grows its map painting a border of tiles
+	 * and colliders around it and saves it in a folder
+	 *
+	 * @param path		the path of the project to process
+	 * @param out		the folder to save the processed project
+	 * @param paletteChunks	if the tiles of the map are kept in palettes of their chunks
+	 * @return	the content hash of the processed map read back from the saved file
+	 * @throws Exception	if the project could not be loaded or saved
+	 */
+	static long process(String path, File out, boolean paletteChunks) throws Exception {
+		Project project = FileManager.loadProject(path, null, paletteChunks);
+		Map map = project.getMap();
+
+		// grows the map and paints a border on its edges
+		int width = map.getWidth() + 2;
+		int height = map.getHeight() + 2;
+		map.resizeMap(width, height);
+		Layer layer = map.getLayers().get(0);
+		for(int i = 0; i < height; i++) {
+			for(int j = 0; j < width; j++) {
+				if(i == 0 || j == 0 || i >= height - 2 || j >= width - 2) {
+					layer.setTileID(i, j, project.getTilesets().get(0).getFirstID());
+					map.setCollider(i, j, ColliderMask.TRIGGER);
+				}
+			}
+		}
+		project.setMap(map);
+		project.setMapSizeX(width);
+		project.setMapSizeY(height);
+
+		out.mkdirs();
+		if(!FileManager.saveFileDOM(project, out.getPath(), new File(path).getName()))
+			throw new Exception("Could not save " + out);
+
+		// saved project must have the transformed content
+		return FileManager.loadProject(new File(out, new File(path).getName()).getPath(), null, false).getMap().getContentHash();
+	}
+}
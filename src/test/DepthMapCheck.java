@@ -0,0 +1,139 @@
+package test;
+
+import java.util.Random;
+
+import model.DepthMap;
+import model.Map;
+
+/**
+ * Checks of the masks of the depth map when layers are
+ * removed: removing the top layer of a map with the maximum
+ * number of tracked layers keeps the masks of the layers below
+ * it, and chunks without tiles left are freed (when the last
+ * tile is erased, and only then), as in masks built again
+ * from the tiles of the layers
+ *
+ * Usage: DepthMapCheck
+ *
+ * @author 	Pedro Sampaio
+ * @since	1.8
+ *
+ */
+public class DepthMapCheck {
+
+	public static void main(String[] args) {
+		removeTopLayer();
+		freeEmptyChunks();
+		eraseChunk();
+		randomEdits();
+		System.out.println("DepthMapCheck: all checks passed");
+	}
+
+	/**
+	 * Removes the top layer of a map with DepthMap.MAX_LAYERS layers
+	 */
+	private static void removeTopLayer() {
+		Map map = mapWithLayers(DepthMap.MAX_LAYERS);
+		DepthMap depth = new DepthMap(map.getLayers());
+		depth.setTileID(0, 5, 5, 1);
+		depth.setTileID(DepthMap.MAX_LAYERS - 1, 5, 5, 1);
+		depth.setTileID(DepthMap.MAX_LAYERS - 1, 40, 40, 1);
+		check(depth.getTopLayer(5, 5) == DepthMap.MAX_LAYERS - 1, "top layer before removal");
+
+		depth.removeLayer(DepthMap.MAX_LAYERS - 1);
+		check(depth.getMask(5, 5) == 1L, "mask of layer 0 kept after removing the top layer");
+		check(depth.getTopLayer(5, 5) == 0, "top layer is 0 after removing the top layer");
+		check(depth.getTopLayer(40, 40) == -1, "position only in the removed layer is empty");
+		check(depth.getChunkCount() == 1, "chunk only in the removed layer is freed");
+	}
+
+	/**
+	 * Removes tiles and layers until chunks have no tiles left
+	 */
+	private static void freeEmptyChunks() {
+		Map map = mapWithLayers(3);
+		DepthMap depth = new DepthMap(map.getLayers());
+		depth.setTileID(1, 0, 0, 1);
+		depth.setTileID(2, 0, 1, 1);
+		depth.setTileID(0, 40, 40, 1);
+		check(depth.getChunkCount() == 2, "chunks with tiles are allocated");
+
+		depth.setTileID(1, 0, 0, 0);
+		check(depth.getChunkCount() == 2, "chunk with tiles left is kept");
+		depth.removeLayer(2);
+		check(depth.getChunkCount() == 1, "chunk emptied by removing a layer is freed");
+		depth.clearArea(0, 32, 32, 32, 32);
+		check(depth.getChunkCount() == 0, "chunk emptied by clearing an area is freed");
+		check(depth.getFreeLayer(40, 40) == 0, "free layer of a freed chunk");
+	}
+
+	/**
+	 * Erases a full chunk tile by tile: the chunk is freed
+	 * when its last tile is erased, and only then
+	 */
+	private static void eraseChunk() {
+		Map map = mapWithLayers(2);
+		DepthMap depth = new DepthMap(map.getLayers());
+		for(int i = 0; i < 32; i++)
+			for(int j = 0; j < 32; j++)
+				depth.setTileID((i + j) % 2, i, j, 1);
+		for(int i = 0; i < 32; i++)
+			for(int j = 0; j < 32; j++) {
+				check(depth.getChunkCount() == 1, "chunk with tiles left is kept while erasing");
+				depth.setTileID((i + j) % 2, i, j, 0);
+			}
+		check(depth.getChunkCount() == 0, "chunk is freed when its last tile is erased");
+	}
+
+	/**
+	 * Sets, erases and clears random tiles and removes layers,
+	 * checking the masks against masks built from the layers
+	 */
+	private static void randomEdits() {
+		Random random = new Random(0);
+		Map map = mapWithLayers(6);
+		DepthMap depth = new DepthMap(map.getLayers());
+		for(int op = 0; op < 20000; op++) {
+			int l = random.nextInt(map.getLayers().size());
+			int i = random.nextInt(64), j = random.nextInt(64);
+			int kind = random.nextInt(100);
+			if(kind < 60)
+				depth.setTileID(l, i, j, random.nextInt(3));
+			else if(kind < 90)
+				depth.setTileIDs(l, i, j, new int[] {1, 2, 1, 2, 1}, 0, Math.min(5, 64 - j));
+			else if(kind < 99)
+				depth.clearArea(l, i, j, 1 + random.nextInt(64 - i), 1 + random.nextInt(64 - j));
+			else if(map.getLayers().size() > 1) {
+				depth.removeLayer(l);
+				depth.addLayer(map.createLayer(map.getLayers().size(), 1));
+			}
+		}
+		DepthMap built = new DepthMap(map.getLayers());
+		check(depth.getChunkCount() == built.getChunkCount(), "chunks of random edits match masks built again");
+		for(int i = 0; i < 64; i++)
+			for(int j = 0; j < 64; j++)
+				check(depth.getMask(i, j) == built.getMask(i, j), "mask of random edits at " + i + "," + j);
+	}
+
+	/**
+	 * @param layers	the number of layers of the map
+	 * @return	a map of 64x64 tiles with the given number of layers
+	 */
+	private static Map mapWithLayers(int layers) {
+		Map map = new Map(64, 64);
+		for(int l = map.getLayers().size(); l < layers; l++)
+			map.getLayers().add(map.createLayer(l, 1));
+		return map;
+	}
+
+	/**
+	 * @param condition	the condition checked
+	 * @param name		the name of the check
+	 */
+	private static void check(boolean condition, String name) {
+		if(!condition)
+			throw new IllegalStateException("DepthMapCheck: failed check: " + name);
+		if(Config.debug)
+			System.out.println("DepthMapCheck: " + name);
+	}
+}
@@ -0,0 +1,107 @@
+package test;
+
+import java.awt.image.BufferedImage;
+
+import model.Layer;
+import model.Tile;
+import model.Tileset;
+
+/**
+ * Memory benchmark that compares the bytes per cell of
+ * a fully painted layer stored as a matrix of tile objects
+ * (one object per cell), stored as chunks of packed global
+ * tile ids and stored as chunks with palettes of the distinct
+ * ids and bit-packed indices, and measures a mostly empty huge layer
+ *
+ * Usage: LayerMemoryBenchmark [mapSize]
+ *
+ * @author 	Pedro Sampaio
+ * @since	1.8
+ *
+ */
+public class LayerMemoryBenchmark {
+
+	static Object measured;		// keeps the measured structure reachable during measurement
+
+	public static void main(String[] args) {
+		int mapSize = args.length > 0 ? Integer.parseInt(args[0]) : 1024;	// number of tiles on each axis of the map
+		long cells = (long) mapSize * mapSize;
+
+		// creates a tileset of 8x8 tiles of 32 pixels for the benchmark
+		Tileset tileset = new Tileset("benchmark", 32, new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB), "benchmark.png", 1);
+
+		// mostly empty 16k x 16k layer: only a 256x256 region is painted
+		long base = usedMemory();
+		Layer sparse = new Layer(16384, 16384, 0, 1f);
+		for(int i = 8000; i < 8256; i++)
+			for(int j = 8000; j < 8256; j++)
+				sparse.setTileID(i, j, tileset.getFirstID());
+		measured = sparse;
+		long sparseBytes = usedMemory() - base;
+		System.out.println("Sparse 16k layer: " + sparseBytes / 1024 + " KB for " + sparse.getChunks().size() + " chunks ("
+							+ sparseBytes / (256f * 256f) + " bytes/painted cell)");
+		measured = null;
+
+		// before: one tile object per cell
+		base = usedMemory();
+		Tile[][] tiles = new Tile[mapSize][mapSize];
+		for(int i = 0; i < mapSize; i++)
+			for(int j = 0; j < mapSize; j++)
+				tiles[i][j] = new Tile((i + j) % 8, j % 8, tileset, 0, i, j);
+		measured = tiles;
+		long objectBytes = usedMemory() - base;
+		System.out.println("Tile[][] layer:  " + objectBytes / (float) cells + " bytes/cell (" + objectBytes / (1024 * 1024) + " MB)");
+		tiles = null;
+		measured = null;
+
+		// after: chunks of packed global tile ids
+		base = usedMemory();
+		Layer layer = new Layer(mapSize, mapSize, 0, 1f);
+		for(int i = 0; i < mapSize; i++)
+			for(int j = 0; j < mapSize; j++)
+				layer.setTileID(i, j, tileset.getFirstID() + ((i + j) % 8) * tileset.getTileSizeX() + j % 8);
+		measured = layer;
+		long packedBytes = usedMemory() - base;
+		System.out.println("Chunked layer:   " + packedBytes / (float) cells + " bytes/cell (" + packedBytes / (1024 * 1024) + " MB)");
+		layer = null;
+		measured = null;
+
+		// chunks with palettes of the same 64 distinct ids
+		base = usedMemory();
+		layer = new Layer(mapSize, mapSize, 0, 1f, null, true);
+		for(int i = 0; i < mapSize; i++)
+			for(int j = 0; j < mapSize; j++)
+				layer.setTileID(i, j, tileset.getFirstID() + ((i + j) % 8) * tileset.getTileSizeX() + j % 8);
+		measured = layer;
+		long paletteBytes = usedMemory() - base;
+		System.out.println("Palette layer:   " + paletteBytes / (float) cells + " bytes/cell (" + paletteBytes / (1024 * 1024) + " MB)");
+		layer = null;
+		measured = null;
+
+		// chunks with palettes of terrain-like regions of 3 distinct ids
+		base = usedMemory();
+		layer = new Layer(mapSize, mapSize, 0, 1f, null, true);
+		for(int i = 0; i < mapSize; i++)
+			for(int j = 0; j < mapSize; j++)
+				layer.setTileID(i, j, tileset.getFirstID() + (i / 24 + j / 40) % 3);
+		measured = layer;
+		long terrainBytes = usedMemory() - base;
+		System.out.println("Palette terrain: " + terrainBytes / (float) cells + " bytes/cell (" + terrainBytes / (1024 * 1024) + " MB)");
+	}
+
+	/**
+	 * @return the used heap memory after garbage collection
+	 */
+	static long usedMemory() {
+		Runtime rt = Runtime.getRuntime();
+		for(int k = 0; k < 4; k++) {
+			rt.gc();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+		}
+		return rt.totalMemory() - rt.freeMemory();
+	}
+}
@@ -0,0 +1,250 @@
+package test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import model.Chunk;
+import model.Layer;
+import model.PaletteChunk;
+
+/**
+ * Benchmark of pasting and erasing runs of tiles on layers
+ * of chunks of packed global tile ids and on layers of chunks
+ * with palettes, compared to setting the tiles of the palette
+ * layer one at a time. Checks that the runs give the same tiles
+ * and tile counts on both kinds of chunks before timing them
+ *
+ * Usage: PaletteRunBenchmark [mapSize] [distinctIDs] [repetitions]
+ *
+ * @author 	Pedro Sampaio
+ * @since	1.8
+ *
+ */
+public class PaletteRunBenchmark {
+
+	static long sink;		// keeps the results of the timed loops used
+
+	public static void main(String[] args) {
+		int mapSize = args.length > 0 ? Integer.parseInt(args[0]) : 1024;		// number of tiles on each axis of the map
+		int distinct = args.length > 1 ? Integer.parseInt(args[1]) : 64;		// number of distinct ids pasted
+		int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 10;	// number of timed pastes and erases
+
+		int[][] pattern = createPattern(mapSize, distinct);
+		check(mapSize, pattern);
+		checkRepack();
+		checkRandomRuns();
+
+		// warm up
+		for(int r = 0; r < 3; r++) {
+			pasteAndErase(new Layer(mapSize, mapSize, 0, 1f), pattern, true);
+			pasteAndErase(new Layer(mapSize, mapSize, 0, 1f, null, true), pattern, true);
+			pasteAndErase(new Layer(mapSize, mapSize, 0, 1f, null, true), pattern, false);
+		}
+
+		long[] plain = time(mapSize, pattern, repetitions, false, true);
+		long[] palette = time(mapSize, pattern, repetitions, true, true);
+		long[] single = time(mapSize, pattern, repetitions, true, false);
+		System.out.println("Paste and erase of " + mapSize + "x" + mapSize + " tiles with " + distinct + " distinct ids:");
+		print("Packed chunks (runs):    ", plain, repetitions);
+		print("Palette chunks (runs):   ", palette, repetitions);
+		print("Palette chunks (tiles):  ", single, repetitions);
+	}
+
+	/**
+	 * @param mapSize	number of tiles on each axis of the map
+	 * @param distinct	number of distinct ids of the pattern
+	 * @return	lines of ids to paste with holes (0) between pasted runs
+	 */
+	private static int[][] createPattern(int mapSize, int distinct) {
+		int[][] pattern = new int[mapSize][mapSize];
+		for(int i = 0; i < mapSize; i++)
+			for(int j = 0; j < mapSize; j++)
+				pattern[i][j] = (j % 97) < 5 ? 0 : 1 + (i * 7 + j / 3) % distinct;
+		return pattern;
+	}
+
+	/**
+	 * Pastes the runs of tiles of the pattern on a layer
+	 *
+	 * @param layer		the layer to paste on
+	 * @param pattern	the lines of ids to paste (0 for holes)
+	 * @param runs		if runs of tiles are used (or one tile at a time)
+	 */
+	private static void paste(Layer layer, int[][] pattern, boolean runs) {
+		int size = pattern.length;
+		for(int i = 0; i < size; i++) {
+			int[] line = pattern[i];
+			int j = 0;
+			while(j < size) {
+				if(line[j] == 0) {
+					j++;
+					continue;
+				}
+				int end = j;
+				while(end < size && line[end] != 0)
+					end++;
+				if(runs)
+					layer.setTileIDs(i, j, line, j, end - j);
+				else
+					for(int n = j; n < end; n++)
+						layer.setTileID(i, n, line[n]);
+				j = end;
+			}
+		}
+	}
+
+	/**
+	 * Erases lines of a layer
+	 *
+	 * @param layer		the layer to erase
+	 * @param size		number of tiles on each axis of the map
+	 * @param step		number of lines from an erased line to the next
+	 * @param runs		if runs of tiles are used (or one tile at a time)
+	 * @return	the number of tiles erased
+	 */
+	private static int erase(Layer layer, int size, int step, boolean runs) {
+		int erased = 0;
+		for(int i = 0; i < size; i += step) {
+			if(runs)
+				erased += layer.clearTiles(i, 0, size);
+			else
+				for(int j = 0; j < size; j++) {
+					if(layer.getTileID(i, j) != 0) {
+						layer.setTileID(i, j, 0);
+						erased++;
+					}
+				}
+		}
+		return erased;
+	}
+
+	/**
+	 * Pastes the pattern and erases half of the lines of a layer
+	 *
+	 * @param layer		the layer to paste on
+	 * @param pattern	the lines of ids to paste (0 for holes)
+	 * @param runs		if runs of tiles are used (or one tile at a time)
+	 * @return	the number of tiles erased
+	 */
+	private static int pasteAndErase(Layer layer, int[][] pattern, boolean runs) {
+		paste(layer, pattern, runs);
+		return erase(layer, pattern.length, 2, runs);
+	}
+
+	/**
+	 * Checks that runs on layers of packed and palette
+	 * chunks and tiles set one at a time give the same tiles
+	 *
+	 * @param mapSize	number of tiles on each axis of the map
+	 * @param pattern	the lines of ids to paste (0 for holes)
+	 */
+	private static void check(int mapSize, int[][] pattern) {
+		Layer plain = new Layer(mapSize, mapSize, 0, 1f);
+		Layer palette = new Layer(mapSize, mapSize, 0, 1f, null, true);
+		Layer single = new Layer(mapSize, mapSize, 0, 1f, null, true);
+		int erased = pasteAndErase(plain, pattern, true);
+		if(pasteAndErase(palette, pattern, true) != erased || pasteAndErase(single, pattern, false) != erased)
+			throw new IllegalStateException("PaletteRunBenchmark: erased tiles differ");
+		// pastes again over the tiles left to replace ids and fill the erased lines
+		for(int i = 0; i < mapSize; i++) {
+			plain.setTileIDs(i, 0, pattern[(i + 1) % mapSize], 0, mapSize / 2);
+			palette.setTileIDs(i, 0, pattern[(i + 1) % mapSize], 0, mapSize / 2);
+		}
+		for(int i = 0; i < mapSize; i++)
+			for(int j = 0; j < mapSize; j++) {
+				if(palette.getTileID(i, j) != plain.getTileID(i, j))
+					throw new IllegalStateException("PaletteRunBenchmark: tiles differ at " + i + "," + j);
+			}
+		if(palette.getTileCount() != plain.getTileCount() || palette.getContentHash() != plain.getContentHash())
+			throw new IllegalStateException("PaletteRunBenchmark: tile counts or hashes differ");
+	}
+
+	/**
+	 * Checks a run with an id that has an entry in the palette without
+	 * tiles when the palette is full (the entry is dropped when the
+	 * palette is repacked for the run)
+	 */
+	private static void checkRepack() {
+		PaletteChunk chunk = new PaletteChunk(null);
+		chunk.setTileID(0, 0, 1);
+		chunk.setTileID(0, 1, 2);
+		chunk.setTileID(0, 2, 3);
+		chunk.setTileID(0, 0, 2);
+		chunk.setTileIDs(0, 5, new int[] {1, 4}, 0, 2);
+		int[] line = new int[10];
+		chunk.getTileIDs(0, 0, line, 0, line.length);
+		if(!Arrays.equals(line, new int[] {2, 2, 3, 0, 0, 1, 4, 0, 0, 0}))
+			throw new IllegalStateException("PaletteRunBenchmark: run after repack gives " + Arrays.toString(line));
+	}
+
+	/**
+	 * Checks random tiles, runs and removals of runs on a palette
+	 * chunk against the same operations on a chunk of packed ids
+	 */
+	private static void checkRandomRuns() {
+		Random random = new Random(0);
+		for(int c = 0; c < 200; c++) {
+			Chunk plain = new Chunk(null);
+			PaletteChunk palette = new PaletteChunk(null);
+			int distinct = 1 + random.nextInt(c % 2 == 0 ? 6 : 300);
+			for(int op = 0; op < 400; op++) {
+				int ci = random.nextInt(Chunk.SIZE), cj = random.nextInt(Chunk.SIZE);
+				int length = 1 + random.nextInt(Chunk.SIZE - cj);
+				int kind = random.nextInt(3);
+				if(kind == 0) {
+					int id = random.nextInt(distinct + 1);
+					plain.setTileID(ci, cj, id);
+					palette.setTileID(ci, cj, id);
+				}
+				else if(kind == 1) {
+					int[] run = new int[length];
+					for(int n = 0; n < length; n++)
+						run[n] = 1 + random.nextInt(distinct);
+					if(plain.setTileIDs(ci, cj, run, 0, length) != palette.setTileIDs(ci, cj, run, 0, length))
+						throw new IllegalStateException("PaletteRunBenchmark: tiles added by random run differ");
+				}
+				else if(plain.clearTiles(ci, cj, length) != palette.clearTiles(ci, cj, length))
+					throw new IllegalStateException("PaletteRunBenchmark: tiles removed by random run differ");
+			}
+			for(int ci = 0; ci < Chunk.SIZE; ci++)
+				for(int cj = 0; cj < Chunk.SIZE; cj++)
+					if(plain.getTileID(ci, cj) != palette.getTileID(ci, cj))
+						throw new IllegalStateException("PaletteRunBenchmark: random runs differ at " + ci + "," + cj);
+			if(plain.getTileCount() != palette.getTileCount() || plain.getHash() != palette.getHash())
+				throw new IllegalStateException("PaletteRunBenchmark: random runs give different counts or hashes");
+		}
+	}
+
+	/**
+	 * @param mapSize		number of tiles on each axis of the map
+	 * @param pattern		the lines of ids to paste (0 for holes)
+	 * @param repetitions	number of timed pastes and erases
+	 * @param palette		if layers of palette chunks are used
+	 * @param runs			if runs of tiles are used (or one tile at a time)
+	 * @return	the total nanoseconds of the pastes and of the erases
+	 */
+	private static long[] time(int mapSize, int[][] pattern, int repetitions, boolean palette, boolean runs) {
+		long[] total = new long[2];
+		for(int r = 0; r < repetitions; r++) {
+			Layer layer = new Layer(mapSize, mapSize, 0, 1f, null, palette);
+			long start = System.nanoTime();
+			paste(layer, pattern, runs);
+			long pasted = System.nanoTime();
+			sink += erase(layer, mapSize, 1, runs);
+			long erased = System.nanoTime();
+			total[0] += pasted - start;
+			total[1] += erased - pasted;
+		}
+		return total;
+	}
+
+	/**
+	 * @param name			the name of the measured case
+	 * @param total			the total nanoseconds of the pastes and of the erases
+	 * @param repetitions	number of timed pastes and erases
+	 */
+	private static void print(String name, long[] total, int repetitions) {
+		System.out.println(name + "paste " + total[0] / repetitions / 1000 + " us, erase "
+							+ total[1] / repetitions / 1000 + " us");
+	}
+}
@@ -0,0 +1,243 @@
+package test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import model.Layer;
+import model.Map;
+import model.MapConfig;
+import model.MapState;
+import model.Project;
+import model.Tileset;
+
+/**
+ * Benchmark that compares the memory and the latency of
+ * the undo history engines: snapshots of the map for each
+ * state and journal of edits applied to a single map,
+ * keeping all states on the heap or spilling the states far
+ * from the current one to the history file. Each edit paints
+ * a square of tiles in a random position of a fully painted map.
+ * The slowest undo and redo are the ones that read states back
+ * across the spill boundary. Before measuring, checks that
+ * both engines give the same states when states are updated
+ * in the middle of history, then undone and redone
+ *
+ * Usage: UndoHistoryBenchmark [mapSize] [edits] [editSize] [heapStates]
+ *
+ * @author 	Pedro Sampaio
+ * @since	1.8
+ *
+ */
+public class UndoHistoryBenchmark {
+
+	static Object measured;		// keeps the measured structure reachable during measurement
+
+	public static void main(String[] args) {
+		int mapSize = args.length > 0 ? Integer.parseInt(args[0]) : 1024;	// number of tiles on each axis of the map
+		int edits = args.length > 1 ? Integer.parseInt(args[1]) : 1000;		// number of edits to undo
+		int editSize = args.length > 2 ? Integer.parseInt(args[2]) : 8;		// number of tiles on each axis of an edit
+		int heapStates = args.length > 3 ? Integer.parseInt(args[3]) : 5;	// states kept on the heap on each side of the current one when spilling
+
+		Tileset tileset = new Tileset("benchmark", 32, new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB), "benchmark.png", 1);
+
+		// engines are checked with all states on the heap, with a memory budget and spilling
+		int[][] modes = {{0, 0}, {1, 0}, {0, 2}};
+		for(int m = 0; m < modes.length; m++) {
+			for(MapState.Engine engine : MapState.Engine.values())
+				checkUpdates(engine, modes[m][0], modes[m][1]);
+			checkSameStates(modes[m][0], modes[m][1]);
+		}
+
+		System.out.println("Map " + mapSize + "x" + mapSize + ", " + edits + " edits of " + editSize + "x" + editSize + " tiles");
+		run(MapState.Engine.SNAPSHOT, tileset, mapSize, edits, editSize, 0);
+		run(MapState.Engine.JOURNAL, tileset, mapSize, edits, editSize, 0);
+		run(MapState.Engine.SNAPSHOT, tileset, mapSize, edits, editSize, heapStates);
+		run(MapState.Engine.JOURNAL, tileset, mapSize, edits, editSize, heapStates);
+	}
+
+	/**
+	 * Runs the benchmark for an engine printing the results
+	 *
+	 * @param engine	the engine of history to measure
+	 * @param tileset	the tileset of the tiles painted
+	 * @param mapSize	the number of tiles on each axis of the map
+	 * @param edits		the number of edits to undo
+	 * @param editSize	the number of tiles on each axis of an edit
+	 * @param heapStates	the number of states kept on the heap on each side of the current one (0 to keep all)
+	 */
+	static void run(MapState.Engine engine, Tileset tileset, int mapSize, int edits, int editSize, int heapStates) {
+		// fully painted map
+		Map map = new Map(mapSize, mapSize);
+		Layer layer = map.getLayers().get(0);
+		for(int i = 0; i < mapSize; i++)
+			for(int j = 0; j < mapSize; j++)
+				layer.setTileID(i, j, tileset.getFirstID() + (i + j) % tileset.getTileCount());
+		Project project = new Project(map, null, 32, mapSize, mapSize);
+		MapConfig.getInstance().setProject(project);
+
+		MapState mapStates = new MapState(edits + 1, engine);
+		mapStates.AddState(map);
+		mapStates.setHeapStates(heapStates);
+		measured = mapStates;
+		long base = LayerMemoryBenchmark.usedMemory();
+
+		// edits like brush tool does: copy of current map modified and added as new state
+		Random random = new Random(0);
+		long addTime = 0;
+		for(int e = 0; e < edits; e++) {
+			int i0 = random.nextInt(mapSize - editSize);
+			int j0 = random.nextInt(mapSize - editSize);
+			long start = System.nanoTime();
+			Map copy = mapStates.getCurrentMap().createCopy();
+			Layer editLayer = copy.getLayers().get(0);
+			for(int i = i0; i < i0 + editSize; i++)
+				for(int j = j0; j < j0 + editSize; j++)
+					editLayer.setTileID(i, j, tileset.getFirstID() + random.nextInt(tileset.getTileCount()));
+			mapStates.AddState(copy);
+			addTime += System.nanoTime() - start;
+		}
+		long historyBytes = LayerMemoryBenchmark.usedMemory() - base;
+
+		long undoTime = 0, maxUndo = 0;
+		while(mapStates.isUndoPossible()) {
+			long start = System.nanoTime();
+			mapStates.UndoState();
+			long time = System.nanoTime() - start;
+			undoTime += time;
+			maxUndo = Math.max(maxUndo, time);
+		}
+
+		long redoTime = 0, maxRedo = 0;
+		while(mapStates.isRedoPossible()) {
+			long start = System.nanoTime();
+			mapStates.RedoState();
+			long time = System.nanoTime() - start;
+			redoTime += time;
+			maxRedo = Math.max(maxRedo, time);
+		}
+
+		System.out.println(engine + (heapStates > 0 ? " spilled (" + heapStates + " heap states)" : "") + ": history " 
+							+ historyBytes / 1024 + " KB (" + historyBytes / edits + " bytes/edit), "
+							+ "edit " + addTime / edits / 1000f + " us, undo " + undoTime / edits / 1000f + " us (max " + maxUndo / 1000f + " us), "
+							+ "redo " + redoTime / edits / 1000f + " us (max " + maxRedo / 1000f + " us)");
+		measured = null;
+	}
+
+	/**
+	 * Checks updates of states in the middle of history: redoing after
+	 * an update leads to the next state without the update, and an
+	 * update of the oldest state keeps the states that can be redone
+	 *
+	 * @param engine		the engine of history to check
+	 * @param budget		maximum memory of history in megabytes (0 to limit by number of states)
+	 * @param heapStates	the number of states kept on the heap on each side of the current one (0 to keep all)
+	 */
+	static void checkUpdates(MapState.Engine engine, int budget, int heapStates) {
+		MapState mapStates = createStates(engine, budget, heapStates);
+		mapStates.AddState(withTile(mapStates.getCurrentMap(), 1, 1, 1));
+		mapStates.AddState(withTile(mapStates.getCurrentMap(), 2, 2, 2));
+
+		mapStates.UndoState();
+		mapStates.UpdateState(withTile(mapStates.getCurrentMap(), 5, 5, 3));
+		mapStates.RedoState();
+		checkTile(mapStates, 5, 5, 0, engine + ": update is not redone into the next state");
+		checkTile(mapStates, 2, 2, 2, engine + ": next state is redone after an update");
+		mapStates.UndoState();
+		checkTile(mapStates, 5, 5, 3, engine + ": updated state is undone to");
+
+		mapStates.UndoState();
+		mapStates.UpdateState(withTile(mapStates.getCurrentMap(), 6, 6, 4));
+		check(mapStates.getStateCount() == 3 && mapStates.isRedoPossible(), engine + ": update of oldest state keeps redo");
+		mapStates.RedoState();
+		checkTile(mapStates, 6, 6, 0, engine + ": update of oldest state is not redone");
+		checkTile(mapStates, 5, 5, 3, engine + ": state after the oldest is redone");
+		mapStates.UndoState();
+		checkTile(mapStates, 6, 6, 4, engine + ": updated oldest state is undone to");
+	}
+
+	/**
+	 * Applies the same random additions, updates, undos and redos
+	 * to both engines, checking that they reach the same states
+	 *
+	 * @param budget		maximum memory of history in megabytes (0 to limit by number of states)
+	 * @param heapStates	the number of states kept on the heap on each side of the current one (0 to keep all)
+	 */
+	static void checkSameStates(int budget, int heapStates) {
+		MapState snapshots = createStates(MapState.Engine.SNAPSHOT, budget, heapStates);
+		MapState journal = createStates(MapState.Engine.JOURNAL, budget, heapStates);
+		Random random = new Random(0);
+		for(int op = 0; op < 500; op++) {
+			int kind = random.nextInt(4);
+			int i = random.nextInt(64), j = random.nextInt(64), id = random.nextInt(8);
+			if(kind == 0) {
+				snapshots.AddState(withTile(snapshots.getCurrentMap(), i, j, id));
+				journal.AddState(withTile(journal.getCurrentMap(), i, j, id));
+			}
+			else if(kind == 1) {
+				snapshots.UpdateState(withTile(snapshots.getCurrentMap(), i, j, id));
+				journal.UpdateState(withTile(journal.getCurrentMap(), i, j, id));
+			}
+			else if(kind == 2) {
+				snapshots.UndoState();
+				journal.UndoState();
+			}
+			else {
+				snapshots.RedoState();
+				journal.RedoState();
+			}
+			check(snapshots.getCurrentMap().getContentHash() == journal.getCurrentMap().getContentHash()
+					&& snapshots.isUndoPossible() == journal.isUndoPossible()
+					&& snapshots.isRedoPossible() == journal.isRedoPossible(),
+					"engines differ after operation " + op + " (budget " + budget + " MB, " + heapStates + " heap states)");
+		}
+	}
+
+	/**
+	 * @param engine		the engine of history
+	 * @param budget		maximum memory of history in megabytes (0 to limit by number of states)
+	 * @param heapStates	the number of states kept on the heap on each side of the current one (0 to keep all)
+	 * @return	the states of an empty map of 64x64 tiles
+	 */
+	static MapState createStates(MapState.Engine engine, int budget, int heapStates) {
+		Map map = new Map(64, 64);
+		MapConfig.getInstance().setProject(new Project(map, null, 32, 64, 64));
+		MapState mapStates = new MapState(16, engine);
+		mapStates.AddState(map);
+		mapStates.setMemoryBudget(budget);
+		mapStates.setHeapStates(heapStates);
+		return mapStates;
+	}
+
+	/**
+	 * @param map	the map to copy
+	 * @param i		the i-index (line) of the tile
+	 * @param j		the j-index (column) of the tile
+	 * @param id	the global id of the tile (0 removes it)
+	 * @return	a copy of the map with the tile set
+	 */
+	static Map withTile(Map map, int i, int j, int id) {
+		Map copy = map.createCopy();
+		copy.getLayers().get(0).setTileID(i, j, id);
+		return copy;
+	}
+
+	/**
+	 * @param mapStates	the states checked
+	 * @param i			the i-index (line) of the tile
+	 * @param j			the j-index (column) of the tile
+	 * @param id		the global id expected in the current map
+	 * @param name		the name of the check
+	 */
+	static void checkTile(MapState mapStates, int i, int j, int id, String name) {
+		check(mapStates.getCurrentMap().getLayers().get(0).getTileID(i, j) == id, name);
+	}
+
+	/**
+	 * @param condition	the condition checked
+	 * @param name		the name of the check
+	 */
+	static void check(boolean condition, String name) {
+		if(!condition)
+			throw new IllegalStateException("UndoHistoryBenchmark: failed check: " + name);
+	}
+}
@@ -0,0 +1,235 @@
+package test;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Random;
+
+import model.Chunk;
+import model.ColliderMask;
+import model.Layer;
+import model.Map;
+import model.TileTable;
+import model.Tileset;
+import model.TilesetConfig;
+import view.ChunkRasterCache;
+import view.ColliderOverlayCache;
+import view.RenderTarget;
+import view.TileImageCache;
+
+/**
+ * Benchmark of the frame time of drawing the visible tiles of
+ * the layers of a map as the map viewport does, slicing the
+ * image of each tile from its tileset on every frame versus
+ * drawing the images of a tile image cache, and allocating
+ * the buffer of the view on every frame versus keeping it
+ * in a render target, and drawing the tiles of each layer
+ * versus drawing cached images of chunks with all layers
+ * flattened, with the colliders of the map drawn for each
+ * visible collider versus drawn from cached images of the
+ * colliders of the chunks, at 100% zoom and at the maximum
+ * zoom of the viewport, for maps with different numbers of
+ * layers (with the bytes allocated in each frame). The view
+ * scrolls back and forth over a few chunks of the map
+ *
+ * Usage: ViewportRenderBenchmark [viewWidth] [viewHeight] [frames]
+ *
+ * @author 	Pedro Sampaio
+ * @since	1.8
+ *
+ */
+public class ViewportRenderBenchmark {
+
+	private static final float[] ZOOMS = {1f, 5f};	// 100% and maximum zoom of the viewport
+	private static final int[] LAYERS = {4, 8};		// numbers of layers of the maps drawn
+	private static final int SCROLL = 64;			// number of tiles the view scrolls on each axis
+
+	public static void main(String[] args) {
+		int viewWidth = args.length > 0 ? Integer.parseInt(args[0]) : 1280;	// width of the viewport in pixels
+		int viewHeight = args.length > 1 ? Integer.parseInt(args[1]) : 720;		// height of the viewport in pixels
+		int frames = args.length > 2 ? Integer.parseInt(args[2]) : 200;		// number of frames measured
+
+		// tileset of 16x16 tiles of 32 pixels with random colors
+		BufferedImage image = new BufferedImage(512, 512, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = image.createGraphics();
+		Random random = new Random(1);
+		for(int y = 0; y < 512; y += 32) {
+			for(int x = 0; x < 512; x += 32) {
+				g.setColor(new Color(random.nextInt(0x1000000) | 0x80000000, true));
+				g.fillRect(x, y, 32, 32);
+			}
+		}
+		g.dispose();
+		Tileset tileset = new Tileset("bench", 32, image, "bench.png", 1);
+		TilesetConfig.getInstance().addTileset(tileset);
+
+		for(int n = 0; n < LAYERS.length; n++) {
+			// map with layers filled with random tiles
+			Map map = new Map(256, 256);
+			for(int l = 0; l < LAYERS[n]; l++) {
+				if(l > 0)
+					map.getLayers().add(map.createLayer(l, 1));
+				Layer layer = map.getLayers().get(l);
+				for(int i = 0; i < map.getHeight(); i++)
+					for(int j = 0; j < map.getWidth(); j++)
+						layer.setTileID(i, j, 1 + random.nextInt(tileset.getTileCount()));
+			}
+			// colliders on one of each eight tiles
+			for(int i = 0; i < map.getHeight(); i++)
+				for(int j = 0; j < map.getWidth(); j++)
+					if(random.nextInt(8) == 0)
+						map.setCollider(i, j, random.nextBoolean() ? ColliderMask.PHYSICAL : ColliderMask.TRIGGER);
+
+			TileImageCache cache = new TileImageCache();
+			ChunkRasterCache rasters = new ChunkRasterCache(cache);
+			ColliderOverlayCache overlays = new ColliderOverlayCache();
+			for(int z = 0; z < ZOOMS.length; z++) {
+				float zoom = ZOOMS[z];
+				RenderTarget target = new RenderTarget();
+				// warm up all paths before measuring
+				render(map, null, null, null, null, viewWidth, viewHeight, zoom, frames / 4);
+				render(map, cache, null, null, null, viewWidth, viewHeight, zoom, frames / 4);
+				render(map, cache, target, null, null, viewWidth, viewHeight, zoom, frames / 4);
+				render(map, cache, target, rasters, null, viewWidth, viewHeight, zoom, frames / 4);
+				render(map, cache, target, rasters, overlays, viewWidth, viewHeight, zoom, frames / 4);
+				System.out.printf("%d layers, zoom %.0f%%:%n", LAYERS[n], zoom * 100);
+				report("sliced tiles, new buffer", render(map, null, null, null, null, viewWidth, viewHeight, zoom, frames), frames);
+				report("cached tiles, new buffer", render(map, cache, null, null, null, viewWidth, viewHeight, zoom, frames), frames);
+				report("cached tiles, render target", render(map, cache, target, null, null, viewWidth, viewHeight, zoom, frames), frames);
+				report("chunk rasters, render target", render(map, cache, target, rasters, null, viewWidth, viewHeight, zoom, frames), frames);
+				report("chunk rasters, collider overlays", render(map, cache, target, rasters, overlays, viewWidth, viewHeight, zoom, frames), frames);
+			}
+			System.out.printf("  tiles: %d images, %d KB; chunks: %d images, %d KB, %d drawn; colliders: %d images, %d KB, %d drawn%n",
+								cache.size(), cache.getCachedBytes() / 1024, rasters.size(), rasters.getCachedBytes() / 1024,
+								rasters.getRedraws(), overlays.size(), overlays.getCachedBytes() / 1024, overlays.getRedraws());
+		}
+	}
+
+	/**
+	 * Prints the time and allocation of each frame of a run
+	 *
+	 * @param name		the name of the run
+	 * @param result	the nanoseconds and bytes allocated of the run
+	 * @param frames	the number of frames of the run
+	 */
+	private static void report(String name, long[] result, int frames) {
+		System.out.printf("  %-32s %6.2f ms/frame %8d KB/frame%n", name, result[0] / 1e6 / frames, result[1] / 1024 / frames);
+	}
+
+	/**
+	 * @return the bytes allocated by the current thread (-1 if not supported)
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if(threads instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		return -1;
+	}
+
+	/**
+	 * Draws frames of the viewport scrolling over the map
+	 *
+	 * @param map			the map to draw
+	 * @param cache			the cache of tile images (null to slice the tiles on every frame)
+	 * @param target		the buffer of the view kept between frames (null to allocate it on every frame)
+	 * @param rasters		the cache of images of chunks (null to draw the tiles of each layer)
+	 * @param overlays		the cache of images of colliders of chunks (null to draw each collider)
+	 * @param viewWidth		the width of the viewport in pixels
+	 * @param viewHeight	the height of the viewport in pixels
+	 * @param zoom			the zoom of the viewport
+	 * @param frames		the number of frames to draw
+	 * @return	the time spent in nanoseconds and the bytes allocated
+	 */
+	private static long[] render(Map map, TileImageCache cache, RenderTarget target, ChunkRasterCache rasters,
+									ColliderOverlayCache overlays, int viewWidth, int viewHeight, float zoom, int frames) {
+		BufferedImage screen = new BufferedImage(viewWidth, viewHeight, BufferedImage.TYPE_INT_RGB);
+		TileTable tileTable = TilesetConfig.getInstance().getTileTable();
+		ArrayList<Layer> layers = map.getLayers();
+		int tileSize = 32;
+		long allocated = allocatedBytes();
+		long start = System.nanoTime();
+		for(int f = 0; f < frames; f++) {
+			// same buffer of the viewport for the zoomed view
+			int bufferWidth = (int) Math.ceil(viewWidth / zoom) + 5, bufferHeight = (int) Math.ceil(viewHeight / zoom) + 5;
+			BufferedImage buffer;
+			Graphics2D bufferG;
+			if(target != null) {
+				bufferG = target.begin(bufferWidth, bufferHeight);
+				buffer = target.getImage();
+			}
+			else {
+				buffer = new BufferedImage(bufferWidth, bufferHeight, BufferedImage.TYPE_INT_ARGB);
+				bufferG = buffer.createGraphics();
+			}
+			int firstI = Math.abs(f % (2 * SCROLL) - SCROLL), firstJ = firstI;
+			int lines = buffer.getHeight() / tileSize + 2, columns = buffer.getWidth() / tileSize + 2;
+			if(rasters != null) {
+				// visible chunks with all layers flattened
+				for(int chunkI = firstI >> Chunk.SHIFT; chunkI <= (firstI + lines - 1) >> Chunk.SHIFT; chunkI++) {
+					for(int chunkJ = firstJ >> Chunk.SHIFT; chunkJ <= (firstJ + columns - 1) >> Chunk.SHIFT; chunkJ++) {
+						BufferedImage raster = rasters.getRaster(map, chunkI, chunkJ, tileSize);
+						bufferG.drawImage(raster, ((chunkJ << Chunk.SHIFT) - firstJ) * tileSize,
+											((chunkI << Chunk.SHIFT) - firstI) * tileSize, null);
+					}
+				}
+			}
+			for(int l = 0; rasters == null && l < layers.size(); l++) {
+				bufferG.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, layers.get(l).getOpacity()));
+				Layer layer = layers.get(l);
+				for(int i = 0; i < lines; i++) {
+					for(int j = 0; j < columns; j++) {
+						int tileID = layer.getTileID(firstI + i, firstJ + j);
+						BufferedImage tImage;
+						if(cache != null)
+							tImage = cache.getImage(tileID);
+						else {
+							Rectangle sRect = tileTable.getSourceRect(tileID);
+							tImage = tileTable.getTileset(tileID).getImage()
+										.getSubimage(sRect.x, sRect.y, sRect.width, sRect.height);
+						}
+						bufferG.drawImage(tImage, j * tileSize, i * tileSize, null);
+					}
+				}
+			}
+			if(overlays != null) {
+				// colliders of the visible chunks
+				for(int chunkI = firstI >> Chunk.SHIFT; chunkI <= (firstI + lines - 1) >> Chunk.SHIFT; chunkI++) {
+					for(int chunkJ = firstJ >> Chunk.SHIFT; chunkJ <= (firstJ + columns - 1) >> Chunk.SHIFT; chunkJ++) {
+						BufferedImage overlay = overlays.getOverlay(map.getColliders(), chunkI, chunkJ, tileSize);
+						bufferG.drawImage(overlay, ((chunkJ << Chunk.SHIFT) - firstJ) * tileSize,
+											((chunkI << Chunk.SHIFT) - firstI) * tileSize, null);
+					}
+				}
+			}
+			else {
+				// symbols of the visible colliders
+				bufferG.setComposite(AlphaComposite.SrcOver);
+				for(int i = 0; i < lines; i++) {
+					for(int j = 0; j < columns; j++) {
+						int collider = map.getCollider(firstI + i, firstJ + j);
+						if(collider == ColliderMask.NONE)
+							continue;
+						String symbol = collider == ColliderMask.TRIGGER ? "T" : "P";
+						int x = (int) (j * tileSize + tileSize / 1.5f), y = (i + 1) * tileSize;
+						bufferG.setColor(Color.BLACK);
+						bufferG.drawString(symbol, x, y);
+						bufferG.setColor(collider == ColliderMask.TRIGGER ? Color.CYAN : Color.WHITE);
+						bufferG.drawString(symbol, x + 1, y + 1);
+					}
+				}
+			}
+			if(target == null)
+				bufferG.dispose();
+			Graphics2D screenG = screen.createGraphics();
+			screenG.scale(zoom, zoom);
+			screenG.drawImage(buffer, 0, 0, null);
+			screenG.dispose();
+		}
+		long time = System.nanoTime() - start;
+		return new long[] {time, allocatedBytes() - allocated};
+	}
+}
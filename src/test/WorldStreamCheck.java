@@ -0,0 +1,228 @@
+package test;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+
+import javax.swing.SwingUtilities;
+
+import controller.FileManager;
+import model.ColliderMask;
+import model.Map;
+import model.MapConfig;
+import model.MapState;
+import model.Project;
+import model.TilesetConfig;
+import model.Tileset;
+import model.World;
+
+/**
+ * Checks of the streaming of the regions of a world: a modified
+ * region is kept while the undo history has edits of it, is saved
+ * before it is evicted and is placed again with its modifications
+ * when the view gets back to it
+ *
+ * Usage: WorldStreamCheck
+ *
+ * @author 	Pedro Sampaio
+ * @since	1.8
+ *
+ */
+public class WorldStreamCheck {
+
+	private static final int COLUMNS = 6;			// number of regions of the world on x-axis
+	private static final int REGION_SIZE = 256;		// number of tiles of each region on each axis
+	private static final int TIMEOUT = 10000;		// maximum milliseconds waiting for regions to be written
+
+	private static Tileset tileset;		// tileset of the tiles painted
+	private static File folder;			// temporary folder of the world files
+	private static World world;			// the world streamed
+	private static MapState mapStates;	// the states of the map of the world
+
+	public static void main(String[] args) throws Exception {
+		tileset = new Tileset("check", 32, new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB), "check.png", 1);
+		TilesetConfig.getInstance().getTilesets().add(tileset);
+		MapConfig.getInstance().setDefault();
+		MapConfig.getInstance().updateConfig(32);
+		folder = Files.createTempDirectory("world").toFile();
+
+		// regions are streamed in the program thread
+		onProgramThread(new Runnable() {
+			@Override
+			public void run() {
+				createWorld();
+				loadWorld();
+				editRegion();
+				scroll();
+			}
+		});
+		// a region evicted would be written and evicted in this time
+		Thread.sleep(500);
+		onProgramThread(new Runnable() {
+			@Override
+			public void run() {
+				keepRegionWithHistory();
+				scroll();
+			}
+		});
+		waitEviction();
+		onProgramThread(new Runnable() {
+			@Override
+			public void run() {
+				reloadRegion();
+			}
+		});
+		System.out.println("WorldStreamCheck: all checks passed");
+		System.exit(0);
+	}
+
+	/**
+	 * Creates and saves a world with all regions painted
+	 */
+	private static void createWorld() {
+		Project project = new Project(tileset, 32, COLUMNS * REGION_SIZE, REGION_SIZE);
+		World created = new World(COLUMNS, 1, REGION_SIZE, REGION_SIZE);
+		project.setWorld(created);
+		MapConfig.getInstance().setProject(project);
+		MapState states = new MapState(8);
+		states.AddState(project.getMap());
+		created.stream(states, new Rectangle(0, 0, COLUMNS * REGION_SIZE, REGION_SIZE));
+		check(created.getLoadedCount() == COLUMNS, "all regions loaded");
+
+		Map map = states.getCurrentMap();
+		for(int i = 0; i < REGION_SIZE; i++)
+			for(int j = 0; j < COLUMNS * REGION_SIZE; j++)
+				map.getLayers().get(0).setTileID(i, j, tileOf(i, j));
+		map.setCollider(7, 7, ColliderMask.PHYSICAL);
+		check(FileManager.saveFileDOM(project, folder.getPath(), "world.m2d"), "world saved");
+	}
+
+	/**
+	 * Loads the saved world with a memory budget
+	 * smaller than the regions of the world
+	 */
+	private static void loadWorld() {
+		Project project;
+		try {
+			project = FileManager.loadProject(new File(folder, "world.m2d").getPath());
+		} catch (Exception e) {
+			throw new IllegalStateException("WorldStreamCheck: could not load world", e);
+		}
+		world = project.getWorld();
+		check(world != null, "world loaded");
+		MapConfig.getInstance().setProject(project);
+		mapStates = new MapState(8);
+		mapStates.AddState(project.getMap());
+		world.setMemoryBudget(1);
+		world.stream(mapStates, new Rectangle(0, 0, 32, 32));
+		check(mapStates.getCurrentMap().getLayers().get(0).getTileID(5, 5) == tileOf(5, 5), "region 0 placed");
+		check(mapStates.getCurrentMap().getCollider(7, 7) == ColliderMask.PHYSICAL, "collider of region 0 placed");
+	}
+
+	/**
+	 * Modifies a tile of the first region, recording it in history
+	 */
+	private static void editRegion() {
+		Map copy = mapStates.getCurrentMap().createCopy();
+		copy.getLayers().get(0).setTileID(5, 5, tileset.getFirstID());
+		mapStates.AddState(copy);
+	}
+
+	/**
+	 * Streams the regions after the first one, exceeding the
+	 * budget with the first region as the least recently used
+	 */
+	private static void scroll() {
+		for(int column = 1; column < COLUMNS; column++)
+			world.stream(mapStates, new Rectangle(column * REGION_SIZE, 0, 32, 32));
+	}
+
+	/**
+	 * Checks that the first region was kept with its history,
+	 * clearing history after it so the region can be evicted
+	 */
+	private static void keepRegionWithHistory() {
+		check(mapStates.getCurrentMap().getLayers().get(0).getTileID(5, 5) == tileset.getFirstID(), "region with history kept");
+		mapStates.UndoState();
+		check(mapStates.getCurrentMap().getLayers().get(0).getTileID(5, 5) == tileOf(5, 5), "undo of region kept");
+		mapStates.RedoState();
+		check(mapStates.getCurrentMap().getLayers().get(0).getTileID(5, 5) == tileset.getFirstID(), "redo of region kept");
+		mapStates.RemoveOldStates();
+	}
+
+	/**
+	 * Waits for the first region to be written and evicted
+	 */
+	private static void waitEviction() throws Exception {
+		final boolean[] evicted = new boolean[1];
+		long start = System.currentTimeMillis();
+		while(!evicted[0] && System.currentTimeMillis() - start < TIMEOUT) {
+			Thread.sleep(50);
+			onProgramThread(new Runnable() {
+				@Override
+				public void run() {
+					evicted[0] = mapStates.getCurrentMap().getLayers().get(0).getTileID(5, 5) == 0;
+				}
+			});
+		}
+		check(evicted[0], "modified region evicted after written");
+		check(mapStates.getCurrentMap().getCollider(7, 7) == ColliderMask.NONE, "colliders of region evicted");
+	}
+
+	/**
+	 * Streams the first region again, checking its modifications
+	 */
+	private static void reloadRegion() {
+		world.stream(mapStates, new Rectangle(0, 0, 32, 32));
+		Map map = mapStates.getCurrentMap();
+		check(map.getLayers().get(0).getTileID(5, 5) == tileset.getFirstID(), "modified tile reloaded");
+		check(map.getCollider(7, 7) == ColliderMask.PHYSICAL, "collider reloaded");
+		for(int i = 0; i < REGION_SIZE; i++)
+			for(int j = 0; j < REGION_SIZE; j++)
+				if(i != 5 || j != 5)
+					check(map.getLayers().get(0).getTileID(i, j) == tileOf(i, j), "tile " + i + "," + j + " reloaded");
+		check(!mapStates.isUndoPossible(), "reloaded region is not in history");
+	}
+
+	/**
+	 * @param i	the i-index (line) of the tile
+	 * @param j	the j-index (column) of the tile
+	 * @return	the global id painted in the tile
+	 */
+	private static int tileOf(int i, int j) {
+		return tileset.getFirstID() + 1 + (i + j) % (tileset.getTileCount() - 1);
+	}
+
+	/**
+	 * Runs a check in the program thread, rethrowing its failures
+	 *
+	 * @param check	the check to run
+	 */
+	private static void onProgramThread(final Runnable check) throws Exception {
+		final RuntimeException[] failure = new RuntimeException[1];
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					check.run();
+				} catch (RuntimeException e) {
+					failure[0] = e;
+				}
+			}
+		});
+		if(failure[0] != null)
+			throw failure[0];
+	}
+
+	/**
+	 * @param condition	the condition checked
+	 * @param name		the name of the check
+	 */
+	private static void check(boolean condition, String name) {
+		if(!condition)
+			throw new IllegalStateException("WorldStreamCheck: failed check: " + name);
+		if(Config.debug)
+			System.out.println("WorldStreamCheck: " + name);
+	}
+}
@@ -0,0 +1,245 @@
+package view;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import model.Chunk;
+import model.ChunkMap;
+import model.ContentHash;
+import model.Layer;
+import model.Map;
+import model.TileTable;
+import model.TilesetConfig;
+
+/**
+ * Cache of the images of the chunks of the map, with the tiles
+ * of all layers of each chunk flattened at their opacity, so the
+ * map is drawn with one image for each visible chunk instead of
+ * one image for each visible tile of each layer (colliders are
+ * drawn on top by the collider overlay cache). Each image keeps
+ * a signature of the content it was drawn with (content hash of
+ * the chunk in each layer and opacity of the layers), and it is
+ * drawn again only when the signature changes: when a tile or
+ * the opacity of a layer of the chunk changes.
+ * Signatures only depend on content, so images stay valid across
+ * states of the map with the same chunks (undo and redo).
+ * Least recently drawn images are evicted while the cache
+ * exceeds its memory budget
+ *
+ * @author	Pedro Sampaio
+ * @since	1.8
+ *
+ */
+public class ChunkRasterCache {
+
+	private LinkedHashMap<Long, Raster> rasters;	// images of chunks in order of use (least recently used first)
+	private TileImageCache tileImages;	// images of the tiles drawn on the chunks
+	private TileTable tileTable;		// the table of tiles the images were drawn with
+	private long memoryBudget;			// maximum bytes of the cached images
+	private long cachedBytes;			// bytes of the cached images
+	private int redraws;				// number of images drawn (to measure invalidation)
+
+	/**
+	 * Class that keeps the image of a chunk and the
+	 * signature of the content it was drawn with
+	 */
+	private static class Raster {
+		private BufferedImage image;	// the image of the chunk
+		private long signature;			// signature of the content of the chunk drawn on the image
+	}
+
+	/**
+	 * Constructor for an empty cache without memory limit
+	 *
+	 * @param tileImages	the images of the tiles drawn on the chunks
+	 */
+	public ChunkRasterCache(TileImageCache tileImages) {
+		this.tileImages = tileImages;
+		rasters = new LinkedHashMap<Long, Raster>(64, 0.75f, true);
+		memoryBudget = Long.MAX_VALUE;
+	}
+
+	/**
+	 * Gets the image of a chunk of the map, drawing it
+	 * again if its content changed since it was drawn
+	 *
+	 * @param map		the map of the chunk
+	 * @param chunkI	the i-index (line) of the chunk (in chunk units)
+	 * @param chunkJ	the j-index (column) of the chunk (in chunk units)
+	 * @param tileSize	the size of the tiles in pixels
+	 * @return	the image of the chunk (Chunk.SIZE tiles on each axis)
+	 * 			or null if the chunk has no tiles
+	 */
+	public BufferedImage getRaster(Map map, int chunkI, int chunkJ, int tileSize) {
+		TileTable table = TilesetConfig.getInstance().getTileTable();
+		// tilesets changed since the images were drawn
+		if(table != tileTable) {
+			clear();
+			tileTable = table;
+		}
+
+		long key = ChunkMap.key(chunkI, chunkJ);
+		long signature = signature(map, chunkI << Chunk.SHIFT, chunkJ << Chunk.SHIFT, tileSize);
+		Raster raster = rasters.get(key);
+		// empty chunks are not drawn
+		if(signature == 0) {
+			if(raster != null) {
+				cachedBytes -= getBytes(raster.image);
+				rasters.remove(key);
+			}
+			return null;
+		}
+		if(raster != null && raster.signature == signature)
+			return raster.image;
+
+		// draws the chunk (reusing its image if it has the size of the chunk)
+		int size = Chunk.SIZE * tileSize;
+		if(raster == null) {
+			raster = new Raster();
+			rasters.put(key, raster);
+		}
+		else if(raster.image.getWidth() != size) {
+			cachedBytes -= getBytes(raster.image);
+			raster.image = null;
+		}
+		Graphics2D g;
+		if(raster.image == null) {
+			raster.image = RenderTarget.createCompatibleImage(size, size);
+			cachedBytes += getBytes(raster.image);
+			g = raster.image.createGraphics();
+		}
+		else {
+			g = raster.image.createGraphics();
+			g.setComposite(AlphaComposite.Clear);
+			g.fillRect(0, 0, size, size);
+		}
+		draw(g, map, chunkI << Chunk.SHIFT, chunkJ << Chunk.SHIFT, tileSize);
+		g.dispose();
+		raster.signature = signature;
+		redraws++;
+		evict();
+		return raster.image;
+	}
+
+	/**
+	 * Calculates the signature of the content of a chunk of the map:
+	 * content hashes of the chunk in each layer mixed in the order
+	 * of the layers with their opacity
+	 *
+	 * @param map		the map of the chunk
+	 * @param firstI	the i-index (line) of the first line of the chunk
+	 * @param firstJ	the j-index (column) of the first column of the chunk
+	 * @param tileSize	the size of the tiles in pixels
+	 * @return	the signature of the chunk (0 if it has no tiles)
+	 */
+	private static long signature(Map map, int firstI, int firstJ, int tileSize) {
+		long signature = 0;
+		ArrayList<Layer> layers = map.getLayers();
+		for(int l = 0; l < layers.size(); l++) {
+			Layer layer = layers.get(l);
+			long hash = layer.getContentHash(firstI, firstJ, Chunk.SIZE, Chunk.SIZE);
+			if(hash != 0)
+				signature += ContentHash.part(((long) l << 32) | Float.floatToIntBits(layer.getOpacity()), hash);
+		}
+		if(signature == 0)
+			return 0;
+		return ContentHash.part(tileSize, signature);
+	}
+
+	/**
+	 * Draws the tiles of all layers of a chunk at their opacity
+	 *
+	 * @param g			graphics of the image of the chunk
+	 * @param map		the map of the chunk
+	 * @param firstI	the i-index (line) of the first line of the chunk
+	 * @param firstJ	the j-index (column) of the first column of the chunk
+	 * @param tileSize	the size of the tiles in pixels
+	 */
+	private void draw(Graphics2D g, Map map, int firstI, int firstJ, int tileSize) {
+		ArrayList<Layer> layers = map.getLayers();
+		long key = ChunkMap.key(firstI >> Chunk.SHIFT, firstJ >> Chunk.SHIFT);
+		int[] line = new int[Chunk.SIZE];
+		for(int l = 0; l < layers.size(); l++) {
+			Layer layer = layers.get(l);
+			// layers without tiles in the chunk are skipped
+			if(layer.getChunks().get(key) == null)
+				continue;
+			g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, layer.getOpacity()));
+			for(int ci = 0; ci < Chunk.SIZE; ci++) {
+				if(layer.isRowEmpty(firstI + ci))
+					continue;
+				layer.getTileIDs(firstI + ci, firstJ, line, 0, Chunk.SIZE);
+				for(int cj = 0; cj < Chunk.SIZE; cj++) {
+					BufferedImage tImage = line[cj] == 0 ? null : tileImages.getImage(line[cj]);
+					if(tImage != null)
+						g.drawImage(tImage, cj * tileSize, ci * tileSize, null);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Evicts the least recently used images while
+	 * the cache exceeds its memory budget (the most
+	 * recently used image is always kept)
+	 */
+	private void evict() {
+		Iterator<Raster> it = rasters.values().iterator();
+		while(cachedBytes > memoryBudget && rasters.size() > 1) {
+			cachedBytes -= getBytes(it.next().image);
+			it.remove();
+		}
+	}
+
+	/**
+	 * @param image	an image of a chunk
+	 * @return	the approximated number of bytes of the image
+	 */
+	private static long getBytes(BufferedImage image) {
+		return 64 + 4L * image.getWidth() * image.getHeight();
+	}
+
+	/**
+	 * Discards all cached images
+	 */
+	public void clear() {
+		rasters.clear();
+		cachedBytes = 0;
+	}
+
+	/**
+	 * Limits the memory of the cached images, evicting the
+	 * least recently used ones above it
+	 *
+	 * @param megabytes	maximum memory of the cached images in megabytes (0 for no limit)
+	 */
+	public void setMemoryBudget(int megabytes) {
+		memoryBudget = megabytes > 0 ? megabytes * 1024L * 1024L : Long.MAX_VALUE;
+		evict();
+	}
+
+	/**
+	 * @return the approximated number of bytes of the cached images
+	 */
+	public long getCachedBytes() {
+		return cachedBytes;
+	}
+
+	/**
+	 * @return the number of cached images
+	 */
+	public int size() {
+		return rasters.size();
+	}
+
+	/**
+	 * @return the number of images drawn since the cache was created
+	 */
+	public int getRedraws() {
+		return redraws;
+	}
+}
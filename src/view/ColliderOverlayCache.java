@@ -0,0 +1,221 @@
+package view;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import model.Chunk;
+import model.ChunkMap;
+import model.ColliderMask;
+import model.ContentHash;
+
+/**
+ * Cache of the images of the colliders of the chunks of the map,
+ * drawn as an overlay on top of the tiles, so colliders are drawn
+ * with one image for each visible chunk with colliders instead
+ * of one symbol for each visible collider. Symbols of physical
+ * and trigger colliders are drawn once for the size of the tiles
+ * and copied to the images of the chunks. Each image keeps the
+ * content hash of the colliders of its chunk, and it is drawn
+ * again only when a collider of the chunk changes (changes of
+ * tiles and layers do not draw it again). Least recently drawn
+ * images are evicted while the cache exceeds its memory budget
+ *
+ * @author	Pedro Sampaio
+ * @since	1.8
+ *
+ */
+public class ColliderOverlayCache {
+
+	private LinkedHashMap<Long, Overlay> overlays;	// images of chunks in order of use (least recently used first)
+	private BufferedImage physicalSprite;	// symbol of physical colliders for the size of the tiles
+	private BufferedImage triggerSprite;	// symbol of trigger colliders for the size of the tiles
+	private int spriteSize;				// size of the tiles the symbols were drawn for
+	private long memoryBudget;			// maximum bytes of the cached images
+	private long cachedBytes;			// bytes of the cached images
+	private int redraws;				// number of images drawn (to measure invalidation)
+
+	/**
+	 * Class that keeps the image of the colliders of a
+	 * chunk and the signature of the colliders drawn
+	 */
+	private static class Overlay {
+		private BufferedImage image;	// the image of the colliders of the chunk
+		private long signature;			// signature of the colliders of the chunk drawn on the image
+	}
+
+	/**
+	 * Constructor for an empty cache without memory limit
+	 */
+	public ColliderOverlayCache() {
+		overlays = new LinkedHashMap<Long, Overlay>(64, 0.75f, true);
+		memoryBudget = Long.MAX_VALUE;
+	}
+
+	/**
+	 * Gets the image of the colliders of a chunk, drawing
+	 * it again if its colliders changed since it was drawn
+	 *
+	 * @param colliders	the colliders of the map
+	 * @param chunkI	the i-index (line) of the chunk (in chunk units)
+	 * @param chunkJ	the j-index (column) of the chunk (in chunk units)
+	 * @param tileSize	the size of the tiles in pixels
+	 * @return	the image of the colliders of the chunk (Chunk.SIZE tiles
+	 * 			on each axis) or null if the chunk has no colliders
+	 */
+	public BufferedImage getOverlay(ColliderMask colliders, int chunkI, int chunkJ, int tileSize) {
+		long key = ChunkMap.key(chunkI, chunkJ);
+		long[] lines = colliders.getChunks().get(key);
+		long hash = lines == null ? 0 : colliders.getContentHash(chunkI << Chunk.SHIFT, chunkJ << Chunk.SHIFT,
+																	Chunk.SIZE, Chunk.SIZE);
+		Overlay overlay = overlays.get(key);
+		// chunks without colliders are not drawn
+		if(hash == 0) {
+			if(overlay != null) {
+				cachedBytes -= getBytes(overlay.image);
+				overlays.remove(key);
+			}
+			return null;
+		}
+		long signature = ContentHash.part(tileSize, hash);
+		if(overlay != null && overlay.signature == signature)
+			return overlay.image;
+
+		// draws the colliders (reusing the image if it has the size of the chunk)
+		int size = Chunk.SIZE * tileSize;
+		if(overlay == null) {
+			overlay = new Overlay();
+			overlays.put(key, overlay);
+		}
+		else if(overlay.image.getWidth() != size) {
+			cachedBytes -= getBytes(overlay.image);
+			overlay.image = null;
+		}
+		Graphics2D g;
+		if(overlay.image == null) {
+			overlay.image = RenderTarget.createCompatibleImage(size, size);
+			cachedBytes += getBytes(overlay.image);
+			g = overlay.image.createGraphics();
+		}
+		else {
+			g = overlay.image.createGraphics();
+			g.setComposite(AlphaComposite.Clear);
+			g.fillRect(0, 0, size, size);
+			g.setComposite(AlphaComposite.SrcOver);
+		}
+		draw(g, colliders, lines, chunkI << Chunk.SHIFT, chunkJ << Chunk.SHIFT, tileSize);
+		g.dispose();
+		overlay.signature = signature;
+		redraws++;
+		evict();
+		return overlay.image;
+	}
+
+	/**
+	 * Draws the symbols of the colliders of a chunk
+	 *
+	 * @param g			graphics of the image of the chunk
+	 * @param colliders	the colliders of the map
+	 * @param lines		the words of the lines of the chunk
+	 * @param firstI	the i-index (line) of the first line of the chunk
+	 * @param firstJ	the j-index (column) of the first column of the chunk
+	 * @param tileSize	the size of the tiles in pixels
+	 */
+	private void draw(Graphics2D g, ColliderMask colliders, long[] lines, int firstI, int firstJ, int tileSize) {
+		if(spriteSize != tileSize)
+			createSprites(tileSize);
+		for(int ci = 0; ci < Chunk.SIZE; ci++) {
+			// lines without colliders are skipped
+			if(lines[ci] == 0)
+				continue;
+			for(int cj = 0; cj < Chunk.SIZE; cj++) {
+				int collider = colliders.get(firstI + ci, firstJ + cj);
+				if(collider != ColliderMask.NONE)
+					g.drawImage(collider == ColliderMask.TRIGGER ? triggerSprite : physicalSprite,
+								cj * tileSize, ci * tileSize, null);
+			}
+		}
+	}
+
+	/**
+	 * Draws the symbols of physical and trigger colliders for a size
+	 * of tiles (one pixel larger than the tile for the shadow of the symbol)
+	 *
+	 * @param tileSize	the size of the tiles in pixels
+	 */
+	private void createSprites(int tileSize) {
+		physicalSprite = RenderTarget.createCompatibleImage(tileSize + 1, tileSize + 1);
+		Graphics2D g = physicalSprite.createGraphics();
+		ViewportMap.drawCollider(g, false, new Rectangle(0, 0, tileSize, tileSize));
+		g.dispose();
+		triggerSprite = RenderTarget.createCompatibleImage(tileSize + 1, tileSize + 1);
+		g = triggerSprite.createGraphics();
+		ViewportMap.drawCollider(g, true, new Rectangle(0, 0, tileSize, tileSize));
+		g.dispose();
+		spriteSize = tileSize;
+	}
+
+	/**
+	 * Evicts the least recently used images while
+	 * the cache exceeds its memory budget (the most
+	 * recently used image is always kept)
+	 */
+	private void evict() {
+		Iterator<Overlay> it = overlays.values().iterator();
+		while(cachedBytes > memoryBudget && overlays.size() > 1) {
+			cachedBytes -= getBytes(it.next().image);
+			it.remove();
+		}
+	}
+
+	/**
+	 * @param image	an image of a chunk
+	 * @return	the approximated number of bytes of the image
+	 */
+	private static long getBytes(BufferedImage image) {
+		return 64 + 4L * image.getWidth() * image.getHeight();
+	}
+
+	/**
+	 * Discards all cached images
+	 */
+	public void clear() {
+		overlays.clear();
+		cachedBytes = 0;
+	}
+
+	/**
+	 * Limits the memory of the cached images, evicting the
+	 * least recently used ones above it
+	 *
+	 * @param megabytes	maximum memory of the cached images in megabytes (0 for no limit)
+	 */
+	public void setMemoryBudget(int megabytes) {
+		memoryBudget = megabytes > 0 ? megabytes * 1024L * 1024L : Long.MAX_VALUE;
+		evict();
+	}
+
+	/**
+	 * @return the approximated number of bytes of the cached images
+	 */
+	public long getCachedBytes() {
+		return cachedBytes;
+	}
+
+	/**
+	 * @return the number of cached images
+	 */
+	public int size() {
+		return overlays.size();
+	}
+
+	/**
+	 * @return the number of images drawn since the cache was created
+	 */
+	public int getRedraws() {
+		return redraws;
+	}
+}
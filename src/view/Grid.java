@@ -1,17 +1,14 @@
 package view;
 
-import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
-import java.awt.Stroke;
-import java.awt.geom.Rectangle2D;
+import java.awt.Shape;
+import java.awt.image.BufferedImage;
 
 import javax.swing.JPanel;
 
-import model.MapConfig;
-
 /**
  * Draws a grid on the map viewport to help visualizing and
  * creating the 2D map with 2D Map Builder
@@ -28,18 +25,10 @@ public class Grid extends JPanel {
 	private int mapSizeX;
 	private int mapSizeY;
 	private Color lineColor;
+	private transient BufferedImage hStrip;	// dashed horizontal line of the grid (null until the grid is first drawn)
+	private transient BufferedImage vStrip;	// dashed vertical line of the grid (null until the grid is first drawn)
 
 	/**
-	 * Default Constructor
-	 */
-    public Grid() {
-        this.tileSize = MapConfig.tileSize;
-        this.mapSizeX = MapConfig.mapSizeX;
-        this.mapSizeY = MapConfig.mapSizeY;
-        this.lineColor = Color.BLACK;
-    }
-    
-    /**
      * Constructor with grid parameters
      * 
      * @param tileSize		// size of the tile to consider for grid drawing
@@ -55,21 +44,73 @@ public class Grid extends JPanel {
     }
 
     /**
-     * Grid drawing on visible viewport
-     * @param bufferedGraphics	buffered graphics to drawn on  
-     * @param tileRect  tile rectangle on screen to draw contour
+     * Gets the strips of dashed lines of the grid, drawn once
+     * and kept for the next paints (drawn again only when a
+     * longer line is needed). Dashes restart on each cell, so
+     * strips are drawn at the corners of cells
+     * 
+     * @author	Pedro Sampaio
+     * @since	1.8
+     * @param width		the minimum length of the horizontal strip
+     * @param height	the minimum length of the vertical strip
      */
-    protected void paintContourGrid(Graphics2D bufferedGraphics, Rectangle tileRect) {
-		
-		// set color of the lines in grid
-    	bufferedGraphics.setColor(lineColor);			
-		//set the stroke of the copy, not the original 
-		Stroke dashed = new BasicStroke(0.5f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0, new float[]{3}, 0);
-		// sets stroke
-		bufferedGraphics.setStroke(dashed);
-		// draws on buffered image the dashed rectangle
-		bufferedGraphics.draw(new Rectangle2D.Double(tileRect.x, tileRect.y, tileRect.width, tileRect.height));
+    private void createStrips(int width, int height) {
+    	if(hStrip != null && hStrip.getWidth() >= width && vStrip.getHeight() >= height)
+    		return;
+    	// lengths of whole cells, at least as long as previous strips
+    	width = Math.max(hStrip == null ? 0 : hStrip.getWidth(), (width / tileSize + 1) * tileSize);
+    	height = Math.max(vStrip == null ? 0 : vStrip.getHeight(), (height / tileSize + 1) * tileSize);
+    	hStrip = new BufferedImage(width, 1, BufferedImage.TYPE_INT_ARGB);
+    	vStrip = new BufferedImage(1, height, BufferedImage.TYPE_INT_ARGB);
+    	int rgb = lineColor.getRGB();
+    	// dashes of 3 pixels with gaps of 3 pixels
+    	for(int k = 0; k < width; k++)
+    		if(((k % tileSize) / 3) % 2 == 0)
+    			hStrip.setRGB(k, 0, rgb);
+    	for(int k = 0; k < height; k++)
+    		if(((k % tileSize) / 3) % 2 == 0)
+    			vStrip.setRGB(0, k, rgb);
+    }
 
+    /**
+     * Fills an area with the grid, with the cells aligned to a
+     * given corner, drawing a strip of dashed line for each line
+     * of the grid instead of stroking it
+     * 
+     * @author	Pedro Sampaio
+     * @since	1.8
+     * @param g			graphics to draw on
+     * @param area		the area to fill with the grid
+     * @param anchorX	x of the top-left corner of a cell of the grid
+     * @param anchorY	y of the top-left corner of a cell of the grid
+     */
+    private void fillGrid(Graphics2D g, Rectangle area, int anchorX, int anchorY) {
+    	// first corner of a cell on the top-left of the area
+    	int firstX = anchorX + Math.floorDiv(area.x - anchorX, tileSize) * tileSize;
+    	int firstY = anchorY + Math.floorDiv(area.y - anchorY, tileSize) * tileSize;
+    	int endX = area.x + area.width, endY = area.y + area.height;
+    	createStrips(endX - firstX, endY - firstY);
+
+    	Shape clip = g.getClip();
+    	g.clipRect(area.x, area.y, area.width, area.height);
+    	for(int y = firstY; y < endY; y += tileSize)
+    		g.drawImage(hStrip, firstX, y, null);
+    	for(int x = firstX; x < endX; x += tileSize)
+    		g.drawImage(vStrip, x, firstY, null);
+    	g.setClip(clip);
+    }
+
+    /**
+     * Grid drawing on visible viewport: contour of the cells
+     * of an area, with the border of the last cells closed
+     * 
+     * @param bufferedGraphics	buffered graphics to drawn on  
+     * @param cellsRect  rectangle of the cells on screen to draw contour
+     * 					(top-left corner of the first cell and size of all cells)
+     */
+    protected void paintContourGrid(Graphics2D bufferedGraphics, Rectangle cellsRect) {
+    	fillGrid(bufferedGraphics, new Rectangle(cellsRect.x, cellsRect.y, cellsRect.width + 1, cellsRect.height + 1),
+    				cellsRect.x, cellsRect.y);
     }
     
     /**
@@ -77,39 +118,7 @@ public class Grid extends JPanel {
      * @param g	graphics component
      */
     protected void paintGrid(Graphics g) {
-		
-		// set color of the lines in grid
-		g.setColor(lineColor);			
-		 
-		//creates a copy of the Graphics instance
-		Graphics2D g2d = (Graphics2D) g.create();
-		
-		//set the stroke of the copy, not the original 
-		Stroke dashed = new BasicStroke(1, BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0, new float[]{3}, 0);
-		g2d.setStroke(dashed);
-		
-		// draw vertical strokes
-	    int tileCount = 0;
-	    for (int i = 0; i <  tileSize *  mapSizeX; i +=  tileSize) {
-	    	g2d.drawLine(i, 0, i,  tileSize * mapSizeY);
-	    	tileCount++;
-	    }
-	    
-	    // at this point, tileCount should be equal to mapSizeX
-	    assert(tileCount == mapSizeX);
-	    
-	    tileCount = 0;
-	    // draw horizontal strokes
-		for (int i = 0; i < tileSize * mapSizeY; i += tileSize) {
-			g2d.drawLine(0, i, tileSize * mapSizeX, i);
-			tileCount++;
-		}
-		
-		// at this point, tileCount should be equal to mapSizeY
-		assert(tileCount == mapSizeY);
-		
-		//gets rid of the copy
-		g2d.dispose();
+    	fillGrid((Graphics2D) g, new Rectangle(0, 0, tileSize * mapSizeX, tileSize * mapSizeY), 0, 0);
     }
 
 }
\ No newline at end of file
@@ -14,6 +14,7 @@ import javax.swing.border.MatteBorder;
 
 import controller.FileManager;
 import controller.KeyboardControl;
+import model.ChunkStore;
 import model.Map;
 import model.MapConfig;
 import model.MapState;
@@ -25,6 +26,8 @@ import model.TilesetConfig;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Toolkit;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Observable;
 import java.util.Observer;
@@ -76,7 +79,7 @@ public class MainWindow extends JFrame implements Observer{
 	    // sets grid bag layout
 		getContentPane().setLayout(new GridLayout(1, 0, 0, 0));
 		// initializes last saved map 
-		lastSavedMap = new Map();
+		lastSavedMap = new Map(0, 0);
 	}
 
 	/**
@@ -95,6 +98,73 @@ public class MainWindow extends JFrame implements Observer{
 	 * undoing and redoing operation
 	 */
 	private final static int N_STATES = 10;
+	
+	/**
+	 * Engine used to keep the states: snapshots of the
+	 * map or journal of edits applied to a single map
+	 */
+	private final static MapState.Engine STATES_ENGINE = MapState.Engine.SNAPSHOT;
+	
+	/**
+	 * Maximum memory in megabytes of the states kept for
+	 * undoing and redoing operation (0 to limit states by
+	 * N_STATES instead of memory)
+	 */
+	private final static int STATES_MEMORY = 0;
+
+	/**
+	 * Number of states kept on the heap on each side of the
+	 * current one: other states are spilled to a temporary file
+	 * and undo depth is limited by disk instead of N_STATES,
+	 * with a compression of old states after each operation
+	 * (0 to keep all states on the heap, limited by N_STATES)
+	 */
+	private final static int HEAP_STATES = 0;
+
+	/**
+	 * Maximum memory in megabytes of the regions of a world
+	 * loaded at once: least recently used regions out of view
+	 * are saved and evicted above it (0 to keep all regions)
+	 */
+	private final static int REGIONS_MEMORY = 256;
+
+	/**
+	 * Maximum memory in megabytes of the images of tiles
+	 * sliced from the tilesets for drawing the map: least
+	 * recently drawn images are sliced again above it
+	 * (0 to keep all images)
+	 */
+	private final static int TILE_IMAGES_MEMORY = 64;
+
+	/**
+	 * Maximum memory in megabytes of the images of the chunks
+	 * of the map with all layers flattened: least recently
+	 * drawn chunks are drawn again above it (0 to keep all images)
+	 */
+	private final static int CHUNK_RASTERS_MEMORY = 128;
+
+	/**
+	 * Maximum memory in megabytes of the images of the colliders
+	 * of the chunks of the map: least recently drawn chunks
+	 * are drawn again above it (0 to keep all images)
+	 */
+	private final static int COLLIDER_OVERLAYS_MEMORY = 64;
+
+	/**
+	 * File that keeps the tiles of the layers off the heap,
+	 * mapped in memory, for maps bigger than the heap
+	 * (null to keep the tiles on the heap)
+	 */
+	private final static String TILES_FILE = null;
+
+	/**
+	 * Keeps the tiles of the layers on the heap in a palette
+	 * of the distinct tiles of each chunk with bit-packed
+	 * indices, instead of an int for each tile (saves memory
+	 * of large maps, but pastes and erases are slower: see
+	 * test.PaletteRunBenchmark)
+	 */
+	private final static boolean PALETTE_TILES = false;
 
 	/**
 	 * Launch the application creating a new frame (JFrame)
@@ -114,12 +184,27 @@ public class MainWindow extends JFrame implements Observer{
 					//System.setProperty("sun.java2d.trace", "log");
 
 					// sets default configurations
-					MapConfig.setDefault();
+					MapConfig.getInstance().setDefault();
 					Preferences.setDefault();
+					
+					// keeps tiles of layers in palettes of their chunks
+					MapConfig.getInstance().setPaletteChunks(PALETTE_TILES);
+					
+					// keeps tiles of layers off the heap if a file is configured
+					if(TILES_FILE != null) {
+						try {
+							MapConfig.getInstance().setChunkStore(new ChunkStore(new File(TILES_FILE)));
+						} catch (IOException e) {
+							e.printStackTrace();
+							System.err.println("MainWindow: Could not create tiles file, keeping tiles on heap");
+						}
+					}
 
 					// creates the states of the program with the max states
 					// being each state a map in some point of time
-					mapStates = new MapState(N_STATES); 
+					mapStates = new MapState(N_STATES, STATES_ENGINE); 
+					mapStates.setMemoryBudget(STATES_MEMORY);
+					mapStates.setHeapStates(HEAP_STATES);
 
 					// creates main frame
 					instance = new MainWindow();
@@ -257,8 +342,8 @@ public class MainWindow extends JFrame implements Observer{
 			instance.setTitle("Untitled*" + " - " + "2D Map Builder");
 
 		// updates map configuration informations as soon as 
-		// possible for map creation with correct sizes
-		MapConfig.updateConfig(project.getTileSize(), project.getMapSizeX(), project.getMapSizeY());
+		// possible for viewport creation with correct tile size
+		MapConfig.getInstance().updateConfig(project.getTileSize());
 		// sets the current project of the program
 		MapConfig.getInstance().setProject(project);
 		
@@ -271,7 +356,7 @@ public class MainWindow extends JFrame implements Observer{
 			tilesets.get(i).deleteObservers();
 
 		// resets list of tilesets
-		TilesetConfig.getInstance().getTilesets().clear();
+		TilesetConfig.getInstance().clearTilesets();
 
 		TilesetConfig.getInstance().deleteObservers();
 		MapConfig.getInstance().deleteObservers();
@@ -294,7 +379,7 @@ public class MainWindow extends JFrame implements Observer{
 			//recalculates first ID
 			tileset.setFirstID(TilesetConfig.getInstance().calculateFirstID());
 			// adds tileset to the list of tilesets
-			TilesetConfig.getInstance().getTilesets().add(tileset);
+			TilesetConfig.getInstance().addTileset(tileset);
 		}
 		
 		// sets current selected tileset as the first one in the list
@@ -303,6 +388,10 @@ public class MainWindow extends JFrame implements Observer{
 		// builds tileset panel
 		buildTilesetPanel(TilesetConfig.getInstance().getCurrentTileset()); // builds tileset panel with selected tileset
 
+		// limits the memory of the regions of worlds
+		if(project.getWorld() != null)
+			project.getWorld().setMemoryBudget(REGIONS_MEMORY);
+
 		// adds project saved map to the list of map states 
 		// (if its a new project a new map is created)
 		mapStates.AddState(project.getMap());
@@ -396,6 +485,10 @@ public class MainWindow extends JFrame implements Observer{
 	 */
 	private void drawViewport(JScrollPane scrollPaneMap, MapState mapStates) {
 		ViewportMap viewport = new ViewportMap(scrollPaneMap, mapStates);
+		// limits the memory of the images of tiles drawn
+		viewport.setTileImagesMemory(TILE_IMAGES_MEMORY);
+		viewport.setChunkRastersMemory(CHUNK_RASTERS_MEMORY);
+		viewport.setColliderOverlaysMemory(COLLIDER_OVERLAYS_MEMORY);
 		scrollPaneMap.setViewportView(viewport);
 	}
 
@@ -449,9 +542,12 @@ public class MainWindow extends JFrame implements Observer{
 	@Override
 	public void update(Observable obs, Object arg1) {
 		if(obs instanceof MapState) {
-			// updates title if last saved map isnt the current state
-			if(!lastSavedMap.equals(mapStates.getCurrentMap()))
+			// updates title if current state does not have the content of last saved map
+			// (undoing and redoing back to saved content or reverting changes are saved)
+			if(!MapConfig.getInstance().getProject().isSavedMap(mapStates.getCurrentMap())) {
 				setSaved(false);
+				MapConfig.getInstance().getProject().setSaved(false);
+			}
 			else { // makes sure that display is correctly set to saved (no "*")
 				setSaved(true);
 				// and sets project as saved
@@ -11,6 +11,7 @@ import java.awt.event.ActionListener;
 
 import javax.swing.Box;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
@@ -21,6 +22,7 @@ import javax.swing.text.PlainDocument;
 
 import controller.FileManager;
 import controller.IntegerFilter;
+import model.Chunk;
 import model.MapConfig;
 import model.MapState;
 
@@ -42,6 +44,10 @@ public class NewFileDialog extends JPanel {
 	private int tileSize;			// the dimension of a tile
 	private int mapSizeX;			// number of tiles in map on x-axis (columns)
 	private int mapSizeY;			// number of tiles in map on y-axis (lines)
+	private boolean unbounded;		// if the map has no fixed dimensions (infinite canvas)
+	private boolean world;			// if the map is a world of regions (dimensions are of each region)
+	private int regionsX;			// number of regions of the world on x-axis
+	private int regionsY;			// number of regions of the world on y-axis
 
 	private boolean canceled = true; // bool that represents if the dialog was canceled in some way(cancel or x button)
 
@@ -158,6 +164,72 @@ public class NewFileDialog extends JPanel {
 		dialogPanel.add(tSizeField, gbc_tSizeField);
 
 
+		// unbounded map option (dimensions are not used)
+		JCheckBox unboundedBox = new JCheckBox("Unbounded (infinite canvas)");
+		GridBagConstraints gbc_unboundedBox = new GridBagConstraints();
+		gbc_unboundedBox.anchor = GridBagConstraints.WEST;
+		gbc_unboundedBox.insets = new Insets(0, 0, 5, 5);
+		gbc_unboundedBox.gridwidth = 2;
+		gbc_unboundedBox.gridx = 0;
+		gbc_unboundedBox.gridy = 3;
+		dialogPanel.add(unboundedBox, gbc_unboundedBox);
+
+		// world of regions option (dimensions are of each region)
+		JCheckBox worldBox = new JCheckBox("World of regions (size of each region)");
+		GridBagConstraints gbc_worldBox = new GridBagConstraints();
+		gbc_worldBox.anchor = GridBagConstraints.WEST;
+		gbc_worldBox.insets = new Insets(0, 0, 5, 5);
+		gbc_worldBox.gridwidth = 2;
+		gbc_worldBox.gridx = 0;
+		gbc_worldBox.gridy = 4;
+		dialogPanel.add(worldBox, gbc_worldBox);
+
+		// number of regions of the world
+		GridBagConstraints gbc_3 = new GridBagConstraints();
+		gbc_3.anchor = GridBagConstraints.WEST;
+		gbc_3.insets = new Insets(0, 0, 5, 5);
+		gbc_3.gridx = 0;
+		gbc_3.gridy = 5;
+		JLabel label_4 = new JLabel("Regions (x, y): ");
+		dialogPanel.add(label_4, gbc_3);
+		JTextField xRegionsField = new JTextField(5);
+		xRegionsField.setHorizontalAlignment(SwingConstants.RIGHT);
+		xRegionsField.setText("4");
+		xRegionsField.setEnabled(false);
+		GridBagConstraints gbc_xRegionsField = new GridBagConstraints();
+		gbc_xRegionsField.anchor = GridBagConstraints.WEST;
+		gbc_xRegionsField.insets = new Insets(0, 0, 5, 5);
+		gbc_xRegionsField.gridx = 1;
+		gbc_xRegionsField.gridy = 5;
+		dialogPanel.add(xRegionsField, gbc_xRegionsField);
+		JTextField yRegionsField = new JTextField(5);
+		yRegionsField.setHorizontalAlignment(SwingConstants.RIGHT);
+		yRegionsField.setText("4");
+		yRegionsField.setEnabled(false);
+		GridBagConstraints gbc_yRegionsField = new GridBagConstraints();
+		gbc_yRegionsField.anchor = GridBagConstraints.EAST;
+		gbc_yRegionsField.insets = new Insets(0, 0, 5, 5);
+		gbc_yRegionsField.gridx = 1;
+		gbc_yRegionsField.gridy = 5;
+		dialogPanel.add(yRegionsField, gbc_yRegionsField);
+
+		// unbounded maps and worlds are exclusive options
+		ActionListener optionsListener = new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				if(e.getSource() == unboundedBox && unboundedBox.isSelected())
+					worldBox.setSelected(false);
+				else if(e.getSource() == worldBox && worldBox.isSelected())
+					unboundedBox.setSelected(false);
+				xField.setEnabled(!unboundedBox.isSelected());
+				yField.setEnabled(!unboundedBox.isSelected());
+				xRegionsField.setEnabled(worldBox.isSelected());
+				yRegionsField.setEnabled(worldBox.isSelected());
+			}
+		};
+		unboundedBox.addActionListener(optionsListener);
+		worldBox.addActionListener(optionsListener);
+
 		// adds filter to allow only integers in text field
 		// and a limit of characters in input
 		PlainDocument doc = (PlainDocument) xField.getDocument();
@@ -166,6 +238,10 @@ public class NewFileDialog extends JPanel {
 		doc.setDocumentFilter(new IntegerFilter(4));
 		doc = (PlainDocument) tSizeField.getDocument();
 		doc.setDocumentFilter(new IntegerFilter(3));
+		doc = (PlainDocument) xRegionsField.getDocument();
+		doc.setDocumentFilter(new IntegerFilter(3));
+		doc = (PlainDocument) yRegionsField.getDocument();
+		doc.setDocumentFilter(new IntegerFilter(3));
 
 		Component verticalStrut = Box.createVerticalStrut(20);
 		GridBagConstraints gbc_verticalStrut = new GridBagConstraints();
@@ -236,16 +312,24 @@ public class NewFileDialog extends JPanel {
 			@Override
 			public void actionPerformed(ActionEvent e) {
 
-				// dimensions data
-				mapSizeX = Integer.parseInt(xField.getText()); // filter guarantee to be of integer nature
-				mapSizeY = Integer.parseInt(yField.getText()); // filter guarantee to be of integer nature
+				// dimensions data (unbounded maps have no dimensions)
+				unbounded = unboundedBox.isSelected();
+				mapSizeX = unbounded ? 0 : Integer.parseInt(xField.getText()); // filter guarantee to be of integer nature
+				mapSizeY = unbounded ? 0 : Integer.parseInt(yField.getText()); // filter guarantee to be of integer nature
 				tileSize = Integer.parseInt(tSizeField.getText()); // filter guarantee to be of integer nature
+				world = worldBox.isSelected();
+				regionsX = world ? Integer.parseInt(xRegionsField.getText()) : 0;
+				regionsY = world ? Integer.parseInt(yRegionsField.getText()) : 0;
 				// updates tileset name
 				tilesetName = tfTilesetName.getText();
 				
 				// guarantee integers are at least 10 *minimum size*
-				if(mapSizeX < 10 || mapSizeY < 10 || tileSize < 10)
+				if((!unbounded && (mapSizeX < 10 || mapSizeY < 10)) || tileSize < 10)
 					JOptionPane.showMessageDialog(MainWindow.getInstance(), "Values must be bigger or equal ten (10). \nPlease review the provided information.");
+				// regions are streamed chunk by chunk
+				else if(world && (regionsX < 1 || regionsY < 1 || mapSizeX % Chunk.SIZE != 0 || mapSizeY % Chunk.SIZE != 0))
+					JOptionPane.showMessageDialog(MainWindow.getInstance(), "Worlds must have at least one region and regions must be multiples of "
+													+ Chunk.SIZE + " tiles. \nPlease review the provided information.");
 				else{
 					Window dialogWindow = SwingUtilities.getWindowAncestor(okay); // gets dialog window to be able to close it
 
@@ -339,6 +423,34 @@ public class NewFileDialog extends JPanel {
 	}
 
 
+	/**
+	 * @return if the map has no fixed dimensions (infinite canvas)
+	 */
+	public boolean isUnbounded() {
+		return unbounded;
+	}
+
+	/**
+	 * @return if the map is a world of regions (map sizes are of each region)
+	 */
+	public boolean isWorld() {
+		return world;
+	}
+
+	/**
+	 * @return the number of regions of the world on x-axis
+	 */
+	public int getRegionsX() {
+		return regionsX;
+	}
+
+	/**
+	 * @return the number of regions of the world on y-axis
+	 */
+	public int getRegionsY() {
+		return regionsY;
+	}
+
 	/**
 	 * Checks if the dialog was canceled
 	 * @return if the dialog was canceled
@@ -140,11 +140,10 @@ public class NewTilesetDialog extends JPanel{
 					Window dialogWindow = SwingUtilities.getWindowAncestor(okay); // gets dialog window to be able to close it
 					
 					// creates new tileset with information provided
-					Tileset newTileset = TilesetConfig.getInstance().createTileset(tfTilesetName.getText(), MapConfig.tileSize, absolutePath);
-					// get list of tilesets to add new tileset
-					ArrayList<Tileset> tilesets = TilesetConfig.getInstance().getTilesets();
+					Tileset newTileset = TilesetConfig.getInstance().createTileset(tfTilesetName.getText(), MapConfig.getInstance().getTileSize(), absolutePath);
 					// adds new tileset to the list of tilesets
-					tilesets.add(newTileset);
+					TilesetConfig.getInstance().addTileset(newTileset);
+					ArrayList<Tileset> tilesets = TilesetConfig.getInstance().getTilesets();
 					// sets new tileset as current selected tileset
 					TilesetConfig.getInstance().setCurrentTilesetIdx(tilesets.size()-1);
 					// notify observers of the newly added and selected tileset
@@ -205,6 +205,31 @@ public class PreferencesDialog extends JPanel {
 		gbc_cbGrid.gridx = 1;
 		gbc_cbGrid.gridy = 8;
 		dialogPanel.add(cbGrid, gbc_cbGrid);	
+
+		// Show Colliders Option
+		GridBagConstraints gbcColliders = new GridBagConstraints();
+		gbcColliders.insets = new Insets(0, 0, 5, 5);
+		gbcColliders.anchor = GridBagConstraints.WEST;
+		gbcColliders.gridx = 0;
+		gbcColliders.gridy = 9;
+		JLabel lbColliders = new JLabel("Show Colliders: ");
+		dialogPanel.add(lbColliders, gbcColliders);
+
+		// show/hide colliders checkbox
+		JCheckBox cbColliders = new JCheckBox();
+		cbColliders.setSelected(Preferences.viewportShowColliders); // sets current preference
+		// show/hide colliders checkbox listener
+		cbColliders.addItemListener(new ItemListener() {
+			public void itemStateChanged(ItemEvent e) {
+				Preferences.viewportShowColliders = cbColliders.isSelected(); // sets the new preference
+				Preferences.getInstance().dispatchChanges(); // notify observers for immediate preview
+			}
+		});
+		GridBagConstraints gbc_cbColliders = new GridBagConstraints();
+		gbc_cbColliders.insets = new Insets(0, 0, 5, 0);
+		gbc_cbColliders.gridx = 1;
+		gbc_cbColliders.gridy = 9;
+		dialogPanel.add(cbColliders, gbc_cbColliders);
 		
 		// shows dialog window
 		JOptionPane.showOptionDialog(
@@ -0,0 +1,95 @@
+package view;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+/**
+ * Image kept between frames to draw on before drawing on
+ * screen, compatible with the display (premultiplied alpha
+ * when there is no display) so it is drawn on screen without
+ * conversion. The image and its graphics are only allocated
+ * again when the size of the frame changes (viewport resized
+ * or zoomed), being cleared at the start of each other frame
+ *
+ * @author	Pedro Sampaio
+ * @since	1.8
+ *
+ */
+public class RenderTarget {
+
+	private BufferedImage image;	// the image of the target (null if not allocated yet)
+	private Graphics2D graphics;	// the graphics of the image, kept between frames
+	private long allocatedBytes;	// bytes allocated since the last report
+
+	/**
+	 * Starts a frame, allocating the image if it does not have the
+	 * size of the frame and clearing it to transparent otherwise
+	 *
+	 * @param width		the width of the frame in pixels
+	 * @param height	the height of the frame in pixels
+	 * @return	the graphics to draw the frame on (with source over composite)
+	 */
+	public Graphics2D begin(int width, int height) {
+		if(image == null || image.getWidth() != width || image.getHeight() != height) {
+			release();
+			image = createCompatibleImage(width, height);
+			graphics = image.createGraphics();
+			allocatedBytes += 4L * width * height;
+		}
+		else {
+			graphics.setComposite(AlphaComposite.Clear);
+			graphics.fillRect(0, 0, width, height);
+		}
+		graphics.setComposite(AlphaComposite.SrcOver);
+		return graphics;
+	}
+
+	/**
+	 * Creates an image compatible with the display
+	 * (premultiplied alpha when there is no display)
+	 *
+	 * @param width		the width of the image in pixels
+	 * @param height	the height of the image in pixels
+	 * @return	the translucent image created
+	 */
+	static BufferedImage createCompatibleImage(int width, int height) {
+		if(GraphicsEnvironment.isHeadless())
+			return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+		GraphicsConfiguration gfxConfig = GraphicsEnvironment.getLocalGraphicsEnvironment()
+												.getDefaultScreenDevice().getDefaultConfiguration();
+		return gfxConfig.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+	}
+
+	/**
+	 * Frees the image of the target
+	 */
+	public void release() {
+		if(graphics != null)
+			graphics.dispose();
+		graphics = null;
+		image = null;
+	}
+
+	/**
+	 * @return the image of the last frame (null if not allocated yet)
+	 */
+	public BufferedImage getImage() {
+		return image;
+	}
+
+	/**
+	 * Gets the bytes of images allocated since the last
+	 * call, to report the allocation of each frame
+	 *
+	 * @return	the bytes allocated since the last call
+	 */
+	public long takeAllocatedBytes() {
+		long bytes = allocatedBytes;
+		allocatedBytes = 0;
+		return bytes;
+	}
+}
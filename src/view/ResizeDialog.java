@@ -34,6 +34,18 @@ public class ResizeDialog extends JPanel{
 	 */
 	public ResizeDialog (MapState mapStates) {
 
+		// unbounded maps have no dimensions to resize
+		if(mapStates.getCurrentMap().isUnbounded()) {
+			JOptionPane.showMessageDialog(MainWindow.getInstance(), "Unbounded maps grow as they are painted and cannot be resized.");
+			return;
+		}
+
+		// worlds have the dimensions of their regions
+		if(MapConfig.getInstance().getProject().getWorld() != null) {
+			JOptionPane.showMessageDialog(MainWindow.getInstance(), "Worlds have the dimensions of their regions and cannot be resized.");
+			return;
+		}
+
 		// text fields for dimension input
 		JTextField xField = new JTextField(5);
 		JTextField yField = new JTextField(5);
@@ -41,8 +53,8 @@ public class ResizeDialog extends JPanel{
 		yField.setHorizontalAlignment(SwingConstants.RIGHT);
 
 		// set default values as current ones
-		xField.setText(Integer.toString(MapConfig.mapSizeX));
-		yField.setText(Integer.toString(MapConfig.mapSizeY));
+		xField.setText(Integer.toString(mapStates.getCurrentMap().getWidth()));
+		yField.setText(Integer.toString(mapStates.getCurrentMap().getHeight()));
 
 		// creates the dialog panel with its components
 		JPanel dialogPanel = new JPanel();
@@ -86,12 +98,10 @@ public class ResizeDialog extends JPanel{
 				else{
 					Window dialogWindow = SwingUtilities.getWindowAncestor(okay); // gets dialog window to be able to close it
 
+					// redimensions map data
+					mapStates.getCurrentMap().resizeMap(mapSizeX, mapSizeY);
 					// resize window
-					MapConfig.mapSizeX = Integer.parseInt(xField.getText()); // filter guarantee to be of integer nature
-					MapConfig.mapSizeY = Integer.parseInt(yField.getText()); // filter guarantee to be of integer nature
 					MapConfig.getInstance().dispatchChanges(false);
-					// redimensions map data
-					mapStates.getCurrentMap().resizeMap();
 
 					// closes dialog window
 					if (dialogWindow != null) {
@@ -0,0 +1,158 @@
+package view;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import model.TileTable;
+import model.Tileset;
+import model.TilesetConfig;
+
+/**
+ * Cache of the images of tiles indexed by global id, sliced
+ * from their tileset images only once and kept compatible with
+ * the display (premultiplied alpha when there is no display),
+ * so tiles are drawn without slicing and converting them on
+ * every paint. Images are sliced when first drawn, discarded
+ * when the table of tiles is rebuilt (tilesets added, removed
+ * or with first ids changed) or when the image of their tileset
+ * is replaced, and the least recently drawn images are evicted
+ * while the cache exceeds its memory budget
+ *
+ * @author	Pedro Sampaio
+ * @since	1.8
+ *
+ */
+public class TileImageCache {
+
+	private LinkedHashMap<Integer, Entry> images;	// images of tiles in order of use (least recently used first)
+	private TileTable tileTable;	// the table of tiles the images were sliced with
+	private long memoryBudget;		// maximum bytes of the cached images
+	private long cachedBytes;		// bytes of the cached images
+
+	/**
+	 * Class that keeps the image of a tile and the
+	 * tileset image the tile was sliced from
+	 */
+	private static class Entry {
+		private BufferedImage image;	// the image of the tile
+		private BufferedImage source;	// the tileset image the tile was sliced from
+	}
+
+	/**
+	 * Constructor for an empty cache without memory limit
+	 */
+	public TileImageCache() {
+		images = new LinkedHashMap<Integer, Entry>(256, 0.75f, true);
+		memoryBudget = Long.MAX_VALUE;
+	}
+
+	/**
+	 * Gets the image of a tile, slicing it from the image
+	 * of its tileset if it is not cached yet
+	 *
+	 * @param id	the global id of the tile
+	 * @return	the image of the tile or null if there is no tile with the given id
+	 */
+	public BufferedImage getImage(int id) {
+		TileTable table = TilesetConfig.getInstance().getTileTable();
+		// tilesets changed since the images were sliced
+		if(table != tileTable) {
+			clear();
+			tileTable = table;
+		}
+
+		Tileset tileset = table.getTileset(id);
+		if(tileset == null)
+			return null;
+		Entry entry = images.get(id);
+		if(entry != null && entry.source == tileset.getImage())
+			return entry.image;
+
+		// slices the tile (again if the image of its tileset was replaced)
+		if(entry != null)
+			cachedBytes -= getBytes(entry.image);
+		else {
+			entry = new Entry();
+			images.put(id, entry);
+		}
+		entry.source = tileset.getImage();
+		entry.image = slice(entry.source, table.getSourceRect(id));
+		cachedBytes += getBytes(entry.image);
+		evict();
+		return entry.image;
+	}
+
+	/**
+	 * Copies the source rectangle of a tile to a new image
+	 * compatible with the display
+	 *
+	 * @param source	the tileset image of the tile
+	 * @param rect		the source rectangle of the tile in the tileset image
+	 * @return	the image of the tile
+	 */
+	private static BufferedImage slice(BufferedImage source, Rectangle rect) {
+		BufferedImage image = RenderTarget.createCompatibleImage(rect.width, rect.height);
+		Graphics2D g = image.createGraphics();
+		g.drawImage(source, 0, 0, rect.width, rect.height,
+					rect.x, rect.y, rect.x + rect.width, rect.y + rect.height, null);
+		g.dispose();
+		return image;
+	}
+
+	/**
+	 * Evicts the least recently used images while
+	 * the cache exceeds its memory budget (the most
+	 * recently used image is always kept)
+	 */
+	private void evict() {
+		Iterator<Entry> it = images.values().iterator();
+		while(cachedBytes > memoryBudget && images.size() > 1) {
+			cachedBytes -= getBytes(it.next().image);
+			it.remove();
+		}
+	}
+
+	/**
+	 * @param image	an image of a tile
+	 * @return	the approximated number of bytes of the image
+	 */
+	private static long getBytes(BufferedImage image) {
+		return 64 + 4L * image.getWidth() * image.getHeight();
+	}
+
+	/**
+	 * Discards all cached images
+	 */
+	public void clear() {
+		images.clear();
+		cachedBytes = 0;
+	}
+
+	/**
+	 * Limits the memory of the cached images, evicting the
+	 * least recently used ones above it
+	 *
+	 * @param megabytes	maximum memory of the cached images in megabytes (0 for no limit)
+	 */
+	public void setMemoryBudget(int megabytes) {
+		memoryBudget = megabytes > 0 ? megabytes * 1024L * 1024L : Long.MAX_VALUE;
+		evict();
+	}
+
+	/**
+	 * @return the approximated number of bytes of the cached images
+	 */
+	public long getCachedBytes() {
+		return cachedBytes;
+	}
+
+	/**
+	 * @return the number of cached images
+	 */
+	public int size() {
+		return images.size();
+	}
+}
@@ -5,8 +5,6 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.GraphicsConfiguration;
-import java.awt.GraphicsEnvironment;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
@@ -20,16 +18,21 @@ import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.Scrollable;
 import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 
 import controller.ViewMapControl;
+import model.Chunk;
 import model.Clipboard;
-import model.Collider;
 import model.Layer;
 import model.Map;
 import model.MapConfig;
 import model.MapState;
 import model.Preferences;
+import model.Project;
+import model.Selection;
 import model.Tile;
+import model.TileTable;
 import model.Tileset;
 import model.TilesetConfig;
 import model.Tool;
@@ -68,18 +71,24 @@ public class ViewportMap extends JPanel implements Scrollable, Observer {
 
 	private int vScrollSpeed;	// jscrollpane vertical scroll move unit speed on mouse wheel
 	
-	private ArrayList<Tile> selectedTiles;		// current selected tiles obtained from observing tileset
+	private Selection selection;				// current selected tiles obtained from observing tileset
+	
+	private boolean previewClipboard;			// if copied tiles of clipboard are previewed instead of tileset selection
 
 	private Tileset tileset;					// current tileset being used in program
 	
 	Tool.SelectTools currentTool; 	// current tool used (obtained through observation of Tool class)
 
-	private ArrayList<Tile> selectedMapTiles;  // current selected tiles obtained from observing mapstates
+	private Selection selectedMapTiles;  // current selected tiles obtained from observing mapstates
 
 	private MapState mapStates;		// reference to the states of the map
 
 	private MapPositionView mapPosDisplay; // Map position label for displaying current mouse tile position
 
+	private TileImageCache tileImages;	// images of the tiles sliced once from their tilesets for drawing
+	private ChunkRasterCache chunkRasters;	// images of the chunks of the map with all layers flattened
+	private ColliderOverlayCache colliderOverlays;	// images of the colliders of the chunks of the map
+
 	/**
 	 * Constructor for this class
 	 * 
@@ -97,19 +106,23 @@ public class ViewportMap extends JPanel implements Scrollable, Observer {
 	
 		
 		scrollPane.getVerticalScrollBar().setUnitIncrement(vScrollSpeed);
+		// stores map reference for the current state
+		this.map = mapStates.getCurrentMap();
+		// creates the cache of images of the tiles drawn
+		tileImages = new TileImageCache();
+		chunkRasters = new ChunkRasterCache(tileImages);
+		colliderOverlays = new ColliderOverlayCache();
 		// set viewport preferred size
 		setViewportSize();
 		// creates grid to be drawn on top 
 		createGrid();
-		// stores map reference for the current state
-		this.map = mapStates.getCurrentMap();
 		// creates the mouse controller for this panel
 		inputController = new ViewMapControl(scrollPane, tileset, mapStates);
 		
-		// initializes list of selected tiles (from tileset) for visualization
-		selectedTiles = new ArrayList<Tile>();
-		// initializes list of selected map tiles for visualization
-		selectedMapTiles = new ArrayList<Tile>();
+		// initializes selection of tiles (from tileset) for visualization
+		selection = tileset.getSelection();
+		// initializes selection of map tiles for visualization
+		selectedMapTiles = new Selection(0, 0);
 		
 		// observes the map states list for changes in states
 		mapStates.addObserver(this);
@@ -150,6 +163,32 @@ public class ViewportMap extends JPanel implements Scrollable, Observer {
 		mapPosDisplay = new MapPositionView(SwingUtilities.getWindowAncestor(scrollPane));
 		// display is not visible unless mouse enters viewport
 		mapPosDisplay.setVisible(false);
+		
+		// streams the regions of worlds around the visible area of the map
+		scrollPane.getViewport().addChangeListener(new ChangeListener() {
+			@Override
+			public void stateChanged(ChangeEvent e) {
+				streamWorld();
+			}
+		});
+		streamWorld();
+    }
+    
+    /**
+     * Streams the regions of the world of the current project
+     * (if it is a world) around the visible area of the map
+     * 
+     * @author	Pedro Sampaio
+     * @since	1.8
+     */
+    private void streamWorld() {
+    	Project project = MapConfig.getInstance().getProject();
+    	if(project == null || project.getWorld() == null || mapStates.getStateCount() == 0)
+    		return;
+    	Rectangle view = scrollPane.getViewport().getViewRect();
+    	int tileZoomed = MapConfig.getInstance().getTileZoomed();
+    	project.getWorld().stream(mapStates, new Rectangle(view.x / tileZoomed, view.y / tileZoomed, 
+    										view.width / tileZoomed + 1, view.height / tileZoomed + 1));
     }
     
     /**
@@ -160,8 +199,8 @@ public class ViewportMap extends JPanel implements Scrollable, Observer {
      */
     private void setViewportSize() {
     	
-    	this.setPreferredSize(new Dimension((MapConfig.getTileZoomed() * MapConfig.mapSizeX)+2, 
-    							(MapConfig.getTileZoomed() * MapConfig.mapSizeY)+2));
+    	this.setPreferredSize(new Dimension((MapConfig.getInstance().getTileZoomed() * map.getWidth())+2, 
+    							(MapConfig.getInstance().getTileZoomed() * map.getHeight())+2));
 	}
 
 	/**
@@ -172,17 +211,15 @@ public class ViewportMap extends JPanel implements Scrollable, Observer {
      * @since 	0.1
      */
     private void createGrid() {
-    	grid = new Grid();  	
+    	grid = new Grid(MapConfig.getInstance().getTileSize(), map.getWidth(), map.getHeight(), Color.BLACK);
     }
 
     /**
      * paintComponent override for panting components
      */
 
-    Graphics2D bufferedGraphics;	// buffered graphics to draw buffered image
-    BufferedImage bufferedImage;	// buffered image to drawn all drawings before on screen draw
-    Graphics2D secBufferedGraphics;	// second buffered graphics to draw buffered image
-    BufferedImage secBufferedImage;	// second buffered image to drawn all drawings before on screen draw
+    RenderTarget mapBuffer = new RenderTarget();	// buffered image kept between frames to draw the map before on screen draw
+    Graphics2D bufferedGraphics;	// buffered graphics to draw buffered image (for the current frame)
     
     @Override
     protected void paintComponent(Graphics g) {
@@ -193,16 +230,14 @@ public class ViewportMap extends JPanel implements Scrollable, Observer {
         Rectangle vp = scrollPane.getViewport().getViewRect();
         int w = vp.width;
         int h = vp.height;
+        float zoom = MapConfig.getInstance().getZoom();
         // added more pixels to avoid flicker on borders
-        bufferedImage = new BufferedImage((int)Math.ceil(w/MapConfig.zoom) + 5, (int)Math.ceil(h/MapConfig.zoom) + 5, BufferedImage.TYPE_INT_ARGB);
-        bufferedGraphics = bufferedImage.createGraphics();
-        // added more pixels to avoid flicker on borders
-        secBufferedImage = new BufferedImage((int)Math.ceil(w/MapConfig.zoom) + 5, (int)Math.ceil(h/MapConfig.zoom) + 5, BufferedImage.TYPE_INT_ARGB);
-        secBufferedGraphics = secBufferedImage.createGraphics();
+        // (buffer is only allocated again on viewport resize or zoom change)
+        bufferedGraphics = mapBuffer.begin((int)Math.ceil(w/zoom) + 5, (int)Math.ceil(h/zoom) + 5);
     
        	super.paintComponent(g);
     	Graphics2D g2 = (Graphics2D)g.create();
-    	g2.scale(MapConfig.zoom, MapConfig.zoom);
+    	g2.scale(zoom, zoom);
 
        
     	// calculates fps
@@ -214,24 +249,21 @@ public class ViewportMap extends JPanel implements Scrollable, Observer {
     	// updates last time called for fps debug
     	lastTime = System.currentTimeMillis();
     	
-    	// updates label fps
+    	// updates label fps (with the kilobytes of buffers allocated in frame)
     	if(Config.debug)
-    		fpsLabel.setText("FPS:" + Integer.toString(fps));
+    		fpsLabel.setText("FPS:" + Integer.toString(fps) + " alloc:" + (mapBuffer.takeAllocatedBytes() / 1024) + "KB");
     	
     	// draw background in user preference color
     	paintBackground(g2);
     	
-    	// draw map
-    	//creates a copy of the Graphics instance
-    	Graphics2D g2d = (Graphics2D) g.create();
-    	
     	// draw map tiles
-    	drawTiles(g2, g2d);
+    	drawTiles(g2);
 
     	// draw visualization of selected tiles if there are any
     	// and also if mouse position is in map's viewport
     	// only draws if brush tool is the selected one
-    	if(selectedTiles.size() > 0 && MapConfig.isMouseOnViewport() && currentTool == SelectTools.BRUSH)
+    	if((previewClipboard ? !Clipboard.getInstance().isEmpty() : !selection.isEmpty()) 
+    			&& MapConfig.isMouseOnViewport() && currentTool == SelectTools.BRUSH)
     		drawSelectedTiles(g2);
     	
     	// if eraser tool is the one selected, draws a rect
@@ -245,12 +277,6 @@ public class ViewportMap extends JPanel implements Scrollable, Observer {
     	// dispose copies
     	if(g2 != null)
     		g2.dispose();
-    	if(g2d != null)
-    		g2d.dispose();
-    	if(bufferedGraphics != null)
-    		bufferedGraphics.dispose();
-    	if(secBufferedGraphics != null)
-    		secBufferedGraphics.dispose();
 
     }
 
@@ -274,8 +300,10 @@ public class ViewportMap extends JPanel implements Scrollable, Observer {
     	AlphaComposite ac = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, MapConfig.preAlpha * 0.75f);
     	gCpy.setComposite(ac);
 		// draws the rectangle on current tile below mouse
-		gCpy.fillRect(Tool.getInstance().getEraseTilePoint().x * MapConfig.tileSize, 
-						Tool.getInstance().getEraseTilePoint().y* MapConfig.tileSize,  MapConfig.tileSize,  MapConfig.tileSize);
+		// (tile position in map relative to the origin of the map)
+		int tileSize = MapConfig.getInstance().getTileSize();
+		gCpy.fillRect((Tool.getInstance().getEraseTilePoint().x - map.getOriginJ()) * tileSize, 
+						(Tool.getInstance().getEraseTilePoint().y - map.getOriginI()) * tileSize,  tileSize,  tileSize);
 		// dispose copy of graphics component
 		gCpy.dispose();
 	}
@@ -292,7 +320,7 @@ public class ViewportMap extends JPanel implements Scrollable, Observer {
     private void drawSelectedTiles(Graphics2D g2) {
     	
     	// should have at list  one selected tile and mouse must be in viewport
-    	assert(selectedTiles.size() > 0);
+    	assert(previewClipboard ? !Clipboard.getInstance().isEmpty() : !selection.isEmpty());
     	assert(MapConfig.isMouseOnViewport());
     	
     	//creates a copy of the Graphics instance
@@ -308,43 +336,45 @@ public class ViewportMap extends JPanel implements Scrollable, Observer {
     	g3Alpha.setComposite(ac2);
     	g3Alpha.setColor(new Color(0.25f, 0.66f, 1f));
     	
-    	// iterates through selected tiles to drawn pre-visualization
-    	for(int i = 0; i < selectedTiles.size() ; i++) {
-    		Tile tile = selectedTiles.get(i);	// iteration tile
-    		//only draws if tile has all needed info
-    		if(tile.isComplete()) {
-				// clamps for image source bounds
-				int sImgX = tile.getIndexJ() * tile.getTileSize(); int sImgY = tile.getIndexI() * tile.getTileSize();
-				int tileSizeX = tile.getTileSize(); int tileSizeY = tile.getTileSize();
-				if(tileSizeX > tile.getTileset().getImage().getWidth())
-					tileSizeX = tile.getTileset().getImage().getWidth();
-				if(tileSizeY > tile.getTileset().getImage().getHeight())
-					tileSizeY = tile.getTileset().getImage().getHeight();
-				if(sImgX + tileSizeX > tile.getTileset().getImage().getWidth()) // raster limit on X
-					sImgX = (tile.getTileset().getImage().getWidth() - tileSizeX);
-   				if(sImgY + tileSizeY > tile.getTileset().getImage().getHeight()) // raster limit on Y
-   					sImgY = (tile.getTileset().getImage().getHeight() - tileSizeY);
-   				if(sImgX < 0) sImgX = 0;
-   				if(sImgY < 0) sImgY = 0;
-   				
-    			// gets the subimage that represents the tile in the tileset
-				BufferedImage tImage = tile.getTileset().getImage()
-										.getSubimage(sImgX, sImgY, tileSizeX, tileSizeY);
-				
-				int x = (int) ((tile.getDrawJ() * MapConfig.tileSize));
-				int y = (int) ((tile.getDrawI() * MapConfig.tileSize));
-				boolean isVisible = isPointVisible(new Point(x,y));
-				
-				// color image for better visualization
-				//BufferedImage coloredImage = colorImage(0.8f,0.7f,1f, tImage);
-  				
-				// draws the subimage(tile) if it is visible on extended view
-				if(isVisible) {
-					bufferedGraphics.drawImage(tImage, x, y, null); 
-					g2Alpha.drawImage(toCompatibleImage(tImage), x, y, null); 
-					// merge with a rect to change colors of visualization
-					g3Alpha.fillRect(x, y, tImage.getWidth(), tImage.getHeight());
-				}
+    	// tile below mouse, where the anchor of selection is drawn
+    	Point brushPoint = Tool.getInstance().getBrushTilePoint();
+    	
+    	if(previewClipboard) {
+    		Clipboard clipboard = Clipboard.getInstance();
+    		TileTable tileTable = TilesetConfig.getInstance().getTileTable();
+    		int[] tileIDs = clipboard.getTileIDs();
+    		int width = clipboard.getWidth();
+    		// position in map of the top-left corner of the block
+    		int top = brushPoint.y - clipboard.getAnchorI();
+    		int left = brushPoint.x - clipboard.getAnchorJ();
+    		
+    		// only the part of the block that is visible in the viewport is visited
+        	Rectangle view = scrollPane.getViewport().getViewRect();
+        	int tileZoomed = MapConfig.getInstance().getTileZoomed();
+        	int firstI = Math.max(0, view.y / tileZoomed + map.getOriginI() - top);
+        	int lastI = Math.min(clipboard.getHeight() - 1, (view.y + view.height) / tileZoomed + map.getOriginI() - top);
+        	int firstJ = Math.max(0, view.x / tileZoomed + map.getOriginJ() - left);
+        	int lastJ = Math.min(width - 1, (view.x + view.width) / tileZoomed + map.getOriginJ() - left);
+    		
+	    	// iterates through copied tiles of visible lines to drawn pre-visualization
+        	for(int bi = firstI; bi <= lastI; bi++) {
+        		int end = bi * width + lastJ;
+        		for(int b = clipboard.nextCopied(bi * width + firstJ); b >= 0 && b <= end; b = clipboard.nextCopied(b + 1)) {
+        			Tile tile = tileTable.getTile(tileIDs[b]);
+        			if(tile != null)
+        				drawPreviewTile(tile.getTileset(), tile.getIndexI(), tile.getIndexJ(), 
+        								top + bi, left + (b - bi * width), g2Alpha, g3Alpha);
+        		}
+        	}
+    	}
+    	else {
+    		int width = selection.getWidth();
+	    	// iterates through selected tiles of tileset to drawn pre-visualization
+    		for(int b = selection.next(0); b >= 0; b = selection.next(b + 1)) {
+    			int i = b / width;
+    			int j = b % width;
+    			drawPreviewTile(tileset, i, j, brushPoint.y - (selection.getAnchorI() - i), 
+    							brushPoint.x - (selection.getAnchorJ() - j), g2Alpha, g3Alpha);
     		}
     	}
     	
@@ -353,6 +383,40 @@ public class ViewportMap extends JPanel implements Scrollable, Observer {
     	g3Alpha.dispose();
 	}
     
+    /**
+     * Draws the visualization of a tile of a tileset
+     * in a position of the map viewport
+     * 
+     * @author	Pedro Sampaio
+     * @since	1.8
+     * @param tileset		the tileset of the tile
+     * @param indexI		the i-index (line) of the tile in tileset
+     * @param indexJ		the j-index (column) of the tile in tileset
+     * @param drawI			the i-index (line) of the tile in map
+     * @param drawJ			the j-index (column) of the tile in map
+     * @param g2Alpha		graphics component with transparency for the tile
+     * @param g3Alpha		graphics component with transparency for the color merged with tile
+     */
+    private void drawPreviewTile(Tileset tileset, int indexI, int indexJ, int drawI, int drawJ, 
+    								Graphics2D g2Alpha, Graphics2D g3Alpha) {
+		// image of the tile sliced once from the tileset (by its global id)
+		BufferedImage tImage = tileImages.getImage(tileset.getFirstID() + indexI * tileset.getTileSizeX() + indexJ);
+		if(tImage == null)
+			return;
+
+		int tileSize = MapConfig.getInstance().getTileSize();
+		int x = (int) (((drawJ - map.getOriginJ()) * tileSize));
+		int y = (int) (((drawI - map.getOriginI()) * tileSize));
+		boolean isVisible = isPointVisible(new Point(x,y));
+
+		// draws the subimage(tile) if it is visible on extended view
+		if(isVisible) {
+			g2Alpha.drawImage(tImage, x, y, null); 
+			// merge with a rect to change colors of visualization
+			g3Alpha.fillRect(x, y, tImage.getWidth(), tImage.getHeight());
+		}
+    }
+    
     /**
      * Colors an image with specified color.
      * @author therealfarfetchd
@@ -388,146 +452,99 @@ public class ViewportMap extends JPanel implements Scrollable, Observer {
 
 	/**
      * Draws existent tiles in all layers of the map
+     * (the visible chunks of the map, each one with the
+     * tiles of all layers flattened in a cached image)
      * Tiles are surrounded with a dashed contour if 
      * user decided to visualize the grid
      * 
      * @author	Pedro Sampaio
      * @since	0.5
      * @param g				graphics component
-     * @param unscaledG		graphics component unscaled
      */
-    private void drawTiles(Graphics g, Graphics unscaledG) {
+    private void drawTiles(Graphics g) {
 		// gets map layers
     	ArrayList<Layer> layers = map.getLayers();
     	// layers list size cant be bigger than max layers
     	assert(layers.size() <= MapConfig.getInstance().getMaxLayers());
+    	// current tile size and zoom of the viewport
+    	int tileSize = MapConfig.getInstance().getTileSize();
+    	float zoom = MapConfig.getInstance().getZoom();
     	// creates a copy of graphics component
     	Graphics2D gCpy = (Graphics2D) g.create();
     	// view rectangle from viewport
 		Rectangle viewRect = scrollPane.getViewport().getViewRect();
-		Rectangle zoomRect = new Rectangle((int)(viewRect.x/MapConfig.zoom), (int)(viewRect.y/MapConfig.zoom),
-											(int)(viewRect.width/MapConfig.zoom), (int)(viewRect.height/MapConfig.zoom));
+		Rectangle zoomRect = new Rectangle((int)(viewRect.x/zoom), (int)(viewRect.y/zoom),
+											(int)(viewRect.width/zoom), (int)(viewRect.height/zoom));
 		
 		//int offset_x = math.floor(camera.pos_x % tileSize)
-		int first_tile_x = (int) Math.floor(zoomRect.x / MapConfig.tileSize);
-		int first_tile_y = (int) Math.floor(zoomRect.y / MapConfig.tileSize);
-		int offset_x = (int) Math.floor(zoomRect.x % MapConfig.tileSize);
-		int offset_y = (int) Math.floor(zoomRect.y % MapConfig.tileSize);
-		int last_tile_x = (int) Math.ceil(zoomRect.width / MapConfig.tileSize) + 2; //  + 2 makes sure that we have enough tiles for smooth transition
-		int last_tile_y = (int) Math.ceil(zoomRect.height /MapConfig.tileSize) + 2;  // + 2 makes sure that we have enough tiles for smooth transition
+		int first_tile_x = (int) Math.floor(zoomRect.x / tileSize);
+		int first_tile_y = (int) Math.floor(zoomRect.y / tileSize);
+		int offset_x = (int) Math.floor(zoomRect.x % tileSize);
+		int offset_y = (int) Math.floor(zoomRect.y % tileSize);
+		int last_tile_x = (int) Math.ceil(zoomRect.width / tileSize) + 2; //  + 2 makes sure that we have enough tiles for smooth transition
+		int last_tile_y = (int) Math.ceil(zoomRect.height /tileSize) + 2;  // + 2 makes sure that we have enough tiles for smooth transition
+		// first tile of the viewport in map (first tile of the canvas for unbounded maps)
+		int originI = map.getOriginI();
+		int originJ = map.getOriginJ();
+		int mapWidth = map.getWidth();
+		int mapHeight = map.getHeight();
     	
-    	// iterates through layers drawing tiles one by one
-    	for(int l = 0; l < layers.size(); l++ ) {
-        	// applies layers current transparency to the drawing
-        	AlphaComposite ac = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, layers.get(l).getOpacity());
-        	bufferedGraphics.setComposite(ac);
-    		// gets tiles in current layer
-    		Tile[][] lTiles = layers.get(l).getTiles();
-
-    		// make sure not to go out of bounds
-			if(last_tile_x > MapConfig.mapSizeX)
-				last_tile_x = MapConfig.mapSizeX;
-			if(last_tile_y > MapConfig.mapSizeY)
-				last_tile_y = MapConfig.mapSizeY;
-			
-    		// draws each tile
-    		for(int i = 0; i < last_tile_y; i++) {
-    			for(int j = 0; j < last_tile_x; j++) {
-
-    				int dataI = first_tile_y + i;
-    				int dataJ = first_tile_x + j;
-    				
-    				// make sure not to go out of bounds
-    				if(dataI < 0)
-    					dataI = 0;
-    				if(dataJ < 0)
-    					dataJ = 0;
-    				if(dataI >= MapConfig.mapSizeY)
-    					dataI = MapConfig.mapSizeY - 1;
-    				if(dataJ >= MapConfig.mapSizeX)
-    					dataJ = MapConfig.mapSizeX - 1;
-    				
-    				// if there are no tiles in position, dont draw nothing
-    				if(lTiles[dataI][dataJ] != null) {
-        				// gets tilesize for cutting the tile in tileset
-        				int tSize = lTiles[dataI][dataJ].getTileSize();
-        				// gets indexes of tile in tileset
-        				int tIdxI = lTiles[dataI][dataJ].getIndexI();
-        				int tIdxJ = lTiles[dataI][dataJ].getIndexJ();	
-        				
-        				// clamps for image source bounds
-        				int sImgX = tIdxJ * tSize; int sImgY = tIdxI * tSize;
-        				int tileSizeX = tSize; int tileSizeY = tSize;
-        				if(tileSizeX > lTiles[dataI][dataJ].getTileset().getImage().getWidth())
-        					tileSizeX = lTiles[dataI][dataJ].getTileset().getImage().getWidth();
-        				if(tileSizeY > lTiles[dataI][dataJ].getTileset().getImage().getHeight())
-        					tileSizeY = lTiles[dataI][dataJ].getTileset().getImage().getHeight();
-        				if(sImgX + tSize > lTiles[dataI][dataJ].getTileset().getImage().getWidth()) // raster limit on X
-        					sImgX = (lTiles[dataI][dataJ].getTileset().getImage().getWidth() - tileSizeX);
-           				if(sImgY + tSize > lTiles[dataI][dataJ].getTileset().getImage().getHeight()) // raster limit on Y
-           					sImgY = (lTiles[dataI][dataJ].getTileset().getImage().getHeight() - tileSizeY);
-           				if(sImgX < 0) sImgX = 0;
-           				if(sImgY < 0) sImgY = 0;
-        				
-        				// gets the subimage that represents the tile in the tileset
-        				BufferedImage tImage = lTiles[dataI][dataJ].getTileset().getImage()
-        										.getSubimage(sImgX, sImgY, tileSizeX, tileSizeY);
-        				
-        				int x = (int) ((j * MapConfig.tileSize) - offset_x);
-        				int y = (int) ((i * MapConfig.tileSize) - offset_y);
-        				boolean isVisible = true;//isPointVisible(new Point(x,y));
-          				
-        				// draws the subimage(tile) if it is visible on extended view
-        				if(isVisible) {
-        					bufferedGraphics.drawImage(tImage, x, y, null); 
-        					// draw contour grid if user wants it to be drawn (and if its top layer tile)
-		    				if(Preferences.viewportShowGrid && l == layers.size()-1)
-		    					grid.paintContourGrid(secBufferedGraphics, new Rectangle((int)(x),(int)(y),
-				    											MapConfig.tileSize, MapConfig.tileSize));
-        				}
-    				}
-    				else {
-						// draws grid for each tile (even if null)
-						// draw contour grid if user wants it to be drawn 
-    					int x = (int) ((j * MapConfig.tileSize) - offset_x);
-        				int y = (int) ((i * MapConfig.tileSize) - offset_y);
-        				boolean isVisible = true;//isPointVisible(new Point(x,y));
-        				// only draw grid if its is on viewport (visible)
-        				if(isVisible) {
-		    				if(Preferences.viewportShowGrid && l == layers.size()-1)
-		    					grid.paintContourGrid(secBufferedGraphics, new Rectangle((int)(x),(int)(y),
-										MapConfig.tileSize, MapConfig.tileSize));
-        				}
-        				
-    				}
-    				
-
-    				int x = (int) ((j * MapConfig.tileSize) - offset_x);
-    				int y = (int) ((i * MapConfig.tileSize) - offset_y);
-    				
-    				// draw visualization of collider if it exists in tile
-    				Collider collider = mapStates.getCurrentMap().getColliders()[dataI][dataJ];
-    				if(collider != null) {
-    					if(collider.isTrigger()) // if it is a trigger, draw trigger symbol
-    						drawCollider(bufferedGraphics, true, new Rectangle((int)(x),(int)(y),
-		    											MapConfig.tileSize, MapConfig.tileSize));
-    					else // draws physical collider symbol
-    						drawCollider(bufferedGraphics, false, new Rectangle((int)(x),(int)(y),
-									MapConfig.tileSize, MapConfig.tileSize));
-    				}
+    	// make sure not to go out of bounds
+		if(last_tile_x > mapWidth)
+			last_tile_x = mapWidth;
+		if(last_tile_y > mapHeight)
+			last_tile_y = mapHeight;
+
+    	// draws the visible chunks with the tiles of all layers flattened
+    	// (chunks are drawn again only when their content changed)
+    	bufferedGraphics.setComposite(AlphaComposite.SrcOver);
+    	int firstChunkI = (first_tile_y + originI) >> Chunk.SHIFT;
+    	int lastChunkI = (first_tile_y + last_tile_y - 1 + originI) >> Chunk.SHIFT;
+    	int firstChunkJ = (first_tile_x + originJ) >> Chunk.SHIFT;
+    	int lastChunkJ = (first_tile_x + last_tile_x - 1 + originJ) >> Chunk.SHIFT;
+    	for(int chunkI = firstChunkI; chunkI <= lastChunkI; chunkI++) {
+    		for(int chunkJ = firstChunkJ; chunkJ <= lastChunkJ; chunkJ++) {
+    			BufferedImage raster = chunkRasters.getRaster(map, chunkI, chunkJ, tileSize);
+    			// chunks without tiles are not drawn
+    			if(raster == null)
+    				continue;
+    			// position of the chunk relative to the first visible tile
+    			int x = ((chunkJ << Chunk.SHIFT) - originJ - first_tile_x) * tileSize - offset_x;
+    			int y = ((chunkI << Chunk.SHIFT) - originI - first_tile_y) * tileSize - offset_y;
+    			bufferedGraphics.drawImage(raster, x, y, null);
+    		}
+    	}
 
+    	// draws the colliders of the visible chunks on top of all layers
+    	// if user wants them to be drawn (chunks are drawn again
+    	// only when their colliders changed)
+    	if(Preferences.viewportShowColliders) {
+    		for(int chunkI = firstChunkI; chunkI <= lastChunkI; chunkI++) {
+    			for(int chunkJ = firstChunkJ; chunkJ <= lastChunkJ; chunkJ++) {
+    				BufferedImage overlay = colliderOverlays.getOverlay(map.getColliders(), chunkI, chunkJ, tileSize);
+    				// chunks without colliders are not drawn
+    				if(overlay == null)
+    					continue;
+    				int x = ((chunkJ << Chunk.SHIFT) - originJ - first_tile_x) * tileSize - offset_x;
+    				int y = ((chunkI << Chunk.SHIFT) - originI - first_tile_y) * tileSize - offset_y;
+    				bufferedGraphics.drawImage(overlay, x, y, null);
     			}
     		}
-    		
-    		
     	}
 
-		// draws bufferedimage containing the map for the current viewport position
-    	gCpy.drawImage(toCompatibleImage(bufferedImage), (int) (viewRect.x / MapConfig.zoom), (int) (viewRect.y / MapConfig.zoom), this);
+    	// draws contour grid on top of all layers for each tile (even if null)
+    	// if user wants it to be drawn, in the same buffer of the tiles
+    	// (one fill of the pattern of a cell over the visible cells)
+    	if(Preferences.viewportShowGrid) {
+    		bufferedGraphics.setComposite(AlphaComposite.SrcOver);
+    		grid.paintContourGrid(bufferedGraphics, new Rectangle(-offset_x, -offset_y,
+    																last_tile_x * tileSize, last_tile_y * tileSize));
+    	}
 
-    	// draws grid (scaled)
-    	((Graphics2D) unscaledG).scale(MapConfig.zoom, MapConfig.zoom);
-    	unscaledG.drawImage(toCompatibleImage(secBufferedImage), (int) (viewRect.x  / MapConfig.zoom), (int) (viewRect.y  / MapConfig.zoom), this);
+		// draws bufferedimage containing the map for the current viewport position
+    	// (buffer is already compatible, drawn on screen in a single pass)
+    	gCpy.drawImage(mapBuffer.getImage(), (int) (viewRect.x / zoom), (int) (viewRect.y / zoom), this);
+    	gCpy.dispose();
 	}
     
     /**
@@ -538,7 +555,7 @@ public class ViewportMap extends JPanel implements Scrollable, Observer {
      * @param isTrigger	if it is a trigger collider or a physical collider
      * @param rect 		rectangle containing coordinates for the drawing
      */
-    private void drawCollider(Graphics2D g2d, boolean isTrigger, Rectangle rect) {
+    static void drawCollider(Graphics2D g2d, boolean isTrigger, Rectangle rect) {
     	if(isTrigger) {
     		g2d.setColor(Color.BLACK);
     		g2d.drawString("T", (int)(rect.x+rect.getWidth()/1.5f), (int)(rect.y+rect.getHeight()));
@@ -566,10 +583,12 @@ public class ViewportMap extends JPanel implements Scrollable, Observer {
 		// gets viewport rectangle
 		Rectangle viewRect = scrollPane.getViewport().getViewRect();
 		// extends rectangle by one tilesize(zoom applied) to be able to draw transition of tile
-		Rectangle extViewRect = new Rectangle((int) (viewRect.x/MapConfig.zoom) - MapConfig.getTileZoomed(),
-												(int) (viewRect.y/MapConfig.zoom) - MapConfig.getTileZoomed(), 
-												(int) (viewRect.width/MapConfig.zoom)  + MapConfig.getTileZoomed(),
-												(int) (viewRect.height/MapConfig.zoom) + MapConfig.getTileZoomed());
+		float zoom = MapConfig.getInstance().getZoom();
+		int tileZoomed = MapConfig.getInstance().getTileZoomed();
+		Rectangle extViewRect = new Rectangle((int) (viewRect.x/zoom) - tileZoomed,
+												(int) (viewRect.y/zoom) - tileZoomed, 
+												(int) (viewRect.width/zoom)  + tileZoomed,
+												(int) (viewRect.height/zoom) + tileZoomed);
 		// return if tile is visible in extended view rect
 		return extViewRect.contains(p);
     }
@@ -584,48 +603,13 @@ public class ViewportMap extends JPanel implements Scrollable, Observer {
     	g.setColor(Preferences.viewportBackgroundColor);
     	Rectangle viewRect = scrollPane.getViewport().getViewRect();
 
-    	g.fillRect((int) (viewRect.x/MapConfig.zoom), (int) (viewRect.y/MapConfig.zoom),
-					(int)Math.ceil(viewRect.width/MapConfig.zoom) + 2 , (int)Math.ceil(viewRect.height/MapConfig.zoom) + 2);// added more pixels to avoid flicker on borders
+    	float zoom = MapConfig.getInstance().getZoom();
+    	g.fillRect((int) (viewRect.x/zoom), (int) (viewRect.y/zoom),
+					(int)Math.ceil(viewRect.width/zoom) + 2 , (int)Math.ceil(viewRect.height/zoom) + 2);// added more pixels to avoid flicker on borders
     			
 
 	}
     
-    /**
-     * Creates a compatible image for performance improvement
-     * @author Consty
-     * @param image	The image to create a compatible image
-     * @return	the compatible image
-     * @since 0.5b
-     */
-    private BufferedImage toCompatibleImage(BufferedImage image)
-    {
-        // obtain the current system graphical settings
-        GraphicsConfiguration gfx_config = GraphicsEnvironment.
-            getLocalGraphicsEnvironment().getDefaultScreenDevice().
-            getDefaultConfiguration();
-
-        /*
-         * if image is already compatible and optimized for current system 
-         * settings, simply return it
-         */
-        if (image.getColorModel().equals(gfx_config.getColorModel()))
-            return image;
-
-        // image is not optimized, so create a new image that is
-        BufferedImage new_image = gfx_config.createCompatibleImage(
-                image.getWidth(), image.getHeight(), image.getTransparency());
-
-        // get the graphics context of the new image to draw the old image on
-        Graphics2D g2d = (Graphics2D) new_image.getGraphics();
-
-        // actually draw the image and dispose of context no longer needed
-        g2d.drawImage(image, 0, 0, null);
-        g2d.dispose();
-
-        // return the new optimized image
-        return new_image; 
-    }
-    
     /**
 	 * Creates a visualization for the selected map tiles
 	 * to inform visually the user what tiles are 
@@ -637,23 +621,43 @@ public class ViewportMap extends JPanel implements Scrollable, Observer {
 	 */
 	private void selectMapTiles(Graphics2D g) {
 		
-		// iterates through list of selected tiles
-		for(int i = 0; i < selectedMapTiles.size(); i++) {
-			// gets current iteration tile
-			Tile tile = selectedMapTiles.get(i);
-
-			//creates a copy of the Graphics instance
-	    	Graphics2D g2d = (Graphics2D) g.create();
-	    	
-	    	// applies alpha to the drawing
-	    	AlphaComposite ac = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.4f);
-	    	g2d.setComposite(ac);
-	    	
-	    	// creates visualization for the current iteration tile
-	    	g2d.setColor(Preferences.mapSelectionColor);
-	    	g2d.fillRect(tile.getIndexJ() * MapConfig.tileSize, tile.getIndexI() *  MapConfig.tileSize, 
-	    			 MapConfig.tileSize,  MapConfig.tileSize);
-		}
+		// nothing to draw without selected tiles
+		if(selectedMapTiles.isEmpty())
+			return;
+		
+		//creates a copy of the Graphics instance
+    	Graphics2D g2d = (Graphics2D) g.create();
+    	
+    	// applies alpha to the drawing
+    	AlphaComposite ac = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.4f);
+    	g2d.setComposite(ac);
+    	g2d.setColor(Preferences.mapSelectionColor);
+    	
+    	// only lines of selection that are visible in the viewport are visited
+    	// (selection lines and columns relative to the first tile of the viewport)
+    	Rectangle view = scrollPane.getViewport().getViewRect();
+    	int width = selectedMapTiles.getWidth();
+    	int tileSize = MapConfig.getInstance().getTileSize();
+    	int tileZoomed = MapConfig.getInstance().getTileZoomed();
+    	int offsetI = map.getOriginI() - selectedMapTiles.getOriginI();
+    	int offsetJ = map.getOriginJ() - selectedMapTiles.getOriginJ();
+    	int firstI = Math.max(0, view.y / tileZoomed + offsetI);
+    	int lastI = Math.min(selectedMapTiles.getHeight() - 1, (view.y + view.height) / tileZoomed + offsetI);
+    	int firstJ = Math.max(0, view.x / tileZoomed + offsetJ);
+    	int lastJ = Math.min(width - 1, (view.x + view.width) / tileZoomed + offsetJ);
+    	if(firstJ > lastJ)
+    		return;
+    	
+		// iterates through selected tiles of visible lines
+    	for(int i = firstI; i <= lastI; i++) {
+    		int end = i * width + lastJ;
+    		for(int b = selectedMapTiles.next(i * width + firstJ); b >= 0 && b <= end; b = selectedMapTiles.next(b + 1)) {
+    			// creates visualization for the current iteration tile
+    			g2d.fillRect((b - i * width - offsetJ) * tileSize, (i - offsetI) *  tileSize, tileSize,  tileSize);
+    		}
+    	}
+    	
+    	g2d.dispose();
 	}
 
 	/**
@@ -663,7 +667,7 @@ public class ViewportMap extends JPanel implements Scrollable, Observer {
 	@Override
 	public Dimension getPreferredScrollableViewportSize() {
 		// TODO Auto-generated method stub
-		return new Dimension(MapConfig.getTileZoomed() * MapConfig.mapSizeX, MapConfig.getTileZoomed() * MapConfig.mapSizeY);
+		return new Dimension(MapConfig.getInstance().getTileZoomed() * map.getWidth(), MapConfig.getInstance().getTileZoomed() * map.getHeight());
 	}
 
 	@Override
@@ -690,6 +694,42 @@ public class ViewportMap extends JPanel implements Scrollable, Observer {
 		return 10;
 	}
 	
+	/**
+	 * Limits the memory of the images of the tiles
+	 * cached for drawing
+	 * 
+	 * @author Pedro Sampaio
+	 * @since 1.8
+	 * @param megabytes	maximum memory of the images in megabytes (0 for no limit)
+	 */
+	public void setTileImagesMemory(int megabytes) {
+		tileImages.setMemoryBudget(megabytes);
+	}
+
+	/**
+	 * Limits the memory of the images of the chunks
+	 * of the map cached for drawing
+	 * 
+	 * @author Pedro Sampaio
+	 * @since 1.8
+	 * @param megabytes	maximum memory of the images in megabytes (0 for no limit)
+	 */
+	public void setChunkRastersMemory(int megabytes) {
+		chunkRasters.setMemoryBudget(megabytes);
+	}
+
+	/**
+	 * Limits the memory of the images of the colliders
+	 * of the chunks of the map cached for drawing
+	 * 
+	 * @author Pedro Sampaio
+	 * @since 1.8
+	 * @param megabytes	maximum memory of the images in megabytes (0 for no limit)
+	 */
+	public void setColliderOverlaysMemory(int megabytes) {
+		colliderOverlays.setMemoryBudget(megabytes);
+	}
+
 	/**
 	 * Updates the current tileset
 	 * selected by player adjusting
@@ -699,8 +739,8 @@ public class ViewportMap extends JPanel implements Scrollable, Observer {
 	 * @param newTileset	the newly selected tileset to observe
 	 */
 	public void updateTileset(Tileset newTileset) {
-		// reinitializes list of selected tiles (from tileset) for visualization
-		selectedTiles = new ArrayList<Tile>();
+		// uses selection of tiles of the new tileset for visualization
+		selection = newTileset.getSelection();
 		
 		// stop observing changes in old tileset
 		tileset.deleteObserver(this);
@@ -726,13 +766,32 @@ public class ViewportMap extends JPanel implements Scrollable, Observer {
 		// if map object has updates, adjust visualization
 		if (obs instanceof MapState) {
 			// stores new map state to draw the new visualization
+			Map previous = map;
 			map = ((MapState) obs).getCurrentMap();
 			
+			// states of the map may have other dimensions (resized map or canvas
+			// of an unbounded map grown or shrunk by the chunks painted)
+			int shiftI = previous.getOriginI() - map.getOriginI();
+			int shiftJ = previous.getOriginJ() - map.getOriginJ();
+			if(map.getWidth() != previous.getWidth() || map.getHeight() != previous.getHeight() || shiftI != 0 || shiftJ != 0) {
+				setViewportSize();
+				createGrid();
+				revalidate();
+				// keeps the tiles in place on screen when the origin of the canvas moves
+				if(shiftI != 0 || shiftJ != 0) {
+					scrollPane.validate();
+					int tileZoomed = MapConfig.getInstance().getTileZoomed();
+					Point pos = scrollPane.getViewport().getViewPosition();
+					scrollPane.getViewport().setViewPosition(new Point(Math.max(0, pos.x + shiftJ * tileZoomed), 
+																		Math.max(0, pos.y + shiftI * tileZoomed)));
+				}
+			}
+			
 			// if there is a layer selected, update selected map tiles
 			int obsLayer = map.getSelectedLayer();
 
 			if(obsLayer >= 0) {
-				selectedMapTiles = map.getLayers().get(obsLayer).getSelectedTiles();
+				selectedMapTiles = map.getLayers().get(obsLayer).getSelection();
 			}
 
 		}
@@ -754,6 +813,8 @@ public class ViewportMap extends JPanel implements Scrollable, Observer {
 				mapPosDisplay.setVisible(true); // sets visible
 				// updates current tile position label text
 				Point tPos = new Point(MapConfig.getMouseTilePosition(scrollPane.getViewport().getViewPosition()));
+				// (position relative to the origin of the map)
+				tPos.translate(map.getOriginI(), map.getOriginJ());
 				mapPosDisplay.updateText("["+tPos.x+","+tPos.y+"]");
 			}
 			else								// else, don't
@@ -766,16 +827,17 @@ public class ViewportMap extends JPanel implements Scrollable, Observer {
 		else if (obs instanceof Tileset) {
 			Tileset ts = (Tileset) obs;
 			// stores selected tiles to draw the new pre visualization
-			selectedTiles = ts.getSelectedTiles();
+			selection = ts.getSelection();
+			previewClipboard = false;
 		}
 		// if clipboard is to be previewed on map instaed of tileset
 		else if (obs instanceof Clipboard) {
-			// stores copied tiles from clipboard to draw the new pre visualization
-			selectedTiles = Clipboard.getInstance().getCopiedTiles();
+			// previews copied tiles from clipboard if a paste is wanted
+			previewClipboard = Clipboard.getInstance().isPaste();
 			
 			// visualizing debug
 			if(Config.debug) {
-				System.out.println("ViewMap: Visualizaing "+selectedTiles.size()+" tiles from clipboard");
+				System.out.println("ViewMap: Visualizaing "+Clipboard.getInstance().getTileCount()+" tiles from clipboard");
 			}
 		}
 		else if (obs instanceof Tool){
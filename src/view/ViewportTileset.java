@@ -7,7 +7,6 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.Rectangle;
-import java.util.ArrayList;
 import java.util.Observable;
 import java.util.Observer;
 
@@ -17,7 +16,7 @@ import javax.swing.Scrollable;
 
 import controller.ViewTilesetControl;
 import model.Preferences;
-import model.Tile;
+import model.Selection;
 import model.Tileset;
 
 /**
@@ -47,7 +46,7 @@ public class ViewportTileset extends JPanel implements Scrollable, Observer {
 	@SuppressWarnings("unused")
 	private ViewTilesetControl inputController;
 
-	private ArrayList<Tile> selectedTiles;		// current selected tiles obtained from observing tileset
+	private Selection selection;		// current selected tiles obtained from observing tileset
 
 	@SuppressWarnings("unused")
 	private Tileset tileset;	// the current tileset loaded
@@ -78,8 +77,8 @@ public class ViewportTileset extends JPanel implements Scrollable, Observer {
        tileset.addObserver(this);
        // observes changes in preferences for immediate preview
        Preferences.getInstance().addObserver(this);
-       // initializes list of selected tiles for visualization
-       selectedTiles = new ArrayList<Tile>();
+       // initializes selection of tiles for visualization
+       selection = tileset.getSelection();
     }
     
     /**
@@ -134,23 +133,26 @@ public class ViewportTileset extends JPanel implements Scrollable, Observer {
 	 */
 	private void SelectTiles(Graphics g) {
 
-		// iterates through list of selected tiles
-		for(int i = 0; i < selectedTiles.size(); i++) {
-			// gets current iteration tile
-			Tile tile = selectedTiles.get(i);
-
-			//creates a copy of the Graphics instance
-	    	Graphics2D g2d = (Graphics2D) g.create();
-	    	
-	    	// applies alpha to the drawing
-	    	AlphaComposite ac = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.4f);
-	    	g2d.setComposite(ac);
-	    	
+		// nothing to draw without selected tiles
+		if(selection.isEmpty())
+			return;
+
+		//creates a copy of the Graphics instance
+    	Graphics2D g2d = (Graphics2D) g.create();
+    	
+    	// applies alpha to the drawing
+    	AlphaComposite ac = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.4f);
+    	g2d.setComposite(ac);
+    	g2d.setColor(Preferences.selectionColor);
+
+		// iterates through selected tiles
+    	int width = selection.getWidth();
+		for(int b = selection.next(0); b >= 0; b = selection.next(b + 1)) {
 	    	// creates visualization for the current iteration tile
-	    	g2d.setColor(Preferences.selectionColor);
-	    	g2d.fillRect(tile.getIndexJ() * tile.getTileSize(), tile.getIndexI() * tile.getTileSize(), 
-	    					tile.getTileSize(), tile.getTileSize());
+	    	g2d.fillRect((b % width) * tileSize, (b / width) * tileSize, tileSize, tileSize);
 		}
+		
+		g2d.dispose();
 	}
 
 	/**
@@ -201,7 +203,7 @@ public class ViewportTileset extends JPanel implements Scrollable, Observer {
 		if (obs instanceof Tileset) {
 			Tileset ts = (Tileset) obs;
 			// stores selected tiles to draw the new visualization
-			selectedTiles = ts.getSelectedTiles();
+			selection = ts.getSelection();
 			// repaints on account of changes
 			repaint();
 		}